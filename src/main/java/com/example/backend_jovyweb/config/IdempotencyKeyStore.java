@@ -0,0 +1,208 @@
+package com.example.backend_jovyweb.config;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Almacén en memoria de claves de idempotencia (cabecera Idempotency-Key).
+ *
+ * Las tabletas de planta reintentan cuando el WiFi pierde la respuesta; con la
+ * misma clave, el reintento recibe la respuesta guardada de la primera
+ * solicitud en lugar de imprimir o registrar otra vez.
+ *
+ * - Las claves se guardan por ámbito (endpoint) durante idempotency.ttl-ms y
+ * como máximo idempotency.max-entries; al superar el límite se descartan las
+ * más antiguas
+ * - Un duplicado que llega mientras la primera solicitud sigue en curso espera
+ * su resultado (hasta idempotency.wait-timeout-ms; luego responde 409)
+ * - Si la primera solicitud lanza una excepción o responde 5xx, la clave se
+ * libera para que el reintento se ejecute de nuevo
+ * - Cada clave queda ligada al usuario autenticado y a un hash SHA-256 del
+ * pedido; reutilizarla con otro usuario u otro pedido responde 422 en lugar
+ * de retornar una respuesta ajena
+ *
+ * Nota: Implementación en memoria sin persistencia en BD. Para varias
+ * instancias detrás de un balanceador, considerar usar Redis.
+ */
+@Component
+public class IdempotencyKeyStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(IdempotencyKeyStore.class);
+
+    public static final String HEADER = "Idempotency-Key";
+    private static final int LONGITUD_MAXIMA = 255;
+
+    // Orden estable de los mapas para que el mismo pedido dé el mismo hash
+    private static final ObjectMapper MAPPER = new ObjectMapper()
+            .configure(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS, true);
+
+    @Value("${idempotency.ttl-ms:3600000}")
+    private long ttlMs;
+
+    @Value("${idempotency.max-entries:10000}")
+    private int maxEntradas;
+
+    @Value("${idempotency.wait-timeout-ms:30000}")
+    private long esperaMs;
+
+    /**
+     * Resultado de una solicitud, completado al terminar la primera.
+     */
+    private static class Entrada {
+        final CompletableFuture<Object> resultado = new CompletableFuture<>();
+        final long creada = System.currentTimeMillis();
+        final String huella; // Hash del usuario y del pedido
+
+        Entrada(String huella) {
+            this.huella = huella;
+        }
+    }
+
+    // Entradas en orden de creación: ámbito + clave -> entrada
+    private final Map<String, Entrada> entradas = new LinkedHashMap<>();
+
+    /**
+     * Ejecuta una operación una sola vez por clave de idempotencia.
+     *
+     * @param ambito    Ámbito de la clave (p. ej. el endpoint)
+     * @param clave     Valor de la cabecera Idempotency-Key; null o vacío
+     *                  ejecuta la operación sin idempotencia
+     * @param pedido    Cuerpo y parámetros de la solicitud, para reconocer un
+     *                  reintento del mismo pedido
+     * @param operacion Operación a ejecutar
+     * @return Resultado de la operación, o el guardado si la clave ya se usó
+     * @throws ResponseStatusException 400 si la clave es inválida, 409 si la
+     *                                 solicitud original sigue en curso tras la
+     *                                 espera, 422 si la clave se usó con otro
+     *                                 usuario u otro pedido
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T ejecutar(String ambito, String clave, Object pedido, Supplier<T> operacion) {
+        if (clave == null || clave.isBlank()) {
+            return operacion.get();
+        }
+        if (clave.length() > LONGITUD_MAXIMA) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    HEADER + " excede " + LONGITUD_MAXIMA + " caracteres");
+        }
+
+        String id = ambito + ":" + clave;
+        Entrada nueva = new Entrada(huella(pedido));
+        Entrada existente;
+        synchronized (entradas) {
+            purgar();
+            existente = entradas.putIfAbsent(id, nueva);
+        }
+
+        if (existente != null) {
+            if (!existente.huella.equals(nueva.huella)) {
+                logger.warn("{} {} reutilizada en {} con otro usuario u otro pedido", HEADER, clave, ambito);
+                throw new ResponseStatusException(HttpStatus.UNPROCESSABLE_CONTENT,
+                        HEADER + " " + clave + " ya se usó con otra solicitud");
+            }
+            logger.info("Solicitud repetida con {} {} en {}, se retorna la respuesta original", HEADER, clave,
+                    ambito);
+            return (T) esperar(existente, clave);
+        }
+
+        T resultado;
+        try {
+            resultado = operacion.get();
+        } catch (RuntimeException e) {
+            liberar(id, nueva);
+            nueva.resultado.completeExceptionally(e);
+            throw e;
+        }
+
+        if (resultado instanceof ResponseEntity<?> respuesta && respuesta.getStatusCode().is5xxServerError()) {
+            liberar(id, nueva);
+        }
+        nueva.resultado.complete(resultado);
+        return resultado;
+    }
+
+    /**
+     * Hash SHA-256 del usuario autenticado y del pedido serializado en JSON.
+     */
+    private static String huella(Object pedido) {
+        Authentication autenticacion = SecurityContextHolder.getContext().getAuthentication();
+        String usuario = autenticacion != null ? autenticacion.getName() : "";
+        String contenido;
+        try {
+            contenido = MAPPER.writeValueAsString(pedido);
+        } catch (JsonProcessingException e) {
+            contenido = String.valueOf(pedido);
+        }
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(usuario.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            return HexFormat.of().formatHex(digest.digest(contenido.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no disponible", e);
+        }
+    }
+
+    private Object esperar(Entrada entrada, String clave) {
+        try {
+            return entrada.resultado.get(esperaMs, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException causa) {
+                throw causa;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (TimeoutException e) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT,
+                    "La solicitud con " + HEADER + " " + clave + " sigue en proceso");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ResponseStatusException(HttpStatus.CONFLICT,
+                    "La solicitud con " + HEADER + " " + clave + " sigue en proceso");
+        }
+    }
+
+    private void liberar(String id, Entrada entrada) {
+        synchronized (entradas) {
+            entradas.remove(id, entrada);
+        }
+    }
+
+    /**
+     * Descarta las entradas vencidas y, si se supera el límite, las más
+     * antiguas. Debe llamarse con el lock de entradas.
+     */
+    private void purgar() {
+        long limite = System.currentTimeMillis() - ttlMs;
+        Iterator<Entrada> it = entradas.values().iterator();
+        while (it.hasNext()) {
+            Entrada entrada = it.next();
+            if (entrada.creada >= limite && entradas.size() < maxEntradas) {
+                break;
+            }
+            it.remove();
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package com.example.backend_jovyweb.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Habilita las tareas programadas (@Scheduled) de la aplicación.
+ * Usadas por el módulo de impresoras para mantenimiento de conexiones.
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
@@ -67,6 +67,8 @@ public class SecurityConfig implements WebMvcConfigurer {
                                                 .requestMatchers("/swagger-ui/**").permitAll()
                                                 .requestMatchers("/v3/api-docs/**").permitAll()
                                                 .requestMatchers("/h2-console/**").permitAll()
+                                                // Reenvío entre nodos (se autentica con X-Cluster-Secret)
+                                                .requestMatchers("/api/printers/cluster/**").permitAll()
                                                 // Todas las demás rutas requieren autenticación
                                                 .anyRequest().authenticated())
 
@@ -122,7 +124,8 @@ public class SecurityConfig implements WebMvcConfigurer {
                                 "Authorization",
                                 "X-CSRF-Token",
                                 "X-Requested-With",
-                                "X-AUTH-TOKEN"));
+                                "X-AUTH-TOKEN",
+                                IdempotencyKeyStore.HEADER));
 
                 // Headers expuestos en la respuesta
                 configuration.setExposedHeaders(Arrays.asList(
@@ -155,7 +158,8 @@ public class SecurityConfig implements WebMvcConfigurer {
                                                 "/api/auth/login",
                                                 "/api/auth/validate",
                                                 "/api/auth/logout",
-                                                "/api/auth/refresh"); // Refresh usa refreshToken, no JWT
+                                                "/api/auth/refresh", // Refresh usa refreshToken, no JWT
+                                                "/api/printers/cluster/**"); // Usa X-Cluster-Secret
         }
 
         /**
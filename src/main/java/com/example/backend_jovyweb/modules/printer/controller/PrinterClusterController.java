@@ -0,0 +1,157 @@
+package com.example.backend_jovyweb.modules.printer.controller;
+
+import com.example.backend_jovyweb.modules.printer.dto.PrintJobStatusDTO;
+import com.example.backend_jovyweb.modules.printer.model.PrintJob;
+import com.example.backend_jovyweb.modules.printer.service.PrintQueueService;
+import com.example.backend_jovyweb.modules.printer.service.impl.PrintJobForwarder;
+import com.example.backend_jovyweb.modules.printer.service.impl.PrinterLeaseManager;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Controlador REST interno entre nodos del servicio: recibe los trabajos que
+ * otro nodo reenvía porque la impresora pertenece a este, y responde el estado
+ * y la cancelación de esos trabajos.
+ *
+ * No usa JWT; se autentica con la cabecera X-Cluster-Secret
+ * (printer.cluster.secret).
+ */
+@RestController
+@RequestMapping("/api/printers/cluster")
+@Tag(name = "Impresoras (nodos)", description = "API interna para reenviar trabajos de impresión entre nodos")
+public class PrinterClusterController {
+
+        private final PrintQueueService printQueueService;
+        private final PrintJobForwarder forwarder;
+        private final PrinterLeaseManager leases;
+
+        /**
+         * Constructor con inyección de la cola y el reenvío entre nodos.
+         *
+         * @param printQueueService Servicio de colas de impresión por impresora
+         * @param forwarder         Reenvío de trabajos (valida el secreto)
+         * @param leases            Propiedad de las impresoras entre nodos
+         */
+        public PrinterClusterController(PrintQueueService printQueueService, PrintJobForwarder forwarder,
+                        PrinterLeaseManager leases) {
+                this.printQueueService = printQueueService;
+                this.forwarder = forwarder;
+                this.leases = leases;
+        }
+
+        /**
+         * Encola un trabajo reenviado por otro nodo.
+         *
+         * @param id        ID de la impresora
+         * @param cantidad  Número de copias
+         * @param prioridad Prioridad del trabajo
+         * @param secreto   Cabecera X-Cluster-Secret
+         * @param datos     Bytes ZPL con ^PQ incluido
+         * @return ResponseEntity con el ID del trabajo encolado
+         */
+        @PostMapping(value = "/{id}/jobs", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+        @Operation(summary = "Recibir trabajo reenviado", description = "Encola un trabajo ya renderizado que otro nodo reenvió porque la impresora pertenece a este nodo")
+        @ApiResponses(value = {
+                        @ApiResponse(responseCode = "202", description = "Trabajo de impresión encolado"),
+                        @ApiResponse(responseCode = "403", description = "Secreto inválido o nodos deshabilitados"),
+                        @ApiResponse(responseCode = "503", description = "La impresora no pertenece a este nodo o su cola está llena")
+        })
+        public ResponseEntity<Map<String, Object>> recibirTrabajo(
+                        @Parameter(description = "ID de la impresora", required = true) @PathVariable int id,
+                        @Parameter(description = "Número de copias") @RequestParam(defaultValue = "1") int cantidad,
+                        @Parameter(description = "Prioridad del trabajo") @RequestParam(required = false) PrintJob.Prioridad prioridad,
+                        @Parameter(description = "Secreto compartido entre nodos") @RequestHeader(value = PrintJobForwarder.HEADER, required = false) String secreto,
+                        @RequestBody byte[] datos) {
+                if (!leases.isHabilitado() || !forwarder.secretoValido(secreto)) {
+                        Map<String, Object> error = new HashMap<>();
+                        error.put("PRI_Exito", false);
+                        error.put("PRI_Error", "Reenvío entre nodos no autorizado");
+                        return ResponseEntity.status(HttpStatus.FORBIDDEN).body(error);
+                }
+                try {
+                        String jobId = printQueueService.encolarReenviado(id, datos, cantidad, prioridad);
+
+                        Map<String, Object> response = new HashMap<>();
+                        response.put("PRI_Exito", true);
+                        response.put("PRI_Mensaje", "Trabajo de impresión encolado");
+                        response.put("PRI_IdTrabajo", jobId);
+                        response.put("PRI_IdImp", id);
+                        response.put("PRI_Nodo", leases.getNodo());
+
+                        return ResponseEntity.accepted().body(response);
+                } catch (IllegalStateException e) {
+                        Map<String, Object> error = new HashMap<>();
+                        error.put("PRI_Exito", false);
+                        error.put("PRI_Error", e.getMessage());
+                        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(error);
+                } catch (Exception e) {
+                        Map<String, Object> error = new HashMap<>();
+                        error.put("PRI_Exito", false);
+                        error.put("PRI_Error", "Error interno: " + e.getMessage());
+                        return ResponseEntity.internalServerError().body(error);
+                }
+        }
+
+        /**
+         * Obtiene el estado de un trabajo que otro nodo reenvió a este.
+         *
+         * @param jobId   ID del trabajo en este nodo
+         * @param secreto Cabecera X-Cluster-Secret
+         * @return ResponseEntity con el estado del trabajo, o 404 si no existe
+         */
+        @GetMapping("/jobs/{jobId}")
+        @Operation(summary = "Estado de un trabajo reenviado", description = "Retorna el estado de un trabajo que otro nodo reenvió a este")
+        @ApiResponses(value = {
+                        @ApiResponse(responseCode = "200", description = "Estado del trabajo en JSON"),
+                        @ApiResponse(responseCode = "403", description = "Secreto inválido o nodos deshabilitados"),
+                        @ApiResponse(responseCode = "404", description = "Trabajo no encontrado o expirado")
+        })
+        public ResponseEntity<PrintJobStatusDTO> obtenerEstadoTrabajo(
+                        @Parameter(description = "ID del trabajo de impresión", required = true) @PathVariable String jobId,
+                        @Parameter(description = "Secreto compartido entre nodos") @RequestHeader(value = PrintJobForwarder.HEADER, required = false) String secreto) {
+                if (!leases.isHabilitado() || !forwarder.secretoValido(secreto)) {
+                        return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+                }
+                return printQueueService.obtenerEstadoTrabajo(jobId)
+                                .map(ResponseEntity::ok)
+                                .orElse(ResponseEntity.notFound().build());
+        }
+
+        /**
+         * Cancela un trabajo que otro nodo reenvió a este.
+         *
+         * @param jobId   ID del trabajo en este nodo
+         * @param secreto Cabecera X-Cluster-Secret
+         * @return ResponseEntity con el estado del trabajo, 404 si no existe o
+         *         409 si ya había terminado
+         */
+        @DeleteMapping("/jobs/{jobId}")
+        @Operation(summary = "Cancelar un trabajo reenviado", description = "Cancela un trabajo que otro nodo reenvió a este")
+        @ApiResponses(value = {
+                        @ApiResponse(responseCode = "200", description = "Cancelación aplicada o solicitada; estado del trabajo en JSON"),
+                        @ApiResponse(responseCode = "403", description = "Secreto inválido o nodos deshabilitados"),
+                        @ApiResponse(responseCode = "404", description = "Trabajo no encontrado o expirado"),
+                        @ApiResponse(responseCode = "409", description = "El trabajo ya había terminado")
+        })
+        public ResponseEntity<PrintJobStatusDTO> cancelarTrabajo(
+                        @Parameter(description = "ID del trabajo de impresión", required = true) @PathVariable String jobId,
+                        @Parameter(description = "Secreto compartido entre nodos") @RequestHeader(value = PrintJobForwarder.HEADER, required = false) String secreto) {
+                if (!leases.isHabilitado() || !forwarder.secretoValido(secreto)) {
+                        return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+                }
+                return printQueueService.cancelarTrabajo(jobId)
+                                .map(PrinterController::respuestaCancelacion)
+                                .orElse(ResponseEntity.notFound().build());
+        }
+}
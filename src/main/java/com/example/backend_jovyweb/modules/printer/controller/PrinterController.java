@@ -1,9 +1,22 @@
 package com.example.backend_jovyweb.modules.printer.controller;
 
+import com.example.backend_jovyweb.config.IdempotencyKeyStore;
+import com.example.backend_jovyweb.modules.printer.dto.PrintBatchDTO;
+import com.example.backend_jovyweb.modules.printer.dto.PrintBatchResultDTO;
 import com.example.backend_jovyweb.modules.printer.dto.PrinterDTO;
+import com.example.backend_jovyweb.modules.printer.dto.PrinterStatusDTO;
 import com.example.backend_jovyweb.modules.printer.dto.PrintJobDTO;
+import com.example.backend_jovyweb.modules.printer.dto.PrintJobStatusDTO;
+import com.example.backend_jovyweb.modules.printer.dto.PrintLocationDTO;
+import com.example.backend_jovyweb.modules.printer.dto.PrintSerialDTO;
+import com.example.backend_jovyweb.modules.printer.dto.PrintTemplateDTO;
 import com.example.backend_jovyweb.modules.printer.dto.ZplCommandDTO;
+import com.example.backend_jovyweb.modules.printer.model.PrintJob;
+import com.example.backend_jovyweb.modules.printer.service.PrintPoolService;
+import com.example.backend_jovyweb.modules.printer.service.PrintQueueService;
 import com.example.backend_jovyweb.modules.printer.service.PrinterService;
+import com.example.backend_jovyweb.modules.printer.template.TipoCampo;
+import com.example.backend_jovyweb.modules.printer.template.ZplTemplateRegistry;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
@@ -11,13 +24,18 @@ import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.InputStream;
+import java.util.Arrays;
 import java.util.List;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Optional;
 
 /**
  * Controlador REST para la gestión de impresoras y funciones de impresión con
@@ -30,14 +48,28 @@ import java.util.Map;
 public class PrinterController {
 
         private final PrinterService printerService;
+        private final PrintQueueService printQueueService;
+        private final ZplTemplateRegistry templateRegistry;
+        private final PrintPoolService printPoolService;
+        private final IdempotencyKeyStore idempotencyKeyStore;
 
         /**
-         * Constructor con inyección del servicio de impresoras.
+         * Constructor con inyección de los servicios de impresoras.
          * 
-         * @param printerService Servicio para operaciones de impresoras
+         * @param printerService      Servicio para operaciones de impresoras
+         * @param printQueueService   Servicio de colas de impresión por impresora
+         * @param templateRegistry    Registro de plantillas ZPL precompiladas
+         * @param printPoolService    Servicio de pools de impresoras por ubicación
+         * @param idempotencyKeyStore Almacén de claves de idempotencia
          */
-        public PrinterController(PrinterService printerService) {
+        public PrinterController(PrinterService printerService, PrintQueueService printQueueService,
+                        ZplTemplateRegistry templateRegistry, PrintPoolService printPoolService,
+                        IdempotencyKeyStore idempotencyKeyStore) {
                 this.printerService = printerService;
+                this.printQueueService = printQueueService;
+                this.templateRegistry = templateRegistry;
+                this.printPoolService = printPoolService;
+                this.idempotencyKeyStore = idempotencyKeyStore;
         }
 
         /**
@@ -148,40 +180,495 @@ public class PrinterController {
         }
 
         /**
-         * Imprime una etiqueta usando una plantilla ZPL en la impresora especificada.
+         * Encola una etiqueta usando una plantilla ZPL en la impresora especificada.
          * 
-         * @param printJobDTO Datos del trabajo de impresión (printerId, templateZPL,
-         *                    cantidad)
-         * @return ResponseEntity con el resultado de la impresión
+         * La impresión se realiza en segundo plano; la respuesta incluye el ID del
+         * trabajo para consultar su estado en /print/jobs/{jobId}.
+         * 
+         * Con la cabecera Idempotency-Key, un reintento con la misma clave retorna
+         * la respuesta original (el mismo ID de trabajo) sin volver a encolar.
+         * 
+         * @param printJobDTO    Datos del trabajo de impresión (printerId,
+         *                       templateZPL, cantidad)
+         * @param idempotencyKey Clave de idempotencia (opcional)
+         * @return ResponseEntity con el ID del trabajo encolado
          */
         @PostMapping("/print/label")
-        @Operation(summary = "Imprimir etiqueta ZPL", description = "Imprime una etiqueta usando una plantilla ZPL en la impresora Zebra especificada (conexión TCP/WiFi)")
+        @Operation(summary = "Imprimir etiqueta ZPL", description = "Encola una etiqueta usando una plantilla ZPL en la impresora Zebra especificada (conexión TCP/WiFi) y retorna el ID del trabajo")
         @ApiResponses(value = {
-                        @ApiResponse(responseCode = "200", description = "Etiqueta impresa exitosamente"),
+                        @ApiResponse(responseCode = "202", description = "Trabajo de impresión encolado"),
                         @ApiResponse(responseCode = "400", description = "Datos inválidos o impresora no encontrada"),
-                        @ApiResponse(responseCode = "500", description = "Error al imprimir")
+                        @ApiResponse(responseCode = "409", description = "Solicitud con la misma Idempotency-Key aún en proceso"),
+                        @ApiResponse(responseCode = "422", description = "Idempotency-Key ya usada con otra solicitud"),
+                        @ApiResponse(responseCode = "503", description = "Cola de la impresora llena")
         })
         public ResponseEntity<Map<String, Object>> imprimirEtiqueta(
-                        @Parameter(description = "Datos del trabajo de impresión en JSON", required = true) @Valid @RequestBody PrintJobDTO printJobDTO) {
+                        @Parameter(description = "Datos del trabajo de impresión en JSON", required = true) @Valid @RequestBody PrintJobDTO printJobDTO,
+                        @Parameter(description = "Clave para reintentos sin duplicar la impresión") @RequestHeader(value = IdempotencyKeyStore.HEADER, required = false) String idempotencyKey) {
+                return idempotencyKeyStore.ejecutar("print-label", idempotencyKey, printJobDTO,
+                                () -> encolarEtiqueta(printJobDTO));
+        }
+
+        private ResponseEntity<Map<String, Object>> encolarEtiqueta(PrintJobDTO printJobDTO) {
                 try {
-                        boolean resultado = printerService.imprimirEtiqueta(
+                        String jobId = printQueueService.encolarTrabajo(
                                         printJobDTO.getPrinterId(),
                                         printJobDTO.getTemplateZPL(),
-                                        printJobDTO.getCantidad());
+                                        printJobDTO.getCantidad(),
+                                        printJobDTO.getPrioridad());
+
+                        Map<String, Object> response = new HashMap<>();
+                        response.put("PRI_Exito", true);
+                        response.put("PRI_Mensaje", "Trabajo de impresión encolado");
+                        response.put("PRI_IdTrabajo", jobId);
+                        response.put("PRI_IdImp", printJobDTO.getPrinterId());
+                        response.put("PRI_Cantidad", printJobDTO.getCantidad());
+
+                        return ResponseEntity.accepted().body(response);
+                } catch (IllegalArgumentException e) {
+                        Map<String, Object> error = new HashMap<>();
+                        error.put("PRI_Exito", false);
+                        error.put("PRI_Error", e.getMessage());
+                        return ResponseEntity.badRequest().body(error);
+                } catch (IllegalStateException e) {
+                        Map<String, Object> error = new HashMap<>();
+                        error.put("PRI_Exito", false);
+                        error.put("PRI_Error", e.getMessage());
+                        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(error);
+                } catch (Exception e) {
+                        Map<String, Object> error = new HashMap<>();
+                        error.put("PRI_Exito", false);
+                        error.put("PRI_Error", "Error interno: " + e.getMessage());
+                        return ResponseEntity.internalServerError().body(error);
+                }
+        }
+
+        /**
+         * Encola un lote de etiquetas para una o varias impresoras.
+         * 
+         * Las etiquetas se agrupan por impresora y cada grupo se envía en una sola
+         * escritura. La respuesta incluye el resultado de cada etiqueta en el orden
+         * del lote (ID del trabajo o motivo del rechazo).
+         * 
+         * @param printBatchDTO Etiquetas del lote
+         * @return ResponseEntity con los resultados por etiqueta
+         */
+        @PostMapping("/print/batch")
+        @Operation(summary = "Imprimir lote de etiquetas", description = "Encola varias etiquetas (ZPL o plantilla del servidor) para una o varias impresoras; las de cada impresora se envían en una sola escritura. Retorna el resultado por etiqueta")
+        @ApiResponses(value = {
+                        @ApiResponse(responseCode = "202", description = "Lote procesado; ver el resultado de cada etiqueta"),
+                        @ApiResponse(responseCode = "400", description = "Datos inválidos o impresora no encontrada")
+        })
+        public ResponseEntity<Map<String, Object>> imprimirLote(
+                        @Parameter(description = "Lote de etiquetas en JSON", required = true) @Valid @RequestBody PrintBatchDTO printBatchDTO) {
+                try {
+                        List<PrintBatchResultDTO> resultados = printQueueService
+                                        .encolarLote(printBatchDTO.getTrabajos());
+                        long encolados = resultados.stream().filter(PrintBatchResultDTO::isExito).count();
+
+                        Map<String, Object> response = new HashMap<>();
+                        response.put("PRI_Exito", encolados == resultados.size());
+                        response.put("PRI_Mensaje", encolados + " de " + resultados.size() + " etiquetas encoladas");
+                        response.put("PRI_Resultados", resultados);
+
+                        return ResponseEntity.accepted().body(response);
+                } catch (IllegalArgumentException e) {
+                        Map<String, Object> error = new HashMap<>();
+                        error.put("PRI_Exito", false);
+                        error.put("PRI_Error", e.getMessage());
+                        return ResponseEntity.badRequest().body(error);
+                } catch (Exception e) {
+                        Map<String, Object> error = new HashMap<>();
+                        error.put("PRI_Exito", false);
+                        error.put("PRI_Error", "Error interno: " + e.getMessage());
+                        return ResponseEntity.internalServerError().body(error);
+                }
+        }
+
+        /**
+         * Encola una etiqueta en el pool de impresoras de una ubicación.
+         * 
+         * El trabajo va a la impresora disponible con menos etiquetas pendientes;
+         * una cantidad grande se reparte entre varias impresoras. Si una impresora
+         * falla, su trabajo pasa a otra de la misma ubicación.
+         * 
+         * @param printLocationDTO Datos del trabajo (ubicación, etiqueta, cantidad)
+         * @return ResponseEntity con los trabajos encolados
+         */
+        @PostMapping("/print/location")
+        @Operation(summary = "Imprimir en una ubicación", description = "Encola una etiqueta en la impresora disponible menos cargada de una ubicación (PRI_Ubicacion), repartiendo cantidades grandes entre varias impresoras")
+        @ApiResponses(value = {
+                        @ApiResponse(responseCode = "202", description = "Trabajo(s) de impresión encolado(s)"),
+                        @ApiResponse(responseCode = "400", description = "Ubicación sin impresoras o datos inválidos"),
+                        @ApiResponse(responseCode = "503", description = "Ninguna impresora disponible en la ubicación")
+        })
+        public ResponseEntity<Map<String, Object>> imprimirEnUbicacion(
+                        @Parameter(description = "Datos del trabajo de impresión en JSON", required = true) @Valid @RequestBody PrintLocationDTO printLocationDTO) {
+                try {
+                        List<PrintJobStatusDTO> trabajos = printPoolService.imprimirEnUbicacion(printLocationDTO);
+
+                        Map<String, Object> response = new HashMap<>();
+                        response.put("PRI_Exito", true);
+                        response.put("PRI_Mensaje", "Trabajo de impresión encolado en " + trabajos.size()
+                                        + " impresora(s)");
+                        response.put("PRI_Ubicacion", printLocationDTO.getUbicacion());
+                        response.put("PRI_Cantidad", printLocationDTO.getCantidad());
+                        response.put("PRI_Trabajos", trabajos);
+
+                        return ResponseEntity.accepted().body(response);
+                } catch (IllegalArgumentException e) {
+                        Map<String, Object> error = new HashMap<>();
+                        error.put("PRI_Exito", false);
+                        error.put("PRI_Error", e.getMessage());
+                        return ResponseEntity.badRequest().body(error);
+                } catch (IllegalStateException e) {
+                        Map<String, Object> error = new HashMap<>();
+                        error.put("PRI_Exito", false);
+                        error.put("PRI_Error", e.getMessage());
+                        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(error);
+                } catch (Exception e) {
+                        Map<String, Object> error = new HashMap<>();
+                        error.put("PRI_Exito", false);
+                        error.put("PRI_Error", "Error interno: " + e.getMessage());
+                        return ResponseEntity.internalServerError().body(error);
+                }
+        }
+
+        /**
+         * Obtiene las impresoras activas agrupadas por ubicación.
+         * 
+         * @return Mapa ubicación -> estado de sus impresoras
+         */
+        @GetMapping("/pools")
+        @Operation(summary = "Obtener pools por ubicación", description = "Retorna las impresoras activas agrupadas por ubicación con su último estado conocido")
+        @ApiResponses(value = {
+                        @ApiResponse(responseCode = "200", description = "Pools en JSON")
+        })
+        public Map<String, List<PrinterStatusDTO>> obtenerPools() {
+                return printPoolService.obtenerPools();
+        }
+
+        /**
+         * Encola una etiqueta renderizada en el servidor a partir de una plantilla
+         * precompilada (designs-tickets) y los valores de sus campos.
+         * 
+         * @param printTemplateDTO Datos del trabajo (printerId, plantilla, campos,
+         *                         cantidad)
+         * @return ResponseEntity con el ID del trabajo encolado
+         */
+        @PostMapping("/print/template")
+        @Operation(summary = "Imprimir etiqueta desde plantilla", description = "Renderiza una plantilla ZPL del servidor con los campos indicados y encola la etiqueta en la impresora especificada")
+        @ApiResponses(value = {
+                        @ApiResponse(responseCode = "202", description = "Trabajo de impresión encolado"),
+                        @ApiResponse(responseCode = "400", description = "Plantilla inexistente, impresora no encontrada o campos inválidos"),
+                        @ApiResponse(responseCode = "503", description = "Cola de la impresora llena")
+        })
+        public ResponseEntity<Map<String, Object>> imprimirPlantilla(
+                        @Parameter(description = "Datos del trabajo de impresión en JSON", required = true) @Valid @RequestBody PrintTemplateDTO printTemplateDTO) {
+                try {
+                        byte[] datos = templateRegistry.renderizar(
+                                        printTemplateDTO.getPlantilla(),
+                                        printTemplateDTO.getCampos(),
+                                        printTemplateDTO.getCantidad());
+                        String jobId = printQueueService.encolarDatos(
+                                        printTemplateDTO.getPrinterId(),
+                                        datos,
+                                        printTemplateDTO.getCantidad(),
+                                        printTemplateDTO.getPrioridad());
+
+                        Map<String, Object> response = new HashMap<>();
+                        response.put("PRI_Exito", true);
+                        response.put("PRI_Mensaje", "Trabajo de impresión encolado");
+                        response.put("PRI_IdTrabajo", jobId);
+                        response.put("PRI_IdImp", printTemplateDTO.getPrinterId());
+                        response.put("PRI_Cantidad", printTemplateDTO.getCantidad());
+
+                        return ResponseEntity.accepted().body(response);
+                } catch (IllegalArgumentException e) {
+                        Map<String, Object> error = new HashMap<>();
+                        error.put("PRI_Exito", false);
+                        error.put("PRI_Error", e.getMessage());
+                        return ResponseEntity.badRequest().body(error);
+                } catch (IllegalStateException e) {
+                        Map<String, Object> error = new HashMap<>();
+                        error.put("PRI_Exito", false);
+                        error.put("PRI_Error", e.getMessage());
+                        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(error);
+                } catch (Exception e) {
+                        Map<String, Object> error = new HashMap<>();
+                        error.put("PRI_Exito", false);
+                        error.put("PRI_Error", "Error interno: " + e.getMessage());
+                        return ResponseEntity.internalServerError().body(error);
+                }
+        }
+
+        /**
+         * Imprime etiquetas numeradas con una plantilla del servidor que tiene un
+         * campo serie ({{caja:serie}}). Se envía un solo formato con ^SF y la
+         * impresora incrementa el número en cada copia, en lugar de recibir una
+         * etiqueta completa por número.
+         * 
+         * @param printSerialDTO Datos del trabajo (printerId, plantilla, campos,
+         *                       inicio, incremento, cantidad, dígitos)
+         * @return ResponseEntity con el ID del trabajo encolado
+         */
+        @PostMapping("/print/serial")
+        @Operation(summary = "Imprimir etiquetas numeradas", description = "Renderiza una plantilla con campo serie como un solo formato numerado en la impresora (^SF) y lo encola: inicio, inicio + incremento, ... hasta la cantidad indicada")
+        @ApiResponses(value = {
+                        @ApiResponse(responseCode = "202", description = "Trabajo de impresión encolado"),
+                        @ApiResponse(responseCode = "400", description = "Plantilla inexistente, impresora no encontrada, sin campo serie o campos inválidos"),
+                        @ApiResponse(responseCode = "503", description = "Cola de la impresora llena")
+        })
+        public ResponseEntity<Map<String, Object>> imprimirSerie(
+                        @Parameter(description = "Datos del trabajo de impresión en JSON", required = true) @Valid @RequestBody PrintSerialDTO printSerialDTO) {
+                try {
+                        byte[] datos = templateRegistry.renderizarSerie(
+                                        printSerialDTO.getPlantilla(),
+                                        printSerialDTO.getCampos(),
+                                        printSerialDTO.getInicio(),
+                                        printSerialDTO.getIncremento(),
+                                        printSerialDTO.getCantidad(),
+                                        printSerialDTO.getDigitos() != null ? printSerialDTO.getDigitos() : 0);
+                        String jobId = printQueueService.encolarDatos(
+                                        printSerialDTO.getPrinterId(),
+                                        datos,
+                                        printSerialDTO.getCantidad(),
+                                        printSerialDTO.getPrioridad());
+
+                        Map<String, Object> response = new HashMap<>();
+                        response.put("PRI_Exito", true);
+                        response.put("PRI_Mensaje", "Trabajo de impresión encolado");
+                        response.put("PRI_IdTrabajo", jobId);
+                        response.put("PRI_IdImp", printSerialDTO.getPrinterId());
+                        response.put("PRI_Cantidad", printSerialDTO.getCantidad());
+
+                        return ResponseEntity.accepted().body(response);
+                } catch (IllegalArgumentException e) {
+                        Map<String, Object> error = new HashMap<>();
+                        error.put("PRI_Exito", false);
+                        error.put("PRI_Error", e.getMessage());
+                        return ResponseEntity.badRequest().body(error);
+                } catch (IllegalStateException e) {
+                        Map<String, Object> error = new HashMap<>();
+                        error.put("PRI_Exito", false);
+                        error.put("PRI_Error", e.getMessage());
+                        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(error);
+                } catch (Exception e) {
+                        Map<String, Object> error = new HashMap<>();
+                        error.put("PRI_Exito", false);
+                        error.put("PRI_Error", "Error interno: " + e.getMessage());
+                        return ResponseEntity.internalServerError().body(error);
+                }
+        }
+
+        /**
+         * Obtiene las plantillas ZPL cargadas y los campos que requiere cada una.
+         * 
+         * @return Mapa plantilla -> (campo -> tipo)
+         */
+        @GetMapping("/templates")
+        @Operation(summary = "Obtener plantillas ZPL", description = "Retorna las plantillas ZPL precompiladas disponibles y los campos (con su tipo) que requiere cada una")
+        @ApiResponses(value = {
+                        @ApiResponse(responseCode = "200", description = "Plantillas en JSON")
+        })
+        public Map<String, Map<String, TipoCampo>> obtenerPlantillas() {
+                return templateRegistry.listar();
+        }
+
+        /**
+         * Obtiene el estado de un trabajo de impresión encolado.
+         * 
+         * @param jobId ID del trabajo retornado por /print/label
+         * @return ResponseEntity con el estado del trabajo, o 404 si no existe
+         */
+        @GetMapping("/print/jobs/{jobId}")
+        @Operation(summary = "Obtener estado de un trabajo de impresión", description = "Retorna el estado (EN_COLA, IMPRIMIENDO, COMPLETADO, FALLIDO, CANCELADO) de un trabajo de impresión")
+        @ApiResponses(value = {
+                        @ApiResponse(responseCode = "200", description = "Estado del trabajo en JSON"),
+                        @ApiResponse(responseCode = "404", description = "Trabajo no encontrado o expirado"),
+                        @ApiResponse(responseCode = "503", description = "El nodo propietario del trabajo no responde")
+        })
+        public ResponseEntity<PrintJobStatusDTO> obtenerEstadoTrabajo(
+                        @Parameter(description = "ID del trabajo de impresión", required = true) @PathVariable String jobId) {
+                try {
+                        return printQueueService.obtenerEstadoTrabajo(jobId)
+                                        .map(ResponseEntity::ok)
+                                        .orElse(ResponseEntity.notFound().build());
+                } catch (IllegalStateException e) {
+                        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+                }
+        }
+
+        /**
+         * Cancela un trabajo de impresión. Las copias que no se han enviado a la
+         * impresora no se imprimen; con el control de flujo, la impresora tiene
+         * como máximo printer.flow.high-watermark etiquetas pendientes.
+         * 
+         * @param jobId ID del trabajo retornado por /print/label
+         * @return ResponseEntity con el estado del trabajo, 404 si no existe o
+         *         409 si ya había terminado
+         */
+        @DeleteMapping("/print/jobs/{jobId}")
+        @Operation(summary = "Cancelar un trabajo de impresión", description = "Cancela un trabajo en cola o las copias aún no enviadas de un trabajo en curso")
+        @ApiResponses(value = {
+                        @ApiResponse(responseCode = "200", description = "Cancelación aplicada o solicitada; estado del trabajo en JSON"),
+                        @ApiResponse(responseCode = "404", description = "Trabajo no encontrado o expirado"),
+                        @ApiResponse(responseCode = "409", description = "El trabajo ya había terminado"),
+                        @ApiResponse(responseCode = "503", description = "El nodo propietario del trabajo no responde")
+        })
+        public ResponseEntity<PrintJobStatusDTO> cancelarTrabajo(
+                        @Parameter(description = "ID del trabajo de impresión", required = true) @PathVariable String jobId) {
+                try {
+                        return printQueueService.cancelarTrabajo(jobId)
+                                        .map(PrinterController::respuestaCancelacion)
+                                        .orElse(ResponseEntity.notFound().build());
+                } catch (IllegalStateException e) {
+                        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+                }
+        }
+
+        /**
+         * Respuesta de una cancelación: 409 si el trabajo ya había terminado.
+         *
+         * @param estado Estado del trabajo tras solicitar la cancelación
+         * @return ResponseEntity con el estado del trabajo
+         */
+        public static ResponseEntity<PrintJobStatusDTO> respuestaCancelacion(PrintJobStatusDTO estado) {
+                boolean terminado = PrintJob.Estado.COMPLETADO.name().equals(estado.getEstado())
+                                || PrintJob.Estado.FALLIDO.name().equals(estado.getEstado());
+                return terminado ? ResponseEntity.status(HttpStatus.CONFLICT).body(estado) : ResponseEntity.ok(estado);
+        }
+
+        /**
+         * Reimprime un trabajo reciente desde el historial del servidor, con los
+         * mismos bytes que se enviaron: el cliente no vuelve a subir la etiqueta
+         * ni se renderiza de nuevo. Se guardan los últimos
+         * printer.reprint.jobs-per-printer trabajos de cada impresora.
+         * 
+         * Con la cabecera Idempotency-Key, un reintento con la misma clave retorna
+         * la respuesta original sin volver a encolar.
+         * 
+         * @param id             ID de la impresora a la que se envió el trabajo
+         * @param jobId          ID del trabajo original
+         * @param destino        Impresora donde reimprimir (opcional, por defecto
+         *                       la misma)
+         * @param prioridad      Prioridad (opcional, por defecto URGENTE)
+         * @param idempotencyKey Clave de idempotencia (opcional)
+         * @return ResponseEntity con el ID del nuevo trabajo, o 404 si el trabajo
+         *         ya no está en el historial
+         */
+        @PostMapping("/{id}/reprint/{jobId}")
+        @Operation(summary = "Reimprimir un trabajo reciente", description = "Vuelve a encolar un trabajo reciente de la impresora con los bytes guardados en el servidor, opcionalmente en otra impresora")
+        @ApiResponses(value = {
+                        @ApiResponse(responseCode = "202", description = "Reimpresión encolada"),
+                        @ApiResponse(responseCode = "400", description = "Impresora de destino no encontrada"),
+                        @ApiResponse(responseCode = "404", description = "Trabajo fuera del historial de la impresora"),
+                        @ApiResponse(responseCode = "409", description = "Solicitud con la misma Idempotency-Key aún en proceso"),
+                        @ApiResponse(responseCode = "422", description = "Idempotency-Key ya usada con otra solicitud"),
+                        @ApiResponse(responseCode = "503", description = "Cola de la impresora llena")
+        })
+        public ResponseEntity<Map<String, Object>> reimprimir(
+                        @Parameter(description = "ID de la impresora", example = "1", required = true) @PathVariable int id,
+                        @Parameter(description = "ID del trabajo a reimprimir", required = true) @PathVariable String jobId,
+                        @Parameter(description = "ID de la impresora donde reimprimir") @RequestParam(required = false) Integer destino,
+                        @Parameter(description = "Prioridad de la reimpresión") @RequestParam(required = false) PrintJob.Prioridad prioridad,
+                        @Parameter(description = "Clave para reintentos sin duplicar la impresión") @RequestHeader(value = IdempotencyKeyStore.HEADER, required = false) String idempotencyKey) {
+                return idempotencyKeyStore.ejecutar("reprint", idempotencyKey,
+                                Arrays.asList(id, jobId, destino, prioridad),
+                                () -> encolarReimpresion(id, jobId, destino, prioridad));
+        }
+
+        private ResponseEntity<Map<String, Object>> encolarReimpresion(int id, String jobId, Integer destino,
+                        PrintJob.Prioridad prioridad) {
+                try {
+                        Optional<String> nuevoId = printQueueService.reimprimir(id, jobId, destino, prioridad);
+                        if (nuevoId.isEmpty()) {
+                                Map<String, Object> error = new HashMap<>();
+                                error.put("PRI_Exito", false);
+                                error.put("PRI_Error", "El trabajo " + jobId + " no está en el historial de la impresora "
+                                                + id);
+                                return ResponseEntity.status(HttpStatus.NOT_FOUND).body(error);
+                        }
+
+                        Map<String, Object> response = new HashMap<>();
+                        response.put("PRI_Exito", true);
+                        response.put("PRI_Mensaje", "Reimpresión encolada");
+                        response.put("PRI_IdTrabajo", nuevoId.get());
+                        response.put("PRI_IdTrabajoOriginal", jobId);
+                        response.put("PRI_IdImp", destino != null ? destino : id);
+
+                        return ResponseEntity.accepted().body(response);
+                } catch (IllegalArgumentException e) {
+                        Map<String, Object> error = new HashMap<>();
+                        error.put("PRI_Exito", false);
+                        error.put("PRI_Error", e.getMessage());
+                        return ResponseEntity.badRequest().body(error);
+                } catch (IllegalStateException e) {
+                        Map<String, Object> error = new HashMap<>();
+                        error.put("PRI_Exito", false);
+                        error.put("PRI_Error", e.getMessage());
+                        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(error);
+                } catch (Exception e) {
+                        Map<String, Object> error = new HashMap<>();
+                        error.put("PRI_Exito", false);
+                        error.put("PRI_Error", "Error interno: " + e.getMessage());
+                        return ResponseEntity.internalServerError().body(error);
+                }
+        }
+
+        /**
+         * Imprime una etiqueta ZPL grande (gráficos ^GF, descargas ~DG) enviando
+         * el cuerpo de la petición a la impresora en bloques mientras se recibe,
+         * con el ^PQ ajustado al vuelo. La memoria usada no depende del tamaño de
+         * la etiqueta y la impresora empieza a recibir antes de que termine la
+         * subida.
+         * 
+         * A diferencia de /print/label, no se encola: la respuesta llega cuando la
+         * impresora confirmó la etiqueta con ~HS.
+         * 
+         * @param id       ID de la impresora
+         * @param cantidad Número de copias
+         * @param cuerpo   Cuerpo de la petición con los bytes ZPL
+         * @return ResponseEntity con el resultado de la impresión
+         */
+        @PostMapping(value = "/{id}/print/stream", consumes = { MediaType.APPLICATION_OCTET_STREAM_VALUE,
+                        MediaType.TEXT_PLAIN_VALUE })
+        @Operation(summary = "Imprimir etiqueta ZPL por flujo", description = "Envía el cuerpo de la petición (ZPL crudo) a la impresora en bloques de tamaño fijo mientras se recibe, ajustando ^PQ al vuelo. Pensado para etiquetas con gráficos de cientos de KB")
+        @ApiResponses(value = {
+                        @ApiResponse(responseCode = "200", description = "Etiqueta impresa"),
+                        @ApiResponse(responseCode = "400", description = "Impresora no encontrada o cantidad inválida"),
+                        @ApiResponse(responseCode = "500", description = "Error al imprimir"),
+                        @ApiResponse(responseCode = "503", description = "Impresora fuera de línea, con error o asignada a otro nodo")
+        })
+        public ResponseEntity<Map<String, Object>> imprimirFlujo(
+                        @Parameter(description = "ID de la impresora", required = true) @PathVariable int id,
+                        @Parameter(description = "Número de copias") @RequestParam(defaultValue = "1") int cantidad,
+                        InputStream cuerpo) {
+                try {
+                        if (cantidad <= 0) {
+                                throw new IllegalArgumentException("La cantidad debe ser mayor a 0");
+                        }
+                        boolean resultado = printerService.imprimirFlujo(id, cuerpo, cantidad);
 
                         Map<String, Object> response = new HashMap<>();
                         response.put("PRI_Exito", resultado);
                         response.put("PRI_Mensaje",
                                         resultado ? "Etiqueta impresa exitosamente" : "Error al imprimir la etiqueta");
-                        response.put("PRI_IdImp", printJobDTO.getPrinterId());
-                        response.put("PRI_Cantidad", printJobDTO.getCantidad());
+                        response.put("PRI_IdImp", id);
+                        response.put("PRI_Cantidad", cantidad);
 
-                        return ResponseEntity.ok(response);
+                        return resultado ? ResponseEntity.ok(response)
+                                        : ResponseEntity.internalServerError().body(response);
                 } catch (IllegalArgumentException e) {
                         Map<String, Object> error = new HashMap<>();
                         error.put("PRI_Exito", false);
                         error.put("PRI_Error", e.getMessage());
                         return ResponseEntity.badRequest().body(error);
+                } catch (IllegalStateException e) {
+                        Map<String, Object> error = new HashMap<>();
+                        error.put("PRI_Exito", false);
+                        error.put("PRI_Error", e.getMessage());
+                        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(error);
                 } catch (Exception e) {
                         Map<String, Object> error = new HashMap<>();
                         error.put("PRI_Exito", false);
@@ -201,7 +688,8 @@ public class PrinterController {
         @ApiResponses(value = {
                         @ApiResponse(responseCode = "200", description = "Comando enviado exitosamente"),
                         @ApiResponse(responseCode = "400", description = "Datos inválidos o impresora no encontrada"),
-                        @ApiResponse(responseCode = "500", description = "Error al enviar el comando")
+                        @ApiResponse(responseCode = "500", description = "Error al enviar el comando"),
+                        @ApiResponse(responseCode = "503", description = "Impresora fuera de línea, con error o asignada a otro nodo")
         })
         public ResponseEntity<Map<String, Object>> enviarComandoZPL(
                         @Parameter(description = "Datos del comando ZPL en JSON", required = true) @Valid @RequestBody ZplCommandDTO zplCommandDTO) {
@@ -223,6 +711,11 @@ public class PrinterController {
                         error.put("PRI_Exito", false);
                         error.put("PRI_Error", e.getMessage());
                         return ResponseEntity.badRequest().body(error);
+                } catch (IllegalStateException e) {
+                        Map<String, Object> error = new HashMap<>();
+                        error.put("PRI_Exito", false);
+                        error.put("PRI_Error", e.getMessage());
+                        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(error);
                 } catch (Exception e) {
                         Map<String, Object> error = new HashMap<>();
                         error.put("PRI_Exito", false);
@@ -232,13 +725,27 @@ public class PrinterController {
         }
 
         /**
-         * Obtiene el estado actual de una impresora Zebra.
+         * Obtiene el último estado conocido de todas las impresoras activas.
+         * 
+         * @return Lista con el estado de cada impresora
+         */
+        @GetMapping("/status")
+        @Operation(summary = "Obtener estado de todas las impresoras", description = "Retorna el último estado conocido (sondeo periódico) de todas las impresoras activas, sin contactarlas")
+        @ApiResponses(value = {
+                        @ApiResponse(responseCode = "200", description = "Estados en JSON")
+        })
+        public List<PrinterStatusDTO> obtenerEstados() {
+                return printerService.obtenerEstadoImpresoras();
+        }
+
+        /**
+         * Obtiene el último estado conocido de una impresora Zebra.
          * 
          * @param id ID de la impresora
          * @return ResponseEntity con el estado de la impresora
          */
         @GetMapping("/{id}/status")
-        @Operation(summary = "Obtener estado de la impresora", description = "Obtiene el estado actual de una impresora Zebra específica")
+        @Operation(summary = "Obtener estado de la impresora", description = "Obtiene el último estado conocido (sondeo periódico) de una impresora Zebra específica, con la fecha del sondeo")
         @ApiResponses(value = {
                         @ApiResponse(responseCode = "200", description = "Estado obtenido exitosamente"),
                         @ApiResponse(responseCode = "404", description = "Impresora no encontrada"),
@@ -247,11 +754,13 @@ public class PrinterController {
         public ResponseEntity<Map<String, Object>> obtenerEstado(
                         @Parameter(description = "ID de la impresora", example = "1", required = true) @PathVariable int id) {
                 try {
-                        String estado = printerService.obtenerEstadoImpresora(id);
+                        PrinterStatusDTO estado = printerService.obtenerEstadoDetallado(id);
 
                         Map<String, Object> response = new HashMap<>();
                         response.put("PRI_IdImp", id);
-                        response.put("PRI_Estado", estado);
+                        response.put("PRI_Estado", estado.getEstado());
+                        response.put("PRI_Conectada", estado.isConectada());
+                        response.put("PRI_FechaEstado", estado.getFechaEstado());
 
                         return ResponseEntity.ok(response);
                 } catch (IllegalArgumentException e) {
@@ -0,0 +1,35 @@
+package com.example.backend_jovyweb.modules.printer.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+/**
+ * DTO para imprimir un lote de etiquetas en una o varias impresoras.
+ */
+public class PrintBatchDTO {
+
+    @NotEmpty(message = "El lote debe contener al menos una etiqueta")
+    @Size(max = 1000, message = "El lote no puede contener más de 1000 etiquetas")
+    @Valid
+    @JsonProperty("PRI_Trabajos")
+    private List<PrintBatchItemDTO> trabajos;
+
+    public PrintBatchDTO() {
+    }
+
+    public PrintBatchDTO(List<PrintBatchItemDTO> trabajos) {
+        this.trabajos = trabajos;
+    }
+
+    public List<PrintBatchItemDTO> getTrabajos() {
+        return trabajos;
+    }
+
+    public void setTrabajos(List<PrintBatchItemDTO> trabajos) {
+        this.trabajos = trabajos;
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.backend_jovyweb.modules.printer.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+
+import java.util.Map;
+
+/**
+ * Etiqueta de un lote de impresión. Se indica la etiqueta completa en
+ * PRI_PlantillaZPL o una plantilla del servidor en PRI_Plantilla con sus
+ * PRI_Campos.
+ */
+public class PrintBatchItemDTO {
+
+    @NotNull(message = "El ID de la impresora es requerido")
+    @Positive(message = "El ID de la impresora debe ser positivo")
+    @JsonProperty("PRI_IdImp")
+    private Integer printerId;
+
+    @JsonProperty("PRI_PlantillaZPL")
+    private String templateZPL;
+
+    @JsonProperty("PRI_Plantilla")
+    private String plantilla;
+
+    @JsonProperty("PRI_Campos")
+    private Map<String, String> campos;
+
+    @NotNull(message = "La cantidad es requerida")
+    @Positive(message = "La cantidad debe ser mayor a 0")
+    @JsonProperty("PRI_Cantidad")
+    private Integer cantidad = 1;
+
+    public PrintBatchItemDTO() {
+    }
+
+    public Integer getPrinterId() {
+        return printerId;
+    }
+
+    public void setPrinterId(Integer printerId) {
+        this.printerId = printerId;
+    }
+
+    public String getTemplateZPL() {
+        return templateZPL;
+    }
+
+    public void setTemplateZPL(String templateZPL) {
+        this.templateZPL = templateZPL;
+    }
+
+    public String getPlantilla() {
+        return plantilla;
+    }
+
+    public void setPlantilla(String plantilla) {
+        this.plantilla = plantilla;
+    }
+
+    public Map<String, String> getCampos() {
+        return campos;
+    }
+
+    public void setCampos(Map<String, String> campos) {
+        this.campos = campos;
+    }
+
+    public Integer getCantidad() {
+        return cantidad;
+    }
+
+    public void setCantidad(Integer cantidad) {
+        this.cantidad = cantidad;
+    }
+
+    @Override
+    public String toString() {
+        return "PrintBatchItemDTO{" +
+                "printerId=" + printerId +
+                ", plantilla='" + plantilla + '\'' +
+                ", cantidad=" + cantidad +
+                '}';
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.backend_jovyweb.modules.printer.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Resultado de una etiqueta de un lote: el ID del trabajo encolado o el motivo
+ * por el que se rechazó.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class PrintBatchResultDTO {
+
+    @JsonProperty("PRI_Indice")
+    private int indice;
+
+    @JsonProperty("PRI_IdImp")
+    private Integer printerId;
+
+    @JsonProperty("PRI_Exito")
+    private boolean exito;
+
+    @JsonProperty("PRI_IdTrabajo")
+    private String jobId;
+
+    @JsonProperty("PRI_Error")
+    private String error;
+
+    public PrintBatchResultDTO() {
+    }
+
+    public static PrintBatchResultDTO encolado(int indice, Integer printerId, String jobId) {
+        PrintBatchResultDTO dto = new PrintBatchResultDTO();
+        dto.indice = indice;
+        dto.printerId = printerId;
+        dto.exito = true;
+        dto.jobId = jobId;
+        return dto;
+    }
+
+    public static PrintBatchResultDTO rechazado(int indice, Integer printerId, String error) {
+        PrintBatchResultDTO dto = new PrintBatchResultDTO();
+        dto.indice = indice;
+        dto.printerId = printerId;
+        dto.exito = false;
+        dto.error = error;
+        return dto;
+    }
+
+    public int getIndice() {
+        return indice;
+    }
+
+    public Integer getPrinterId() {
+        return printerId;
+    }
+
+    public boolean isExito() {
+        return exito;
+    }
+
+    public String getJobId() {
+        return jobId;
+    }
+
+    public String getError() {
+        return error;
+    }
+}
@@ -1,5 +1,6 @@
 package com.example.backend_jovyweb.modules.printer.dto;
 
+import com.example.backend_jovyweb.modules.printer.model.PrintJob;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Positive;
@@ -24,6 +25,9 @@ public class PrintJobDTO {
     @JsonProperty("PRI_Cantidad")
     private Integer cantidad = 1;
 
+    @JsonProperty("PRI_Prioridad")
+    private PrintJob.Prioridad prioridad = PrintJob.Prioridad.NORMAL;
+
     public PrintJobDTO() {
     }
 
@@ -57,12 +61,21 @@ public class PrintJobDTO {
         this.cantidad = cantidad;
     }
 
+    public PrintJob.Prioridad getPrioridad() {
+        return prioridad;
+    }
+
+    public void setPrioridad(PrintJob.Prioridad prioridad) {
+        this.prioridad = prioridad;
+    }
+
     @Override
     public String toString() {
         return "PrintJobDTO{" +
                 "printerId=" + printerId +
                 ", templateZPL='" + templateZPL + '\'' +
                 ", cantidad=" + cantidad +
+                ", prioridad=" + prioridad +
                 '}';
     }
 }
@@ -0,0 +1,159 @@
+package com.example.backend_jovyweb.modules.printer.dto;
+
+import com.example.backend_jovyweb.modules.printer.model.PrintJob;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import java.time.LocalDateTime;
+
+/**
+ * DTO con el estado de un trabajo de impresión encolado.
+ */
+public class PrintJobStatusDTO {
+
+    @JsonProperty("PRI_IdTrabajo")
+    private String jobId;
+
+    @JsonProperty("PRI_IdImp")
+    private Integer printerId;
+
+    @JsonProperty("PRI_Cantidad")
+    private Integer cantidad;
+
+    @JsonProperty("PRI_Prioridad")
+    private String prioridad;
+
+    @JsonProperty("PRI_Impresas")
+    private Integer impresas;
+
+    @JsonProperty("PRI_Estado")
+    private String estado;
+
+    @JsonProperty("PRI_Mensaje")
+    private String mensaje;
+
+    @JsonProperty("PRI_FechaCreacion")
+    private LocalDateTime fechaCreacion;
+
+    @JsonProperty("PRI_FechaInicio")
+    private LocalDateTime fechaInicio;
+
+    @JsonProperty("PRI_FechaFin")
+    private LocalDateTime fechaFin;
+
+    // URL del nodo propietario, solo en trabajos reenviados a otro nodo
+    @JsonProperty("PRI_Nodo")
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String nodo;
+
+    public PrintJobStatusDTO() {
+    }
+
+    /**
+     * Construye el DTO a partir del estado actual de un trabajo.
+     *
+     * @param job Trabajo de impresión
+     * @return DTO con una copia del estado del trabajo
+     */
+    public static PrintJobStatusDTO desde(PrintJob job) {
+        PrintJobStatusDTO dto = new PrintJobStatusDTO();
+        dto.setJobId(job.getId());
+        dto.setPrinterId(job.getPrinterId());
+        dto.setCantidad(job.getCantidad());
+        dto.setPrioridad(job.getPrioridad().name());
+        dto.setImpresas(job.getImpresas());
+        dto.setEstado(job.getEstado().name());
+        dto.setMensaje(job.getMensaje());
+        dto.setFechaCreacion(job.getFechaCreacion());
+        dto.setFechaInicio(job.getFechaInicio());
+        dto.setFechaFin(job.getFechaFin());
+        return dto;
+    }
+
+    public String getJobId() {
+        return jobId;
+    }
+
+    public void setJobId(String jobId) {
+        this.jobId = jobId;
+    }
+
+    public Integer getPrinterId() {
+        return printerId;
+    }
+
+    public void setPrinterId(Integer printerId) {
+        this.printerId = printerId;
+    }
+
+    public Integer getCantidad() {
+        return cantidad;
+    }
+
+    public void setCantidad(Integer cantidad) {
+        this.cantidad = cantidad;
+    }
+
+    public String getPrioridad() {
+        return prioridad;
+    }
+
+    public void setPrioridad(String prioridad) {
+        this.prioridad = prioridad;
+    }
+
+    public Integer getImpresas() {
+        return impresas;
+    }
+
+    public void setImpresas(Integer impresas) {
+        this.impresas = impresas;
+    }
+
+    public String getEstado() {
+        return estado;
+    }
+
+    public void setEstado(String estado) {
+        this.estado = estado;
+    }
+
+    public String getMensaje() {
+        return mensaje;
+    }
+
+    public void setMensaje(String mensaje) {
+        this.mensaje = mensaje;
+    }
+
+    public LocalDateTime getFechaCreacion() {
+        return fechaCreacion;
+    }
+
+    public void setFechaCreacion(LocalDateTime fechaCreacion) {
+        this.fechaCreacion = fechaCreacion;
+    }
+
+    public LocalDateTime getFechaInicio() {
+        return fechaInicio;
+    }
+
+    public void setFechaInicio(LocalDateTime fechaInicio) {
+        this.fechaInicio = fechaInicio;
+    }
+
+    public LocalDateTime getFechaFin() {
+        return fechaFin;
+    }
+
+    public void setFechaFin(LocalDateTime fechaFin) {
+        this.fechaFin = fechaFin;
+    }
+
+    public String getNodo() {
+        return nodo;
+    }
+
+    public void setNodo(String nodo) {
+        this.nodo = nodo;
+    }
+}
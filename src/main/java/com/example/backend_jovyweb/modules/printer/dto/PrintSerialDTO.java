@@ -0,0 +1,135 @@
+package com.example.backend_jovyweb.modules.printer.dto;
+
+import com.example.backend_jovyweb.modules.printer.model.PrintJob;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.PositiveOrZero;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * DTO para imprimir etiquetas numeradas (caja 1/200, 2/200, ...) con una
+ * plantilla del servidor que tiene un campo serie. Se envía un solo formato y
+ * la impresora incrementa el número en cada copia.
+ */
+public class PrintSerialDTO {
+
+    @NotNull(message = "El ID de la impresora es requerido")
+    @Positive(message = "El ID de la impresora debe ser positivo")
+    @JsonProperty("PRI_IdImp")
+    private Integer printerId;
+
+    @NotBlank(message = "La plantilla es requerida")
+    @JsonProperty("PRI_Plantilla")
+    private String plantilla;
+
+    @NotNull(message = "Los campos de la plantilla son requeridos")
+    @JsonProperty("PRI_Campos")
+    private Map<String, String> campos = new HashMap<>();
+
+    @NotNull(message = "El inicio de la serie es requerido")
+    @PositiveOrZero(message = "El inicio de la serie no puede ser negativo")
+    @JsonProperty("PRI_Inicio")
+    private Long inicio = 1L;
+
+    @NotNull(message = "El incremento de la serie es requerido")
+    @Positive(message = "El incremento de la serie debe ser mayor a 0")
+    @JsonProperty("PRI_Incremento")
+    private Integer incremento = 1;
+
+    @NotNull(message = "La cantidad es requerida")
+    @Positive(message = "La cantidad debe ser mayor a 0")
+    @JsonProperty("PRI_Cantidad")
+    private Integer cantidad;
+
+    @PositiveOrZero(message = "Los dígitos no pueden ser negativos")
+    @JsonProperty("PRI_Digitos")
+    private Integer digitos = 0;
+
+    @JsonProperty("PRI_Prioridad")
+    private PrintJob.Prioridad prioridad = PrintJob.Prioridad.NORMAL;
+
+    public PrintSerialDTO() {
+    }
+
+    public Integer getPrinterId() {
+        return printerId;
+    }
+
+    public void setPrinterId(Integer printerId) {
+        this.printerId = printerId;
+    }
+
+    public String getPlantilla() {
+        return plantilla;
+    }
+
+    public void setPlantilla(String plantilla) {
+        this.plantilla = plantilla;
+    }
+
+    public Map<String, String> getCampos() {
+        return campos;
+    }
+
+    public void setCampos(Map<String, String> campos) {
+        this.campos = campos;
+    }
+
+    public Long getInicio() {
+        return inicio;
+    }
+
+    public void setInicio(Long inicio) {
+        this.inicio = inicio;
+    }
+
+    public Integer getIncremento() {
+        return incremento;
+    }
+
+    public void setIncremento(Integer incremento) {
+        this.incremento = incremento;
+    }
+
+    public Integer getCantidad() {
+        return cantidad;
+    }
+
+    public void setCantidad(Integer cantidad) {
+        this.cantidad = cantidad;
+    }
+
+    public Integer getDigitos() {
+        return digitos;
+    }
+
+    public void setDigitos(Integer digitos) {
+        this.digitos = digitos;
+    }
+
+    public PrintJob.Prioridad getPrioridad() {
+        return prioridad;
+    }
+
+    public void setPrioridad(PrintJob.Prioridad prioridad) {
+        this.prioridad = prioridad;
+    }
+
+    @Override
+    public String toString() {
+        return "PrintSerialDTO{" +
+                "printerId=" + printerId +
+                ", plantilla='" + plantilla + '\'' +
+                ", campos=" + campos +
+                ", inicio=" + inicio +
+                ", incremento=" + incremento +
+                ", cantidad=" + cantidad +
+                ", digitos=" + digitos +
+                ", prioridad=" + prioridad +
+                '}';
+    }
+}
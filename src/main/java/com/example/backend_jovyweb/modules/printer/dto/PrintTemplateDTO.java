@@ -0,0 +1,99 @@
+package com.example.backend_jovyweb.modules.printer.dto;
+
+import com.example.backend_jovyweb.modules.printer.model.PrintJob;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * DTO para imprimir una etiqueta con una plantilla ZPL del servidor: solo se
+ * envían el nombre de la plantilla y los valores de sus campos.
+ */
+public class PrintTemplateDTO {
+
+    @NotNull(message = "El ID de la impresora es requerido")
+    @Positive(message = "El ID de la impresora debe ser positivo")
+    @JsonProperty("PRI_IdImp")
+    private Integer printerId;
+
+    @NotBlank(message = "La plantilla es requerida")
+    @JsonProperty("PRI_Plantilla")
+    private String plantilla;
+
+    @NotNull(message = "Los campos de la plantilla son requeridos")
+    @JsonProperty("PRI_Campos")
+    private Map<String, String> campos = new HashMap<>();
+
+    @NotNull(message = "La cantidad es requerida")
+    @Positive(message = "La cantidad debe ser mayor a 0")
+    @JsonProperty("PRI_Cantidad")
+    private Integer cantidad = 1;
+
+    @JsonProperty("PRI_Prioridad")
+    private PrintJob.Prioridad prioridad = PrintJob.Prioridad.NORMAL;
+
+    public PrintTemplateDTO() {
+    }
+
+    public PrintTemplateDTO(Integer printerId, String plantilla, Map<String, String> campos, Integer cantidad) {
+        this.printerId = printerId;
+        this.plantilla = plantilla;
+        this.campos = campos;
+        this.cantidad = cantidad;
+    }
+
+    public Integer getPrinterId() {
+        return printerId;
+    }
+
+    public void setPrinterId(Integer printerId) {
+        this.printerId = printerId;
+    }
+
+    public String getPlantilla() {
+        return plantilla;
+    }
+
+    public void setPlantilla(String plantilla) {
+        this.plantilla = plantilla;
+    }
+
+    public Map<String, String> getCampos() {
+        return campos;
+    }
+
+    public void setCampos(Map<String, String> campos) {
+        this.campos = campos;
+    }
+
+    public Integer getCantidad() {
+        return cantidad;
+    }
+
+    public void setCantidad(Integer cantidad) {
+        this.cantidad = cantidad;
+    }
+
+    public PrintJob.Prioridad getPrioridad() {
+        return prioridad;
+    }
+
+    public void setPrioridad(PrintJob.Prioridad prioridad) {
+        this.prioridad = prioridad;
+    }
+
+    @Override
+    public String toString() {
+        return "PrintTemplateDTO{" +
+                "printerId=" + printerId +
+                ", plantilla='" + plantilla + '\'' +
+                ", campos=" + campos +
+                ", cantidad=" + cantidad +
+                ", prioridad=" + prioridad +
+                '}';
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.backend_jovyweb.modules.printer.dto;
+
+import com.example.backend_jovyweb.modules.printer.model.HostStatus;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import java.time.LocalDateTime;
+
+/**
+ * Último estado conocido de una impresora, obtenido por el sondeo periódico.
+ * Es inmutable: cada sondeo crea una instancia nueva.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class PrinterStatusDTO {
+
+    /** Estado de una impresora que aún no se ha sondeado. */
+    public static final String DESCONOCIDO = "DESCONOCIDO";
+    /** Estado de una impresora sin conexión. */
+    public static final String DESCONECTADA = "DESCONECTADA";
+    /** Estado de una impresora conectada que no respondió a ~HS. */
+    public static final String SIN_RESPUESTA = "SIN_RESPUESTA";
+
+    @JsonProperty("PRI_IdImp")
+    private final Integer printerId;
+
+    @JsonProperty("PRI_Nombre")
+    private final String nombre;
+
+    @JsonProperty("PRI_Ubicacion")
+    private final String ubicacion;
+
+    @JsonProperty("PRI_Conectada")
+    private final boolean conectada;
+
+    @JsonProperty("PRI_Estado")
+    private final String estado;
+
+    @JsonProperty("PRI_EtiquetasRestantes")
+    private final Integer etiquetasRestantes;
+
+    @JsonProperty("PRI_FormatosEnBuffer")
+    private final Integer formatosEnBuffer;
+
+    @JsonProperty("PRI_FechaEstado")
+    private final LocalDateTime fechaEstado;
+
+    public PrinterStatusDTO(PrinterDTO printer, boolean conectada, String estado, HostStatus hostStatus,
+            LocalDateTime fechaEstado) {
+        this.printerId = printer.getId();
+        this.nombre = printer.getNombre();
+        this.ubicacion = printer.getUbicacion();
+        this.conectada = conectada;
+        this.estado = estado;
+        this.etiquetasRestantes = hostStatus != null ? hostStatus.getEtiquetasRestantes() : null;
+        this.formatosEnBuffer = hostStatus != null ? hostStatus.getFormatosEnBuffer() : null;
+        this.fechaEstado = fechaEstado;
+    }
+
+    /**
+     * Crea el estado de una impresora que todavía no se ha sondeado.
+     *
+     * @param printer Impresora
+     * @return Estado DESCONOCIDO sin fecha
+     */
+    public static PrinterStatusDTO desconocido(PrinterDTO printer) {
+        return new PrinterStatusDTO(printer, false, DESCONOCIDO, null, null);
+    }
+
+    public Integer getPrinterId() {
+        return printerId;
+    }
+
+    public String getNombre() {
+        return nombre;
+    }
+
+    public String getUbicacion() {
+        return ubicacion;
+    }
+
+    public boolean isConectada() {
+        return conectada;
+    }
+
+    public String getEstado() {
+        return estado;
+    }
+
+    public Integer getEtiquetasRestantes() {
+        return etiquetasRestantes;
+    }
+
+    public Integer getFormatosEnBuffer() {
+        return formatosEnBuffer;
+    }
+
+    public LocalDateTime getFechaEstado() {
+        return fechaEstado;
+    }
+}
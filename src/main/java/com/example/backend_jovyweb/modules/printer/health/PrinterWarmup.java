@@ -0,0 +1,138 @@
+package com.example.backend_jovyweb.modules.printer.health;
+
+import com.example.backend_jovyweb.modules.printer.dto.PrinterDTO;
+import com.example.backend_jovyweb.modules.printer.service.PrinterService;
+import com.example.backend_jovyweb.modules.printer.service.ZebraPrinterService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.health.contributor.Health;
+import org.springframework.boot.health.contributor.HealthIndicator;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Calentamiento de conexiones a impresoras al iniciar la aplicación.
+ *
+ * Al estar lista la aplicación carga las impresoras activas y conecta con
+ * todas en paralelo (un hilo virtual por impresora), esperando como máximo
+ * printer.warmup.timeout-ms. Así la primera etiqueta de cada impresora no
+ * paga la conexión TCP ni la consulta a la base de datos.
+ *
+ * El calentamiento corre dentro del evento ApplicationReadyEvent, y Spring Boot
+ * publica ReadinessState.ACCEPTING_TRAFFIC después de ese evento: la sonda
+ * /actuator/health/readiness no acepta tráfico hasta que el calentamiento
+ * termina o vence el tiempo. Además este indicador (printerWarmup) reporta
+ * OUT_OF_SERVICE mientras tanto y puede incluirse en el grupo de readiness con
+ * management.endpoint.health.group.readiness.include=readinessState,printerWarmup.
+ *
+ * Las impresoras que no conectan no bloquean el arranque; las reconectan el
+ * pool y el sondeo de estado.
+ */
+@Component
+public class PrinterWarmup implements HealthIndicator {
+
+    private static final Logger logger = LoggerFactory.getLogger(PrinterWarmup.class);
+
+    private final PrinterService printerService;
+    private final ZebraPrinterService zebraPrinterService;
+
+    @Value("${printer.warmup.enabled:true}")
+    private boolean habilitado;
+
+    @Value("${printer.warmup.timeout-ms:15000}")
+    private long timeoutMs;
+
+    private volatile boolean terminado;
+    private volatile int total;
+    private final AtomicInteger conectadas = new AtomicInteger();
+    private final AtomicInteger fallidas = new AtomicInteger();
+
+    /**
+     * Constructor con inyección de los servicios de impresoras.
+     *
+     * @param printerService      Servicio de impresoras (carga las activas)
+     * @param zebraPrinterService Servicio Zebra para abrir las conexiones
+     */
+    public PrinterWarmup(PrinterService printerService, ZebraPrinterService zebraPrinterService) {
+        this.printerService = printerService;
+        this.zebraPrinterService = zebraPrinterService;
+    }
+
+    /**
+     * Conecta con todas las impresoras activas y espera hasta el tiempo máximo.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void calentar() {
+        if (!habilitado) {
+            terminado = true;
+            return;
+        }
+
+        long inicio = System.currentTimeMillis();
+        try {
+            List<PrinterDTO> activas = printerService.obtenerImpresorasActivas();
+            total = activas.size();
+            CountDownLatch pendientes = new CountDownLatch(activas.size());
+
+            ExecutorService conexiones = Executors.newThreadPerTaskExecutor(
+                    Thread.ofVirtual().name("printer-warmup-", 0).factory());
+            for (PrinterDTO printer : activas) {
+                conexiones.submit(() -> {
+                    try {
+                        if (zebraPrinterService.conectarImpresora(printer)) {
+                            conectadas.incrementAndGet();
+                        } else {
+                            fallidas.incrementAndGet();
+                        }
+                    } finally {
+                        pendientes.countDown();
+                    }
+                });
+            }
+            // Las conexiones que no terminen a tiempo siguen en segundo plano
+            conexiones.shutdown();
+
+            if (!pendientes.await(timeoutMs, TimeUnit.MILLISECONDS)) {
+                logger.warn("Calentamiento de impresoras incompleto tras {} ms: {} de {} sin terminar", timeoutMs,
+                        pendientes.getCount(), total);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            logger.error("Error en el calentamiento de impresoras: {}", e.getMessage(), e);
+        } finally {
+            terminado = true;
+        }
+
+        logger.info("Calentamiento de impresoras terminado en {} ms: {} conectadas, {} fallidas de {}",
+                System.currentTimeMillis() - inicio, conectadas.get(), fallidas.get(), total);
+    }
+
+    /**
+     * Indica si el calentamiento terminó (o venció el tiempo máximo).
+     *
+     * @return true si terminó
+     */
+    public boolean isTerminado() {
+        return terminado;
+    }
+
+    @Override
+    public Health health() {
+        Health.Builder builder = terminado ? Health.up() : Health.outOfService();
+        return builder
+                .withDetail("impresoras", total)
+                .withDetail("conectadas", conectadas.get())
+                .withDetail("fallidas", fallidas.get())
+                .build();
+    }
+}
@@ -0,0 +1,195 @@
+package com.example.backend_jovyweb.modules.printer.metrics;
+
+import com.example.backend_jovyweb.modules.printer.dto.PrinterDTO;
+import com.example.backend_jovyweb.modules.printer.service.impl.PrinterCatalog;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Métricas de Micrometer del módulo de impresoras, expuestas por actuator
+ * (/actuator/metrics).
+ *
+ * Todas las métricas por impresora llevan las etiquetas "impresora" (ID) y
+ * "ubicacion" (según el {@link PrinterCatalog} al registrar la impresora):
+ * - printer.labels.printed: etiquetas impresas (copias)
+ * - printer.bytes.sent: bytes enviados
+ * - printer.job.latency: tiempo desde que se encola un trabajo hasta que
+ * termina (etiqueta "resultado": completado/fallido)
+ * - printer.write.time: tiempo de escritura en el socket
+ * - printer.queue.jobs / printer.queue.labels: trabajos y etiquetas en cola
+ * - printer.connect.attempts / printer.connect.failures: intentos y fallos de
+ * conexión
+ * - printer.reconnects: reconexiones después de perder la conexión
+ * - printer.disconnected.time: tiempo sin conexión hasta cada reconexión
+ * - printer.flow.paused.time: pausas del envío con el buffer de la impresora
+ * lleno (control de flujo)
+ *
+ * Además, printer.connections.active cuenta las conexiones abiertas del pool.
+ */
+@Component
+public class PrinterMetrics {
+
+    private static final String SIN_UBICACION = "sin_ubicacion";
+
+    /**
+     * Medidores de una impresora; se crean la primera vez que se usan.
+     */
+    private static class Medidores {
+        final Tags tags;
+        final Counter etiquetas;
+        final Counter bytes;
+        final Timer escritura;
+        final Timer trabajoCompletado;
+        final Timer trabajoFallido;
+        final Counter intentosConexion;
+        final Counter fallosConexion;
+        final Counter reconexiones;
+        final Timer desconectada;
+        final Timer pausaFlujo;
+
+        Medidores(MeterRegistry registry, Tags tags) {
+            this.tags = tags;
+            this.etiquetas = Counter.builder("printer.labels.printed").tags(tags).register(registry);
+            this.bytes = Counter.builder("printer.bytes.sent").baseUnit("bytes").tags(tags).register(registry);
+            this.escritura = Timer.builder("printer.write.time").tags(tags).register(registry);
+            this.trabajoCompletado = Timer.builder("printer.job.latency").tags(tags).tag("resultado", "completado")
+                    .publishPercentiles(0.5, 0.99).register(registry);
+            this.trabajoFallido = Timer.builder("printer.job.latency").tags(tags).tag("resultado", "fallido")
+                    .register(registry);
+            this.intentosConexion = Counter.builder("printer.connect.attempts").tags(tags).register(registry);
+            this.fallosConexion = Counter.builder("printer.connect.failures").tags(tags).register(registry);
+            this.reconexiones = Counter.builder("printer.reconnects").tags(tags).register(registry);
+            this.desconectada = Timer.builder("printer.disconnected.time").tags(tags).register(registry);
+            this.pausaFlujo = Timer.builder("printer.flow.paused.time").tags(tags).register(registry);
+        }
+    }
+
+    private final MeterRegistry registry;
+    private final PrinterCatalog printerCatalog;
+
+    // Medidores por impresora: printerId -> medidores
+    private final Map<Integer, Medidores> medidores = new ConcurrentHashMap<>();
+
+    /**
+     * Constructor con inyección del registro de métricas y el catálogo.
+     *
+     * @param registry       Registro de Micrometer
+     * @param printerCatalog Catálogo para obtener la ubicación de cada impresora
+     */
+    public PrinterMetrics(MeterRegistry registry, PrinterCatalog printerCatalog) {
+        this.registry = registry;
+        this.printerCatalog = printerCatalog;
+    }
+
+    private Medidores de(int printerId) {
+        return medidores.computeIfAbsent(printerId, id -> {
+            String ubicacion = printerCatalog.obtener(id)
+                    .map(PrinterDTO::getUbicacion)
+                    .filter(u -> !u.isBlank())
+                    .orElse(SIN_UBICACION);
+            return new Medidores(registry, Tags.of("impresora", String.valueOf(id), "ubicacion", ubicacion));
+        });
+    }
+
+    /**
+     * Registra etiquetas impresas correctamente.
+     *
+     * @param printerId ID de la impresora
+     * @param copias    Número de copias
+     */
+    public void etiquetasImpresas(int printerId, int copias) {
+        de(printerId).etiquetas.increment(copias);
+    }
+
+    /**
+     * Registra una escritura completa en el socket.
+     *
+     * @param printerId ID de la impresora
+     * @param bytes     Bytes escritos
+     * @param nanos     Duración de la escritura
+     */
+    public void escritura(int printerId, int bytes, long nanos) {
+        Medidores m = de(printerId);
+        m.bytes.increment(bytes);
+        m.escritura.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Registra la latencia de punta a punta de un trabajo terminado.
+     *
+     * @param printerId ID de la impresora
+     * @param exito     true si se completó, false si falló
+     * @param duracion  Tiempo desde que se encoló
+     */
+    public void trabajoFinalizado(int printerId, boolean exito, Duration duracion) {
+        Medidores m = de(printerId);
+        (exito ? m.trabajoCompletado : m.trabajoFallido).record(duracion);
+    }
+
+    public void intentoConexion(int printerId) {
+        de(printerId).intentosConexion.increment();
+    }
+
+    public void falloConexion(int printerId) {
+        de(printerId).fallosConexion.increment();
+    }
+
+    /**
+     * Registra una reconexión y el tiempo que la impresora estuvo sin
+     * conexión.
+     *
+     * @param printerId     ID de la impresora
+     * @param desconectadaMs Milisegundos sin conexión
+     */
+    public void reconexion(int printerId, long desconectadaMs) {
+        Medidores m = de(printerId);
+        m.reconexiones.increment();
+        m.desconectada.record(desconectadaMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Registra una pausa del envío por el buffer de la impresora lleno.
+     *
+     * @param printerId ID de la impresora
+     * @param pausaMs   Milisegundos en pausa
+     */
+    public void pausaFlujo(int printerId, long pausaMs) {
+        de(printerId).pausaFlujo.record(pausaMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Registra los medidores de la cola de una impresora. El objeto se
+     * conserva con referencia débil, como todos los gauges de Micrometer.
+     *
+     * @param printerId ID de la impresora
+     * @param cola      Objeto del que se leen los valores (el worker)
+     * @param trabajos  Trabajos en cola
+     * @param etiquetas Etiquetas en cola
+     */
+    public <T> void registrarCola(int printerId, T cola, ToDoubleFunction<T> trabajos,
+            ToDoubleFunction<T> etiquetas) {
+        Tags tags = de(printerId).tags;
+        Gauge.builder("printer.queue.jobs", cola, trabajos).tags(tags).register(registry);
+        Gauge.builder("printer.queue.labels", cola, etiquetas).tags(tags).register(registry);
+    }
+
+    /**
+     * Registra el medidor de conexiones abiertas del pool.
+     *
+     * @param pool        Objeto del que se lee el valor
+     * @param conexiones  Conexiones abiertas
+     */
+    public <T> void registrarConexionesActivas(T pool, ToDoubleFunction<T> conexiones) {
+        Gauge.builder("printer.connections.active", pool, conexiones).register(registry);
+    }
+}
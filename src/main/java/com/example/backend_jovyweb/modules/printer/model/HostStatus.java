@@ -0,0 +1,189 @@
+package com.example.backend_jovyweb.modules.printer.model;
+
+import java.time.LocalDateTime;
+
+/**
+ * Estado de una impresora Zebra según sus respuestas a ~HS (Host Status) y
+ * ~HQES (Host Query Extended Status).
+ *
+ * Las banderas de error de ~HQES se combinan con las de ~HS cuando se consultan
+ * ambas.
+ */
+public class HostStatus {
+
+    // Bits de errores de ~HQES (palabra baja)
+    public static final long ERROR_SIN_PAPEL = 0x1;
+    public static final long ERROR_SIN_RIBBON = 0x2;
+    public static final long ERROR_CABEZAL_ABIERTO = 0x4;
+    public static final long ERROR_CORTADOR = 0x8;
+
+    private boolean papelAgotado;
+    private boolean pausada;
+    private boolean bufferLleno;
+    private boolean ramCorrupta;
+    private boolean temperaturaFueraDeRango;
+    private int formatosEnBuffer;
+    private boolean cabezalAbierto;
+    private boolean ribbonAgotado;
+    private boolean etiquetaEsperando;
+    private int etiquetasRestantes;
+    private long mascaraErrores;
+    private long mascaraAdvertencias;
+    private LocalDateTime fecha = LocalDateTime.now();
+
+    /**
+     * Indica si la impresora reporta una condición que impide imprimir.
+     *
+     * @return true si hay papel agotado, cabezal abierto, ribbon agotado u otro
+     *         error
+     */
+    public boolean tieneError() {
+        return papelAgotado || cabezalAbierto || ribbonAgotado || ramCorrupta || temperaturaFueraDeRango
+                || mascaraErrores != 0;
+    }
+
+    /**
+     * Resume el estado en un código legible, priorizando la condición más grave.
+     *
+     * @return LISTA, CABEZAL_ABIERTO, SIN_PAPEL, SIN_RIBBON, ERROR, PAUSADA o
+     *         BUFFER_LLENO
+     */
+    public String getEstado() {
+        if (cabezalAbierto) {
+            return "CABEZAL_ABIERTO";
+        }
+        if (papelAgotado) {
+            return "SIN_PAPEL";
+        }
+        if (ribbonAgotado) {
+            return "SIN_RIBBON";
+        }
+        if (tieneError()) {
+            return "ERROR";
+        }
+        if (pausada) {
+            return "PAUSADA";
+        }
+        if (bufferLleno) {
+            return "BUFFER_LLENO";
+        }
+        return "LISTA";
+    }
+
+    /**
+     * Combina las banderas de error de ~HQES con este estado.
+     *
+     * @param errores      Máscara de errores de ~HQES
+     * @param advertencias Máscara de advertencias de ~HQES
+     */
+    public void aplicarEstadoExtendido(long errores, long advertencias) {
+        this.mascaraErrores = errores;
+        this.mascaraAdvertencias = advertencias;
+        this.papelAgotado |= (errores & ERROR_SIN_PAPEL) != 0;
+        this.ribbonAgotado |= (errores & ERROR_SIN_RIBBON) != 0;
+        this.cabezalAbierto |= (errores & ERROR_CABEZAL_ABIERTO) != 0;
+    }
+
+    public boolean isPapelAgotado() {
+        return papelAgotado;
+    }
+
+    public void setPapelAgotado(boolean papelAgotado) {
+        this.papelAgotado = papelAgotado;
+    }
+
+    public boolean isPausada() {
+        return pausada;
+    }
+
+    public void setPausada(boolean pausada) {
+        this.pausada = pausada;
+    }
+
+    public boolean isBufferLleno() {
+        return bufferLleno;
+    }
+
+    public void setBufferLleno(boolean bufferLleno) {
+        this.bufferLleno = bufferLleno;
+    }
+
+    public boolean isRamCorrupta() {
+        return ramCorrupta;
+    }
+
+    public void setRamCorrupta(boolean ramCorrupta) {
+        this.ramCorrupta = ramCorrupta;
+    }
+
+    public boolean isTemperaturaFueraDeRango() {
+        return temperaturaFueraDeRango;
+    }
+
+    public void setTemperaturaFueraDeRango(boolean temperaturaFueraDeRango) {
+        this.temperaturaFueraDeRango = temperaturaFueraDeRango;
+    }
+
+    public int getFormatosEnBuffer() {
+        return formatosEnBuffer;
+    }
+
+    public void setFormatosEnBuffer(int formatosEnBuffer) {
+        this.formatosEnBuffer = formatosEnBuffer;
+    }
+
+    public boolean isCabezalAbierto() {
+        return cabezalAbierto;
+    }
+
+    public void setCabezalAbierto(boolean cabezalAbierto) {
+        this.cabezalAbierto = cabezalAbierto;
+    }
+
+    public boolean isRibbonAgotado() {
+        return ribbonAgotado;
+    }
+
+    public void setRibbonAgotado(boolean ribbonAgotado) {
+        this.ribbonAgotado = ribbonAgotado;
+    }
+
+    public boolean isEtiquetaEsperando() {
+        return etiquetaEsperando;
+    }
+
+    public void setEtiquetaEsperando(boolean etiquetaEsperando) {
+        this.etiquetaEsperando = etiquetaEsperando;
+    }
+
+    public int getEtiquetasRestantes() {
+        return etiquetasRestantes;
+    }
+
+    public void setEtiquetasRestantes(int etiquetasRestantes) {
+        this.etiquetasRestantes = etiquetasRestantes;
+    }
+
+    public long getMascaraErrores() {
+        return mascaraErrores;
+    }
+
+    public long getMascaraAdvertencias() {
+        return mascaraAdvertencias;
+    }
+
+    public LocalDateTime getFecha() {
+        return fecha;
+    }
+
+    @Override
+    public String toString() {
+        return "HostStatus{" +
+                "estado=" + getEstado() +
+                ", formatosEnBuffer=" + formatosEnBuffer +
+                ", etiquetasRestantes=" + etiquetasRestantes +
+                ", errores=" + Long.toHexString(mascaraErrores) +
+                ", advertencias=" + Long.toHexString(mascaraAdvertencias) +
+                '}';
+    }
+}
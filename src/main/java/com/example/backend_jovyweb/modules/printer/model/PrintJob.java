@@ -0,0 +1,283 @@
+package com.example.backend_jovyweb.modules.printer.model;
+
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Trabajo de impresión encolado para una impresora.
+ *
+ * El hilo de la petición HTTP lo crea y lo deja en la cola de la impresora;
+ * el worker de esa impresora actualiza su estado conforme lo procesa.
+ *
+ * Los trabajos enviados a una ubicación (pool de impresoras) pueden
+ * reasignarse a otra impresora de la misma ubicación si la suya falla.
+ *
+ * Un trabajo con muchas copias puede imprimirse por partes; las copias ya
+ * enviadas se acumulan en {@link #getImpresas()}.
+ *
+ * La cancelación se solicita desde cualquier hilo; si el trabajo ya está en
+ * manos del worker, este la aplica antes de enviar la siguiente parte.
+ */
+public class PrintJob {
+
+    /**
+     * Estados posibles de un trabajo de impresión.
+     */
+    public enum Estado {
+        EN_COLA,
+        IMPRIMIENDO,
+        COMPLETADO,
+        FALLIDO,
+        CANCELADO
+    }
+
+    /**
+     * Clases de prioridad, de mayor a menor. Dentro de una clase los trabajos
+     * se imprimen en orden de llegada.
+     */
+    public enum Prioridad {
+        URGENTE,
+        NORMAL,
+        MASIVA
+    }
+
+    private final String id;
+    private volatile int printerId;
+    private final String templateZPL;
+    private final byte[] datosZPL; // Etiqueta ya renderizada (plantillas del servidor)
+    private final int cantidad;
+    private final String ubicacion; // Pool de impresoras, null si va a una impresora fija
+    private final Prioridad prioridad;
+    private final LocalDateTime fechaCreacion;
+    private final Set<Integer> impresorasIntentadas = ConcurrentHashMap.newKeySet();
+
+    private volatile Estado estado;
+    private volatile LocalDateTime fechaInicio;
+    private volatile LocalDateTime fechaFin;
+    private volatile String mensaje;
+    private volatile int impresas; // Copias ya enviadas cuando se imprime por partes
+    private volatile boolean cancelacionSolicitada;
+
+    public PrintJob(int printerId, String templateZPL, int cantidad) {
+        this(printerId, templateZPL, cantidad, Prioridad.NORMAL);
+    }
+
+    public PrintJob(int printerId, String templateZPL, int cantidad, Prioridad prioridad) {
+        this.id = UUID.randomUUID().toString();
+        this.printerId = printerId;
+        this.templateZPL = templateZPL;
+        this.datosZPL = null;
+        this.cantidad = cantidad;
+        this.ubicacion = null;
+        this.prioridad = prioridad;
+        this.fechaCreacion = LocalDateTime.now();
+        this.estado = Estado.EN_COLA;
+    }
+
+    /**
+     * Crea un trabajo con una etiqueta ya renderizada; la cantidad de copias ya
+     * viene incluida en los datos (^PQ).
+     */
+    public PrintJob(int printerId, byte[] datosZPL, int cantidad) {
+        this(printerId, datosZPL, cantidad, null, Prioridad.NORMAL);
+    }
+
+    /**
+     * Crea un trabajo con una etiqueta ya renderizada. Si indica una ubicación
+     * (pool) y la impresora falla, el trabajo puede reasignarse a otra de la
+     * misma ubicación.
+     */
+    public PrintJob(int printerId, byte[] datosZPL, int cantidad, String ubicacion, Prioridad prioridad) {
+        this.id = UUID.randomUUID().toString();
+        this.printerId = printerId;
+        this.templateZPL = null;
+        this.datosZPL = datosZPL;
+        this.cantidad = cantidad;
+        this.ubicacion = ubicacion;
+        this.prioridad = prioridad;
+        this.fechaCreacion = LocalDateTime.now();
+        this.estado = Estado.EN_COLA;
+        this.impresorasIntentadas.add(printerId);
+    }
+
+    /**
+     * Reconstruye un trabajo aceptado antes de un reinicio, conservando su ID
+     * para que siga pudiendo consultarse.
+     */
+    public PrintJob(String id, int printerId, String templateZPL, byte[] datosZPL, int cantidad, String ubicacion,
+            Prioridad prioridad) {
+        this.id = id;
+        this.printerId = printerId;
+        this.templateZPL = templateZPL;
+        this.datosZPL = datosZPL;
+        this.cantidad = cantidad;
+        this.ubicacion = ubicacion;
+        this.prioridad = prioridad;
+        this.fechaCreacion = LocalDateTime.now();
+        this.estado = Estado.EN_COLA;
+        this.impresorasIntentadas.add(printerId);
+    }
+
+    /**
+     * Marca el trabajo como en proceso de impresión. Al imprimirse por partes
+     * se conserva la fecha de la primera.
+     */
+    public void iniciar() {
+        if (this.fechaInicio == null) {
+            this.fechaInicio = LocalDateTime.now();
+        }
+        this.estado = Estado.IMPRIMIENDO;
+    }
+
+    /**
+     * Registra copias enviadas en una parte del trabajo.
+     *
+     * @param copias Copias de la parte
+     */
+    public void registrarImpresas(int copias) {
+        this.impresas += copias;
+    }
+
+    /**
+     * Marca el trabajo como impreso correctamente.
+     */
+    public void completar() {
+        this.fechaFin = LocalDateTime.now();
+        this.mensaje = null;
+        this.estado = Estado.COMPLETADO;
+    }
+
+    /**
+     * Marca el trabajo como fallido.
+     *
+     * @param mensaje Motivo del fallo
+     */
+    public void fallar(String mensaje) {
+        this.fechaFin = LocalDateTime.now();
+        this.mensaje = mensaje;
+        this.estado = Estado.FALLIDO;
+    }
+
+    /**
+     * Solicita cancelar el trabajo. Las copias ya enviadas a la impresora no
+     * se cancelan.
+     *
+     * @return false si el trabajo ya había terminado
+     */
+    public boolean solicitarCancelacion() {
+        if (isFinalizado()) {
+            return false;
+        }
+        this.cancelacionSolicitada = true;
+        return true;
+    }
+
+    /**
+     * Marca el trabajo como cancelado.
+     */
+    public void cancelar() {
+        this.fechaFin = LocalDateTime.now();
+        this.mensaje = "Cancelado con " + impresas + " de " + cantidad + " copias enviadas";
+        this.estado = Estado.CANCELADO;
+    }
+
+    public boolean isCancelacionSolicitada() {
+        return cancelacionSolicitada;
+    }
+
+    /**
+     * Mueve el trabajo a otra impresora y lo deja nuevamente en cola.
+     *
+     * @param nuevaImpresora ID de la impresora destino
+     * @param motivo         Motivo de la reasignación
+     */
+    public void reasignar(int nuevaImpresora, String motivo) {
+        this.printerId = nuevaImpresora;
+        this.impresorasIntentadas.add(nuevaImpresora);
+        this.fechaInicio = null;
+        this.mensaje = motivo;
+        this.estado = Estado.EN_COLA;
+    }
+
+    /**
+     * Indica si el trabajo ya terminó (con éxito, con error o cancelado).
+     *
+     * @return true si el trabajo está completado, fallido o cancelado
+     */
+    public boolean isFinalizado() {
+        return estado == Estado.COMPLETADO || estado == Estado.FALLIDO || estado == Estado.CANCELADO;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public int getPrinterId() {
+        return printerId;
+    }
+
+    public String getTemplateZPL() {
+        return templateZPL;
+    }
+
+    public byte[] getDatosZPL() {
+        return datosZPL;
+    }
+
+    public String getUbicacion() {
+        return ubicacion;
+    }
+
+    /**
+     * Obtiene las impresoras en las que ya se intentó el trabajo.
+     *
+     * @return IDs de impresoras intentadas
+     */
+    public Set<Integer> getImpresorasIntentadas() {
+        return Collections.unmodifiableSet(impresorasIntentadas);
+    }
+
+    public int getCantidad() {
+        return cantidad;
+    }
+
+    public Prioridad getPrioridad() {
+        return prioridad;
+    }
+
+    public int getImpresas() {
+        return impresas;
+    }
+
+    /**
+     * Obtiene las copias que faltan por enviar.
+     *
+     * @return Cantidad menos las copias ya impresas
+     */
+    public int getRestantes() {
+        return cantidad - impresas;
+    }
+
+    public LocalDateTime getFechaCreacion() {
+        return fechaCreacion;
+    }
+
+    public Estado getEstado() {
+        return estado;
+    }
+
+    public LocalDateTime getFechaInicio() {
+        return fechaInicio;
+    }
+
+    public LocalDateTime getFechaFin() {
+        return fechaFin;
+    }
+
+    public String getMensaje() {
+        return mensaje;
+    }
+}
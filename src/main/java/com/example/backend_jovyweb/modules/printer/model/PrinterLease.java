@@ -0,0 +1,43 @@
+package com.example.backend_jovyweb.modules.printer.model;
+
+/**
+ * Arrendamiento de una impresora: el nodo del servicio que tiene derecho a
+ * abrir su conexión de impresión mientras el arrendamiento esté vigente.
+ */
+public class PrinterLease {
+
+    private final int printerId;
+    private final String nodo;
+    private final String url;
+    private final boolean vigente;
+
+    /**
+     * @param printerId ID de la impresora
+     * @param nodo      ID del nodo propietario
+     * @param url       URL base del nodo propietario (para reenviarle trabajos)
+     * @param vigente   false si el arrendamiento venció y otro nodo puede
+     *                  tomarlo
+     */
+    public PrinterLease(int printerId, String nodo, String url, boolean vigente) {
+        this.printerId = printerId;
+        this.nodo = nodo;
+        this.url = url;
+        this.vigente = vigente;
+    }
+
+    public int getPrinterId() {
+        return printerId;
+    }
+
+    public String getNodo() {
+        return nodo;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public boolean isVigente() {
+        return vigente;
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.backend_jovyweb.modules.printer.repository;
+
+import com.example.backend_jovyweb.modules.printer.model.PrinterLease;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Repositorio de arrendamientos de impresoras entre nodos del servicio.
+ *
+ * Los vencimientos se calculan con el reloj de la base de datos, así que los
+ * nodos no necesitan relojes sincronizados.
+ */
+public interface PrinterLeaseRepository {
+    /**
+     * Toma o renueva el arrendamiento de una impresora. Solo lo obtiene si está
+     * libre, vencido o ya era del mismo nodo.
+     *
+     * @param printerId  ID de la impresora
+     * @param nodo       ID del nodo que lo solicita
+     * @param url        URL base del nodo
+     * @param duracionMs Duración del arrendamiento
+     * @return true si el nodo quedó como propietario
+     */
+    boolean adquirir(int printerId, String nodo, String url, long duracionMs);
+
+    /**
+     * Renueva todos los arrendamientos de un nodo.
+     *
+     * @param nodo       ID del nodo
+     * @param duracionMs Duración del arrendamiento
+     * @return IDs de las impresoras que siguen siendo del nodo
+     */
+    List<Integer> renovar(String nodo, long duracionMs);
+
+    /**
+     * Obtiene el arrendamiento de una impresora.
+     *
+     * @param printerId ID de la impresora
+     * @return Optional con el arrendamiento, vacío si nunca se asignó
+     */
+    Optional<PrinterLease> obtener(int printerId);
+
+    /**
+     * Libera todos los arrendamientos de un nodo, para que otro los tome sin
+     * esperar a que venzan.
+     *
+     * @param nodo ID del nodo
+     */
+    void liberar(String nodo);
+}
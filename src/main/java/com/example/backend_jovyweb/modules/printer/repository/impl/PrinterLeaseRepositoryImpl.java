@@ -0,0 +1,101 @@
+package com.example.backend_jovyweb.modules.printer.repository.impl;
+
+import com.example.backend_jovyweb.modules.printer.model.PrinterLease;
+import com.example.backend_jovyweb.modules.printer.repository.PrinterLeaseRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.regex.Pattern;
+
+/**
+ * Implementación del repositorio de arrendamientos con SQL portable entre SQL
+ * Server y H2. La tabla (printer.cluster.lease-table) se crea con:
+ *
+ * CREATE TABLE PRI_Arrendamiento (
+ * PRI_IdImp INT NOT NULL PRIMARY KEY,
+ * PRI_Nodo VARCHAR(100) NOT NULL,
+ * PRI_Url VARCHAR(255) NOT NULL,
+ * PRI_Expira DATETIME2 NOT NULL) -- TIMESTAMP en H2
+ *
+ * Tomar un arrendamiento es un UPDATE condicionado (libre, vencido o del mismo
+ * nodo) y, si la fila no existe, un INSERT: si dos nodos compiten, la base de
+ * datos deja pasar a uno solo.
+ */
+@Repository
+public class PrinterLeaseRepositoryImpl implements PrinterLeaseRepository {
+
+    private static final Logger logger = LoggerFactory.getLogger(PrinterLeaseRepositoryImpl.class);
+    private static final Pattern IDENTIFICADOR = Pattern.compile("[A-Za-z_][A-Za-z0-9_]*(\\.[A-Za-z_][A-Za-z0-9_]*)?");
+    private static final String EXPIRA = "DATEADD(MILLISECOND, ?, CURRENT_TIMESTAMP)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final String tabla;
+
+    /**
+     * Constructor con inyección de JdbcTemplate y el nombre de la tabla.
+     *
+     * @param jdbcTemplate Template de JDBC para ejecutar queries
+     * @param tabla        Tabla de arrendamientos (printer.cluster.lease-table)
+     */
+    public PrinterLeaseRepositoryImpl(JdbcTemplate jdbcTemplate,
+            @Value("${printer.cluster.lease-table:PRI_Arrendamiento}") String tabla) {
+        if (!IDENTIFICADOR.matcher(tabla).matches()) {
+            throw new IllegalArgumentException("Nombre de tabla de arrendamientos inválido: " + tabla);
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.tabla = tabla;
+    }
+
+    @Override
+    public boolean adquirir(int printerId, String nodo, String url, long duracionMs) {
+        int actualizadas = jdbcTemplate.update(
+                "UPDATE " + tabla + " SET PRI_Nodo = ?, PRI_Url = ?, PRI_Expira = " + EXPIRA
+                        + " WHERE PRI_IdImp = ? AND (PRI_Nodo = ? OR PRI_Expira < CURRENT_TIMESTAMP)",
+                nodo, url, duracionMs, printerId, nodo);
+        if (actualizadas > 0) {
+            return true;
+        }
+        try {
+            jdbcTemplate.update(
+                    "INSERT INTO " + tabla + " (PRI_IdImp, PRI_Nodo, PRI_Url, PRI_Expira) VALUES (?, ?, ?, "
+                            + EXPIRA + ")",
+                    printerId, nodo, url, duracionMs);
+            return true;
+        } catch (DataIntegrityViolationException e) {
+            // La fila existe y tiene otro propietario vigente
+            logger.debug("Impresora [{}] ya asignada a otro nodo", printerId);
+            return false;
+        }
+    }
+
+    @Override
+    public List<Integer> renovar(String nodo, long duracionMs) {
+        jdbcTemplate.update("UPDATE " + tabla + " SET PRI_Expira = " + EXPIRA + " WHERE PRI_Nodo = ?",
+                duracionMs, nodo);
+        return jdbcTemplate.queryForList("SELECT PRI_IdImp FROM " + tabla + " WHERE PRI_Nodo = ?", Integer.class,
+                nodo);
+    }
+
+    @Override
+    public Optional<PrinterLease> obtener(int printerId) {
+        List<PrinterLease> lista = jdbcTemplate.query(
+                "SELECT PRI_IdImp, PRI_Nodo, PRI_Url,"
+                        + " CASE WHEN PRI_Expira >= CURRENT_TIMESTAMP THEN 1 ELSE 0 END AS PRI_Vigente"
+                        + " FROM " + tabla + " WHERE PRI_IdImp = ?",
+                (rs, rowNum) -> new PrinterLease(rs.getInt("PRI_IdImp"), rs.getString("PRI_Nodo"),
+                        rs.getString("PRI_Url"), rs.getInt("PRI_Vigente") == 1),
+                printerId);
+        return lista.stream().findFirst();
+    }
+
+    @Override
+    public void liberar(String nodo) {
+        jdbcTemplate.update("DELETE FROM " + tabla + " WHERE PRI_Nodo = ?", nodo);
+    }
+}
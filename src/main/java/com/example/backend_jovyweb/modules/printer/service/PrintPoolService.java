@@ -0,0 +1,36 @@
+package com.example.backend_jovyweb.modules.printer.service;
+
+import com.example.backend_jovyweb.modules.printer.dto.PrintJobStatusDTO;
+import com.example.backend_jovyweb.modules.printer.dto.PrintLocationDTO;
+import com.example.backend_jovyweb.modules.printer.dto.PrinterStatusDTO;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Servicio de pools de impresoras por ubicación (PRI004).
+ *
+ * Un trabajo enviado a una ubicación va a la impresora disponible con menos
+ * etiquetas pendientes; las cantidades grandes se reparten entre varias
+ * impresoras y, si una falla, su trabajo pasa a otra de la misma ubicación.
+ */
+public interface PrintPoolService {
+    /**
+     * Encola una etiqueta en el pool de una ubicación.
+     *
+     * @param printLocationDTO Datos del trabajo (ubicación, etiqueta, cantidad)
+     * @return Trabajos encolados (uno por impresora si la cantidad se repartió)
+     * @throws IllegalArgumentException si la ubicación no tiene impresoras o la
+     *                                  etiqueta es inválida
+     * @throws IllegalStateException    si ninguna impresora de la ubicación está
+     *                                  disponible o sus colas están llenas
+     */
+    List<PrintJobStatusDTO> imprimirEnUbicacion(PrintLocationDTO printLocationDTO);
+
+    /**
+     * Obtiene las impresoras activas agrupadas por ubicación, con su último
+     * estado conocido.
+     *
+     * @return Mapa ubicación -> estados de sus impresoras
+     */
+    Map<String, List<PrinterStatusDTO>> obtenerPools();
+}
@@ -0,0 +1,156 @@
+package com.example.backend_jovyweb.modules.printer.service;
+
+import com.example.backend_jovyweb.modules.printer.dto.PrintBatchItemDTO;
+import com.example.backend_jovyweb.modules.printer.dto.PrintBatchResultDTO;
+import com.example.backend_jovyweb.modules.printer.dto.PrintJobStatusDTO;
+import com.example.backend_jovyweb.modules.printer.model.PrintJob;
+import java.util.List;
+import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.function.Function;
+
+/**
+ * Servicio de colas de impresión por impresora.
+ *
+ * Cada impresora tiene una cola acotada y un worker dedicado que la vacía, de
+ * modo que el hilo de la petición HTTP solo encola el trabajo y responde con
+ * su ID. Los trabajos se atienden por prioridad (URGENTE, NORMAL, MASIVA) y
+ * los que se acumulan en la cola de una impresora se envían juntos en una sola
+ * escritura.
+ */
+public interface PrintQueueService {
+    /**
+     * Encola un trabajo de impresión para una impresora.
+     *
+     * @param printerId   ID de la impresora
+     * @param templateZPL Plantilla ZPL de la etiqueta
+     * @param cantidad    Número de copias a imprimir
+     * @param prioridad   Prioridad del trabajo (null = NORMAL)
+     * @return ID del trabajo encolado
+     * @throws IllegalStateException si la cola de la impresora está llena
+     */
+    String encolarTrabajo(int printerId, String templateZPL, int cantidad, PrintJob.Prioridad prioridad);
+
+    /**
+     * Encola una etiqueta ya renderizada (por ejemplo, desde una plantilla del
+     * servidor) para una impresora.
+     *
+     * @param printerId ID de la impresora
+     * @param datosZPL  Bytes ZPL listos para enviar, con ^PQ incluido
+     * @param cantidad  Número de copias (informativo)
+     * @param prioridad Prioridad del trabajo (null = NORMAL)
+     * @return ID del trabajo encolado
+     * @throws IllegalStateException si la cola de la impresora está llena
+     */
+    String encolarDatos(int printerId, byte[] datosZPL, int cantidad, PrintJob.Prioridad prioridad);
+
+    /**
+     * Encola una etiqueta ya renderizada en una impresora de un pool. Si la
+     * impresora falla, el trabajo se reasigna con el reasignador registrado.
+     *
+     * @param printerId ID de la impresora elegida
+     * @param ubicacion Ubicación (pool) de la impresora
+     * @param datosZPL  Bytes ZPL listos para enviar, con ^PQ incluido
+     * @param cantidad  Número de copias (informativo)
+     * @return ID del trabajo encolado
+     * @throws IllegalStateException si la cola de la impresora está llena
+     */
+    String encolarEnUbicacion(int printerId, String ubicacion, byte[] datosZPL, int cantidad);
+
+    /**
+     * Encola un trabajo que otro nodo reenvió a este por ser el propietario de
+     * la impresora. No se vuelve a reenviar.
+     *
+     * @param printerId ID de la impresora
+     * @param datosZPL  Bytes ZPL listos para enviar, con ^PQ incluido
+     * @param cantidad  Número de copias
+     * @param prioridad Prioridad del trabajo (null = NORMAL)
+     * @return ID del trabajo encolado
+     * @throws IllegalStateException si la impresora no es de este nodo o la
+     *                               cola está llena
+     */
+    String encolarReenviado(int printerId, byte[] datosZPL, int cantidad, PrintJob.Prioridad prioridad);
+
+    /**
+     * Registra la función que elige otra impresora para un trabajo de pool cuya
+     * impresora falló.
+     *
+     * @param reasignador Recibe el trabajo y retorna la impresora destino, o
+     *                    vacío si no hay alternativa
+     */
+    void setReasignador(Function<PrintJob, OptionalInt> reasignador);
+
+    /**
+     * Encola un lote de etiquetas para una o varias impresoras. Las etiquetas de
+     * cada impresora se encolan juntas, de modo que el worker las envía en una
+     * sola escritura.
+     *
+     * @param trabajos Etiquetas del lote
+     * @return Resultado por etiqueta, en el mismo orden del lote
+     */
+    List<PrintBatchResultDTO> encolarLote(List<PrintBatchItemDTO> trabajos);
+
+    /**
+     * Vuelve a encolar un trabajo reciente con los mismos bytes que se
+     * enviaron, sin renderizarlo de nuevo.
+     *
+     * @param printerId ID de la impresora a la que se envió el trabajo
+     * @param jobId     ID del trabajo original
+     * @param destino   Impresora donde reimprimir (null = la misma)
+     * @param prioridad Prioridad de la reimpresión (null = URGENTE, porque
+     *                  repone etiquetas perdidas)
+     * @return Optional con el ID del nuevo trabajo, vacío si el trabajo ya no
+     *         está en el historial
+     * @throws IllegalStateException si la cola de la impresora destino está
+     *                               llena
+     */
+    Optional<String> reimprimir(int printerId, String jobId, Integer destino, PrintJob.Prioridad prioridad);
+
+    /**
+     * Obtiene el estado de un trabajo de impresión. El de un trabajo reenviado
+     * a otro nodo se consulta en ese nodo.
+     *
+     * @param jobId ID del trabajo
+     * @return Optional con el estado del trabajo, vacío si no existe o ya expiró
+     * @throws IllegalStateException si el nodo propietario no responde
+     */
+    Optional<PrintJobStatusDTO> obtenerEstadoTrabajo(String jobId);
+
+    /**
+     * Cancela un trabajo de impresión. Si está en cola se cancela de inmediato;
+     * si se está imprimiendo por partes, se cancela antes de enviar la
+     * siguiente. Las copias que ya están en la impresora se imprimen. Un
+     * trabajo reenviado a otro nodo se cancela en ese nodo.
+     *
+     * @param jobId ID del trabajo
+     * @return Optional con el estado del trabajo tras solicitar la cancelación,
+     *         vacío si no existe o ya expiró
+     * @throws IllegalStateException si el nodo propietario no responde
+     */
+    Optional<PrintJobStatusDTO> cancelarTrabajo(String jobId);
+
+    /**
+     * Obtiene el número de trabajos pendientes en la cola de una impresora.
+     *
+     * @param printerId ID de la impresora
+     * @return Trabajos en cola (sin contar el que se está imprimiendo)
+     */
+    int obtenerTrabajosPendientes(int printerId);
+
+    /**
+     * Obtiene el número de etiquetas pendientes (en cola o imprimiéndose) de una
+     * impresora, sumando la cantidad de cada trabajo.
+     *
+     * @param printerId ID de la impresora
+     * @return Etiquetas pendientes
+     */
+    int obtenerEtiquetasPendientes(int printerId);
+
+    /**
+     * Obtiene cuántos trabajos más admite la cola de una impresora.
+     *
+     * @param printerId ID de la impresora
+     * @return Lugares libres en la cola
+     */
+    int obtenerCapacidadRestante(int printerId);
+}
@@ -1,6 +1,8 @@
 package com.example.backend_jovyweb.modules.printer.service;
 
 import com.example.backend_jovyweb.modules.printer.dto.PrinterDTO;
+import com.example.backend_jovyweb.modules.printer.dto.PrinterStatusDTO;
+import java.io.InputStream;
 import java.util.List;
 import java.util.Optional;
 
@@ -63,6 +65,31 @@ public interface PrinterService {
      */
     boolean imprimirEtiqueta(int printerId, String templateZPL, int cantidad);
 
+    /**
+     * Imprime una etiqueta ya renderizada (bytes ZPL con ^PQ incluido).
+     * 
+     * @param printerId ID de la impresora
+     * @param datosZPL  Bytes ZPL de la etiqueta
+     * @return true si la impresión fue exitosa
+     */
+    boolean imprimirDatos(int printerId, byte[] datosZPL);
+
+    /**
+     * Imprime los bytes ZPL de un flujo sin cargarlos completos en memoria,
+     * ajustando ^PQ al vuelo. No pasa por la cola de la impresora: ocupa su
+     * escritor mientras dura el flujo, salvo que el cliente deje de enviar
+     * datos por más de printer.stream.read-timeout-ms.
+     * 
+     * @param printerId ID de la impresora
+     * @param datos     Flujo con los bytes ZPL
+     * @param cantidad  Número de copias
+     * @return true si la impresión fue exitosa
+     * @throws IllegalArgumentException si la impresora no existe o el flujo se
+     *                                  interrumpe, se detiene o excede
+     *                                  printer.stream.max-bytes
+     */
+    boolean imprimirFlujo(int printerId, InputStream datos, int cantidad);
+
     /**
      * Envía un comando ZPL personalizado a una impresora específica.
      * 
@@ -73,7 +100,8 @@ public interface PrinterService {
     boolean enviarComandoZPL(int printerId, String comandoZPL);
 
     /**
-     * Obtiene el estado de una impresora específica.
+     * Obtiene el último estado conocido de una impresora específica, sin
+     * contactarla.
      * 
      * @param printerId ID de la impresora
      * @return String con el estado de la impresora
@@ -81,7 +109,23 @@ public interface PrinterService {
     String obtenerEstadoImpresora(int printerId);
 
     /**
-     * Verifica si una impresora está conectada.
+     * Obtiene el último estado conocido de una impresora con la fecha del
+     * sondeo.
+     * 
+     * @param printerId ID de la impresora
+     * @return Estado de la impresora (DESCONOCIDO si aún no se ha sondeado)
+     */
+    PrinterStatusDTO obtenerEstadoDetallado(int printerId);
+
+    /**
+     * Obtiene el último estado conocido de todas las impresoras activas.
+     * 
+     * @return Lista de estados
+     */
+    List<PrinterStatusDTO> obtenerEstadoImpresoras();
+
+    /**
+     * Verifica si una impresora tiene conexión abierta, sin intentar conectar.
      * 
      * @param printerId ID de la impresora
      * @return true si está conectada
@@ -1,6 +1,10 @@
 package com.example.backend_jovyweb.modules.printer.service;
 
 import com.example.backend_jovyweb.modules.printer.dto.PrinterDTO;
+import com.example.backend_jovyweb.modules.printer.model.HostStatus;
+
+import java.io.InputStream;
+import java.util.Optional;
 
 /**
  * Servicio para la integración con impresoras Zebra usando Link-OS SDK.
@@ -10,6 +14,10 @@ import com.example.backend_jovyweb.modules.printer.dto.PrinterDTO;
  * - Enviar comandos ZPL (Zebra Programming Language)
  * - Enviar datos de impresión
  * - Manejo de errores de conexión y comunicación
+ * 
+ * Todas las operaciones reciben el ID de la impresora. Las escrituras hacia
+ * una misma impresora se ejecutan en orden, una a la vez; impresoras distintas
+ * se atienden en paralelo.
  */
 public interface ZebraPrinterService {
     /**
@@ -20,13 +28,6 @@ public interface ZebraPrinterService {
      */
     boolean conectarImpresora(PrinterDTO printerDTO);
 
-    /**
-     * Desconecta de la impresora Zebra.
-     * 
-     * @return true si la desconexión fue exitosa
-     */
-    boolean desconectarImpresora();
-
     /**
      * Desconecta una impresora específica por su ID.
      * Útil cuando cambia la IP o puerto de la impresora.
@@ -37,35 +38,97 @@ public interface ZebraPrinterService {
     boolean desconectarImpresoraEspecifica(int printerId);
 
     /**
-     * Envía un comando ZPL a la impresora.
+     * Envía un comando ZPL a una impresora específica.
      * 
-     * @param comando Comando ZPL a enviar
+     * @param printerId ID de la impresora
+     * @param comando   Comando ZPL a enviar
      * @return true si el comando se envió correctamente
      */
-    boolean enviarComandoZPL(String comando);
+    boolean enviarComandoZPL(int printerId, String comando);
 
     /**
-     * Imprime una etiqueta usando ZPL.
+     * Imprime una etiqueta usando ZPL en una impresora específica.
      * 
+     * Tras enviar la etiqueta se consulta ~HS: la impresora responde después
+     * de haber recibido el formato, lo que confirma la entrega y permite
+     * detectar errores (sin papel, cabezal abierto, etc.).
+     * 
+     * @param printerId   ID de la impresora
      * @param templateZPL Plantilla ZPL de la etiqueta a imprimir
      * @param cantidad    Número de copias a imprimir
      * @return true si la impresión fue exitosa
+     * @throws IllegalStateException si la impresora reporta un error tras
+     *                               recibir la etiqueta
      */
-    boolean imprimirEtiqueta(String templateZPL, int cantidad);
+    boolean imprimirEtiqueta(int printerId, String templateZPL, int cantidad);
 
     /**
-     * Obtiene el estado de la impresora Zebra.
+     * Imprime una etiqueta ya renderizada, sin ajustar la cantidad. Se confirma
+     * con ~HS igual que {@link #imprimirEtiqueta(int, String, int)}.
      * 
-     * @return String con el estado de la impresora
+     * @param printerId ID de la impresora
+     * @param datosZPL  Bytes ZPL de la etiqueta
+     * @return true si la impresión fue exitosa
+     * @throws IllegalStateException si la impresora reporta un error tras
+     *                               recibir la etiqueta
      */
-    String obtenerEstadoImpresora();
+    boolean imprimirZPL(int printerId, byte[] datosZPL);
 
     /**
-     * Verifica si la impresora está conectada.
+     * Envía a la impresora los bytes ZPL de un flujo en bloques de tamaño fijo,
+     * ajustando ^PQ al vuelo, sin cargar la etiqueta completa en memoria. La
+     * impresora empieza a recibir antes de que termine la lectura. Se confirma
+     * con ~HS al terminar el flujo.
      * 
-     * @return true si está conectada, false en caso contrario
+     * @param printerId ID de la impresora
+     * @param datos     Flujo con los bytes ZPL
+     * @param cantidad  Número de copias (1 o menos deja los ^PQ como vienen)
+     * @return true si la impresión fue exitosa
+     * @throws IllegalStateException    si la impresora reporta un error tras
+     *                                  recibir la etiqueta
+     * @throws IllegalArgumentException si el flujo falla, excede
+     *                                  printer.stream.max-bytes o no envía
+     *                                  datos en printer.stream.read-timeout-ms
+     */
+    boolean imprimirFlujo(int printerId, InputStream datos, int cantidad);
+
+    /**
+     * Obtiene el estado de una impresora específica.
+     * 
+     * @param printerId ID de la impresora
+     * @return Estado según ~HS/~HQES (LISTA, SIN_PAPEL, CABEZAL_ABIERTO, ...),
+     *         DESCONECTADA o ERROR si no responde
      */
-    boolean estaConectada();
+    String obtenerEstadoImpresora(int printerId);
+
+    /**
+     * Consulta el estado detallado de una impresora con ~HS y ~HQES por la
+     * conexión de impresión. Si la impresora está ocupada con otra operación no
+     * espera a que termine y retorna el último estado conocido.
+     * 
+     * @param printerId ID de la impresora
+     * @return Optional con el estado, vacío si no está conectada o no responde
+     */
+    Optional<HostStatus> consultarEstadoHost(int printerId);
+
+    /**
+     * Consulta el estado de una impresora por el canal de estado Link-OS
+     * (puerto 9200), sin pasar por la conexión de impresión.
+     * 
+     * @param printerDTO Impresora a consultar
+     * @return Optional con el estado, vacío si el canal está deshabilitado, la
+     *         impresora no lo soporta o no responde
+     */
+    Optional<HostStatus> consultarEstadoCanal(PrinterDTO printerDTO);
+
+    /**
+     * Obtiene la última respuesta a ~HS de una impresora (la confirmación de
+     * la última etiqueta o la última consulta), sin consultar a la impresora.
+     * 
+     * @param printerId ID de la impresora
+     * @return Optional con el estado, vacío si aún no respondió
+     */
+    Optional<HostStatus> obtenerUltimoEstadoHost(int printerId);
 
     /**
      * Verifica si una impresora específica está conectada.
@@ -75,4 +138,12 @@ public interface ZebraPrinterService {
      */
     boolean estaConectada(int printerId);
 
+    /**
+     * Obtiene el número de impresoras con conexión abierta. El mismo valor se
+     * publica como la métrica printer.connections.active.
+     * 
+     * @return Número de conexiones activas
+     */
+    int obtenerNumeroConexionesActivas();
+
 }
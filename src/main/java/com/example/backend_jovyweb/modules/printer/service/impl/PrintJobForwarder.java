@@ -0,0 +1,160 @@
+package com.example.backend_jovyweb.modules.printer.service.impl;
+
+import com.example.backend_jovyweb.modules.printer.dto.PrintJobStatusDTO;
+import com.example.backend_jovyweb.modules.printer.model.PrintJob;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClient;
+import org.springframework.web.client.RestClientException;
+
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Reenvía trabajos de impresión al nodo propietario de la impresora
+ * ({@link PrinterLeaseManager}).
+ *
+ * El trabajo viaja ya renderizado (bytes ZPL con ^PQ) a
+ * POST {node-url}/api/printers/cluster/{id}/jobs, con la cabecera
+ * X-Cluster-Secret igual a printer.cluster.secret en todos los nodos. El nodo
+ * propietario lo encola como cualquier otro trabajo y responde con su ID.
+ *
+ * El estado y la cancelación de un trabajo reenviado se consultan al mismo
+ * nodo en {node-url}/api/printers/cluster/jobs/{jobId}, con la misma cabecera.
+ */
+@Component
+public class PrintJobForwarder {
+
+    private static final Logger logger = LoggerFactory.getLogger(PrintJobForwarder.class);
+
+    public static final String HEADER = "X-Cluster-Secret";
+
+    @Value("${printer.cluster.secret:}")
+    private String secreto;
+
+    @Value("${printer.cluster.forward-timeout-ms:5000}")
+    private long timeoutMs;
+
+    private volatile RestClient restClient;
+
+    /**
+     * Reenvía un trabajo al nodo propietario de la impresora.
+     *
+     * @param url       URL base del nodo propietario
+     * @param printerId ID de la impresora
+     * @param datos     Bytes ZPL con ^PQ incluido
+     * @param cantidad  Número de copias
+     * @param prioridad Prioridad del trabajo
+     * @return ID del trabajo en el nodo propietario
+     * @throws IllegalStateException si el nodo no responde o rechaza el trabajo
+     */
+    public String reenviar(String url, int printerId, byte[] datos, int cantidad, PrintJob.Prioridad prioridad) {
+        Map<?, ?> respuesta;
+        try {
+            respuesta = cliente().post()
+                    .uri(url + "/api/printers/cluster/{id}/jobs?cantidad={cantidad}&prioridad={prioridad}",
+                            printerId, cantidad, prioridad)
+                    .header(HEADER, secreto)
+                    .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                    .body(datos)
+                    .retrieve()
+                    .body(Map.class);
+        } catch (RestClientException e) {
+            throw new IllegalStateException("No se pudo reenviar el trabajo de la impresora " + printerId
+                    + " al nodo " + url + ": " + e.getMessage(), e);
+        }
+        Object jobId = respuesta != null ? respuesta.get("PRI_IdTrabajo") : null;
+        if (jobId == null) {
+            throw new IllegalStateException("El nodo " + url + " no retornó el ID del trabajo");
+        }
+        logger.debug("Trabajo de impresora [{}] reenviado al nodo {} como {}", printerId, url, jobId);
+        return jobId.toString();
+    }
+
+    /**
+     * Consulta el estado de un trabajo reenviado en el nodo propietario.
+     *
+     * @param url   URL base del nodo propietario
+     * @param jobId ID del trabajo en el nodo propietario
+     * @return Optional con el estado, vacío si el nodo ya no lo conoce
+     * @throws IllegalStateException si el nodo no responde
+     */
+    public Optional<PrintJobStatusDTO> consultar(String url, String jobId) {
+        return trabajoRemoto(url, jobId, false);
+    }
+
+    /**
+     * Cancela un trabajo reenviado en el nodo propietario.
+     *
+     * @param url   URL base del nodo propietario
+     * @param jobId ID del trabajo en el nodo propietario
+     * @return Optional con el estado tras la cancelación, vacío si el nodo ya
+     *         no lo conoce
+     * @throws IllegalStateException si el nodo no responde
+     */
+    public Optional<PrintJobStatusDTO> cancelar(String url, String jobId) {
+        return trabajoRemoto(url, jobId, true);
+    }
+
+    private Optional<PrintJobStatusDTO> trabajoRemoto(String url, String jobId, boolean cancelar) {
+        RestClient cliente = cliente();
+        RestClient.RequestHeadersUriSpec<?> peticion = cancelar ? cliente.delete() : cliente.get();
+        try {
+            return peticion.uri(url + "/api/printers/cluster/jobs/{jobId}", jobId)
+                    .header(HEADER, secreto)
+                    .exchange((request, response) -> {
+                        if (response.getStatusCode().isSameCodeAs(HttpStatus.NOT_FOUND)) {
+                            return Optional.<PrintJobStatusDTO>empty();
+                        }
+                        // 409: el trabajo ya había terminado, el cuerpo trae su estado
+                        if (response.getStatusCode().isError()
+                                && !response.getStatusCode().isSameCodeAs(HttpStatus.CONFLICT)) {
+                            throw new IllegalStateException("El nodo " + url + " respondió "
+                                    + response.getStatusCode().value() + " para el trabajo " + jobId);
+                        }
+                        return Optional.ofNullable(response.bodyTo(PrintJobStatusDTO.class));
+                    });
+        } catch (RestClientException e) {
+            throw new IllegalStateException("No se pudo consultar el trabajo " + jobId + " en el nodo " + url
+                    + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Verifica la cabecera X-Cluster-Secret de un trabajo reenviado. Sin
+     * printer.cluster.secret configurado no se acepta ningún reenvío.
+     *
+     * @param recibido Valor de la cabecera
+     * @return true si coincide con printer.cluster.secret
+     */
+    public boolean secretoValido(String recibido) {
+        if (secreto == null || secreto.isBlank() || recibido == null) {
+            return false;
+        }
+        return MessageDigest.isEqual(secreto.getBytes(StandardCharsets.UTF_8),
+                recibido.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private RestClient cliente() {
+        RestClient cliente = restClient;
+        if (cliente == null) {
+            HttpClient httpClient = HttpClient.newBuilder()
+                    .connectTimeout(Duration.ofMillis(timeoutMs))
+                    .build();
+            JdkClientHttpRequestFactory factory = new JdkClientHttpRequestFactory(httpClient);
+            factory.setReadTimeout(Duration.ofMillis(timeoutMs));
+            cliente = RestClient.builder().requestFactory(factory).build();
+            restClient = cliente;
+        }
+        return cliente;
+    }
+}
@@ -0,0 +1,118 @@
+package com.example.backend_jovyweb.modules.printer.service.impl;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Últimos trabajos renderizados de cada impresora, para reimprimirlos sin que
+ * el cliente vuelva a subir el ZPL ni el servidor vuelva a renderizarlo.
+ *
+ * - Se guardan como máximo printer.reprint.jobs-per-printer trabajos por
+ * impresora; al superarlo se descarta el más antiguo de esa impresora
+ * - La suma de bytes de todas las impresoras no supera
+ * printer.reprint.max-bytes; al superarlo se descartan los más antiguos
+ * - Un trabajo más grande que el límite total no se guarda
+ *
+ * Los bytes son los mismos que se enviaron a la cola y no se copian: no deben
+ * modificarse. Todos los métodos se sincronizan en la instancia.
+ */
+@Component
+public class PrintJobHistory {
+
+    @Value("${printer.reprint.jobs-per-printer:50}")
+    private int trabajosPorImpresora;
+
+    @Value("${printer.reprint.max-bytes:67108864}")
+    private long maxBytes;
+
+    /**
+     * Trabajo guardado.
+     *
+     * @param jobId     ID del trabajo original
+     * @param printerId Impresora a la que se envió
+     * @param datos     Bytes ZPL, con ^PQ incluido
+     * @param cantidad  Copias del trabajo original
+     */
+    public record Entrada(String jobId, int printerId, byte[] datos, int cantidad) {
+    }
+
+    // Trabajos en orden de llegada: jobId -> entrada
+    private final Map<String, Entrada> entradas = new LinkedHashMap<>();
+
+    // IDs de trabajo por impresora, del más antiguo al más reciente
+    private final Map<Integer, ArrayDeque<String>> porImpresora = new HashMap<>();
+
+    private long totalBytes;
+
+    /**
+     * Guarda un trabajo renderizado.
+     *
+     * @param jobId     ID del trabajo
+     * @param printerId Impresora del trabajo
+     * @param datos     Bytes ZPL
+     * @param cantidad  Copias
+     */
+    public synchronized void guardar(String jobId, int printerId, byte[] datos, int cantidad) {
+        if (trabajosPorImpresora <= 0 || datos.length > maxBytes) {
+            return;
+        }
+        quitar(jobId);
+        entradas.put(jobId, new Entrada(jobId, printerId, datos, cantidad));
+        totalBytes += datos.length;
+
+        ArrayDeque<String> recientes = porImpresora.computeIfAbsent(printerId, id -> new ArrayDeque<>());
+        recientes.addLast(jobId);
+        while (recientes.size() > trabajosPorImpresora) {
+            quitar(recientes.peekFirst());
+        }
+
+        Iterator<Entrada> antiguas = entradas.values().iterator();
+        while (totalBytes > maxBytes && antiguas.hasNext()) {
+            Entrada antigua = antiguas.next();
+            antiguas.remove();
+            totalBytes -= antigua.datos().length;
+            porImpresora.get(antigua.printerId()).remove(antigua.jobId());
+        }
+    }
+
+    /**
+     * Obtiene un trabajo guardado de una impresora.
+     *
+     * @param printerId Impresora a la que se envió el trabajo
+     * @param jobId     ID del trabajo
+     * @return Optional con el trabajo, vacío si no está (o ya se descartó)
+     */
+    public synchronized Optional<Entrada> obtener(int printerId, String jobId) {
+        Entrada entrada = entradas.get(jobId);
+        return entrada != null && entrada.printerId() == printerId ? Optional.of(entrada) : Optional.empty();
+    }
+
+    /**
+     * Bytes guardados entre todas las impresoras.
+     *
+     * @return Total de bytes
+     */
+    public synchronized long getTotalBytes() {
+        return totalBytes;
+    }
+
+    private void quitar(String jobId) {
+        Entrada entrada = entradas.remove(jobId);
+        if (entrada == null) {
+            return;
+        }
+        totalBytes -= entrada.datos().length;
+        ArrayDeque<String> recientes = porImpresora.get(entrada.printerId());
+        recientes.remove(jobId);
+        if (recientes.isEmpty()) {
+            porImpresora.remove(entrada.printerId());
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package com.example.backend_jovyweb.modules.printer.service.impl;
+
+import com.example.backend_jovyweb.modules.printer.model.PrintJob;
+import com.example.backend_jovyweb.modules.printer.model.PrintJob.Prioridad;
+
+import java.util.ArrayDeque;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Cola de trabajos de una impresora con una subcola por prioridad.
+ *
+ * Se atiende primero la subcola de mayor prioridad efectiva; dentro de cada
+ * una, en orden de llegada. Para que los trabajos de baja prioridad no esperen
+ * indefinidamente, cada envejecimientoMs de espera suben un nivel (una MASIVA
+ * que espera dos periodos compite como URGENTE); a igual nivel gana la que
+ * lleva más tiempo esperando.
+ *
+ * La capacidad es total entre las subcolas. Todos los métodos se sincronizan
+ * en la instancia.
+ */
+class PrintJobScheduler {
+
+    /**
+     * Trabajo en cola con el instante desde el que espera.
+     */
+    private record Turno(PrintJob job, long desde) {
+    }
+
+    private final Map<Prioridad, ArrayDeque<Turno>> colas = new EnumMap<>(Prioridad.class);
+    private final int capacidad;
+    private final long envejecimientoMs;
+    private int tamano;
+
+    /**
+     * @param capacidad        Trabajos en cola como máximo
+     * @param envejecimientoMs Espera tras la que un trabajo sube un nivel de
+     *                         prioridad (0 desactiva el envejecimiento)
+     */
+    PrintJobScheduler(int capacidad, long envejecimientoMs) {
+        this.capacidad = capacidad;
+        this.envejecimientoMs = envejecimientoMs;
+        for (Prioridad prioridad : Prioridad.values()) {
+            colas.put(prioridad, new ArrayDeque<>());
+        }
+    }
+
+    /**
+     * Agrega un trabajo al final de su subcola.
+     *
+     * @return false si la cola está llena
+     */
+    synchronized boolean ofrecer(PrintJob job) {
+        if (tamano >= capacidad) {
+            return false;
+        }
+        colas.get(job.getPrioridad()).addLast(new Turno(job, System.currentTimeMillis()));
+        tamano++;
+        notifyAll();
+        return true;
+    }
+
+    /**
+     * Devuelve al frente de su subcola un trabajo del que se imprimió una
+     * parte, para continuar con él si no llegó nada más urgente. No respeta la
+     * capacidad: el trabajo ya había sido aceptado.
+     */
+    synchronized void devolver(PrintJob job) {
+        colas.get(job.getPrioridad()).addFirst(new Turno(job, System.currentTimeMillis()));
+        tamano++;
+        notifyAll();
+    }
+
+    /**
+     * Toma el siguiente trabajo, esperando si la cola está vacía.
+     *
+     * @return Trabajo de mayor prioridad efectiva
+     * @throws InterruptedException si se interrumpe la espera
+     */
+    synchronized PrintJob tomar() throws InterruptedException {
+        while (tamano == 0) {
+            wait();
+        }
+        long ahora = System.currentTimeMillis();
+        ArrayDeque<Turno> elegida = null;
+        long mejorNivel = Long.MAX_VALUE;
+        long mejorDesde = Long.MAX_VALUE;
+        for (Map.Entry<Prioridad, ArrayDeque<Turno>> cola : colas.entrySet()) {
+            Turno primero = cola.getValue().peekFirst();
+            if (primero == null) {
+                continue;
+            }
+            long nivel = nivelEfectivo(cola.getKey(), ahora - primero.desde());
+            if (nivel < mejorNivel || (nivel == mejorNivel && primero.desde() < mejorDesde)) {
+                elegida = cola.getValue();
+                mejorNivel = nivel;
+                mejorDesde = primero.desde();
+            }
+        }
+        tamano--;
+        return elegida.pollFirst().job();
+    }
+
+    /**
+     * Espera a que haya al menos un trabajo en la cola, sin tomarlo.
+     *
+     * @throws InterruptedException si se interrumpe la espera
+     */
+    synchronized void esperarTrabajo() throws InterruptedException {
+        while (tamano == 0) {
+            wait();
+        }
+    }
+
+    /**
+     * Quita un trabajo de la cola (p. ej. al cancelarlo).
+     *
+     * @return false si el trabajo no estaba en la cola
+     */
+    synchronized boolean quitar(PrintJob job) {
+        if (colas.get(job.getPrioridad()).removeIf(turno -> turno.job() == job)) {
+            tamano--;
+            return true;
+        }
+        return false;
+    }
+
+    private long nivelEfectivo(Prioridad prioridad, long esperaMs) {
+        if (envejecimientoMs <= 0) {
+            return prioridad.ordinal();
+        }
+        return Math.max(0, prioridad.ordinal() - esperaMs / envejecimientoMs);
+    }
+
+    /**
+     * Agrega al lote los trabajos que siguen en la subcola indicada, en orden,
+     * mientras no superen los límites. Se detiene en el primero que no cabe.
+     *
+     * @param prioridad     Subcola de la que se toman
+     * @param lote          Lista a la que se agregan
+     * @param maxTrabajos   Trabajos a agregar como máximo
+     * @param maxEtiquetas  Etiquetas a agregar como máximo
+     */
+    synchronized void drenar(Prioridad prioridad, List<PrintJob> lote, int maxTrabajos, int maxEtiquetas) {
+        ArrayDeque<Turno> cola = colas.get(prioridad);
+        int etiquetas = 0;
+        for (int i = 0; i < maxTrabajos && !cola.isEmpty(); i++) {
+            PrintJob siguiente = cola.peekFirst().job();
+            if (etiquetas + siguiente.getCantidad() > maxEtiquetas) {
+                return;
+            }
+            cola.pollFirst();
+            tamano--;
+            etiquetas += siguiente.getCantidad();
+            lote.add(siguiente);
+        }
+    }
+
+    synchronized int size() {
+        return tamano;
+    }
+
+    synchronized int capacidadRestante() {
+        return Math.max(0, capacidad - tamano);
+    }
+}
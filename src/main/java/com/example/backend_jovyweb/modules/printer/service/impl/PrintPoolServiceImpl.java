@@ -0,0 +1,231 @@
+package com.example.backend_jovyweb.modules.printer.service.impl;
+
+import com.example.backend_jovyweb.modules.printer.dto.PrintJobStatusDTO;
+import com.example.backend_jovyweb.modules.printer.dto.PrintLocationDTO;
+import com.example.backend_jovyweb.modules.printer.dto.PrinterDTO;
+import com.example.backend_jovyweb.modules.printer.dto.PrinterStatusDTO;
+import com.example.backend_jovyweb.modules.printer.model.PrintJob;
+import com.example.backend_jovyweb.modules.printer.service.PrintPoolService;
+import com.example.backend_jovyweb.modules.printer.service.PrintQueueService;
+import com.example.backend_jovyweb.modules.printer.template.ZplTemplateRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Implementación del servicio de pools de impresoras por ubicación.
+ *
+ * Una impresora está disponible si el último sondeo la reporta LISTA (o con
+ * el buffer lleno), o si aún no se ha sondeado, y su circuito no la está
+ * rechazando. Entre las disponibles se
+ * eligen las de menos etiquetas pendientes en su cola.
+ *
+ * Una cantidad de al menos 2 x printer.pool.split-min etiquetas se reparte en
+ * partes iguales (de al menos split-min) entre las impresoras disponibles
+ * menos cargadas; cada parte es un trabajo independiente. Solo se reparte
+ * entre impresoras con lugar en su cola, y si una parte no se puede encolar se
+ * cancelan las ya encoladas, para que el reintento del cliente no las imprima
+ * dos veces.
+ *
+ * Al iniciar se registra como reasignador de la cola: cuando un trabajo de
+ * pool falla, pasa a la impresora disponible menos cargada de su ubicación
+ * que todavía no lo haya intentado.
+ */
+@Service
+public class PrintPoolServiceImpl implements PrintPoolService {
+
+    private static final Logger logger = LoggerFactory.getLogger(PrintPoolServiceImpl.class);
+    private static final Set<String> ESTADOS_DISPONIBLES = Set.of("LISTA", "BUFFER_LLENO",
+            PrinterStatusDTO.DESCONOCIDO);
+
+    private final PrinterCatalog printerCatalog;
+    private final PrinterStatusPoller printerStatusPoller;
+    private final PrintQueueService printQueueService;
+    private final ZplTemplateRegistry templateRegistry;
+    private final PrinterCircuitBreaker circuitBreaker;
+
+    @Value("${printer.pool.split-min:20}")
+    private int minimoPorParte; // Etiquetas mínimas por impresora al repartir
+
+    /**
+     * Constructor con inyección de dependencias.
+     *
+     * @param printerCatalog      Catálogo de impresoras
+     * @param printerStatusPoller Último estado conocido de las impresoras
+     * @param printQueueService   Colas de impresión por impresora
+     * @param templateRegistry    Registro de plantillas ZPL
+     * @param circuitBreaker      Circuit breaker por impresora
+     */
+    public PrintPoolServiceImpl(PrinterCatalog printerCatalog, PrinterStatusPoller printerStatusPoller,
+            PrintQueueService printQueueService, ZplTemplateRegistry templateRegistry,
+            PrinterCircuitBreaker circuitBreaker) {
+        this.printerCatalog = printerCatalog;
+        this.printerStatusPoller = printerStatusPoller;
+        this.printQueueService = printQueueService;
+        this.templateRegistry = templateRegistry;
+        this.circuitBreaker = circuitBreaker;
+    }
+
+    /**
+     * Registra el reasignador de trabajos de pool en la cola de impresión.
+     */
+    @PostConstruct
+    public void iniciar() {
+        printQueueService.setReasignador(this::elegirAlternativa);
+    }
+
+    @Override
+    public List<PrintJobStatusDTO> imprimirEnUbicacion(PrintLocationDTO dto) {
+        String ubicacion = dto.getUbicacion().trim();
+        List<PrinterDTO> miembros = miembros(ubicacion);
+        if (miembros.isEmpty()) {
+            throw new IllegalArgumentException("No hay impresoras activas en la ubicación " + ubicacion);
+        }
+
+        List<PrinterDTO> disponibles = ordenarPorCarga(miembros.stream().filter(this::disponible).toList());
+        if (disponibles.isEmpty()) {
+            throw new IllegalStateException("No hay impresoras disponibles en la ubicación " + ubicacion);
+        }
+        disponibles = disponibles.stream()
+                .filter(printer -> printQueueService.obtenerCapacidadRestante(printer.getId()) > 0)
+                .toList();
+        if (disponibles.isEmpty()) {
+            throw new IllegalStateException(
+                    "Las colas de la ubicación " + ubicacion + " están llenas, intente más tarde");
+        }
+
+        int cantidad = dto.getCantidad();
+        int partes = Math.max(1, Math.min(disponibles.size(), cantidad / Math.max(1, minimoPorParte)));
+        int base = cantidad / partes;
+        int resto = cantidad % partes;
+
+        // Renderizar todas las partes antes de encolar cualquiera
+        int[] cantidades = new int[partes];
+        List<byte[]> datos = new ArrayList<>(partes);
+        for (int i = 0; i < partes; i++) {
+            cantidades[i] = base + (i < resto ? 1 : 0);
+            datos.add(templateRegistry.renderizarEtiqueta(dto.getTemplateZPL(), dto.getPlantilla(), dto.getCampos(),
+                    cantidades[i]));
+        }
+
+        List<String> encolados = new ArrayList<>(partes);
+        try {
+            for (int i = 0; i < partes; i++) {
+                encolados.add(printQueueService.encolarEnUbicacion(disponibles.get(i).getId(), ubicacion,
+                        datos.get(i), cantidades[i]));
+            }
+        } catch (RuntimeException e) {
+            cancelarPartes(ubicacion, encolados, e);
+            throw e;
+        }
+
+        List<PrintJobStatusDTO> trabajos = new ArrayList<>(partes);
+        for (int i = 0; i < partes; i++) {
+            trabajos.add(estadoParte(encolados.get(i), disponibles.get(i).getId(), cantidades[i]));
+        }
+
+        logger.info("{} etiqueta(s) encolada(s) en ubicación {} repartidas en {} impresora(s)", cantidad, ubicacion,
+                partes);
+        return trabajos;
+    }
+
+    @Override
+    public Map<String, List<PrinterStatusDTO>> obtenerPools() {
+        Map<String, List<PrinterStatusDTO>> pools = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        for (PrinterStatusDTO estado : printerStatusPoller.listar()) {
+            if (estado.getUbicacion() != null && !estado.getUbicacion().isBlank()) {
+                pools.computeIfAbsent(estado.getUbicacion().trim(), u -> new ArrayList<>()).add(estado);
+            }
+        }
+        return pools;
+    }
+
+    /**
+     * Estado de una parte recién encolada. Si la parte se reenvió a otro nodo
+     * y su estado no se puede consultar, se informa en cola con su ID para que
+     * el cliente pueda seguirla.
+     */
+    private PrintJobStatusDTO estadoParte(String jobId, int printerId, int cantidad) {
+        try {
+            Optional<PrintJobStatusDTO> estado = printQueueService.obtenerEstadoTrabajo(jobId);
+            if (estado.isPresent()) {
+                return estado.get();
+            }
+        } catch (IllegalStateException e) {
+            logger.warn("Estado de la parte {} en impresora [{}] no disponible: {}", jobId, printerId,
+                    e.getMessage());
+        }
+        PrintJobStatusDTO parte = new PrintJobStatusDTO();
+        parte.setJobId(jobId);
+        parte.setPrinterId(printerId);
+        parte.setCantidad(cantidad);
+        parte.setPrioridad(PrintJob.Prioridad.NORMAL.name());
+        parte.setEstado(PrintJob.Estado.EN_COLA.name());
+        return parte;
+    }
+
+    /**
+     * Cancela las partes ya encoladas de un reparto que no se pudo completar.
+     * Las copias que una impresora ya recibió se imprimen.
+     */
+    private void cancelarPartes(String ubicacion, List<String> encolados, RuntimeException causa) {
+        if (encolados.isEmpty()) {
+            return;
+        }
+        logger.warn("Reparto en ubicación {} incompleto ({}), se cancelan {} parte(s) encolada(s)", ubicacion,
+                causa.getMessage(), encolados.size());
+        for (String jobId : encolados) {
+            try {
+                printQueueService.cancelarTrabajo(jobId);
+            } catch (RuntimeException e) {
+                logger.error("No se pudo cancelar la parte {} en ubicación {}: {}", jobId, ubicacion, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Elige otra impresora para un trabajo de pool cuya impresora falló.
+     */
+    private OptionalInt elegirAlternativa(PrintJob job) {
+        Set<Integer> intentadas = job.getImpresorasIntentadas();
+        Optional<PrinterDTO> alternativa = ordenarPorCarga(miembros(job.getUbicacion()).stream()
+                .filter(printer -> !intentadas.contains(printer.getId()))
+                .filter(this::disponible)
+                .toList()).stream().findFirst();
+        return alternativa.isPresent() ? OptionalInt.of(alternativa.get().getId()) : OptionalInt.empty();
+    }
+
+    private List<PrinterDTO> miembros(String ubicacion) {
+        return printerCatalog.listarActivas().stream()
+                .filter(printer -> printer.getUbicacion() != null
+                        && printer.getUbicacion().trim().equalsIgnoreCase(ubicacion))
+                .toList();
+    }
+
+    private boolean disponible(PrinterDTO printer) {
+        if (circuitBreaker.rechazaOperaciones(printer.getId())) {
+            return false;
+        }
+        return printerStatusPoller.obtener(printer.getId())
+                .map(estado -> ESTADOS_DISPONIBLES.contains(estado.getEstado()))
+                .orElse(true);
+    }
+
+    private List<PrinterDTO> ordenarPorCarga(List<PrinterDTO> impresoras) {
+        return impresoras.stream()
+                .sorted(Comparator.comparingInt(
+                        (PrinterDTO printer) -> printQueueService.obtenerEtiquetasPendientes(printer.getId())))
+                .toList();
+    }
+}
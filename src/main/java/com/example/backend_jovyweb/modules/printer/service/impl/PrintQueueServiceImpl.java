@@ -0,0 +1,801 @@
+package com.example.backend_jovyweb.modules.printer.service.impl;
+
+import com.example.backend_jovyweb.modules.printer.dto.PrintBatchItemDTO;
+import com.example.backend_jovyweb.modules.printer.dto.PrintBatchResultDTO;
+import com.example.backend_jovyweb.modules.printer.dto.PrintJobStatusDTO;
+import com.example.backend_jovyweb.modules.printer.metrics.PrinterMetrics;
+import com.example.backend_jovyweb.modules.printer.model.PrintJob;
+import com.example.backend_jovyweb.modules.printer.service.PrintQueueService;
+import com.example.backend_jovyweb.modules.printer.service.PrinterService;
+import com.example.backend_jovyweb.modules.printer.spool.PrintSpool;
+import com.example.backend_jovyweb.modules.printer.template.ZplBuffer;
+import com.example.backend_jovyweb.modules.printer.template.ZplFormato;
+import com.example.backend_jovyweb.modules.printer.template.ZplTemplateRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Implementación del servicio de colas de impresión.
+ *
+ * Mantiene una cola acotada y un hilo worker por impresora. Impresoras
+ * distintas avanzan en paralelo, así que una impresora lenta no bloquea a las
+ * demás ni a los hilos de Tomcat.
+ *
+ * La cola de cada impresora tiene una subcola por prioridad
+ * ({@link PrintJobScheduler}): los trabajos URGENTES se atienden antes que los
+ * NORMALES y estos antes que los MASIVOS, con envejecimiento
+ * (printer.queue.aging-ms) para que ninguno espere indefinidamente. Dentro de
+ * una prioridad se imprimen en orden de llegada.
+ *
+ * Cuando el worker toma un trabajo, toma también los de la misma prioridad que
+ * ya esperan en la cola (hasta printer.queue.coalesce-max trabajos y
+ * printer.queue.chunk-size etiquetas) y los envía concatenados en una sola
+ * escritura, con una sola búsqueda de la impresora y una sola confirmación.
+ * Los lotes se encolan bajo el candado del worker para que se envíen juntos.
+ *
+ * Un trabajo de una sola etiqueta con más de printer.queue.chunk-size copias
+ * se imprime por partes de ese tamaño (ajustando ^PQ); entre una parte y la
+ * siguiente puede adelantarse un trabajo más urgente. Las etiquetas numeradas
+ * en la impresora (^SN/^SF) se envían completas para no reiniciar la serie.
+ *
+ * Antes de cada escritura el worker espera a que el buffer de la impresora
+ * tenga lugar ({@link PrinterFlowControl}): las etiquetas que no caben se
+ * quedan en la cola del servidor, donde un trabajo todavía puede cancelarse
+ * ({@link #cancelarTrabajo(String)}) o ser adelantado por uno más urgente.
+ *
+ * Si falla un trabajo enviado a una ubicación, se reasigna a otra impresora
+ * del pool (ver {@link #setReasignador(Function)}) en lugar de marcarse como
+ * fallido.
+ *
+ * Los trabajos aceptados se registran en el {@link PrintSpool} antes de
+ * responder, y se marcan como terminados al completarse o fallar; al arrancar,
+ * los que quedaron sin terminar se vuelven a encolar.
+ *
+ * Los bytes de cada trabajo aceptado se guardan además en el
+ * {@link PrintJobHistory}, de donde {@link #reimprimir} los vuelve a encolar
+ * sin que el cliente suba de nuevo la etiqueta.
+ *
+ * Con varios nodos ({@link PrinterLeaseManager}), los trabajos de una
+ * impresora que pertenece a otro nodo se le reenvían ({@link PrintJobForwarder})
+ * en lugar de encolarse aquí: cada impresora tiene una sola cola en todo el
+ * servicio y conserva el orden de impresión. Este nodo recuerda a qué nodo
+ * reenvió cada trabajo, y su estado y cancelación se consultan allí.
+ */
+@Service
+public class PrintQueueServiceImpl implements PrintQueueService {
+
+    private static final Logger logger = LoggerFactory.getLogger(PrintQueueServiceImpl.class);
+
+    private final PrinterService printerService;
+    private final PrinterCatalog printerCatalog;
+    private final ZplTemplateRegistry templateRegistry;
+    private final PrintSpool spool;
+    private final PrinterMetrics metrics;
+    private final PrinterFlowControl flowControl;
+    private final PrintJobHistory historial;
+    private final PrinterLeaseManager leases;
+    private final PrintJobForwarder forwarder;
+
+    @Value("${printer.queue.capacity:200}")
+    private int capacidadCola;
+
+    @Value("${printer.queue.coalesce-max:200}")
+    private int maxAgrupados; // Trabajos enviados como máximo en una escritura
+
+    @Value("${printer.queue.chunk-size:50}")
+    private int tamanoParte; // Copias por escritura al dividir trabajos grandes (0 = no dividir)
+
+    @Value("${printer.queue.aging-ms:30000}")
+    private long envejecimientoMs; // Espera tras la que un trabajo sube un nivel de prioridad
+
+    @Value("${printer.queue.retention-ms:3600000}")
+    private long retencionMs; // Tiempo que se conservan los trabajos finalizados
+
+    // Workers por impresora: printerId -> worker
+    private final Map<Integer, PrinterWorker> workers = new ConcurrentHashMap<>();
+
+    // Registro de trabajos para consultar su estado: jobId -> trabajo
+    private final Map<String, PrintJob> trabajos = new ConcurrentHashMap<>();
+
+    // Trabajos reenviados a otro nodo: jobId -> nodo propietario e ID allí
+    private final Map<String, Reenvio> reenviados = new ConcurrentHashMap<>();
+
+    private final AtomicLong ultimaPurga = new AtomicLong(System.currentTimeMillis());
+
+    // Elige otra impresora para los trabajos de pool que fallan
+    private volatile Function<PrintJob, OptionalInt> reasignador = job -> OptionalInt.empty();
+
+    /**
+     * Constructor con inyección del servicio de impresoras.
+     *
+     * @param printerService   Servicio que ejecuta la impresión sobre la impresora
+     * @param printerCatalog   Catálogo de impresoras, para rechazar IDs inexistentes
+     * @param templateRegistry Registro de plantillas para los lotes
+     * @param spool            Diario de trabajos aceptados
+     * @param metrics          Métricas de impresoras
+     * @param flowControl      Control de flujo según el buffer de la impresora
+     * @param historial        Últimos trabajos de cada impresora, para reimprimir
+     * @param leases           Propiedad de las impresoras entre nodos
+     * @param forwarder        Reenvío de trabajos al nodo propietario
+     */
+    public PrintQueueServiceImpl(PrinterService printerService, PrinterCatalog printerCatalog,
+            ZplTemplateRegistry templateRegistry, PrintSpool spool, PrinterMetrics metrics,
+            PrinterFlowControl flowControl, PrintJobHistory historial, PrinterLeaseManager leases,
+            PrintJobForwarder forwarder) {
+        this.printerService = printerService;
+        this.printerCatalog = printerCatalog;
+        this.templateRegistry = templateRegistry;
+        this.spool = spool;
+        this.metrics = metrics;
+        this.flowControl = flowControl;
+        this.historial = historial;
+        this.leases = leases;
+        this.forwarder = forwarder;
+    }
+
+    /**
+     * Reencola los trabajos que quedaron sin terminar antes del último
+     * reinicio. Se ejecuta en un hilo aparte porque, si una cola está llena,
+     * espera a que se libere en lugar de descartar el trabajo.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void reanudarSpool() {
+        List<PrintJob> recuperados = spool.recuperar();
+        if (recuperados.isEmpty()) {
+            return;
+        }
+        logger.warn("Reanudando {} trabajos de impresión pendientes del spool", recuperados.size());
+        Thread.ofVirtual().name("print-spool-replay").start(() -> {
+            for (PrintJob job : recuperados) {
+                if (reenviarRecuperado(job)) {
+                    continue;
+                }
+                PrinterWorker worker = workers.computeIfAbsent(job.getPrinterId(), PrinterWorker::new);
+                trabajos.put(job.getId(), job);
+                guardarEnHistorial(job);
+                try {
+                    while (!worker.ofrecer(job)) {
+                        Thread.sleep(100);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+            logger.info("Trabajos del spool reencolados");
+        });
+    }
+
+    /**
+     * Reenvía un trabajo recuperado del spool si su impresora pasó a otro nodo.
+     *
+     * @return true si se reenvió
+     */
+    private boolean reenviarRecuperado(PrintJob job) {
+        try {
+            Optional<String> remoto = leases.propietarioRemoto(job.getPrinterId());
+            if (remoto.isEmpty()) {
+                return false;
+            }
+            String jobIdRemoto = forwarder.reenviar(remoto.get(), job.getPrinterId(), datosDe(job),
+                    job.getCantidad(), job.getPrioridad());
+            // El cliente conoce el ID original del trabajo
+            reenviados.put(job.getId(), new Reenvio(remoto.get(), jobIdRemoto, System.currentTimeMillis()));
+            spool.finalizar(job);
+            return true;
+        } catch (IllegalStateException e) {
+            logger.warn("Trabajo {} del spool no reenviado, se encola localmente: {}", job.getId(), e.getMessage());
+            return false;
+        }
+    }
+
+    @Override
+    public String encolarTrabajo(int printerId, String templateZPL, int cantidad, PrintJob.Prioridad prioridad) {
+        return encolar(new PrintJob(printerId, templateZPL, cantidad, prioridadODefecto(prioridad)));
+    }
+
+    @Override
+    public String encolarDatos(int printerId, byte[] datosZPL, int cantidad, PrintJob.Prioridad prioridad) {
+        return encolar(new PrintJob(printerId, datosZPL, cantidad, null, prioridadODefecto(prioridad)));
+    }
+
+    @Override
+    public String encolarEnUbicacion(int printerId, String ubicacion, byte[] datosZPL, int cantidad) {
+        return encolar(new PrintJob(printerId, datosZPL, cantidad, ubicacion, PrintJob.Prioridad.NORMAL));
+    }
+
+    private static PrintJob.Prioridad prioridadODefecto(PrintJob.Prioridad prioridad) {
+        return prioridad != null ? prioridad : PrintJob.Prioridad.NORMAL;
+    }
+
+    @Override
+    public void setReasignador(Function<PrintJob, OptionalInt> reasignador) {
+        this.reasignador = reasignador;
+    }
+
+    @Override
+    public String encolarReenviado(int printerId, byte[] datosZPL, int cantidad, PrintJob.Prioridad prioridad) {
+        verificarImpresora(printerId);
+        if (!leases.adquirir(printerId)) {
+            throw new IllegalStateException("La impresora " + printerId + " no pertenece a este nodo");
+        }
+        return encolarLocal(new PrintJob(printerId, datosZPL, cantidad, null, prioridadODefecto(prioridad)));
+    }
+
+    private String encolar(PrintJob job) {
+        verificarImpresora(job.getPrinterId());
+        Optional<String> remoto = leases.propietarioRemoto(job.getPrinterId());
+        if (remoto.isEmpty()) {
+            return encolarLocal(job);
+        }
+        byte[] datos = datosDe(job);
+        String jobId = forwarder.reenviar(remoto.get(), job.getPrinterId(), datos, job.getCantidad(),
+                job.getPrioridad());
+        reenviados.put(jobId, new Reenvio(remoto.get(), jobId, System.currentTimeMillis()));
+        historial.guardar(jobId, job.getPrinterId(), datos, job.getCantidad());
+        return jobId;
+    }
+
+    /**
+     * Verifica que la impresora exista antes de crearle un worker: un ID
+     * inexistente no debe dejar un hilo ni métricas registradas.
+     *
+     * @throws IllegalArgumentException si la impresora no existe
+     */
+    private void verificarImpresora(int printerId) {
+        if (printerCatalog.obtener(printerId).isEmpty()) {
+            throw new IllegalArgumentException("Impresora con ID " + printerId + " no encontrada");
+        }
+    }
+
+    private String encolarLocal(PrintJob job) {
+        purgarTrabajosFinalizados();
+
+        int printerId = job.getPrinterId();
+        PrinterWorker worker = workers.computeIfAbsent(printerId, PrinterWorker::new);
+
+        long posicion = spool.registrar(job);
+        trabajos.put(job.getId(), job);
+        if (!worker.ofrecer(job)) {
+            trabajos.remove(job.getId());
+            spool.finalizar(job);
+            logger.warn("Cola llena para impresora [{}] ({} trabajos)", printerId, capacidadCola);
+            throw new IllegalStateException(
+                    "La cola de la impresora " + printerId + " está llena, intente más tarde");
+        }
+
+        logger.debug("Trabajo {} encolado para impresora [{}] (pendientes: {})", job.getId(), printerId,
+                worker.cola.size());
+        spool.confirmar(posicion);
+        guardarEnHistorial(job);
+        return job.getId();
+    }
+
+    @Override
+    public Optional<String> reimprimir(int printerId, String jobId, Integer destino, PrintJob.Prioridad prioridad) {
+        Optional<PrintJobHistory.Entrada> entrada = historial.obtener(printerId, jobId);
+        if (entrada.isEmpty()) {
+            return Optional.empty();
+        }
+        int impresora = destino != null ? destino : printerId;
+        String nuevoId = encolar(new PrintJob(impresora, entrada.get().datos(), entrada.get().cantidad(), null,
+                prioridad != null ? prioridad : PrintJob.Prioridad.URGENTE));
+        logger.info("Trabajo {} de impresora [{}] reimpreso en impresora [{}] como {}", jobId, printerId, impresora,
+                nuevoId);
+        return Optional.of(nuevoId);
+    }
+
+    private void guardarEnHistorial(PrintJob job) {
+        historial.guardar(job.getId(), job.getPrinterId(), datosDe(job), job.getCantidad());
+    }
+
+    /**
+     * Bytes del trabajo tal como se enviarán, con ^PQ incluido.
+     */
+    private static byte[] datosDe(PrintJob job) {
+        return job.getDatosZPL() != null
+                ? job.getDatosZPL()
+                : ZplFormato.ajustarCantidad(job.getTemplateZPL(), job.getCantidad())
+                        .getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public List<PrintBatchResultDTO> encolarLote(List<PrintBatchItemDTO> items) {
+        purgarTrabajosFinalizados();
+
+        for (PrintBatchItemDTO item : items) {
+            verificarImpresora(item.getPrinterId());
+        }
+
+        PrintBatchResultDTO[] resultados = new PrintBatchResultDTO[items.size()];
+        Map<Integer, List<Integer>> indicesPorImpresora = new LinkedHashMap<>();
+        Map<Integer, PrintJob> jobsPorIndice = new LinkedHashMap<>();
+
+        // Renderizar todas las etiquetas antes de encolar
+        for (int i = 0; i < items.size(); i++) {
+            PrintBatchItemDTO item = items.get(i);
+            try {
+                byte[] datos = renderizar(item);
+                jobsPorIndice.put(i, new PrintJob(item.getPrinterId(), datos, item.getCantidad()));
+                indicesPorImpresora.computeIfAbsent(item.getPrinterId(), id -> new ArrayList<>()).add(i);
+            } catch (IllegalArgumentException e) {
+                resultados[i] = PrintBatchResultDTO.rechazado(i, item.getPrinterId(), e.getMessage());
+            }
+        }
+
+        long posicion = 0;
+        for (Map.Entry<Integer, List<Integer>> grupo : indicesPorImpresora.entrySet()) {
+            int printerId = grupo.getKey();
+            List<Integer> indices = grupo.getValue();
+            if (reenviarGrupo(printerId, indices, jobsPorIndice, resultados)) {
+                continue;
+            }
+            PrinterWorker worker = workers.computeIfAbsent(printerId, PrinterWorker::new);
+
+            synchronized (worker) {
+                if (worker.cola.capacidadRestante() < indices.size()) {
+                    logger.warn("Cola llena para impresora [{}]: lote de {} etiquetas rechazado", printerId,
+                            indices.size());
+                    for (int i : indices) {
+                        resultados[i] = PrintBatchResultDTO.rechazado(i, printerId,
+                                "La cola de la impresora " + printerId + " está llena, intente más tarde");
+                    }
+                    continue;
+                }
+                for (int i : indices) {
+                    PrintJob job = jobsPorIndice.get(i);
+                    try {
+                        posicion = spool.registrar(job);
+                    } catch (RuntimeException e) {
+                        resultados[i] = PrintBatchResultDTO.rechazado(i, printerId, e.getMessage());
+                        continue;
+                    }
+                    trabajos.put(job.getId(), job);
+                    worker.ofrecer(job);
+                    historial.guardar(job.getId(), printerId, job.getDatosZPL(), job.getCantidad());
+                    resultados[i] = PrintBatchResultDTO.encolado(i, printerId, job.getId());
+                }
+            }
+            logger.debug("Lote de {} etiquetas encolado para impresora [{}]", indices.size(), printerId);
+        }
+
+        // Una sola espera de disco para todo el lote
+        spool.confirmar(posicion);
+
+        return List.of(resultados);
+    }
+
+    /**
+     * Reenvía las etiquetas de un lote cuya impresora pertenece a otro nodo,
+     * una por una y en orden.
+     *
+     * @return true si la impresora no es de este nodo (las etiquetas quedaron
+     *         reenviadas o rechazadas)
+     */
+    private boolean reenviarGrupo(int printerId, List<Integer> indices, Map<Integer, PrintJob> jobsPorIndice,
+            PrintBatchResultDTO[] resultados) {
+        Optional<String> remoto;
+        try {
+            remoto = leases.propietarioRemoto(printerId);
+        } catch (IllegalStateException e) {
+            for (int i : indices) {
+                resultados[i] = PrintBatchResultDTO.rechazado(i, printerId, e.getMessage());
+            }
+            return true;
+        }
+        if (remoto.isEmpty()) {
+            return false;
+        }
+        for (int i : indices) {
+            PrintJob job = jobsPorIndice.get(i);
+            try {
+                String jobId = forwarder.reenviar(remoto.get(), printerId, job.getDatosZPL(), job.getCantidad(),
+                        job.getPrioridad());
+                reenviados.put(jobId, new Reenvio(remoto.get(), jobId, System.currentTimeMillis()));
+                historial.guardar(jobId, printerId, job.getDatosZPL(), job.getCantidad());
+                resultados[i] = PrintBatchResultDTO.encolado(i, printerId, jobId);
+            } catch (IllegalStateException e) {
+                resultados[i] = PrintBatchResultDTO.rechazado(i, printerId, e.getMessage());
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Obtiene los bytes ZPL de una etiqueta del lote.
+     *
+     * @throws IllegalArgumentException si la etiqueta es inválida
+     */
+    private byte[] renderizar(PrintBatchItemDTO item) {
+        return templateRegistry.renderizarEtiqueta(item.getTemplateZPL(), item.getPlantilla(), item.getCampos(),
+                item.getCantidad());
+    }
+
+    @Override
+    public Optional<PrintJobStatusDTO> obtenerEstadoTrabajo(String jobId) {
+        PrintJob job = trabajos.get(jobId);
+        if (job != null) {
+            return Optional.of(PrintJobStatusDTO.desde(job));
+        }
+        Reenvio reenvio = reenviados.get(jobId);
+        return reenvio == null ? Optional.empty()
+                : reenvio.enNodo(jobId, forwarder.consultar(reenvio.url(), reenvio.jobId()));
+    }
+
+    @Override
+    public Optional<PrintJobStatusDTO> cancelarTrabajo(String jobId) {
+        PrintJob job = trabajos.get(jobId);
+        if (job == null) {
+            Reenvio reenvio = reenviados.get(jobId);
+            return reenvio == null ? Optional.empty()
+                    : reenvio.enNodo(jobId, forwarder.cancelar(reenvio.url(), reenvio.jobId()));
+        }
+        if (job.solicitarCancelacion()) {
+            PrinterWorker worker = workers.get(job.getPrinterId());
+            // En cola se cancela ya; si lo tiene el worker, lo cancela antes de la siguiente parte
+            if (worker != null && worker.cola.quitar(job)) {
+                worker.etiquetasPendientes.addAndGet(-job.getRestantes());
+                cancelar(job);
+            } else {
+                logger.info("Cancelación solicitada para el trabajo {} en curso en impresora [{}]", job.getId(),
+                        job.getPrinterId());
+            }
+        }
+        return Optional.of(PrintJobStatusDTO.desde(job));
+    }
+
+    @Override
+    public int obtenerTrabajosPendientes(int printerId) {
+        PrinterWorker worker = workers.get(printerId);
+        return worker == null ? 0 : worker.cola.size();
+    }
+
+    @Override
+    public int obtenerEtiquetasPendientes(int printerId) {
+        PrinterWorker worker = workers.get(printerId);
+        return worker == null ? 0 : worker.etiquetasPendientes.get();
+    }
+
+    @Override
+    public int obtenerCapacidadRestante(int printerId) {
+        PrinterWorker worker = workers.get(printerId);
+        return worker == null ? capacidadCola : worker.cola.capacidadRestante();
+    }
+
+    /**
+     * Envía varios trabajos de la misma impresora concatenados en una sola
+     * escritura. Todos comparten el resultado de esa escritura. Se llama solo
+     * desde el worker de la impresora.
+     */
+    private void procesarAgrupados(int printerId, List<PrintJob> lote, ZplBuffer buffer) {
+        buffer.reiniciar();
+        for (PrintJob job : lote) {
+            job.iniciar();
+            buffer.agregar(job.getDatosZPL() != null
+                    ? job.getDatosZPL()
+                    : ZplFormato.ajustarCantidad(job.getTemplateZPL(), job.getCantidad())
+                            .getBytes(StandardCharsets.UTF_8));
+        }
+
+        logger.debug("Enviando {} trabajos en una escritura ({} bytes) a impresora [{}]", lote.size(),
+                buffer.getTamano(), printerId);
+        try {
+            boolean resultado = printerService.imprimirDatos(printerId, buffer.toByteArray());
+            for (PrintJob job : lote) {
+                if (resultado) {
+                    completar(job);
+                } else {
+                    fallarOReasignar(job, "Error al imprimir la etiqueta");
+                }
+            }
+        } catch (Exception e) {
+            logger.error("Error en lote de {} trabajos de impresora [{}]: {}", lote.size(), printerId,
+                    e.getMessage());
+            lote.forEach(job -> fallarOReasignar(job, e.getMessage()));
+        }
+    }
+
+    /**
+     * Indica si el trabajo se imprime por partes: una sola etiqueta sin
+     * numeración en la impresora con más copias que printer.queue.chunk-size.
+     */
+    private boolean sePorPartes(PrintJob job) {
+        if (tamanoParte <= 0 || job.getCantidad() <= tamanoParte) {
+            return false;
+        }
+        String zpl = job.getDatosZPL() != null
+                ? new String(job.getDatosZPL(), StandardCharsets.ISO_8859_1)
+                : job.getTemplateZPL();
+        return ZplFormato.esEtiquetaUnica(zpl) && !ZplFormato.esSerializada(zpl)
+                && (job.getDatosZPL() == null || zpl.contains("^PQ"));
+    }
+
+    /**
+     * Imprime la siguiente parte de un trabajo grande. Si quedan copias, el
+     * trabajo vuelve al frente de su subcola. Se llama solo desde el worker de
+     * la impresora del trabajo.
+     *
+     * @return Copias que dejan de estar pendientes en esta impresora
+     */
+    private int procesarParte(PrintJob job, PrintJobScheduler cola) {
+        job.iniciar();
+        int restantes = job.getRestantes();
+        int parte = Math.min(tamanoParte, restantes);
+        // ISO-8859-1 conserva los bytes tal cual al pasar por String
+        byte[] datos = job.getDatosZPL() != null
+                ? ZplFormato.fijarCantidad(new String(job.getDatosZPL(), StandardCharsets.ISO_8859_1), parte)
+                        .getBytes(StandardCharsets.ISO_8859_1)
+                : ZplFormato.fijarCantidad(job.getTemplateZPL(), parte).getBytes(StandardCharsets.UTF_8);
+
+        try {
+            if (!printerService.imprimirDatos(job.getPrinterId(), datos)) {
+                fallarOReasignar(job, "Error al imprimir la etiqueta");
+                return restantes;
+            }
+        } catch (Exception e) {
+            logger.error("Error en trabajo {} de impresora [{}]: {}", job.getId(), job.getPrinterId(),
+                    e.getMessage());
+            fallarOReasignar(job, e.getMessage());
+            return restantes;
+        }
+
+        job.registrarImpresas(parte);
+        if (job.getRestantes() == 0) {
+            completar(job);
+        } else if (job.isCancelacionSolicitada()) {
+            cancelar(job);
+            return restantes;
+        } else {
+            logger.debug("Trabajo {}: {} de {} copias enviadas", job.getId(), job.getImpresas(), job.getCantidad());
+            cola.devolver(job);
+        }
+        return parte;
+    }
+
+    /**
+     * Ejecuta un trabajo sobre la impresora. Se llama solo desde el worker de la
+     * impresora del trabajo.
+     */
+    private void procesar(PrintJob job) {
+        job.iniciar();
+        try {
+            boolean resultado = job.getDatosZPL() != null
+                    ? printerService.imprimirDatos(job.getPrinterId(), job.getDatosZPL())
+                    : printerService.imprimirEtiqueta(job.getPrinterId(), job.getTemplateZPL(), job.getCantidad());
+            if (resultado) {
+                completar(job);
+            } else {
+                fallarOReasignar(job, "Error al imprimir la etiqueta");
+            }
+        } catch (Exception e) {
+            logger.error("Error en trabajo {} de impresora [{}]: {}", job.getId(), job.getPrinterId(),
+                    e.getMessage());
+            fallarOReasignar(job, e.getMessage());
+        }
+    }
+
+    /**
+     * Marca el trabajo como fallido o, si pertenece a un pool y hay otra
+     * impresora disponible en su ubicación, lo mueve a la cola de esa impresora.
+     */
+    private void fallarOReasignar(PrintJob job, String motivo) {
+        if (job.getUbicacion() != null) {
+            int origen = job.getPrinterId();
+            OptionalInt destino = reasignador.apply(job);
+            if (destino.isPresent()) {
+                PrinterWorker worker = workers.computeIfAbsent(destino.getAsInt(), PrinterWorker::new);
+                job.reasignar(destino.getAsInt(), "Reasignado desde impresora " + origen + ": " + motivo);
+                if (worker.ofrecer(job)) {
+                    logger.warn("Trabajo {} reasignado de impresora [{}] a [{}] en ubicación {}: {}", job.getId(),
+                            origen, destino.getAsInt(), job.getUbicacion(), motivo);
+                    return;
+                }
+            }
+        }
+        job.fallar(motivo);
+        spool.finalizar(job);
+        metrics.trabajoFinalizado(job.getPrinterId(), false, Duration.between(job.getFechaCreacion(),
+                job.getFechaFin()));
+    }
+
+    /**
+     * Marca como fallidos los trabajos que el worker tenía cuando un error
+     * inesperado interrumpió su procesamiento. Los que ya habían terminado o
+     * se reasignaron a otra impresora se dejan como están. Se llama solo
+     * desde el worker de la impresora.
+     */
+    private void fallarLote(int printerId, List<PrintJob> lote, AtomicInteger etiquetasPendientes,
+            RuntimeException causa) {
+        for (PrintJob job : lote) {
+            etiquetasPendientes.addAndGet(-job.getCantidad());
+            if (job.isFinalizado() || job.getPrinterId() != printerId) {
+                continue;
+            }
+            try {
+                job.fallar("Error interno: " + causa.getMessage());
+                spool.finalizar(job);
+                metrics.trabajoFinalizado(printerId, false, Duration.between(job.getFechaCreacion(),
+                        job.getFechaFin()));
+            } catch (RuntimeException e) {
+                logger.error("No se pudo finalizar el trabajo {} de impresora [{}]: {}", job.getId(), printerId,
+                        e.getMessage());
+            }
+        }
+    }
+
+    private void cancelar(PrintJob job) {
+        job.cancelar();
+        spool.finalizar(job);
+        logger.info("Trabajo {} de impresora [{}] cancelado: {}", job.getId(), job.getPrinterId(), job.getMensaje());
+    }
+
+    /**
+     * Cancela el trabajo si se solicitó su cancelación mientras el worker lo
+     * tenía. Se llama solo desde el worker de la impresora.
+     *
+     * @return true si el trabajo se canceló
+     */
+    private boolean cancelarSiSolicitado(PrintJob job, AtomicInteger etiquetasPendientes) {
+        if (!job.isCancelacionSolicitada()) {
+            return false;
+        }
+        etiquetasPendientes.addAndGet(-job.getRestantes());
+        cancelar(job);
+        return true;
+    }
+
+    private void completar(PrintJob job) {
+        job.completar();
+        spool.finalizar(job);
+        metrics.etiquetasImpresas(job.getPrinterId(), job.getCantidad());
+        metrics.trabajoFinalizado(job.getPrinterId(), true, Duration.between(job.getFechaCreacion(),
+                job.getFechaFin()));
+    }
+
+    /**
+     * Elimina del registro los trabajos finalizados que superaron el tiempo de
+     * retención. Se ejecuta como máximo una vez por minuto.
+     */
+    private void purgarTrabajosFinalizados() {
+        long ahora = System.currentTimeMillis();
+        long anterior = ultimaPurga.get();
+        if (ahora - anterior < 60_000 || !ultimaPurga.compareAndSet(anterior, ahora)) {
+            return;
+        }
+
+        LocalDateTime limite = LocalDateTime.now().minusNanos(retencionMs * 1_000_000);
+        trabajos.values().removeIf(job -> job.isFinalizado() && job.getFechaFin().isBefore(limite));
+        reenviados.values().removeIf(reenvio -> ahora - reenvio.instante() > retencionMs);
+    }
+
+    /**
+     * Trabajo reenviado al nodo propietario de su impresora.
+     *
+     * @param url      URL base del nodo propietario
+     * @param jobId    ID del trabajo en ese nodo
+     * @param instante Momento del reenvío (ms), para purgarlo con la retención
+     */
+    private record Reenvio(String url, String jobId, long instante) {
+
+        /**
+         * Presenta el estado remoto con el ID que conoce el cliente y el nodo
+         * que tiene el trabajo.
+         */
+        Optional<PrintJobStatusDTO> enNodo(String jobIdLocal, Optional<PrintJobStatusDTO> estado) {
+            estado.ifPresent(dto -> {
+                dto.setJobId(jobIdLocal);
+                dto.setNodo(url);
+            });
+            return estado;
+        }
+    }
+
+    /**
+     * Detiene los workers al apagar la aplicación.
+     */
+    @PreDestroy
+    public void detener() {
+        workers.values().forEach(worker -> worker.hilo.interrupt());
+        workers.clear();
+    }
+
+    /**
+     * Worker dedicado a una impresora: vacía su cola por prioridad.
+     */
+    private class PrinterWorker implements Runnable {
+        final int printerId;
+        final PrintJobScheduler cola;
+        final AtomicInteger etiquetasPendientes = new AtomicInteger();
+        final Thread hilo;
+
+        PrinterWorker(int printerId) {
+            this.printerId = printerId;
+            this.cola = new PrintJobScheduler(capacidadCola, envejecimientoMs);
+            metrics.registrarCola(printerId, this, w -> w.cola.size(), w -> w.etiquetasPendientes.get());
+            this.hilo = Thread.ofPlatform()
+                    .name("print-worker-" + printerId)
+                    .daemon(true)
+                    .start(this);
+        }
+
+        /**
+         * Encola un trabajo bajo el candado del worker.
+         *
+         * @return false si la cola está llena
+         */
+        synchronized boolean ofrecer(PrintJob job) {
+            if (!cola.ofrecer(job)) {
+                return false;
+            }
+            etiquetasPendientes.addAndGet(job.getRestantes());
+            return true;
+        }
+
+        @Override
+        public void run() {
+            logger.info("Worker de impresión iniciado para impresora [{}]", printerId);
+            List<PrintJob> lote = new ArrayList<>();
+            ZplBuffer buffer = new ZplBuffer();
+            while (!Thread.currentThread().isInterrupted()) {
+                try {
+                    cola.esperarTrabajo();
+                    flowControl.esperarCapacidad(printerId);
+                    PrintJob primero = cola.tomar();
+                    if (cancelarSiSolicitado(primero, etiquetasPendientes)) {
+                        continue;
+                    }
+                    if (sePorPartes(primero)) {
+                        etiquetasPendientes.addAndGet(-procesarParte(primero, cola));
+                        continue;
+                    }
+                    lote.add(primero);
+                    // Espera a que termine de encolarse un lote en curso
+                    synchronized (this) {
+                        cola.drenar(primero.getPrioridad(), lote, maxAgrupados - 1,
+                                tamanoParte > 0 ? tamanoParte - primero.getCantidad() : Integer.MAX_VALUE);
+                    }
+                    lote.removeIf(job -> cancelarSiSolicitado(job, etiquetasPendientes));
+                    if (lote.isEmpty()) {
+                        continue;
+                    }
+                    if (lote.size() == 1) {
+                        procesar(lote.get(0));
+                    } else {
+                        procesarAgrupados(printerId, lote, buffer);
+                    }
+                    for (PrintJob job : lote) {
+                        etiquetasPendientes.addAndGet(-job.getCantidad());
+                    }
+                    lote.clear();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (RuntimeException e) {
+                    // Un error inesperado no debe detener el worker de la impresora
+                    logger.error("Error inesperado en el worker de impresora [{}]", printerId, e);
+                    fallarLote(printerId, lote, etiquetasPendientes, e);
+                    lote.clear();
+                }
+            }
+            logger.info("Worker de impresión detenido para impresora [{}]", printerId);
+        }
+    }
+}
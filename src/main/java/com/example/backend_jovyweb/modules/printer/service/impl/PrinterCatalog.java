@@ -0,0 +1,171 @@
+package com.example.backend_jovyweb.modules.printer.service.impl;
+
+import com.example.backend_jovyweb.modules.printer.dto.PrinterDTO;
+import com.example.backend_jovyweb.modules.printer.repository.PrinterRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Catálogo en memoria de impresoras, delante de {@link PrinterRepository}.
+ *
+ * Se precarga con las impresoras activas al iniciar y se refresca
+ * periódicamente (printer.catalog.refresh-interval-ms). Las búsquedas por ID
+ * no bloquean; solo van a la base de datos cuando la impresora no está en el
+ * catálogo. Las altas, cambios y bajas actualizan el catálogo de inmediato.
+ *
+ * Un refresco que empezó antes de una invalidación se descarta, para no
+ * reinstalar datos viejos.
+ */
+@Component
+public class PrinterCatalog {
+
+    private static final Logger logger = LoggerFactory.getLogger(PrinterCatalog.class);
+
+    private final PrinterRepository printerRepository;
+
+    // Impresoras por ID; se reemplaza completo en cada refresco
+    private volatile Map<Integer, PrinterDTO> impresoras = new ConcurrentHashMap<>();
+
+    // Aumenta con cada invalidación
+    private final AtomicLong version = new AtomicLong();
+
+    /**
+     * Constructor con inyección del repositorio de impresoras.
+     *
+     * @param printerRepository Repositorio de impresoras
+     */
+    public PrinterCatalog(PrinterRepository printerRepository) {
+        this.printerRepository = printerRepository;
+    }
+
+    /**
+     * Precarga el catálogo cuando la aplicación está lista.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void precargar() {
+        refrescar();
+        logger.info("Catálogo de impresoras precargado: {} impresoras", impresoras.size());
+    }
+
+    /**
+     * Recarga las impresoras activas desde la base de datos.
+     */
+    @Scheduled(initialDelayString = "${printer.catalog.refresh-interval-ms:300000}",
+            fixedDelayString = "${printer.catalog.refresh-interval-ms:300000}")
+    public void refrescar() {
+        long versionLectura = version.get();
+        reemplazar(printerRepository.obtenerImpresorasActivas(), versionLectura);
+    }
+
+    /**
+     * Reemplaza el contenido del catálogo con una lista de impresoras activas.
+     *
+     * @param activas        Impresoras activas leídas de la base de datos
+     * @param versionLectura Versión del catálogo antes de la lectura
+     */
+    void reemplazar(List<PrinterDTO> activas, long versionLectura) {
+        // El repositorio retorna una lista vacía también cuando falla la consulta
+        if (activas.isEmpty() && !impresoras.isEmpty()) {
+            logger.warn("La consulta de impresoras activas no retornó resultados, se conserva el catálogo");
+            return;
+        }
+
+        Map<Integer, PrinterDTO> nuevas = new ConcurrentHashMap<>();
+        for (PrinterDTO printer : activas) {
+            if (printer.getId() != null) {
+                nuevas.put(printer.getId(), printer);
+            }
+        }
+
+        synchronized (this) {
+            if (version.get() != versionLectura) {
+                logger.debug("Catálogo invalidado durante el refresco, se descarta la lectura");
+                return;
+            }
+            impresoras = nuevas;
+        }
+    }
+
+    /**
+     * Obtiene la versión actual, para leer la base de datos y luego llamar a
+     * {@link #reemplazar(List, long)}.
+     *
+     * @return Versión del catálogo
+     */
+    long getVersion() {
+        return version.get();
+    }
+
+    /**
+     * Busca una impresora por ID; si no está en el catálogo la consulta en la
+     * base de datos y la agrega.
+     *
+     * @param id ID de la impresora
+     * @return Optional con la impresora si existe
+     */
+    public Optional<PrinterDTO> obtener(int id) {
+        PrinterDTO printer = impresoras.get(id);
+        if (printer != null) {
+            return Optional.of(printer);
+        }
+
+        long versionLectura = version.get();
+        printer = printerRepository.obtenerImpresoraPorId(id);
+        if (printer != null) {
+            synchronized (this) {
+                if (version.get() == versionLectura) {
+                    impresoras.put(id, printer);
+                }
+            }
+        }
+        return Optional.ofNullable(printer);
+    }
+
+    /**
+     * Obtiene las impresoras activas del catálogo, sin consultar la base de
+     * datos.
+     *
+     * @return Impresoras activas
+     */
+    public List<PrinterDTO> listarActivas() {
+        return impresoras.values().stream()
+                .filter(printer -> printer.getEstado() == null || printer.getEstado() == 1)
+                .sorted(Comparator.comparing(PrinterDTO::getId))
+                .toList();
+    }
+
+    /**
+     * Registra o reemplaza una impresora tras crearla o actualizarla.
+     *
+     * @param printer Impresora con sus datos actuales
+     */
+    public synchronized void actualizar(PrinterDTO printer) {
+        if (printer == null || printer.getId() == null) {
+            return;
+        }
+        version.incrementAndGet();
+        impresoras.put(printer.getId(), printer);
+    }
+
+    /**
+     * Quita una impresora del catálogo; la siguiente búsqueda irá a la base de
+     * datos.
+     *
+     * @param id ID de la impresora
+     */
+    public synchronized void invalidar(int id) {
+        version.incrementAndGet();
+        impresoras.remove(id);
+    }
+}
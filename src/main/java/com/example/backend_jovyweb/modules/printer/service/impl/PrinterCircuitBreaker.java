@@ -0,0 +1,191 @@
+package com.example.backend_jovyweb.modules.printer.service.impl;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Circuit breaker por impresora.
+ *
+ * - CERRADO: las operaciones pasan; tras printer.breaker.failure-threshold
+ * fallos consecutivos (sin conexión, error de escritura o sin respuesta) el
+ * circuito se abre
+ * - ABIERTO: las operaciones fallan de inmediato con IllegalStateException,
+ * sin intentar conectar, durante printer.breaker.open-ms
+ * - SEMIABIERTO: pasado ese tiempo se deja pasar una sola operación de prueba;
+ * si funciona el circuito se cierra, si falla vuelve a abrirse. Mientras la
+ * prueba está en curso las demás siguen fallando de inmediato.
+ *
+ * Un error que reporta la propia impresora (sin papel, cabezal abierto) no
+ * cuenta como fallo: la impresora respondió.
+ */
+@Component
+public class PrinterCircuitBreaker {
+
+    private static final Logger logger = LoggerFactory.getLogger(PrinterCircuitBreaker.class);
+
+    /**
+     * Estados del circuito.
+     */
+    public enum Estado {
+        CERRADO,
+        ABIERTO,
+        SEMIABIERTO
+    }
+
+    @Value("${printer.breaker.failure-threshold:3}")
+    private int umbralFallos;
+
+    @Value("${printer.breaker.open-ms:30000}")
+    private long abiertoMs;
+
+    /**
+     * Estado del circuito de una impresora.
+     */
+    private static class Circuito {
+        Estado estado = Estado.CERRADO;
+        int fallos;
+        long abiertoHasta;
+        boolean pruebaEnCurso;
+    }
+
+    // Circuitos por impresora: printerId -> circuito
+    private final Map<Integer, Circuito> circuitos = new ConcurrentHashMap<>();
+
+    /**
+     * Verifica que se pueda operar sobre la impresora. Si el circuito está
+     * abierto y ya pasó el tiempo de espera, esta llamada se convierte en la
+     * prueba del estado semiabierto.
+     *
+     * @param printerId ID de la impresora
+     * @throws IllegalStateException si el circuito está abierto o ya hay una
+     *                               prueba en curso
+     */
+    public void verificar(int printerId) {
+        Circuito circuito = circuitos.computeIfAbsent(printerId, id -> new Circuito());
+        synchronized (circuito) {
+            switch (circuito.estado) {
+                case CERRADO -> {
+                }
+                case ABIERTO -> {
+                    long espera = circuito.abiertoHasta - System.currentTimeMillis();
+                    if (espera > 0) {
+                        throw new IllegalStateException("Impresora " + printerId
+                                + " fuera de línea (circuito abierto), próximo intento en " + espera + " ms");
+                    }
+                    circuito.estado = Estado.SEMIABIERTO;
+                    circuito.pruebaEnCurso = true;
+                    logger.info("Circuito de impresora [{}] semiabierto: probando conexión", printerId);
+                }
+                case SEMIABIERTO -> {
+                    if (circuito.pruebaEnCurso) {
+                        throw new IllegalStateException("Impresora " + printerId
+                                + " fuera de línea (circuito semiabierto), verificando conexión");
+                    }
+                    circuito.pruebaEnCurso = true;
+                }
+            }
+        }
+    }
+
+    /**
+     * Registra una operación exitosa y cierra el circuito.
+     *
+     * @param printerId ID de la impresora
+     */
+    public void registrarExito(int printerId) {
+        Circuito circuito = circuitos.get(printerId);
+        if (circuito == null) {
+            return;
+        }
+        synchronized (circuito) {
+            if (circuito.estado != Estado.CERRADO) {
+                logger.info("Circuito de impresora [{}] cerrado: la impresora respondió", printerId);
+            }
+            circuito.estado = Estado.CERRADO;
+            circuito.fallos = 0;
+            circuito.pruebaEnCurso = false;
+        }
+    }
+
+    /**
+     * Registra un fallo de comunicación. Abre el circuito si se alcanzó el
+     * umbral o si falló la prueba del estado semiabierto.
+     *
+     * @param printerId ID de la impresora
+     */
+    public void registrarFallo(int printerId) {
+        Circuito circuito = circuitos.computeIfAbsent(printerId, id -> new Circuito());
+        synchronized (circuito) {
+            circuito.fallos++;
+            if (circuito.estado == Estado.SEMIABIERTO || circuito.fallos >= umbralFallos) {
+                if (circuito.estado != Estado.ABIERTO) {
+                    logger.warn("Circuito de impresora [{}] abierto tras {} fallos; se reintentará en {} ms",
+                            printerId, circuito.fallos, abiertoMs);
+                }
+                circuito.estado = Estado.ABIERTO;
+                circuito.abiertoHasta = System.currentTimeMillis() + abiertoMs;
+                circuito.pruebaEnCurso = false;
+            }
+        }
+    }
+
+    /**
+     * Libera la prueba del estado semiabierto sin registrar éxito ni fallo,
+     * cuando la operación terminó por un error del pedido y no dice nada de
+     * la impresora. La siguiente operación hará la prueba.
+     *
+     * @param printerId ID de la impresora
+     */
+    public void liberarPrueba(int printerId) {
+        Circuito circuito = circuitos.get(printerId);
+        if (circuito == null) {
+            return;
+        }
+        synchronized (circuito) {
+            circuito.pruebaEnCurso = false;
+        }
+    }
+
+    /**
+     * Indica si las operaciones sobre la impresora fallarían de inmediato: el
+     * circuito está abierto y no ha pasado el tiempo de espera, o hay una
+     * prueba en curso. No modifica el estado.
+     *
+     * @param printerId ID de la impresora
+     * @return true si la impresora debe evitarse por ahora
+     */
+    public boolean rechazaOperaciones(int printerId) {
+        Circuito circuito = circuitos.get(printerId);
+        if (circuito == null) {
+            return false;
+        }
+        synchronized (circuito) {
+            return switch (circuito.estado) {
+                case CERRADO -> false;
+                case ABIERTO -> circuito.abiertoHasta > System.currentTimeMillis();
+                case SEMIABIERTO -> circuito.pruebaEnCurso;
+            };
+        }
+    }
+
+    /**
+     * Obtiene el estado del circuito de una impresora.
+     *
+     * @param printerId ID de la impresora
+     * @return Estado actual (CERRADO si nunca falló)
+     */
+    public Estado obtenerEstado(int printerId) {
+        Circuito circuito = circuitos.get(printerId);
+        if (circuito == null) {
+            return Estado.CERRADO;
+        }
+        synchronized (circuito) {
+            return circuito.estado;
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.backend_jovyweb.modules.printer.service.impl;
+
+import com.example.backend_jovyweb.modules.printer.metrics.PrinterMetrics;
+import com.example.backend_jovyweb.modules.printer.model.HostStatus;
+import com.example.backend_jovyweb.modules.printer.service.ZebraPrinterService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Optional;
+
+/**
+ * Control de flujo del envío según el buffer de la impresora.
+ *
+ * Cada etiqueta se confirma con ~HS, y esa respuesta trae las etiquetas que
+ * le quedan por imprimir al lote actual y los formatos en el buffer de
+ * recepción. Su suma es el nivel del buffer (una cota inferior: cada formato
+ * pendiente cuenta como una etiqueta).
+ *
+ * - Si el nivel llegó a printer.flow.high-watermark (o la impresora reporta el
+ * buffer lleno), el worker de la cola deja de enviar y consulta ~HS cada
+ * printer.flow.poll-ms
+ * - Reanuda cuando el nivel baja a printer.flow.low-watermark
+ *
+ * Así la impresora siempre tiene trabajo para imprimir a su velocidad máxima,
+ * pero no acumula miles de etiquetas: lo que no se envió sigue en la cola del
+ * servidor, donde puede cancelarse o adelantarse un trabajo urgente. Con
+ * high-watermark en 0 el control de flujo se desactiva.
+ */
+@Component
+public class PrinterFlowControl {
+
+    private static final Logger logger = LoggerFactory.getLogger(PrinterFlowControl.class);
+
+    private final ZebraPrinterService zebraPrinterService;
+    private final PrinterMetrics metrics;
+
+    @Value("${printer.flow.high-watermark:100}")
+    private int marcaAlta;
+
+    @Value("${printer.flow.low-watermark:20}")
+    private int marcaBaja;
+
+    @Value("${printer.flow.poll-ms:500}")
+    private long sondeoMs;
+
+    /**
+     * Constructor con inyección del servicio Zebra.
+     *
+     * @param zebraPrinterService Servicio Zebra para consultar ~HS
+     * @param metrics             Métricas de impresoras
+     */
+    public PrinterFlowControl(ZebraPrinterService zebraPrinterService, PrinterMetrics metrics) {
+        this.zebraPrinterService = zebraPrinterService;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Espera a que el buffer de la impresora tenga lugar. Sin pausa en curso
+     * usa el último ~HS conocido, así que no agrega consultas al envío normal.
+     * Si la impresora deja de responder retorna para que el envío reporte el
+     * error.
+     *
+     * @param printerId ID de la impresora
+     * @throws InterruptedException si se interrumpe la espera
+     */
+    public void esperarCapacidad(int printerId) throws InterruptedException {
+        if (marcaAlta <= 0) {
+            return;
+        }
+        Optional<HostStatus> ultimo = zebraPrinterService.obtenerUltimoEstadoHost(printerId);
+        if (ultimo.isEmpty() || !lleno(ultimo.get())) {
+            return;
+        }
+
+        long inicio = System.currentTimeMillis();
+        logger.info("Envío a impresora [{}] en pausa: {} etiquetas en su buffer (máximo {})", printerId,
+                nivel(ultimo.get()), marcaAlta);
+        while (true) {
+            Thread.sleep(sondeoMs);
+            Optional<HostStatus> estado = zebraPrinterService.consultarEstadoHost(printerId);
+            if (estado.isEmpty()) {
+                logger.warn("Impresora [{}] sin respuesta durante la pausa de envío", printerId);
+                break;
+            }
+            if (!estado.get().isBufferLleno() && nivel(estado.get()) <= marcaBaja) {
+                break;
+            }
+        }
+        long pausaMs = System.currentTimeMillis() - inicio;
+        metrics.pausaFlujo(printerId, pausaMs);
+        logger.info("Envío a impresora [{}] reanudado tras {} ms", printerId, pausaMs);
+    }
+
+    private boolean lleno(HostStatus estado) {
+        return estado.isBufferLleno() || nivel(estado) >= marcaAlta;
+    }
+
+    /**
+     * Etiquetas pendientes en la impresora según ~HS.
+     *
+     * @param estado Respuesta a ~HS
+     * @return Etiquetas restantes del lote actual más formatos en el buffer
+     */
+    public static int nivel(HostStatus estado) {
+        return estado.getEtiquetasRestantes() + estado.getFormatosEnBuffer();
+    }
+}
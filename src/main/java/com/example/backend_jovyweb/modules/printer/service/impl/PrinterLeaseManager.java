@@ -0,0 +1,250 @@
+package com.example.backend_jovyweb.modules.printer.service.impl;
+
+import com.example.backend_jovyweb.modules.printer.model.PrinterLease;
+import com.example.backend_jovyweb.modules.printer.repository.PrinterLeaseRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntConsumer;
+
+/**
+ * Propiedad de las impresoras cuando el servicio corre en varios nodos.
+ *
+ * Una impresora Zebra atiende una sola conexión de impresión a la vez, así que
+ * cada impresora pertenece a un único nodo, registrado en la tabla de
+ * arrendamientos ({@link PrinterLeaseRepository}):
+ * - Un nodo toma la impresora la primera vez que la necesita (al encolarle un
+ * trabajo, al sondearla o al conectar) si está libre o su arrendamiento venció
+ * - Cada printer.cluster.heartbeat-ms el nodo renueva sus arrendamientos por
+ * printer.cluster.lease-ms; si un nodo cae, sus impresoras quedan libres
+ * cuando vencen y las toma el siguiente nodo que las necesite
+ * - Si el nodo descubre que perdió una impresora (otro la tomó mientras no
+ * podía renovar), se avisa al listener para que cierre la conexión
+ * - Al apagarse, el nodo libera sus arrendamientos
+ *
+ * Los trabajos de una impresora de otro nodo se le reenvían
+ * ({@link PrintJobForwarder}), de modo que todos pasan por la misma cola y se
+ * imprimen en orden.
+ *
+ * Con printer.cluster.enabled en false (por defecto) el nodo es dueño de todas
+ * las impresoras y no se consulta la base de datos.
+ */
+@Component
+public class PrinterLeaseManager {
+
+    private static final Logger logger = LoggerFactory.getLogger(PrinterLeaseManager.class);
+
+    private final PrinterLeaseRepository leaseRepository;
+    private final String nodoPorDefecto;
+
+    @Value("${printer.cluster.enabled:false}")
+    private boolean habilitado;
+
+    @Value("${printer.cluster.node-id:}")
+    private String nodo; // Vacío = host + sufijo aleatorio
+
+    @Value("${printer.cluster.node-url:}")
+    private String url; // URL base con la que los demás nodos llegan a este
+
+    @Value("${printer.cluster.lease-ms:15000}")
+    private long duracionMs;
+
+    // Impresoras propias: printerId -> vencimiento local (System.nanoTime)
+    private final Map<Integer, Long> propias = new ConcurrentHashMap<>();
+
+    // Se llama con el ID de cada impresora que el nodo pierde
+    private volatile IntConsumer alPerder = printerId -> {
+    };
+
+    /**
+     * Constructor con inyección del repositorio de arrendamientos.
+     *
+     * @param leaseRepository Repositorio de arrendamientos
+     */
+    public PrinterLeaseManager(PrinterLeaseRepository leaseRepository) {
+        this.leaseRepository = leaseRepository;
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            host = "nodo";
+        }
+        this.nodoPorDefecto = host + "-" + UUID.randomUUID().toString().substring(0, 8);
+    }
+
+    /**
+     * Indica si el servicio corre en varios nodos.
+     *
+     * @return true si printer.cluster.enabled está activo
+     */
+    public boolean isHabilitado() {
+        return habilitado;
+    }
+
+    /**
+     * ID de este nodo en la tabla de arrendamientos.
+     *
+     * @return printer.cluster.node-id, o host más un sufijo aleatorio
+     */
+    public String getNodo() {
+        return nodo == null || nodo.isBlank() ? nodoPorDefecto : nodo;
+    }
+
+    /**
+     * Registra la acción a ejecutar cuando el nodo pierde una impresora.
+     *
+     * @param alPerder Recibe el ID de la impresora
+     */
+    public void setAlPerder(IntConsumer alPerder) {
+        this.alPerder = alPerder;
+    }
+
+    /**
+     * Toma la impresora para este nodo, o confirma que ya es suya. Mientras el
+     * arrendamiento local está vigente no consulta la base de datos.
+     *
+     * @param printerId ID de la impresora
+     * @return true si la impresora es de este nodo; false si es de otro o no se
+     *         pudo consultar la base de datos
+     */
+    public boolean adquirir(int printerId) {
+        if (!habilitado) {
+            return true;
+        }
+        long inicio = System.nanoTime();
+        Long hasta = propias.get(printerId);
+        if (hasta != null && hasta - inicio > 0) {
+            return true;
+        }
+
+        boolean adquirida;
+        try {
+            adquirida = leaseRepository.adquirir(printerId, getNodo(), url != null ? url : "", duracionMs);
+        } catch (DataAccessException e) {
+            logger.warn("No se pudo tomar el arrendamiento de la impresora [{}]: {}", printerId, e.getMessage());
+            return false;
+        }
+        if (adquirida) {
+            if (hasta == null) {
+                logger.info("Impresora [{}] asignada al nodo {}", printerId, getNodo());
+            }
+            propias.put(printerId, inicio + TimeUnit.MILLISECONDS.toNanos(duracionMs));
+        } else if (hasta != null) {
+            perder(printerId);
+        }
+        return adquirida;
+    }
+
+    /**
+     * Obtiene el nodo al que hay que reenviar los trabajos de una impresora.
+     * Si la impresora está libre, la toma este nodo.
+     *
+     * @param printerId ID de la impresora
+     * @return Optional con la URL base del nodo propietario, vacío si la
+     *         impresora es de este nodo
+     * @throws IllegalStateException si no se puede determinar el propietario
+     */
+    public Optional<String> propietarioRemoto(int printerId) {
+        if (adquirir(printerId)) {
+            return Optional.empty();
+        }
+        Optional<PrinterLease> lease;
+        try {
+            lease = leaseRepository.obtener(printerId);
+        } catch (DataAccessException e) {
+            throw new IllegalStateException("No se pudo consultar el propietario de la impresora " + printerId, e);
+        }
+        if (lease.isPresent() && lease.get().isVigente() && !getNodo().equals(lease.get().getNodo())) {
+            if (lease.get().getUrl().isBlank()) {
+                throw new IllegalStateException("El nodo " + lease.get().getNodo() + " de la impresora " + printerId
+                        + " no publicó su URL (printer.cluster.node-url)");
+            }
+            return Optional.of(lease.get().getUrl());
+        }
+        // El arrendamiento venció entre ambas consultas
+        if (adquirir(printerId)) {
+            return Optional.empty();
+        }
+        throw new IllegalStateException("La impresora " + printerId + " no tiene un nodo propietario disponible");
+    }
+
+    /**
+     * Renueva los arrendamientos de este nodo y detecta los perdidos. Si la
+     * base de datos no responde, las impresoras cuyo arrendamiento local venció
+     * se dan por perdidas: otro nodo puede haberlas tomado.
+     */
+    @Scheduled(initialDelayString = "${printer.cluster.heartbeat-ms:5000}",
+            fixedDelayString = "${printer.cluster.heartbeat-ms:5000}")
+    public void renovar() {
+        if (!habilitado) {
+            return;
+        }
+        long inicio = System.nanoTime();
+        Set<Integer> vigentes;
+        try {
+            vigentes = new HashSet<>(leaseRepository.renovar(getNodo(), duracionMs));
+        } catch (DataAccessException e) {
+            logger.warn("No se pudieron renovar los arrendamientos del nodo {}: {}", getNodo(), e.getMessage());
+            for (Map.Entry<Integer, Long> propia : propias.entrySet()) {
+                if (propia.getValue() - inicio <= 0) {
+                    perder(propia.getKey());
+                }
+            }
+            return;
+        }
+
+        for (Integer printerId : propias.keySet()) {
+            if (!vigentes.contains(printerId)) {
+                perder(printerId);
+            }
+        }
+        long hasta = inicio + TimeUnit.MILLISECONDS.toNanos(duracionMs);
+        for (Integer printerId : vigentes) {
+            propias.put(printerId, hasta);
+        }
+    }
+
+    private void perder(int printerId) {
+        if (propias.remove(printerId) == null) {
+            return;
+        }
+        logger.warn("El nodo {} perdió la impresora [{}]", getNodo(), printerId);
+        try {
+            alPerder.accept(printerId);
+        } catch (RuntimeException e) {
+            logger.error("Error al liberar la impresora [{}]: {}", printerId, e.getMessage());
+        }
+    }
+
+    /**
+     * Libera los arrendamientos al apagar el nodo, para que otro nodo tome sus
+     * impresoras sin esperar a que venzan.
+     */
+    @PreDestroy
+    public void liberar() {
+        if (!habilitado || propias.isEmpty()) {
+            return;
+        }
+        try {
+            leaseRepository.liberar(getNodo());
+            propias.clear();
+            logger.info("Arrendamientos del nodo {} liberados", getNodo());
+        } catch (DataAccessException e) {
+            logger.warn("No se pudieron liberar los arrendamientos del nodo {}: {}", getNodo(), e.getMessage());
+        }
+    }
+}
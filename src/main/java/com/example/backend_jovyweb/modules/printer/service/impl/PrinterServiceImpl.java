@@ -1,13 +1,16 @@
 package com.example.backend_jovyweb.modules.printer.service.impl;
 
 import com.example.backend_jovyweb.modules.printer.dto.PrinterDTO;
+import com.example.backend_jovyweb.modules.printer.dto.PrinterStatusDTO;
 import com.example.backend_jovyweb.modules.printer.repository.PrinterRepository;
 import com.example.backend_jovyweb.modules.printer.service.PrinterService;
 import com.example.backend_jovyweb.modules.printer.service.ZebraPrinterService;
 import org.springframework.stereotype.Service;
 
+import java.io.InputStream;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.BooleanSupplier;
 
 /**
  * Implementación del servicio de impresoras.
@@ -18,22 +21,43 @@ import java.util.Optional;
  * - Transformar datos si es necesario
  * - Retornar DTOs al controlador
  * - Integrar con servicio de Zebra para operaciones de impresión
+ * 
+ * Las búsquedas por ID usan el {@link PrinterCatalog} en memoria, para no ir a
+ * la base de datos antes de cada etiqueta.
+ * 
+ * Las operaciones de impresión pasan por el {@link PrinterCircuitBreaker}: una
+ * impresora que no responde falla de inmediato en lugar de esperar cada vez el
+ * tiempo de conexión.
  */
 @Service
 public class PrinterServiceImpl implements PrinterService {
 
     private final PrinterRepository printerRepository;
     private final ZebraPrinterService zebraPrinterService;
+    private final PrinterCatalog printerCatalog;
+    private final PrinterStatusPoller printerStatusPoller;
+    private final PrinterCircuitBreaker circuitBreaker;
+    private final PrinterLeaseManager leases;
 
     /**
      * Constructor con inyección del repositorio de impresoras y servicio Zebra.
      * 
      * @param printerRepository   Repositorio para acceder a datos de impresoras
      * @param zebraPrinterService Servicio de integración con impresoras Zebra
+     * @param printerCatalog      Catálogo en memoria de impresoras
+     * @param printerStatusPoller Sondeo periódico del estado de las impresoras
+     * @param circuitBreaker      Circuit breaker por impresora
+     * @param leases              Arrendamientos de impresoras entre nodos
      */
-    public PrinterServiceImpl(PrinterRepository printerRepository, ZebraPrinterService zebraPrinterService) {
+    public PrinterServiceImpl(PrinterRepository printerRepository, ZebraPrinterService zebraPrinterService,
+            PrinterCatalog printerCatalog, PrinterStatusPoller printerStatusPoller,
+            PrinterCircuitBreaker circuitBreaker, PrinterLeaseManager leases) {
         this.printerRepository = printerRepository;
         this.zebraPrinterService = zebraPrinterService;
+        this.printerCatalog = printerCatalog;
+        this.printerStatusPoller = printerStatusPoller;
+        this.circuitBreaker = circuitBreaker;
+        this.leases = leases;
     }
 
     /**
@@ -43,7 +67,10 @@ public class PrinterServiceImpl implements PrinterService {
      */
     @Override
     public List<PrinterDTO> obtenerImpresorasActivas() {
-        return printerRepository.obtenerImpresorasActivas();
+        long version = printerCatalog.getVersion();
+        List<PrinterDTO> activas = printerRepository.obtenerImpresorasActivas();
+        printerCatalog.reemplazar(activas, version);
+        return activas;
     }
 
     /**
@@ -54,7 +81,9 @@ public class PrinterServiceImpl implements PrinterService {
      */
     @Override
     public PrinterDTO crearImpresora(PrinterDTO printerDTO) {
-        return printerRepository.crearImpresora(printerDTO);
+        PrinterDTO creada = printerRepository.crearImpresora(printerDTO);
+        printerCatalog.actualizar(creada);
+        return creada;
     }
 
     /**
@@ -65,8 +94,7 @@ public class PrinterServiceImpl implements PrinterService {
      */
     @Override
     public Optional<PrinterDTO> obtenerImpresoraPorId(int id) {
-        PrinterDTO printer = printerRepository.obtenerImpresoraPorId(id);
-        return Optional.ofNullable(printer);
+        return printerCatalog.obtener(id);
     }
 
     /**
@@ -78,6 +106,10 @@ public class PrinterServiceImpl implements PrinterService {
     @Override
     public PrinterDTO actualizarImpresora(PrinterDTO printerDTO) {
         PrinterDTO actualizada = printerRepository.actualizarImpresora(printerDTO);
+        if (printerDTO.getId() != null) {
+            printerCatalog.invalidar(printerDTO.getId());
+        }
+        printerCatalog.actualizar(actualizada);
 
         // Desconectar la impresora si está conectada, para forzar reconexión con nuevos
         // datos
@@ -97,6 +129,7 @@ public class PrinterServiceImpl implements PrinterService {
     @Override
     public void eliminarImpresora(int id) {
         printerRepository.eliminarImpresora(id);
+        printerCatalog.invalidar(id);
     }
 
     /**
@@ -107,6 +140,7 @@ public class PrinterServiceImpl implements PrinterService {
     @Override
     public void eliminarImpresoraDefinitivo(int id) {
         printerRepository.eliminarImpresoraDefinitivo(id);
+        printerCatalog.invalidar(id);
     }
 
     /**
@@ -119,23 +153,33 @@ public class PrinterServiceImpl implements PrinterService {
      */
     @Override
     public boolean imprimirEtiqueta(int printerId, String templateZPL, int cantidad) {
-        Optional<PrinterDTO> printer = obtenerImpresoraPorId(printerId);
-
-        if (printer.isEmpty()) {
-            throw new IllegalArgumentException("Impresora con ID " + printerId + " no encontrada");
-        }
-
-        PrinterDTO printerDTO = printer.get();
+        return operarConCircuito(printerId,
+                () -> zebraPrinterService.imprimirEtiqueta(printerId, templateZPL, cantidad));
+    }
 
-        // Conectar a la impresora si no está conectada
-        if (!zebraPrinterService.estaConectada(printerId)) {
-            if (!zebraPrinterService.conectarImpresora(printerDTO)) {
-                throw new RuntimeException("No se pudo conectar a la impresora: " + printerDTO.getNombre());
-            }
-        }
+    /**
+     * Imprime una etiqueta ya renderizada en una impresora específica.
+     * 
+     * @param printerId ID de la impresora
+     * @param datosZPL  Bytes ZPL de la etiqueta
+     * @return true si la impresión fue exitosa
+     */
+    @Override
+    public boolean imprimirDatos(int printerId, byte[] datosZPL) {
+        return operarConCircuito(printerId, () -> zebraPrinterService.imprimirZPL(printerId, datosZPL));
+    }
 
-        // Imprimir la etiqueta
-        return ((ZebraPrinterServiceImpl) zebraPrinterService).imprimirEtiqueta(printerId, templateZPL, cantidad);
+    /**
+     * Imprime los bytes ZPL de un flujo en una impresora específica.
+     * 
+     * @param printerId ID de la impresora
+     * @param datos     Flujo con los bytes ZPL
+     * @param cantidad  Número de copias
+     * @return true si la impresión fue exitosa
+     */
+    @Override
+    public boolean imprimirFlujo(int printerId, InputStream datos, int cantidad) {
+        return operarConCircuito(printerId, () -> zebraPrinterService.imprimirFlujo(printerId, datos, cantidad));
     }
 
     /**
@@ -147,6 +191,21 @@ public class PrinterServiceImpl implements PrinterService {
      */
     @Override
     public boolean enviarComandoZPL(int printerId, String comandoZPL) {
+        return operarConCircuito(printerId, () -> zebraPrinterService.enviarComandoZPL(printerId, comandoZPL));
+    }
+
+    /**
+     * Conecta la impresora si no está conectada y ejecuta la operación,
+     * registrando el resultado en el circuit breaker.
+     * 
+     * Un IllegalStateException de la operación es un error que reporta la
+     * impresora (sin papel, cabezal abierto): respondió, así que cuenta como
+     * éxito para el circuito y se propaga. Tampoco cuentan como fallo que la
+     * impresora pertenezca a otro nodo (no se intentó conectar) ni un
+     * IllegalArgumentException de un pedido inválido; si la operación era la
+     * prueba del estado semiabierto, la prueba se libera para la siguiente.
+     */
+    private boolean operarConCircuito(int printerId, BooleanSupplier operacion) {
         Optional<PrinterDTO> printer = obtenerImpresoraPorId(printerId);
 
         if (printer.isEmpty()) {
@@ -154,66 +213,97 @@ public class PrinterServiceImpl implements PrinterService {
         }
 
         PrinterDTO printerDTO = printer.get();
+        // Antes del circuito: una impresora de otro nodo no es un fallo ni debe consumir la prueba semiabierta
+        if (!leases.adquirir(printerId)) {
+            throw new IllegalStateException("La impresora " + printerDTO.getNombre() + " está asignada a otro nodo");
+        }
+        circuitBreaker.verificar(printerId);
 
         // Conectar a la impresora si no está conectada
         if (!zebraPrinterService.estaConectada(printerId)) {
             if (!zebraPrinterService.conectarImpresora(printerDTO)) {
+                circuitBreaker.registrarFallo(printerId);
                 throw new RuntimeException("No se pudo conectar a la impresora: " + printerDTO.getNombre());
             }
         }
 
-        // Enviar el comando
-        return ((ZebraPrinterServiceImpl) zebraPrinterService).enviarComandoZPL(printerId, comandoZPL);
+        boolean resultado;
+        try {
+            resultado = operacion.getAsBoolean();
+        } catch (IllegalStateException e) {
+            circuitBreaker.registrarExito(printerId);
+            throw e;
+        } catch (IllegalArgumentException e) {
+            // Error del pedido (p. ej. un flujo detenido), no de la impresora
+            circuitBreaker.liberarPrueba(printerId);
+            throw e;
+        } catch (RuntimeException e) {
+            circuitBreaker.registrarFallo(printerId);
+            throw e;
+        }
+
+        if (resultado) {
+            circuitBreaker.registrarExito(printerId);
+        } else {
+            circuitBreaker.registrarFallo(printerId);
+        }
+        return resultado;
     }
 
     /**
-     * Obtiene el estado de una impresora específica.
+     * Obtiene el último estado conocido de una impresora específica, leído del
+     * sondeo periódico (no contacta a la impresora).
      * 
      * @param printerId ID de la impresora
      * @return String con el estado de la impresora
      */
     @Override
     public String obtenerEstadoImpresora(int printerId) {
+        return obtenerEstadoDetallado(printerId).getEstado();
+    }
+
+    /**
+     * Obtiene el último estado conocido de una impresora con la fecha del
+     * sondeo.
+     * 
+     * @param printerId ID de la impresora
+     * @return Estado de la impresora (DESCONOCIDO si aún no se ha sondeado)
+     */
+    @Override
+    public PrinterStatusDTO obtenerEstadoDetallado(int printerId) {
         Optional<PrinterDTO> printer = obtenerImpresoraPorId(printerId);
 
         if (printer.isEmpty()) {
             throw new IllegalArgumentException("Impresora con ID " + printerId + " no encontrada");
         }
 
-        PrinterDTO printerDTO = printer.get();
-
-        // Conectar a la impresora si no está conectada
-        if (!zebraPrinterService.estaConectada(printerId)) {
-            if (!zebraPrinterService.conectarImpresora(printerDTO)) {
-                return "DESCONECTADA";
-            }
-        }
+        return printerStatusPoller.obtener(printerId)
+                .orElseGet(() -> PrinterStatusDTO.desconocido(printer.get()));
+    }
 
-        // Obtener el estado
-        return ((ZebraPrinterServiceImpl) zebraPrinterService).obtenerEstadoImpresora(printerId);
+    /**
+     * Obtiene el último estado conocido de todas las impresoras activas.
+     * 
+     * @return Lista de estados
+     */
+    @Override
+    public List<PrinterStatusDTO> obtenerEstadoImpresoras() {
+        return printerStatusPoller.listar();
     }
 
     /**
-     * Verifica si una impresora está conectada.
+     * Verifica si una impresora tiene conexión abierta en el pool, sin intentar
+     * conectar (la reconexión la hacen el pool y el sondeo de estado).
      * 
      * @param printerId ID de la impresora
      * @return true si está conectada
      */
     @Override
     public boolean estaImpresoraConectada(int printerId) {
-        Optional<PrinterDTO> printer = obtenerImpresoraPorId(printerId);
-
-        if (printer.isEmpty()) {
+        if (obtenerImpresoraPorId(printerId).isEmpty()) {
             throw new IllegalArgumentException("Impresora con ID " + printerId + " no encontrada");
         }
 
-        PrinterDTO printerDTO = printer.get();
-
-        // Intentar conectar si no está conectada
-        if (!zebraPrinterService.estaConectada(printerId)) {
-            zebraPrinterService.conectarImpresora(printerDTO);
-        }
-
         return zebraPrinterService.estaConectada(printerId);
     }
 
@@ -0,0 +1,153 @@
+package com.example.backend_jovyweb.modules.printer.service.impl;
+
+import com.example.backend_jovyweb.modules.printer.dto.PrinterDTO;
+import com.example.backend_jovyweb.modules.printer.dto.PrinterStatusDTO;
+import com.example.backend_jovyweb.modules.printer.model.HostStatus;
+import com.example.backend_jovyweb.modules.printer.service.ZebraPrinterService;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+/**
+ * Sondeo periódico del estado de las impresoras.
+ *
+ * Cada printer.status.poll-interval-ms consulta en paralelo (un hilo virtual
+ * por impresora) todas las impresoras activas del catálogo. Primero pregunta
+ * por el canal de estado Link-OS (puerto 9200), que responde aunque la
+ * impresora esté recibiendo un trabajo; si la impresora no lo soporta, conecta
+ * al canal de impresión si hace falta y pide ~HS/~HQES. Guarda el último
+ * estado con su fecha, de modo que los endpoints de estado responden sin
+ * esperar a la impresora. El backoff
+ * del pool evita reintentar en cada sondeo contra una impresora apagada.
+ *
+ * Con varios nodos cada uno sondea solo sus impresoras
+ * ({@link PrinterLeaseManager}); el sondeo toma las que están libres, así que
+ * las de un nodo caído pasan a otro en el siguiente ciclo.
+ */
+@Component
+public class PrinterStatusPoller {
+
+    private static final Logger logger = LoggerFactory.getLogger(PrinterStatusPoller.class);
+
+    private final PrinterCatalog printerCatalog;
+    private final ZebraPrinterService zebraPrinterService;
+    private final PrinterLeaseManager leases;
+
+    // Último estado conocido: printerId -> estado
+    private final Map<Integer, PrinterStatusDTO> estados = new ConcurrentHashMap<>();
+
+    private final ExecutorService sondeos = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("printer-status-", 0).factory());
+
+    /**
+     * Constructor con inyección del catálogo y el servicio Zebra.
+     *
+     * @param printerCatalog      Catálogo de impresoras activas
+     * @param zebraPrinterService Servicio de integración con impresoras Zebra
+     * @param leases              Propiedad de las impresoras entre nodos
+     */
+    public PrinterStatusPoller(PrinterCatalog printerCatalog, ZebraPrinterService zebraPrinterService,
+            PrinterLeaseManager leases) {
+        this.printerCatalog = printerCatalog;
+        this.zebraPrinterService = zebraPrinterService;
+        this.leases = leases;
+    }
+
+    /**
+     * Sondea todas las impresoras activas en paralelo y espera a que terminen,
+     * para que dos sondeos no se traslapen.
+     */
+    @Scheduled(initialDelayString = "${printer.status.poll-interval-ms:10000}",
+            fixedDelayString = "${printer.status.poll-interval-ms:10000}")
+    public void sondear() {
+        List<PrinterDTO> activas = printerCatalog.listarActivas();
+        List<Future<?>> pendientes = new ArrayList<>(activas.size());
+        for (PrinterDTO printer : activas) {
+            pendientes.add(sondeos.submit(() -> sondearImpresora(printer)));
+        }
+
+        for (Future<?> pendiente : pendientes) {
+            try {
+                pendiente.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (ExecutionException e) {
+                logger.warn("Error al sondear impresora: {}", e.getCause().getMessage());
+            }
+        }
+
+        Set<Integer> ids = activas.stream().map(PrinterDTO::getId).collect(Collectors.toSet());
+        estados.keySet().retainAll(ids);
+    }
+
+    private void sondearImpresora(PrinterDTO printer) {
+        int printerId = printer.getId();
+        if (!leases.adquirir(printerId)) {
+            estados.remove(printerId); // La sondea su nodo propietario
+            return;
+        }
+        Optional<HostStatus> porCanal = zebraPrinterService.consultarEstadoCanal(printer);
+        if (porCanal.isPresent()) {
+            estados.put(printerId, new PrinterStatusDTO(printer, true, porCanal.get().getEstado(), porCanal.get(),
+                    LocalDateTime.now()));
+            return;
+        }
+        boolean conectada = zebraPrinterService.estaConectada(printerId)
+                || zebraPrinterService.conectarImpresora(printer);
+        if (!conectada) {
+            estados.put(printerId, new PrinterStatusDTO(printer, false, PrinterStatusDTO.DESCONECTADA, null,
+                    LocalDateTime.now()));
+            return;
+        }
+
+        Optional<HostStatus> hostStatus = zebraPrinterService.consultarEstadoHost(printerId);
+        String estado = hostStatus.map(HostStatus::getEstado).orElse(PrinterStatusDTO.SIN_RESPUESTA);
+        estados.put(printerId, new PrinterStatusDTO(printer, true, estado, hostStatus.orElse(null),
+                LocalDateTime.now()));
+    }
+
+    /**
+     * Obtiene el último estado conocido de una impresora.
+     *
+     * @param printerId ID de la impresora
+     * @return Optional con el estado, vacío si aún no se ha sondeado
+     */
+    public Optional<PrinterStatusDTO> obtener(int printerId) {
+        return Optional.ofNullable(estados.get(printerId));
+    }
+
+    /**
+     * Obtiene el último estado conocido de todas las impresoras activas.
+     *
+     * @return Estado por impresora (DESCONOCIDO si aún no se ha sondeado)
+     */
+    public List<PrinterStatusDTO> listar() {
+        return printerCatalog.listarActivas().stream()
+                .map(printer -> estados.getOrDefault(printer.getId(), PrinterStatusDTO.desconocido(printer)))
+                .toList();
+    }
+
+    /**
+     * Detiene los sondeos al apagar la aplicación.
+     */
+    @PreDestroy
+    public void detener() {
+        sondeos.shutdownNow();
+    }
+}
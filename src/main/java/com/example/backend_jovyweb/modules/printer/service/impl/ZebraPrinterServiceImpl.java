@@ -1,15 +1,45 @@
 package com.example.backend_jovyweb.modules.printer.service.impl;
 
 import com.example.backend_jovyweb.modules.printer.dto.PrinterDTO;
+import com.example.backend_jovyweb.modules.printer.metrics.PrinterMetrics;
+import com.example.backend_jovyweb.modules.printer.model.HostStatus;
 import com.example.backend_jovyweb.modules.printer.service.ZebraPrinterService;
+import com.example.backend_jovyweb.modules.printer.template.FormatoAlmacenado;
+import com.example.backend_jovyweb.modules.printer.template.ZplBuffer;
+import com.example.backend_jovyweb.modules.printer.template.ZplCantidadFiltro;
+import com.example.backend_jovyweb.modules.printer.template.ZplFormato;
+import com.example.backend_jovyweb.modules.printer.template.ZplTemplateRegistry;
+import com.example.backend_jovyweb.modules.printer.transport.PrinterConnection;
+import com.example.backend_jovyweb.modules.printer.transport.PrinterConnectionPool;
+import com.example.backend_jovyweb.modules.printer.transport.StatusChannelPool;
+import com.example.backend_jovyweb.modules.printer.transport.ZebraNioTransport;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import java.io.*;
-import java.net.Socket;
-import java.util.*;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Implementación del servicio de integración con impresoras Zebra.
@@ -17,59 +47,97 @@ import java.util.concurrent.ConcurrentHashMap;
  * Soporta múltiples tipos de conexión:
  * - WiFi (TCP): tcp://192.168.1.100:9100
  * 
- * Utiliza sockets TCP para proyectos de WiFi/red.
+ * Utiliza el transporte NIO ({@link ZebraNioTransport}) para proyectos de
+ * WiFi/red: un solo hilo de E/S atiende todas las impresoras.
  * 
- * Mantiene un pool de conexiones independientes para cada impresora,
- * permitiendo gestionar varios dispositivos en paralelo.
+ * Las conexiones las administra {@link PrinterConnectionPool}, que mantiene
+ * una conexión independiente por impresora con sondeos de salud, cierre de
+ * conexiones ociosas y reconexión con backoff.
+ * 
+ * Cada impresora tiene un único escritor (un executor de un solo hilo): todas
+ * las operaciones que escriben en su conexión se ejecutan ahí, en orden, de
+ * modo que dos peticiones nunca intercalan ZPL en la misma impresora. No hay
+ * bloqueo global; impresoras distintas avanzan en paralelo.
+ * 
+ * En lugar de esperar un tiempo fijo tras imprimir, se envía ~HS detrás de la
+ * etiqueta y se espera su respuesta: la impresora procesa los comandos en
+ * orden, así que la respuesta confirma que recibió la etiqueta e informa si
+ * quedó en error.
+ * 
+ * Las etiquetas que invocan un formato almacenado (^XF) se envían precedidas
+ * de su descarga (^DF) si la conexión no lo tiene registrado, en la misma
+ * escritura; la versión anterior del formato de esa plantilla se borra con
+ * ^ID.
+ * 
+ * Las consultas de estado que no acompañan a una etiqueta (sondeos) van por
+ * el canal de estado Link-OS ({@link StatusChannelPool}), un socket aparte en
+ * el puerto 9200, para no esperar detrás de un trabajo largo en el 9100.
+ * 
+ * Con varios nodos solo se conecta a las impresoras que este nodo tiene
+ * arrendadas ({@link PrinterLeaseManager}); si pierde una, cierra su conexión
+ * para que el nuevo propietario pueda abrir la suya.
  */
 @Service
 public class ZebraPrinterServiceImpl implements ZebraPrinterService {
 
     private static final Logger logger = LoggerFactory.getLogger(ZebraPrinterServiceImpl.class);
     private static final int PUERTO_DEFECTO = 9100;
+    private static final Charset CHARSET_ZPL = StandardCharsets.UTF_8;
+    private static final int BLOQUES_EN_ESPERA = 4; // Bloques de un flujo leídos antes de que el escritor los tome
 
-    /**
-     * Clase interna para representar una conexión TCP a una impresora.
-     */
-    private static class PrinterConnection {
-        Socket socket;
-        PrintWriter writer;
-        BufferedReader reader;
-        boolean conectada;
-        String ip;
-        int puerto;
-        String nombre;
-        String tipo;
-
-        PrinterConnection(String ip, int puerto, String nombre, String tipo) {
-            this.ip = ip;
-            this.puerto = puerto;
-            this.nombre = nombre;
-            this.tipo = tipo;
-            this.conectada = false;
-        }
+    private final PrinterConnectionPool pool;
+    private final ZplTemplateRegistry templateRegistry;
+    private final PrinterMetrics metrics;
+    private final PrinterLeaseManager leases;
+    private final StatusChannelPool canalesEstado;
 
-        boolean isValid() {
-            return conectada && socket != null && !socket.isClosed();
-        }
+    @Value("${printer.status.timeout-ms:3000}")
+    private long statusTimeoutMs;
 
-        void close() throws IOException {
-            if (socket != null && !socket.isClosed()) {
-                if (writer != null)
-                    writer.close();
-                if (reader != null)
-                    reader.close();
-                socket.close();
-            }
-            conectada = false;
-        }
-    }
+    @Value("${printer.stream.buffer-size:16384}")
+    private int tamanoBloque; // Bytes leídos y enviados por bloque al imprimir un flujo
+
+    @Value("${printer.stream.read-timeout-ms:10000}")
+    private long timeoutLecturaMs; // Espera máxima del escritor por el siguiente bloque de un flujo
+
+    @Value("${printer.stream.max-bytes:16777216}")
+    private long maxBytesFlujo;
+
+    // Escritor único por impresora: printerId -> executor de un solo hilo
+    private final Map<Integer, ExecutorService> escritores = new ConcurrentHashMap<>();
 
-    // Conexión actual
-    private PrinterConnection conexionActual = null;
+    // Operaciones en curso o en espera en cada escritor: printerId -> cantidad
+    private final Map<Integer, AtomicInteger> ocupados = new ConcurrentHashMap<>();
+
+    // Última respuesta a ~HS por impresora: printerId -> estado
+    private final Map<Integer, HostStatus> ultimosEstados = new ConcurrentHashMap<>();
+
+    /**
+     * Constructor con inyección del pool de conexiones.
+     * 
+     * @param pool             Pool de conexiones TCP a impresoras
+     * @param templateRegistry Registro de plantillas con los formatos
+     *                         almacenados
+     * @param metrics          Métricas de impresoras
+     * @param leases           Propiedad de las impresoras entre nodos
+     * @param canalesEstado    Pool de canales de estado Link-OS
+     */
+    public ZebraPrinterServiceImpl(PrinterConnectionPool pool, ZplTemplateRegistry templateRegistry,
+            PrinterMetrics metrics, PrinterLeaseManager leases, StatusChannelPool canalesEstado) {
+        this.pool = pool;
+        this.templateRegistry = templateRegistry;
+        this.metrics = metrics;
+        this.leases = leases;
+        this.canalesEstado = canalesEstado;
+    }
 
-    // Map para gestionar múltiples impresoras por ID
-    private final Map<Integer, PrinterConnection> conexiones = new ConcurrentHashMap<>();
+    /**
+     * Cierra la conexión de las impresoras que este nodo pierde.
+     */
+    @PostConstruct
+    public void iniciar() {
+        leases.setAlPerder(this::desconectarImpresoraEspecifica);
+    }
 
     @Override
     public boolean conectarImpresora(PrinterDTO printerDTO) {
@@ -80,6 +148,10 @@ public class ZebraPrinterServiceImpl implements ZebraPrinterService {
             }
 
             int printerId = printerDTO.getId();
+            if (!leases.adquirir(printerId)) {
+                logger.debug("Impresora [{}] asignada a otro nodo, no se conecta", printerId);
+                return false;
+            }
             String tipo = printerDTO.getTipo() != null ? printerDTO.getTipo() : "TCP";
             String ip = printerDTO.getIp();
             int puerto = printerDTO.getPuerto() != null ? printerDTO.getPuerto() : PUERTO_DEFECTO;
@@ -87,12 +159,6 @@ public class ZebraPrinterServiceImpl implements ZebraPrinterService {
             logger.info("Intentando conectar a impresora [{}]: {} (tipo: {})", printerId,
                     printerDTO.getNombre(), tipo);
 
-            // Desconectar anterior si existe
-            desconectarImpresoraInterno(printerId);
-
-            // Crear nueva conexión
-            PrinterConnection conexion = new PrinterConnection(ip, puerto, printerDTO.getNombre(), tipo);
-
             // Conectar según el tipo
             switch (tipo.toUpperCase()) {
                 case "TCP":
@@ -102,17 +168,14 @@ public class ZebraPrinterServiceImpl implements ZebraPrinterService {
                         logger.error("IP es requerida para conexión TCP/WiFi");
                         return false;
                     }
-                    conectarTCP(conexion, ip, puerto);
                     break;
 
                 default:
                     logger.warn("Tipo de conexión desconocido: {}, usando TCP", tipo);
-                    conectarTCP(conexion, ip, puerto);
                     break;
             }
 
-            conexiones.put(printerId, conexion);
-            this.conexionActual = conexion;
+            pool.obtener(printerId, ip, puerto, printerDTO.getNombre(), tipo);
 
             logger.info("Conexión exitosa con impresora [{}]: {} ({})", printerId,
                     printerDTO.getNombre(), tipo);
@@ -125,96 +188,133 @@ public class ZebraPrinterServiceImpl implements ZebraPrinterService {
     }
 
     /**
-     * Conecta vía TCP/IP (WiFi, Ethernet).
+     * Codifica el comando una sola vez y lo envía por la conexión, esperando a
+     * que el transporte confirme la escritura (acotada por el timeout de
+     * escritura). Si falla, la conexión se invalida en el pool para que se
+     * reconecte. Solo debe llamarse desde el escritor de la impresora.
      */
-    private void conectarTCP(PrinterConnection conexion, String host, int puerto) throws IOException {
-        logger.debug("Conectando por TCP a {}:{}", host, puerto);
-        conexion.socket = new Socket(host, puerto);
-        conexion.socket.setKeepAlive(true);
-        conexion.socket.setSoTimeout(5000);
+    private void escribir(PrinterConnection conexion, String comando) throws IOException {
+        escribir(conexion, comando.getBytes(CHARSET_ZPL));
+    }
 
-        OutputStream output = conexion.socket.getOutputStream();
-        InputStream input = conexion.socket.getInputStream();
+    private void escribir(PrinterConnection conexion, byte[] datos) throws IOException {
+        escribir(conexion, ByteBuffer.wrap(datos));
+    }
 
-        conexion.writer = new PrintWriter(new OutputStreamWriter(output), true);
-        conexion.reader = new BufferedReader(new InputStreamReader(input));
+    private void escribir(PrinterConnection conexion, ByteBuffer datos) throws IOException {
+        int bytes = datos.remaining();
+        long inicio = System.nanoTime();
+        try {
+            conexion.escribir(datos).get();
+            metrics.escritura(conexion.getPrinterId(), bytes, System.nanoTime() - inicio);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Escritura interrumpida", e);
+        } catch (ExecutionException e) {
+            pool.invalidar(conexion.getPrinterId(), e.getCause());
+            throw new IOException("Error de escritura: " + e.getCause(), e);
+        }
+    }
 
-        conexion.conectada = true;
-        logger.info("Conexión TCP establecida: {}:{}", host, puerto);
+    /**
+     * Espera la confirmación ~HS de una etiqueta y la guarda como último estado
+     * de la impresora. Si la impresora no confirma a tiempo, la conexión se
+     * invalida: la etiqueta no se puede dar por impresa.
+     */
+    private HostStatus esperarEstado(PrinterConnection conexion, CompletableFuture<HostStatus> consulta)
+            throws IOException {
+        return esperarEstado(conexion, consulta, true);
     }
 
-    @Override
-    public boolean desconectarImpresora() {
-        if (conexionActual != null) {
-            try {
-                conexionActual.close();
-                conexionActual = null;
-                logger.info("Desconexión exitosa");
-                return true;
-            } catch (Exception e) {
-                logger.error("Error al desconectar: {}", e.getMessage(), e);
-                return false;
+    /**
+     * Espera la respuesta a una consulta de estado y la guarda como último
+     * estado de la impresora.
+     *
+     * Una consulta que expira sigue en la cola del lector, así que su
+     * respuesta tardía no se desalinea con las siguientes; por eso una consulta
+     * de sondeo que expira no invalida la conexión de impresión.
+     */
+    private HostStatus esperarEstado(PrinterConnection conexion, CompletableFuture<HostStatus> consulta,
+            boolean invalidarSiExpira) throws IOException {
+        try {
+            HostStatus estado = consulta.get();
+            ultimosEstados.put(conexion.getPrinterId(), estado);
+            return estado;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Consulta de estado interrumpida", e);
+        } catch (ExecutionException e) {
+            if (invalidarSiExpira && e.getCause() instanceof TimeoutException) {
+                pool.invalidar(conexion.getPrinterId(), new IOException("La impresora no respondió a ~HS"));
             }
+            throw new IOException("Error al consultar estado: " + e.getCause(), e);
         }
-        return true;
     }
 
-    @Override
-    public boolean desconectarImpresoraEspecifica(int printerId) {
-        PrinterConnection conexion = conexiones.remove(printerId);
-        if (conexion != null) {
-            try {
-                conexion.close();
-                if (conexionActual == conexion) {
-                    conexionActual = null;
-                }
-                logger.info("Desconexión exitosa de impresora [{}]", printerId);
-                return true;
-            } catch (Exception e) {
-                logger.error("Error al desconectar impresora [{}]: {}", printerId, e.getMessage(), e);
-                return false;
-            }
+    /**
+     * Ejecuta una operación en el escritor de la impresora y espera su
+     * resultado. Las operaciones de una misma impresora se ejecutan en orden de
+     * llegada y nunca en paralelo.
+     */
+    private <T> T ejecutarEnImpresora(int printerId, Callable<T> operacion) throws Exception {
+        ExecutorService escritor = escritores.computeIfAbsent(printerId,
+                id -> Executors.newSingleThreadExecutor(Thread.ofVirtual().name("zebra-writer-" + id).factory()));
+        AtomicInteger ocupado = ocupados.computeIfAbsent(printerId, id -> new AtomicInteger());
+        ocupado.incrementAndGet();
+        try {
+            return escritor.submit(operacion).get();
+        } catch (ExecutionException e) {
+            Throwable causa = e.getCause();
+            throw causa instanceof Exception ? (Exception) causa : e;
+        } finally {
+            ocupado.decrementAndGet();
         }
-        return true;
     }
 
-    private void desconectarImpresoraInterno(int printerId) {
-        PrinterConnection conexion = conexiones.get(printerId);
-        if (conexion != null) {
-            try {
-                conexion.close();
-                conexiones.remove(printerId);
-                logger.info("Desconexión interna de impresora [{}]", printerId);
-            } catch (Exception e) {
-                logger.error("Error al desconectar internamente impresora [{}]: {}", printerId,
-                        e.getMessage(), e);
-            }
+    /**
+     * Consulta ~HS/~HQES por la conexión de impresión, en el escritor de la
+     * impresora para no intercalarse con una etiqueta. Si el escritor está
+     * ocupado (un trabajo largo o en pausa por control de flujo) no espera
+     * detrás del trabajo: retorna el último estado conocido.
+     *
+     * @return Optional con el estado, vacío si no está conectada, no responde
+     *         o está ocupada sin estado previo
+     */
+    private Optional<HostStatus> consultarPorConexion(int printerId) {
+        PrinterConnection conexion = obtenerConexionValida(printerId);
+        if (conexion == null) {
+            return Optional.empty();
+        }
+        AtomicInteger ocupado = ocupados.get(printerId);
+        if (ocupado != null && ocupado.get() > 0) {
+            logger.debug("Impresora [{}] ocupada, se usa el último estado conocido", printerId);
+            return Optional.ofNullable(ultimosEstados.get(printerId));
         }
-    }
 
-    @Override
-    public boolean enviarComandoZPL(String comando) {
-        if (conexionActual == null || !conexionActual.isValid()) {
-            logger.error("Conexión no disponible");
-            return false;
+        try {
+            return Optional.of(ejecutarEnImpresora(printerId, () -> esperarEstado(conexion,
+                    conexion.consultarEstadoExtendido(statusTimeoutMs), false)));
+        } catch (Exception e) {
+            logger.debug("Impresora [{}] no respondió a la consulta de estado: {}", printerId, e.getMessage());
+            return Optional.empty();
         }
+    }
 
+    @Override
+    public boolean desconectarImpresoraEspecifica(int printerId) {
         try {
-            logger.debug("Enviando comando ZPL");
-            conexionActual.writer.println(comando);
-            conexionActual.writer.flush();
-            logger.info("Comando enviado exitosamente");
+            canalesEstado.cerrar(printerId);
+            if (pool.cerrar(printerId)) {
+                logger.info("Desconexión exitosa de impresora [{}]", printerId);
+            }
             return true;
         } catch (Exception e) {
-            logger.error("Error al enviar comando: {}", e.getMessage(), e);
-            conexionActual.conectada = false;
+            logger.error("Error al desconectar impresora [{}]: {}", printerId, e.getMessage(), e);
             return false;
         }
     }
 
-    /**
-     * Envía un comando ZPL a una impresora específica (por ID).
-     */
+    @Override
     public boolean enviarComandoZPL(int printerId, String comando) {
         PrinterConnection conexion = obtenerConexionValida(printerId);
         if (conexion == null) {
@@ -224,145 +324,329 @@ public class ZebraPrinterServiceImpl implements ZebraPrinterService {
 
         try {
             logger.debug("Enviando comando ZPL a impresora [{}]", printerId);
-            conexion.writer.println(comando);
-            conexion.writer.flush();
+            ejecutarEnImpresora(printerId, () -> {
+                escribir(conexion, comando);
+                return null;
+            });
             logger.info("Comando enviado exitosamente a impresora [{}]", printerId);
             return true;
         } catch (Exception e) {
             logger.error("Error al enviar comando a impresora [{}]: {}", printerId, e.getMessage(), e);
-            conexion.conectada = false;
             return false;
         }
     }
 
     @Override
-    public boolean imprimirEtiqueta(String templateZPL, int cantidad) {
-        if (conexionActual == null || !conexionActual.isValid()) {
-            logger.error("Conexión no disponible");
+    public boolean imprimirEtiqueta(int printerId, String templateZPL, int cantidad) {
+        PrinterConnection conexion = obtenerConexionValida(printerId);
+        if (conexion == null) {
+            logger.error("Conexión no disponible para impresora [{}]", printerId);
             return false;
         }
 
-        try {
-            String comando = ajustarQuantity(templateZPL, cantidad);
-            logger.info("Imprimiendo {} etiqueta(s)", cantidad);
-            conexionActual.writer.println(comando);
-            conexionActual.writer.flush();
-            Thread.sleep(100);
-            logger.info("Etiqueta(s) impresa(s) exitosamente");
-            return true;
+        String comando = ZplFormato.ajustarCantidad(templateZPL, cantidad);
+        logger.info("Imprimiendo {} etiqueta(s) en impresora [{}]", cantidad, printerId);
+        return enviarEtiqueta(conexion, comando.getBytes(CHARSET_ZPL));
+    }
 
-        } catch (Exception e) {
-            logger.error("Error al imprimir: {}", e.getMessage(), e);
-            conexionActual.conectada = false;
+    @Override
+    public boolean imprimirZPL(int printerId, byte[] datosZPL) {
+        PrinterConnection conexion = obtenerConexionValida(printerId);
+        if (conexion == null) {
+            logger.error("Conexión no disponible para impresora [{}]", printerId);
             return false;
         }
+
+        logger.info("Imprimiendo etiqueta renderizada ({} bytes) en impresora [{}]", datosZPL.length, printerId);
+        return enviarEtiqueta(conexion, datosZPL);
     }
 
-    /**
-     * Imprime una etiqueta en una impresora específica (por ID).
-     */
-    public boolean imprimirEtiqueta(int printerId, String templateZPL, int cantidad) {
+    @Override
+    public boolean imprimirFlujo(int printerId, InputStream datos, int cantidad) {
         PrinterConnection conexion = obtenerConexionValida(printerId);
         if (conexion == null) {
             logger.error("Conexión no disponible para impresora [{}]", printerId);
             return false;
         }
 
+        logger.info("Imprimiendo flujo ZPL en impresora [{}] ({} copia(s))", printerId, cantidad);
         try {
-            String comando = ajustarQuantity(templateZPL, cantidad);
-            logger.info("Imprimiendo {} etiqueta(s) en impresora [{}]", cantidad, printerId);
-            conexion.writer.println(comando);
-            conexion.writer.flush();
-            Thread.sleep(100);
-            logger.info("Etiqueta(s) impresa(s) exitosamente en impresora [{}]", printerId);
+            // El cuerpo se lee en este hilo; el escritor solo espera bloques, con timeout
+            BlockingQueue<BloqueFlujo> bloques = new ArrayBlockingQueue<>(BLOQUES_EN_ESPERA);
+            CompletableFuture<HostStatus> envio = new CompletableFuture<>();
+            Thread.ofVirtual().name("zebra-stream-" + printerId).start(() -> {
+                try {
+                    envio.complete(ejecutarEnImpresora(printerId, () -> {
+                        long total = enviarFlujo(conexion, bloques, cantidad);
+                        logger.debug("Flujo de {} bytes enviado a impresora [{}]", total, printerId);
+                        return esperarEstado(conexion, conexion.consultarEstado(statusTimeoutMs));
+                    }));
+                } catch (Exception e) {
+                    envio.completeExceptionally(e);
+                }
+            });
+            leerFlujo(datos, bloques, envio);
+
+            HostStatus estado;
+            try {
+                estado = envio.get();
+            } catch (ExecutionException e) {
+                Throwable causa = e.getCause();
+                throw causa instanceof Exception ? (Exception) causa : e;
+            }
+            if (estado.tieneError()) {
+                throw new IllegalStateException("Etiqueta enviada pero la impresora [" + printerId
+                        + "] reporta " + estado.getEstado());
+            }
+            logger.info("Flujo ZPL impreso exitosamente en impresora [{}]", printerId);
             return true;
 
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            logger.warn(e.getMessage());
+            throw e;
         } catch (Exception e) {
-            logger.error("Error al imprimir en impresora [{}]: {}", printerId, e.getMessage(), e);
-            conexion.conectada = false;
+            logger.error("Error al imprimir flujo en impresora [{}]: {}", printerId, e.getMessage(), e);
             return false;
         }
     }
 
     /**
-     * Ajusta la cantidad de etiquetas en el comando ZPL.
+     * Bloque de un flujo leído del cliente. Una longitud negativa marca el fin
+     * del flujo; un error, que la lectura se interrumpió.
      */
-    private String ajustarQuantity(String templateZPL, int cantidad) {
-        if (cantidad <= 1) {
-            return templateZPL;
+    private record BloqueFlujo(byte[] datos, int longitud, String error) {
+
+        private static final BloqueFlujo FIN = new BloqueFlujo(null, -1, null);
+
+        private static BloqueFlujo fallido(String error) {
+            return new BloqueFlujo(null, -1, error);
         }
+    }
 
-        if (templateZPL.contains("^PQ")) {
-            return templateZPL.replaceAll("\\^PQ\\d+", "^PQ" + cantidad);
-        } else if (templateZPL.contains("^XZ")) {
-            return templateZPL.replace("^XZ", "^PQ" + cantidad + "^XZ");
-        } else {
-            return templateZPL + "^PQ" + cantidad;
+    /**
+     * Lee el flujo del cliente en bloques de printer.stream.buffer-size bytes y
+     * los entrega al escritor. Deja de leer si el envío ya terminó (por error o
+     * timeout) y corta el flujo al superar printer.stream.max-bytes.
+     */
+    private void leerFlujo(InputStream datos, BlockingQueue<BloqueFlujo> bloques, CompletableFuture<?> envio)
+            throws InterruptedException {
+        long total = 0;
+        while (true) {
+            byte[] bloque = new byte[tamanoBloque];
+            int leidos;
+            try {
+                leidos = datos.read(bloque);
+            } catch (IOException e) {
+                entregar(bloques, envio, BloqueFlujo.fallido("Error al leer el flujo tras " + total + " bytes: "
+                        + e.getMessage()));
+                return;
+            }
+            if (leidos < 0) {
+                entregar(bloques, envio, BloqueFlujo.FIN);
+                return;
+            }
+            total += leidos;
+            if (total > maxBytesFlujo) {
+                entregar(bloques, envio, BloqueFlujo.fallido("La etiqueta excede el tamaño máximo del flujo ("
+                        + maxBytesFlujo + " bytes)"));
+                return;
+            }
+            if (leidos > 0 && !entregar(bloques, envio, new BloqueFlujo(bloque, leidos, null))) {
+                return;
+            }
         }
     }
 
-    @Override
-    public String obtenerEstadoImpresora() {
-        if (conexionActual == null || !conexionActual.isValid()) {
-            return "DESCONECTADA";
+    /**
+     * Encola un bloque para el escritor.
+     *
+     * @return false si el envío terminó antes de poder entregarlo
+     */
+    private static boolean entregar(BlockingQueue<BloqueFlujo> bloques, CompletableFuture<?> envio,
+            BloqueFlujo bloque) throws InterruptedException {
+        while (!envio.isDone()) {
+            if (bloques.offer(bloque, 100, TimeUnit.MILLISECONDS)) {
+                return true;
+            }
         }
+        return false;
+    }
 
+    /**
+     * Copia a la conexión los bloques que entrega {@link #leerFlujo}. Si el
+     * cliente no envía el siguiente bloque en printer.stream.read-timeout-ms o
+     * la lectura falla a mitad de una etiqueta, la conexión se cierra para que
+     * la etiqueta incompleta no se mezcle con el siguiente trabajo. Solo debe
+     * llamarse desde el escritor de la impresora.
+     *
+     * @return Bytes recibidos del flujo
+     * @throws IllegalArgumentException si el flujo se interrumpe, excede el
+     *                                  tamaño máximo o no llega a tiempo
+     */
+    private long enviarFlujo(PrinterConnection conexion, BlockingQueue<BloqueFlujo> bloques, int cantidad)
+            throws IOException, InterruptedException {
+        ZplBuffer salida = new ZplBuffer(tamanoBloque + 64);
+        ZplCantidadFiltro filtro = new ZplCantidadFiltro(cantidad);
+        long total = 0;
+        while (true) {
+            BloqueFlujo bloque = bloques.poll(timeoutLecturaMs, TimeUnit.MILLISECONDS);
+            if (bloque == null || bloque.error() != null) {
+                String motivo = bloque == null
+                        ? "El flujo no envió datos en " + timeoutLecturaMs + " ms tras " + total + " bytes"
+                        : bloque.error();
+                if (total > 0) {
+                    // La falla es del cliente, no de la impresora: se cierra sin esperar backoff para reconectar
+                    logger.warn("Conexión con impresora [{}] cerrada por un flujo incompleto: {}",
+                            conexion.getPrinterId(), motivo);
+                    pool.cerrar(conexion.getPrinterId());
+                }
+                throw new IllegalArgumentException(motivo);
+            }
+            if (bloque.longitud() < 0) {
+                break;
+            }
+            salida.reiniciar();
+            filtro.filtrar(bloque.datos(), bloque.longitud(), salida);
+            if (salida.getTamano() > 0) {
+                escribir(conexion, salida.comoByteBuffer());
+            }
+            total += bloque.longitud();
+        }
+        salida.reiniciar();
+        filtro.terminar(salida);
+        if (salida.getTamano() > 0) {
+            escribir(conexion, salida.comoByteBuffer());
+        }
+        return total;
+    }
+
+    /**
+     * Envía la etiqueta en el escritor de la impresora y confirma con ~HS.
+     */
+    private boolean enviarEtiqueta(PrinterConnection conexion, byte[] datos) {
+        int printerId = conexion.getPrinterId();
         try {
-            conexionActual.writer.println("^XA^HH^XZ");
-            conexionActual.writer.flush();
-            return "CONECTADA";
+            HostStatus estado = ejecutarEnImpresora(printerId, () -> {
+                List<FormatoAlmacenado> faltantes = formatosFaltantes(conexion, datos);
+                escribir(conexion, faltantes.isEmpty() ? datos : anteponerFormatos(conexion, faltantes, datos));
+                HostStatus respuesta = esperarEstado(conexion, conexion.consultarEstado(statusTimeoutMs));
+                // La respuesta a ~HS confirma que la impresora procesó también las descargas
+                for (FormatoAlmacenado formato : faltantes) {
+                    conexion.registrarFormato(formato.getPlantilla(), formato.getNombre());
+                }
+                return respuesta;
+            });
+            if (estado.tieneError()) {
+                throw new IllegalStateException("Etiqueta enviada pero la impresora [" + printerId
+                        + "] reporta " + estado.getEstado());
+            }
+            logger.info("Etiqueta(s) impresa(s) exitosamente en impresora [{}]", printerId);
+            return true;
+
+        } catch (IllegalStateException e) {
+            logger.warn(e.getMessage());
+            throw e;
         } catch (Exception e) {
-            logger.error("Error obtener estado: {}", e.getMessage());
-            conexionActual.conectada = false;
-            return "ERROR";
+            logger.error("Error al imprimir en impresora [{}]: {}", printerId, e.getMessage(), e);
+            return false;
         }
     }
 
     /**
-     * Obtiene el estado de una impresora específica (por ID).
+     * Obtiene los formatos que invocan los datos y que la impresora no tiene.
+     * Solo debe llamarse desde el escritor de la impresora.
      */
+    private List<FormatoAlmacenado> formatosFaltantes(PrinterConnection conexion, byte[] datos) {
+        List<FormatoAlmacenado> faltantes = new ArrayList<>();
+        for (String nombre : FormatoAlmacenado.buscarReferencias(datos)) {
+            templateRegistry.obtenerFormato(nombre)
+                    .filter(formato -> !nombre.equals(conexion.getFormatoCargado(formato.getPlantilla())))
+                    .ifPresent(faltantes::add);
+        }
+        return faltantes;
+    }
+
+    private byte[] anteponerFormatos(PrinterConnection conexion, List<FormatoAlmacenado> formatos, byte[] datos) {
+        ZplBuffer buffer = new ZplBuffer();
+        for (FormatoAlmacenado formato : formatos) {
+            String anterior = conexion.getFormatoCargado(formato.getPlantilla());
+            if (anterior != null) {
+                buffer.agregar(FormatoAlmacenado.comandoBorrado(anterior));
+            }
+            buffer.agregar(formato.getDescarga());
+            logger.info("Descargando formato {} a impresora [{}]", formato.getNombre(), conexion.getPrinterId());
+        }
+        buffer.agregar(datos);
+        return buffer.toByteArray();
+    }
+
+    @Override
     public String obtenerEstadoImpresora(int printerId) {
-        PrinterConnection conexion = obtenerConexionValida(printerId);
-        if (conexion == null) {
+        if (obtenerConexionValida(printerId) == null) {
             return "DESCONECTADA";
         }
+        Optional<HostStatus> estado = consultarPorConexion(printerId);
+        if (estado.isEmpty()) {
+            logger.error("Error obtener estado impresora [{}]: sin respuesta", printerId);
+            return "ERROR";
+        }
+        return estado.get().getEstado();
+    }
+
+    @Override
+    public Optional<HostStatus> consultarEstadoHost(int printerId) {
+        return consultarPorConexion(printerId);
+    }
 
+    @Override
+    public Optional<HostStatus> consultarEstadoCanal(PrinterDTO printerDTO) {
+        if (!canalesEstado.isHabilitado() || printerDTO.getIp() == null) {
+            return Optional.empty();
+        }
+        int printerId = printerDTO.getId();
         try {
-            conexion.writer.println("^XA^HH^XZ");
-            conexion.writer.flush();
-            return "CONECTADA";
-        } catch (Exception e) {
-            logger.error("Error obtener estado impresora [{}]: {}", printerId, e.getMessage());
-            conexion.conectada = false;
-            return "ERROR";
+            HostStatus estado = canalesEstado.consultarEstado(printerId, printerDTO.getIp()).get();
+            ultimosEstados.put(printerId, estado);
+            return Optional.of(estado);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Optional.empty();
+        } catch (ExecutionException e) {
+            logger.debug("Impresora [{}] no respondió por el canal de estado: {}", printerId,
+                    e.getCause().getMessage());
+            return Optional.empty();
         }
     }
 
     @Override
-    public boolean estaConectada() {
-        return conexionActual != null && conexionActual.isValid();
+    public Optional<HostStatus> obtenerUltimoEstadoHost(int printerId) {
+        return Optional.ofNullable(ultimosEstados.get(printerId));
     }
 
     @Override
     public boolean estaConectada(int printerId) {
-        PrinterConnection conexion = conexiones.get(printerId);
-        return conexion != null && conexion.isValid();
+        return pool.estaConectada(printerId);
     }
 
     /**
      * Obtiene una conexión válida para una impresora, o null si no está conectada.
      */
     private PrinterConnection obtenerConexionValida(int printerId) {
-        PrinterConnection conexion = conexiones.get(printerId);
-        return (conexion != null && conexion.isValid()) ? conexion : null;
+        return pool.obtenerExistente(printerId).orElse(null);
+    }
+
+    @Override
+    public int obtenerNumeroConexionesActivas() {
+        return pool.conexionesActivas();
     }
 
     /**
-     * Obtiene el número de conexiones activas.
+     * Detiene los escritores de las impresoras al apagar la aplicación.
      */
-    public int obtenerNumeroConexionesActivas() {
-        return (int) conexiones.values().stream().filter(PrinterConnection::isValid).count() +
-                (estaConectada() ? 1 : 0);
+    @PreDestroy
+    public void detener() {
+        escritores.values().forEach(ExecutorService::shutdownNow);
+        escritores.clear();
     }
 
 }
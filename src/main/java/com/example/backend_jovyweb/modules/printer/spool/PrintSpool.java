@@ -0,0 +1,498 @@
+package com.example.backend_jovyweb.modules.printer.spool;
+
+import com.example.backend_jovyweb.modules.printer.model.PrintJob;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Spool local de trabajos de impresión resistente a reinicios.
+ *
+ * Cada trabajo aceptado se agrega a un diario (journal) de solo anexado,
+ * repartido en segmentos de tamaño fijo mapeados en memoria
+ * (spool-NNNNNN.log). Cuando el trabajo termina, con éxito o con error, se
+ * agrega una marca de fin. Al arrancar se leen los segmentos y los trabajos
+ * sin marca de fin se devuelven en {@link #recuperar()} para reencolarlos.
+ *
+ * Formato de registro: longitud (int), tipo (byte), contenido y CRC32 del
+ * tipo y contenido. En el alta, un byte de banderas indica si hay ubicación
+ * (bit 0) y la prioridad del trabajo (bits 1-2). La lectura de un segmento se detiene en el primer
+ * registro vacío o con CRC inválido (escritura interrumpida).
+ *
+ * Confirmación agrupada (group commit): las escrituras solo copian bytes al
+ * mapeo; un hilo confirmador fuerza el segmento a disco con todo lo acumulado
+ * y despierta a la vez a todos los que esperaban, así que no hay un fsync por
+ * trabajo. Las marcas de fin no se esperan: si se pierden, el trabajo se
+ * vuelve a imprimir al reiniciar (entrega al menos una vez).
+ *
+ * Compactación: los segmentos se eliminan en orden, del más antiguo al más
+ * nuevo, cuando ya no tienen trabajos pendientes; así una marca de fin nunca
+ * desaparece antes que el registro que cierra. Al cambiar de segmento, los
+ * trabajos que siguen pendientes en el más antiguo se copian al segmento
+ * nuevo para que un trabajo lento no impida liberar espacio.
+ */
+@Component
+public class PrintSpool {
+
+    private static final Logger logger = LoggerFactory.getLogger(PrintSpool.class);
+
+    private static final byte REGISTRO_ALTA = 1;
+    private static final byte REGISTRO_FIN = 2;
+    private static final byte DATOS_TEXTO = 0;
+    private static final byte DATOS_BYTES = 1;
+    private static final int BANDERA_UBICACION = 1;
+    private static final String PREFIJO = "spool-";
+    private static final String EXTENSION = ".log";
+
+    @Value("${printer.spool.enabled:true}")
+    private boolean habilitado;
+
+    @Value("${printer.spool.dir:spool}")
+    private String directorio;
+
+    @Value("${printer.spool.segment-size:16777216}")
+    private int tamanoSegmento;
+
+    @Value("${printer.spool.sync-commit:true}")
+    private boolean esperarConfirmacion; // Aceptar un trabajo solo cuando ya está en disco
+
+    /**
+     * Segmento del diario. Solo el activo (el último) está mapeado.
+     */
+    private static class Segmento {
+        final long numero;
+        final Path ruta;
+        MappedByteBuffer mapeo;
+        int pendientes; // Trabajos cuyo alta está en este segmento y no han terminado
+
+        Segmento(long numero, Path ruta) {
+            this.numero = numero;
+            this.ruta = ruta;
+        }
+    }
+
+    /**
+     * Trabajo pendiente y segmento donde está su alta.
+     */
+    private static class Entrada {
+        final PrintJob job;
+        Segmento segmento;
+
+        Entrada(PrintJob job, Segmento segmento) {
+            this.job = job;
+            this.segmento = segmento;
+        }
+    }
+
+    // Todo el estado siguiente se protege con el monitor de esta instancia
+    private final Deque<Segmento> segmentos = new ArrayDeque<>();
+    private final Map<String, Entrada> pendientes = new HashMap<>();
+    private final CRC32 crc = new CRC32();
+    private Segmento actual;
+    private long escrito; // Bytes lógicos escritos desde el arranque
+    private List<PrintJob> recuperados = new ArrayList<>();
+
+    private final Object monitorConfirmacion = new Object();
+    private volatile long confirmado; // Bytes lógicos ya forzados a disco
+    private volatile boolean activo;
+    private Thread confirmador;
+
+    @PostConstruct
+    public void iniciar() {
+        if (!habilitado) {
+            logger.info("Spool de impresión deshabilitado");
+            return;
+        }
+        try {
+            Path raiz = Paths.get(directorio);
+            Files.createDirectories(raiz);
+            synchronized (this) {
+                leerSegmentos(raiz);
+                long siguiente = segmentos.isEmpty() ? 1 : segmentos.peekLast().numero + 1;
+                abrirSegmento(raiz, siguiente);
+                eliminarSegmentosTerminados();
+            }
+        } catch (IOException e) {
+            logger.error("No se pudo abrir el spool de impresión en {}; los trabajos no sobrevivirán a un reinicio: {}",
+                    directorio, e.getMessage(), e);
+            return;
+        }
+
+        activo = true;
+        confirmador = Thread.ofPlatform().name("print-spool-commit").daemon(true).start(this::confirmar);
+        logger.info("Spool de impresión abierto en {} ({} trabajos por reanudar)", directorio, recuperados.size());
+    }
+
+    /**
+     * Lee los segmentos existentes en orden y reconstruye los trabajos que no
+     * tienen marca de fin.
+     */
+    private void leerSegmentos(Path raiz) throws IOException {
+        List<Path> archivos;
+        try (Stream<Path> listado = Files.list(raiz)) {
+            archivos = listado
+                    .filter(p -> p.getFileName().toString().startsWith(PREFIJO)
+                            && p.getFileName().toString().endsWith(EXTENSION))
+                    .sorted()
+                    .toList();
+        }
+
+        Map<String, Entrada> encontrados = new LinkedHashMap<>();
+        for (Path archivo : archivos) {
+            String nombre = archivo.getFileName().toString();
+            long numero = Long.parseLong(nombre.substring(PREFIJO.length(), nombre.length() - EXTENSION.length()));
+            Segmento segmento = new Segmento(numero, archivo);
+            segmentos.add(segmento);
+
+            ByteBuffer contenido = ByteBuffer.wrap(Files.readAllBytes(archivo));
+            while (contenido.remaining() >= 4) {
+                int inicio = contenido.position();
+                int longitud = contenido.getInt();
+                if (longitud <= 0 || longitud + 4 > contenido.remaining()) {
+                    break;
+                }
+                ByteBuffer registro = contenido.slice(inicio + 4, longitud);
+                crc.reset();
+                crc.update(registro.duplicate());
+                if ((int) crc.getValue() != contenido.getInt(inicio + 4 + longitud)) {
+                    logger.warn("Registro inválido en {} (posición {}); se ignora el resto del segmento", nombre, inicio);
+                    break;
+                }
+                contenido.position(inicio + 4 + longitud + 4);
+
+                byte tipo = registro.get();
+                String jobId = leerTexto(registro);
+                if (tipo == REGISTRO_ALTA) {
+                    encontrados.put(jobId, new Entrada(leerTrabajo(jobId, registro), segmento));
+                } else if (tipo == REGISTRO_FIN) {
+                    encontrados.remove(jobId);
+                }
+            }
+        }
+
+        for (Map.Entry<String, Entrada> pendiente : encontrados.entrySet()) {
+            Entrada entrada = pendiente.getValue();
+            entrada.segmento.pendientes++;
+            pendientes.put(pendiente.getKey(), entrada);
+            recuperados.add(entrada.job);
+        }
+    }
+
+    private PrintJob leerTrabajo(String jobId, ByteBuffer registro) {
+        int printerId = registro.getInt();
+        int cantidad = registro.getInt();
+        byte banderas = registro.get();
+        String ubicacion = (banderas & BANDERA_UBICACION) != 0 ? leerTexto(registro) : null;
+        // Los registros anteriores a las prioridades tienen 0 y se leen como NORMAL
+        int codigoPrioridad = (banderas >> 1) & 0x3;
+        PrintJob.Prioridad prioridad = codigoPrioridad == 0
+                ? PrintJob.Prioridad.NORMAL
+                : PrintJob.Prioridad.values()[codigoPrioridad - 1];
+        byte tipoDatos = registro.get();
+        byte[] datos = new byte[registro.getInt()];
+        registro.get(datos);
+        return tipoDatos == DATOS_TEXTO
+                ? new PrintJob(jobId, printerId, new String(datos, StandardCharsets.UTF_8), null, cantidad, ubicacion,
+                        prioridad)
+                : new PrintJob(jobId, printerId, null, datos, cantidad, ubicacion, prioridad);
+    }
+
+    private static String leerTexto(ByteBuffer registro) {
+        byte[] texto = new byte[registro.getShort() & 0xFFFF];
+        registro.get(texto);
+        return new String(texto, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Entrega una sola vez los trabajos sin terminar encontrados al arrancar.
+     *
+     * @return Trabajos por reanudar, en el orden en que se aceptaron
+     */
+    public synchronized List<PrintJob> recuperar() {
+        List<PrintJob> resultado = recuperados;
+        recuperados = new ArrayList<>();
+        return resultado;
+    }
+
+    /**
+     * Agrega el alta de un trabajo al diario sin esperar a que llegue a disco.
+     *
+     * @param job Trabajo aceptado
+     * @return Posición que debe pasarse a {@link #confirmar(long)}
+     * @throws IllegalArgumentException si el trabajo no cabe en un segmento
+     * @throws IllegalStateException    si no se pudo escribir en el spool
+     */
+    public synchronized long registrar(PrintJob job) {
+        if (!activo) {
+            return 0;
+        }
+        byte[] id = job.getId().getBytes(StandardCharsets.UTF_8);
+        byte[] ubicacion = job.getUbicacion() != null ? job.getUbicacion().getBytes(StandardCharsets.UTF_8) : null;
+        byte[] datos = datosDe(job);
+
+        int longitud = longitudAlta(id, ubicacion, datos);
+        if (longitud + 8 > tamanoSegmento) {
+            throw new IllegalArgumentException("La etiqueta excede el tamaño máximo del spool (" + tamanoSegmento
+                    + " bytes)");
+        }
+
+        MappedByteBuffer mapeo = reservar(longitud);
+        int inicio = mapeo.position();
+        mapeo.putInt(longitud);
+        mapeo.put(REGISTRO_ALTA);
+        escribirTexto(mapeo, id);
+        mapeo.putInt(job.getPrinterId());
+        mapeo.putInt(job.getCantidad());
+        mapeo.put((byte) ((ubicacion != null ? BANDERA_UBICACION : 0) | (job.getPrioridad().ordinal() + 1) << 1));
+        if (ubicacion != null) {
+            escribirTexto(mapeo, ubicacion);
+        }
+        mapeo.put(job.getDatosZPL() != null ? DATOS_BYTES : DATOS_TEXTO);
+        mapeo.putInt(datos.length);
+        mapeo.put(datos);
+        cerrarRegistro(mapeo, inicio, longitud);
+
+        pendientes.put(job.getId(), new Entrada(job, actual));
+        actual.pendientes++;
+        return escrito;
+    }
+
+    private static byte[] datosDe(PrintJob job) {
+        return job.getDatosZPL() != null
+                ? job.getDatosZPL()
+                : job.getTemplateZPL().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int longitudAlta(byte[] id, byte[] ubicacion, byte[] datos) {
+        return 1 + 2 + id.length + 4 + 4 + 1 + (ubicacion != null ? 2 + ubicacion.length : 0) + 1 + 4 + datos.length;
+    }
+
+    /**
+     * Espera a que el diario esté en disco hasta la posición indicada. Varios
+     * hilos esperando se liberan con un mismo fsync.
+     *
+     * @param posicion Posición devuelta por {@link #registrar(PrintJob)}
+     */
+    public void confirmar(long posicion) {
+        if (!esperarConfirmacion || !activo) {
+            return;
+        }
+        synchronized (monitorConfirmacion) {
+            while (confirmado < posicion && activo) {
+                try {
+                    monitorConfirmacion.wait(100);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Agrega la marca de fin de un trabajo y libera los segmentos que quedaron
+     * sin pendientes. No espera a que la marca llegue a disco.
+     *
+     * @param job Trabajo completado o fallido
+     */
+    public synchronized void finalizar(PrintJob job) {
+        Entrada entrada = pendientes.remove(job.getId());
+        if (entrada == null || !activo) {
+            return;
+        }
+        try {
+            byte[] id = job.getId().getBytes(StandardCharsets.UTF_8);
+            int longitud = 1 + 2 + id.length;
+            MappedByteBuffer mapeo = reservar(longitud);
+            int inicio = mapeo.position();
+            mapeo.putInt(longitud);
+            mapeo.put(REGISTRO_FIN);
+            escribirTexto(mapeo, id);
+            cerrarRegistro(mapeo, inicio, longitud);
+        } catch (IllegalStateException e) {
+            logger.error("No se pudo registrar el fin del trabajo {} en el spool: {}", job.getId(), e.getMessage());
+        }
+        entrada.segmento.pendientes--;
+        eliminarSegmentosTerminados();
+    }
+
+    private static void escribirTexto(MappedByteBuffer mapeo, byte[] texto) {
+        mapeo.putShort((short) texto.length);
+        mapeo.put(texto);
+    }
+
+    /**
+     * Calcula el CRC del registro recién escrito y avisa al confirmador.
+     */
+    private void cerrarRegistro(MappedByteBuffer mapeo, int inicio, int longitud) {
+        crc.reset();
+        crc.update(mapeo.slice(inicio + 4, longitud));
+        mapeo.putInt((int) crc.getValue());
+        escrito += longitud + 8;
+        notifyAll();
+    }
+
+    /**
+     * Devuelve el mapeo activo con espacio para un registro, cambiando de
+     * segmento si hace falta. Las copias de pendientes antiguos al segmento
+     * nuevo dejan siempre lugar para el registro que pidió el cambio.
+     */
+    private MappedByteBuffer reservar(int longitud) {
+        if (actual.mapeo.remaining() >= longitud + 8) {
+            return actual.mapeo;
+        }
+        try {
+            Segmento anterior = actual;
+            anterior.mapeo.force();
+            abrirSegmento(anterior.ruta.getParent(), anterior.numero + 1);
+            anterior.mapeo = null;
+        } catch (IOException e) {
+            throw new IllegalStateException("No se pudo crear un segmento del spool: " + e.getMessage(), e);
+        }
+        reubicarPendientesAntiguos(longitud + 8);
+        eliminarSegmentosTerminados();
+        if (actual.mapeo.remaining() < longitud + 8) {
+            // No debería ocurrir: escribir sin lugar dejaría un registro cortado
+            throw new IllegalStateException("Sin espacio en el segmento del spool para un registro de " + longitud
+                    + " bytes");
+        }
+        return actual.mapeo;
+    }
+
+    private void abrirSegmento(Path raiz, long numero) throws IOException {
+        Path ruta = raiz.resolve(String.format("%s%06d%s", PREFIJO, numero, EXTENSION));
+        Segmento segmento = new Segmento(numero, ruta);
+        try (FileChannel canal = FileChannel.open(ruta, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            segmento.mapeo = canal.map(FileChannel.MapMode.READ_WRITE, 0, tamanoSegmento);
+        }
+        segmentos.add(segmento);
+        actual = segmento;
+    }
+
+    /**
+     * Copia al segmento activo las altas que siguen pendientes en el segmento
+     * más antiguo, para que pueda eliminarse. Solo se hace cuando hay al menos
+     * dos segmentos cerrados.
+     *
+     * @param reserva Bytes que deben quedar libres para el registro que abrió
+     *                el segmento
+     */
+    private void reubicarPendientesAntiguos(int reserva) {
+        Segmento antiguo = segmentos.peekFirst();
+        if (segmentos.size() < 3 || antiguo.pendientes == 0) {
+            return;
+        }
+        List<Entrada> mover = new ArrayList<>();
+        for (Entrada entrada : pendientes.values()) {
+            if (entrada.segmento == antiguo) {
+                mover.add(entrada);
+            }
+        }
+        for (Entrada entrada : mover) {
+            PrintJob job = entrada.job;
+            int longitud = longitudAlta(job.getId().getBytes(StandardCharsets.UTF_8),
+                    job.getUbicacion() != null ? job.getUbicacion().getBytes(StandardCharsets.UTF_8) : null,
+                    datosDe(job));
+            if (actual.mapeo.remaining() < Math.max(tamanoSegmento / 2, reserva) + longitud + 8) {
+                break; // No llenar el segmento nuevo con copias
+            }
+            pendientes.remove(job.getId());
+            antiguo.pendientes--;
+            registrar(job);
+        }
+        logger.debug("Spool: {} trabajos pendientes copiados desde el segmento {}", mover.size(), antiguo.numero);
+    }
+
+    /**
+     * Elimina, en orden, los segmentos cerrados que ya no tienen pendientes. Si
+     * un archivo no puede borrarse (por ejemplo, sigue mapeado en Windows), se
+     * reintenta en la siguiente llamada.
+     */
+    private void eliminarSegmentosTerminados() {
+        while (segmentos.size() > 1 && segmentos.peekFirst().pendientes == 0) {
+            Segmento antiguo = segmentos.peekFirst();
+            try {
+                Files.deleteIfExists(antiguo.ruta);
+            } catch (IOException e) {
+                logger.debug("No se pudo eliminar el segmento {}: {}", antiguo.ruta, e.getMessage());
+                return;
+            }
+            segmentos.pollFirst();
+            logger.debug("Segmento {} del spool eliminado", antiguo.ruta.getFileName());
+        }
+    }
+
+    /**
+     * Bucle del hilo confirmador: fuerza a disco todo lo escrito desde el
+     * último fsync y libera a los hilos que esperaban esa posición.
+     */
+    private void confirmar() {
+        while (activo) {
+            long objetivo;
+            MappedByteBuffer mapeo;
+            int limite;
+            synchronized (this) {
+                while (escrito == confirmado && activo) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                objetivo = escrito;
+                mapeo = actual.mapeo;
+                limite = mapeo.position();
+            }
+
+            // Los segmentos anteriores se forzaron al cerrarse
+            mapeo.force(0, limite);
+            synchronized (monitorConfirmacion) {
+                confirmado = objetivo;
+                monitorConfirmacion.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Fuerza el segmento activo a disco y detiene el confirmador al apagar la
+     * aplicación.
+     */
+    @PreDestroy
+    public void detener() {
+        if (!activo) {
+            return;
+        }
+        synchronized (this) {
+            activo = false;
+            actual.mapeo.force();
+            notifyAll();
+        }
+        synchronized (monitorConfirmacion) {
+            monitorConfirmacion.notifyAll();
+        }
+        confirmador.interrupt();
+    }
+}
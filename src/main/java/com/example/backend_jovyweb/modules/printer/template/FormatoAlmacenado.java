@@ -0,0 +1,108 @@
+package com.example.backend_jovyweb.modules.printer.template;
+
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Formato de una plantilla para guardarse en la memoria de la impresora.
+ *
+ * La parte fija de la etiqueta (cajas, fuentes, textos, ubicación del QR) se
+ * descarga una vez con ^DF; cada impresión envía solo ^XF con el nombre del
+ * formato y los ^FN con los datos variables.
+ *
+ * El nombre en la impresora incluye una versión calculada del contenido
+ * (R:BASEVVVVVV.ZPL), así que un cambio en la plantilla produce un nombre
+ * nuevo y obliga a descargarlo otra vez. Se guarda en R: (memoria RAM): un
+ * reinicio de la impresora lo borra, y por eso la conexión olvida los formatos
+ * descargados cada vez que se reabre.
+ */
+public class FormatoAlmacenado {
+
+    private static final byte[] COMANDO_XF = "^XF".getBytes(StandardCharsets.US_ASCII);
+
+    private final String plantilla;
+    private final String nombre;
+    private final byte[] descarga;
+    private final ZplTemplate recuperacion;
+
+    FormatoAlmacenado(String plantilla, String nombre, byte[] descarga, ZplTemplate recuperacion) {
+        this.plantilla = plantilla;
+        this.nombre = nombre;
+        this.descarga = descarga;
+        this.recuperacion = recuperacion;
+    }
+
+    /**
+     * Busca los formatos que invocan unos datos ZPL (^XF...^FS).
+     *
+     * @param datos Bytes ZPL a enviar
+     * @return Nombres de formato en orden de aparición
+     */
+    public static Set<String> buscarReferencias(byte[] datos) {
+        Set<String> nombres = new LinkedHashSet<>();
+        int i = indiceDe(datos, COMANDO_XF, 0);
+        while (i >= 0) {
+            int inicio = i + COMANDO_XF.length;
+            int fin = inicio;
+            while (fin < datos.length && datos[fin] != '^' && datos[fin] != '~') {
+                fin++;
+            }
+            if (fin > inicio) {
+                nombres.add(new String(datos, inicio, fin - inicio, StandardCharsets.US_ASCII));
+            }
+            i = indiceDe(datos, COMANDO_XF, fin);
+        }
+        return nombres;
+    }
+
+    private static int indiceDe(byte[] datos, byte[] patron, int desde) {
+        for (int i = desde; i <= datos.length - patron.length; i++) {
+            if (datos[i] == patron[0] && datos[i + 1] == patron[1] && datos[i + 2] == patron[2]) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Comando que borra un formato de la impresora (^ID).
+     *
+     * @param nombre Nombre del formato en la impresora
+     * @return Bytes ZPL del borrado
+     */
+    public static byte[] comandoBorrado(String nombre) {
+        return ("^XA^ID" + nombre + "^FS^XZ").getBytes(StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Nombre de la plantilla de la que proviene.
+     *
+     * @return Nombre de la plantilla
+     */
+    public String getPlantilla() {
+        return plantilla;
+    }
+
+    /**
+     * Nombre completo en la impresora, p. ej. R:PALLETS3FA2C1.ZPL.
+     *
+     * @return Nombre del formato
+     */
+    public String getNombre() {
+        return nombre;
+    }
+
+    /**
+     * Etiqueta ^DF que guarda el formato en la impresora.
+     *
+     * @return Bytes ZPL de la descarga
+     */
+    public byte[] getDescarga() {
+        return descarga;
+    }
+
+    ZplTemplate getRecuperacion() {
+        return recuperacion;
+    }
+}
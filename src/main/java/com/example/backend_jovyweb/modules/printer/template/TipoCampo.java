@@ -0,0 +1,80 @@
+package com.example.backend_jovyweb.modules.printer.template;
+
+/**
+ * Tipo de un campo variable de una plantilla ZPL.
+ *
+ * Se declara en la plantilla como {{nombre:tipo}}; sin tipo, el campo es
+ * TEXTO.
+ */
+public enum TipoCampo {
+    /** Texto libre; se escapa con ^FH. Solo se permite dentro de ^FD. */
+    TEXTO,
+    /** Entero con signo opcional. */
+    ENTERO,
+    /** Número con punto decimal opcional. */
+    DECIMAL,
+    /**
+     * Número de serie (solo dígitos). Con {@link ZplTemplate#renderizarSerie}
+     * la impresora lo incrementa en cada copia con ^SF. Solo se permite dentro
+     * de ^FD, como su último campo.
+     */
+    SERIE,
+    /**
+     * Imagen PNG o BMP en base64; se envía como ^GF comprimido
+     * ({@link ZplGraficoConverter}). Solo se permite fuera de ^FD.
+     */
+    IMAGEN;
+
+    /**
+     * Obtiene el tipo a partir de su nombre en la plantilla.
+     *
+     * @param nombre Nombre del tipo (texto, entero, decimal, serie, imagen)
+     * @return Tipo correspondiente
+     * @throws IllegalArgumentException si el tipo no existe
+     */
+    public static TipoCampo desde(String nombre) {
+        switch (nombre.trim().toLowerCase()) {
+            case "texto":
+                return TEXTO;
+            case "entero":
+                return ENTERO;
+            case "decimal":
+                return DECIMAL;
+            case "serie":
+                return SERIE;
+            case "imagen":
+                return IMAGEN;
+            default:
+                throw new IllegalArgumentException("Tipo de campo desconocido: " + nombre);
+        }
+    }
+
+    /**
+     * Valida que el valor corresponda al tipo, sin usar expresiones regulares.
+     *
+     * @param valor Valor a validar
+     * @return true si el valor es válido
+     */
+    public boolean esValido(CharSequence valor) {
+        if (this == TEXTO) {
+            return true;
+        }
+        if (this == IMAGEN) {
+            return valor.length() > 0; // El contenido se valida al convertirla
+        }
+        int inicio = valor.length() > 0 && valor.charAt(0) == '-' && this != SERIE ? 1 : 0;
+        if (valor.length() == inicio) {
+            return false;
+        }
+        boolean punto = false;
+        for (int i = inicio; i < valor.length(); i++) {
+            char c = valor.charAt(i);
+            if (c == '.' && this == DECIMAL && !punto && i > inicio && i < valor.length() - 1) {
+                punto = true;
+            } else if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,142 @@
+package com.example.backend_jovyweb.modules.printer.template;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Buffer de bytes reutilizable donde se renderizan las etiquetas.
+ *
+ * Crece según se necesite y conserva su capacidad entre etiquetas, de modo que
+ * renderizar no genera basura salvo la copia final.
+ */
+public class ZplBuffer {
+
+    private static final byte[] HEX = "0123456789ABCDEF".getBytes(StandardCharsets.US_ASCII);
+
+    private byte[] datos;
+    private int tamano;
+
+    public ZplBuffer() {
+        this(4096);
+    }
+
+    public ZplBuffer(int capacidadInicial) {
+        this.datos = new byte[capacidadInicial];
+    }
+
+    /**
+     * Vacía el buffer conservando su capacidad.
+     */
+    public void reiniciar() {
+        tamano = 0;
+    }
+
+    public void agregar(byte[] bytes) {
+        asegurar(bytes.length);
+        System.arraycopy(bytes, 0, datos, tamano, bytes.length);
+        tamano += bytes.length;
+    }
+
+    public void agregar(byte[] bytes, int desde, int longitud) {
+        asegurar(longitud);
+        System.arraycopy(bytes, desde, datos, tamano, longitud);
+        tamano += longitud;
+    }
+
+    public void agregarByte(int b) {
+        asegurar(1);
+        datos[tamano++] = (byte) b;
+    }
+
+    /**
+     * Agrega texto ASCII (números ya validados) sin codificar.
+     */
+    public void agregarAscii(CharSequence texto) {
+        asegurar(texto.length());
+        for (int i = 0; i < texto.length(); i++) {
+            datos[tamano++] = (byte) texto.charAt(i);
+        }
+    }
+
+    /**
+     * Agrega un entero no negativo en decimal.
+     */
+    public void agregarEntero(int valor) {
+        if (valor >= 10) {
+            agregarEntero(valor / 10);
+        }
+        asegurar(1);
+        datos[tamano++] = (byte) ('0' + valor % 10);
+    }
+
+    /**
+     * Agrega texto para un campo con ^FH: los caracteres ASCII imprimibles se
+     * copian tal cual; ^, ~, el indicador y cualquier otro carácter se escriben
+     * como indicador + hexadecimal de sus bytes UTF-8.
+     *
+     * @param texto     Texto a agregar
+     * @param indicador Indicador de ^FH (por defecto '_')
+     */
+    public void agregarEscapado(CharSequence texto, char indicador) {
+        for (int i = 0; i < texto.length(); i++) {
+            char c = texto.charAt(i);
+            if (c >= 0x20 && c < 0x7F && c != '^' && c != '~' && c != indicador) {
+                asegurar(1);
+                datos[tamano++] = (byte) c;
+            } else if (c < 0x80) {
+                agregarHex(c, indicador);
+            } else if (c < 0x800) {
+                agregarHex(0xC0 | (c >> 6), indicador);
+                agregarHex(0x80 | (c & 0x3F), indicador);
+            } else if (Character.isHighSurrogate(c) && i + 1 < texto.length()
+                    && Character.isLowSurrogate(texto.charAt(i + 1))) {
+                int cp = Character.toCodePoint(c, texto.charAt(++i));
+                agregarHex(0xF0 | (cp >> 18), indicador);
+                agregarHex(0x80 | ((cp >> 12) & 0x3F), indicador);
+                agregarHex(0x80 | ((cp >> 6) & 0x3F), indicador);
+                agregarHex(0x80 | (cp & 0x3F), indicador);
+            } else {
+                agregarHex(0xE0 | (c >> 12), indicador);
+                agregarHex(0x80 | ((c >> 6) & 0x3F), indicador);
+                agregarHex(0x80 | (c & 0x3F), indicador);
+            }
+        }
+    }
+
+    private void agregarHex(int b, char indicador) {
+        asegurar(3);
+        datos[tamano++] = (byte) indicador;
+        datos[tamano++] = HEX[(b >> 4) & 0xF];
+        datos[tamano++] = HEX[b & 0xF];
+    }
+
+    private void asegurar(int adicional) {
+        if (tamano + adicional > datos.length) {
+            datos = Arrays.copyOf(datos, Math.max(datos.length * 2, tamano + adicional));
+        }
+    }
+
+    public int getTamano() {
+        return tamano;
+    }
+
+    /**
+     * Copia el contenido a un arreglo de tamaño exacto.
+     *
+     * @return Bytes renderizados
+     */
+    public byte[] toByteArray() {
+        return Arrays.copyOf(datos, tamano);
+    }
+
+    /**
+     * Expone el contenido sin copiarlo. Solo es válido hasta la siguiente
+     * modificación del buffer.
+     *
+     * @return ByteBuffer de solo lectura sobre el contenido
+     */
+    public ByteBuffer comoByteBuffer() {
+        return ByteBuffer.wrap(datos, 0, tamano).asReadOnlyBuffer();
+    }
+}
@@ -0,0 +1,150 @@
+package com.example.backend_jovyweb.modules.printer.template;
+
+/**
+ * Ajusta ^PQ mientras los bytes pasan en bloques, sin tener la etiqueta
+ * completa en memoria. {@link ZplFormato#ajustarCantidad(String, int)} lo usa
+ * sobre la etiqueta entera, así que ambos dan el mismo resultado.
+ *
+ * - Cada ^PQ se reescribe con la cantidad indicada; sus demás parámetros
+ * (^PQ,0,1,Y) se conservan
+ * - Antes de cada ^XZ de un formato sin ^PQ se inserta ^PQ con la cantidad
+ * - Si el flujo no trae ^XZ ni ^PQ, se agrega ^PQ al final
+ *
+ * Los comandos pueden quedar partidos entre bloques: los bytes de un posible
+ * comando se retienen hasta saber si lo son. Con cantidad 1 o menos los bytes
+ * pasan sin cambios, igual que en ajustarCantidad.
+ *
+ * No es seguro para uso concurrente; se crea uno por flujo.
+ */
+public class ZplCantidadFiltro {
+
+    private enum Estado {
+        TEXTO,
+        CARET, // Se leyó ^
+        CARET_P, // Se leyó ^P
+        CARET_X, // Se leyó ^X
+        DIGITOS_PQ // Se escribió ^PQ nuevo y se omiten los dígitos originales
+    }
+
+    private final int cantidad;
+    private final boolean activo;
+    private Estado estado = Estado.TEXTO;
+    private boolean pqEnEtiqueta;
+    private boolean algunPQ;
+    private boolean algunXZ;
+
+    /**
+     * @param cantidad Número de copias
+     */
+    public ZplCantidadFiltro(int cantidad) {
+        this.cantidad = cantidad;
+        this.activo = cantidad > 1;
+    }
+
+    /**
+     * Filtra un bloque de bytes.
+     *
+     * @param entrada  Bytes leídos
+     * @param longitud Bytes válidos en entrada
+     * @param salida   Buffer donde se agregan los bytes filtrados
+     */
+    public void filtrar(byte[] entrada, int longitud, ZplBuffer salida) {
+        if (!activo) {
+            salida.agregar(entrada, 0, longitud);
+            return;
+        }
+        for (int i = 0; i < longitud; i++) {
+            procesar(entrada[i], salida);
+        }
+    }
+
+    /**
+     * Termina el flujo: agrega los bytes retenidos y, si hace falta, el ^PQ
+     * final.
+     *
+     * @param salida Buffer donde se agregan los bytes
+     */
+    public void terminar(ZplBuffer salida) {
+        if (!activo) {
+            return;
+        }
+        switch (estado) {
+            case CARET -> salida.agregarByte('^');
+            case CARET_P -> salida.agregarAscii("^P");
+            case CARET_X -> salida.agregarAscii("^X");
+            default -> {
+            }
+        }
+        estado = Estado.TEXTO;
+        if (!algunXZ && !algunPQ) {
+            agregarPQ(salida);
+        }
+    }
+
+    private void procesar(byte b, ZplBuffer salida) {
+        switch (estado) {
+            case TEXTO -> {
+                if (b == '^') {
+                    estado = Estado.CARET;
+                } else {
+                    salida.agregarByte(b);
+                }
+            }
+            case CARET -> {
+                if (b == 'P') {
+                    estado = Estado.CARET_P;
+                } else if (b == 'X') {
+                    estado = Estado.CARET_X;
+                } else if (b == '^') {
+                    salida.agregarByte('^');
+                } else {
+                    salida.agregarByte('^');
+                    salida.agregarByte(b);
+                    estado = Estado.TEXTO;
+                }
+            }
+            case CARET_P -> {
+                if (b == 'Q') {
+                    agregarPQ(salida);
+                    pqEnEtiqueta = true;
+                    algunPQ = true;
+                    estado = Estado.DIGITOS_PQ;
+                } else {
+                    salida.agregarAscii("^P");
+                    estado = Estado.TEXTO;
+                    procesar(b, salida);
+                }
+            }
+            case CARET_X -> {
+                if (b == 'Z') {
+                    if (!pqEnEtiqueta) {
+                        agregarPQ(salida);
+                    }
+                    salida.agregarAscii("^XZ");
+                    pqEnEtiqueta = false;
+                    algunXZ = true;
+                    estado = Estado.TEXTO;
+                } else if (b == 'A') {
+                    salida.agregarAscii("^XA");
+                    pqEnEtiqueta = false;
+                    estado = Estado.TEXTO;
+                } else {
+                    salida.agregarAscii("^X");
+                    estado = Estado.TEXTO;
+                    procesar(b, salida);
+                }
+            }
+            case DIGITOS_PQ -> {
+                if (b < '0' || b > '9') {
+                    estado = Estado.TEXTO;
+                    procesar(b, salida);
+                }
+            }
+        }
+    }
+
+    private void agregarPQ(ZplBuffer salida) {
+        salida.agregarAscii("^PQ");
+        salida.agregarEntero(cantidad);
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.backend_jovyweb.modules.printer.template;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Utilidades para etiquetas ZPL enviadas por los clientes como texto.
+ */
+public final class ZplFormato {
+
+    private ZplFormato() {
+    }
+
+    /**
+     * Ajusta la cantidad de etiquetas en el comando ZPL, formato por formato:
+     * cada ^PQ toma la cantidad y cada formato sin ^PQ la recibe antes de su
+     * ^XZ. Usa {@link ZplCantidadFiltro}, así que el resultado es el mismo que
+     * al imprimir la etiqueta por flujo.
+     *
+     * @param templateZPL Etiqueta ZPL
+     * @param cantidad    Número de copias
+     * @return Etiqueta con ^PQ ajustado
+     */
+    public static String ajustarCantidad(String templateZPL, int cantidad) {
+        if (cantidad <= 1) {
+            return templateZPL;
+        }
+
+        // Los comandos son ASCII y ningún byte de un carácter UTF-8 multibyte es '^'
+        byte[] datos = templateZPL.getBytes(StandardCharsets.UTF_8);
+        ZplBuffer salida = new ZplBuffer(datos.length + 16);
+        ZplCantidadFiltro filtro = new ZplCantidadFiltro(cantidad);
+        filtro.filtrar(datos, datos.length, salida);
+        filtro.terminar(salida);
+        return new String(salida.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Fija la cantidad de etiquetas en el comando ZPL, también cuando es 1
+     * (a diferencia de {@link #ajustarCantidad(String, int)}, que en ese caso
+     * respeta el ^PQ original). Se usa al imprimir un trabajo por partes.
+     *
+     * @param zpl      Etiqueta ZPL
+     * @param cantidad Número de copias
+     * @return Etiqueta con ^PQ fijado
+     */
+    public static String fijarCantidad(String zpl, int cantidad) {
+        return cantidad <= 1 && zpl.contains("^PQ")
+                ? zpl.replaceAll("\\^PQ\\d+", "^PQ1")
+                : ajustarCantidad(zpl, cantidad);
+    }
+
+    /**
+     * Indica si el ZPL contiene un único formato de etiqueta (un ^XA), de modo
+     * que sus copias pueden dividirse cambiando ^PQ.
+     *
+     * @param zpl Etiqueta ZPL
+     * @return true si hay exactamente un ^XA
+     */
+    public static boolean esEtiquetaUnica(String zpl) {
+        int primero = zpl.indexOf("^XA");
+        return primero >= 0 && zpl.indexOf("^XA", primero + 3) < 0;
+    }
+
+    /**
+     * Indica si el ZPL numera sus copias en la impresora (^SN o ^SF). Sus
+     * copias no pueden dividirse: cada parte reiniciaría la numeración.
+     *
+     * @param zpl Etiqueta ZPL
+     * @return true si usa serialización
+     */
+    public static boolean esSerializada(String zpl) {
+        return zpl.contains("^SN") || zpl.contains("^SF");
+    }
+}
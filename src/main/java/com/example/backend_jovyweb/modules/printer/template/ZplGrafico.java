@@ -0,0 +1,310 @@
+package com.example.backend_jovyweb.modules.printer.template;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.zip.Deflater;
+
+/**
+ * Gráfico de 1 bit codificado como comando ^GFA listo para insertar en una
+ * etiqueta.
+ *
+ * Los datos se comprimen en uno de los formatos que acepta ^GF en modo ASCII:
+ * - Z64: deflate + base64, con CRC-16 (CCITT) del texto base64
+ * - ACS: hexadecimal con conteos de repetición (G-Y, g-z), ',' para completar
+ * la fila con ceros, '!' con unos y ':' para repetir la fila anterior
+ * - HEX: hexadecimal sin comprimir
+ *
+ * Sin compresión indicada se usa la que produzca menos bytes (ACS gana en
+ * logotipos simples, Z64 en imágenes con tramas).
+ *
+ * Es inmutable; los bytes del comando no deben modificarse.
+ */
+public final class ZplGrafico {
+
+    /**
+     * Compresión de los datos del gráfico.
+     */
+    public enum Compresion {
+        HEX,
+        ACS,
+        Z64
+    }
+
+    // Límite de puntos de una imagen (una etiqueta de 4x6" a 300 dpi tiene ~2,2 millones)
+    private static final int MAX_PUNTOS = 8_000_000;
+    private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+
+    private final byte[] comando;
+    private final int bytesTotales;
+    private final int bytesPorFila;
+    private final Compresion compresion;
+
+    private ZplGrafico(byte[] comando, int bytesTotales, int bytesPorFila, Compresion compresion) {
+        this.comando = comando;
+        this.bytesTotales = bytesTotales;
+        this.bytesPorFila = bytesPorFila;
+        this.compresion = compresion;
+    }
+
+    /**
+     * Convierte una imagen PNG o BMP a gráfico de 1 bit. Los puntos con
+     * luminancia menor al umbral se imprimen; los transparentes no.
+     *
+     * @param imagen     Bytes de la imagen
+     * @param umbral     Luminancia (0-255) por debajo de la cual el punto es
+     *                   negro
+     * @param compresion Compresión, o null para la más pequeña
+     * @return Gráfico codificado
+     * @throws IllegalArgumentException si la imagen no se puede leer o es
+     *                                  demasiado grande
+     */
+    public static ZplGrafico desdeImagen(byte[] imagen, int umbral, Compresion compresion) {
+        BufferedImage leida;
+        try {
+            leida = ImageIO.read(new ByteArrayInputStream(imagen));
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Imagen inválida: " + e.getMessage(), e);
+        }
+        if (leida == null) {
+            throw new IllegalArgumentException("Formato de imagen no soportado (use PNG o BMP)");
+        }
+
+        int ancho = leida.getWidth();
+        int alto = leida.getHeight();
+        if ((long) ancho * alto > MAX_PUNTOS) {
+            throw new IllegalArgumentException("Imagen de " + ancho + "x" + alto + " excede " + MAX_PUNTOS
+                    + " puntos");
+        }
+
+        int bytesPorFila = (ancho + 7) / 8;
+        byte[] bits = new byte[bytesPorFila * alto];
+        int[] fila = new int[ancho];
+        for (int y = 0; y < alto; y++) {
+            leida.getRGB(0, y, ancho, 1, fila, 0, ancho);
+            for (int x = 0; x < ancho; x++) {
+                int argb = fila[x];
+                if ((argb >>> 24) < 128) {
+                    continue; // Transparente: sin imprimir
+                }
+                int luminancia = (299 * ((argb >> 16) & 0xFF) + 587 * ((argb >> 8) & 0xFF) + 114 * (argb & 0xFF))
+                        / 1000;
+                if (luminancia < umbral) {
+                    bits[y * bytesPorFila + (x >> 3)] |= (byte) (0x80 >>> (x & 7));
+                }
+            }
+        }
+        return codificar(bits, bytesPorFila, compresion);
+    }
+
+    /**
+     * Codifica los datos hexadecimales sin comprimir de un ^GFA existente. Se
+     * ignoran los espacios y saltos de línea.
+     *
+     * @param hex          Datos hexadecimales
+     * @param bytesPorFila Bytes por fila del gráfico
+     * @param compresion   Compresión, o null para la más pequeña
+     * @return Gráfico codificado
+     * @throws IllegalArgumentException si los datos no son hexadecimales o no
+     *                                  completan filas enteras
+     */
+    public static ZplGrafico desdeHex(CharSequence hex, int bytesPorFila, Compresion compresion) {
+        byte[] bits = new byte[hex.length() / 2];
+        int nibbles = 0;
+        for (int i = 0; i < hex.length(); i++) {
+            char c = hex.charAt(i);
+            if (Character.isWhitespace(c)) {
+                continue;
+            }
+            int valor = Character.digit(c, 16);
+            if (valor < 0) {
+                throw new IllegalArgumentException("Dato hexadecimal inválido en ^GF: " + c);
+            }
+            bits[nibbles >> 1] |= (byte) ((nibbles & 1) == 0 ? valor << 4 : valor);
+            nibbles++;
+        }
+        int total = nibbles / 2;
+        if (bytesPorFila <= 0 || (nibbles & 1) != 0 || total == 0 || total % bytesPorFila != 0) {
+            throw new IllegalArgumentException("Los datos de ^GF no completan filas de " + bytesPorFila + " bytes");
+        }
+        byte[] exactos = new byte[total];
+        System.arraycopy(bits, 0, exactos, 0, total);
+        return codificar(exactos, bytesPorFila, compresion);
+    }
+
+    private static ZplGrafico codificar(byte[] bits, int bytesPorFila, Compresion compresion) {
+        String datos;
+        Compresion elegida = compresion;
+        if (compresion == null) {
+            String acs = codificarACS(bits, bytesPorFila);
+            String z64 = codificarZ64(bits);
+            elegida = acs.length() <= z64.length() ? Compresion.ACS : Compresion.Z64;
+            datos = elegida == Compresion.ACS ? acs : z64;
+        } else {
+            datos = switch (compresion) {
+                case HEX -> codificarHex(bits);
+                case ACS -> codificarACS(bits, bytesPorFila);
+                case Z64 -> codificarZ64(bits);
+            };
+        }
+        String comando = "^GFA," + bits.length + "," + bits.length + "," + bytesPorFila + "," + datos;
+        return new ZplGrafico(comando.getBytes(StandardCharsets.US_ASCII), bits.length, bytesPorFila, elegida);
+    }
+
+    static String codificarHex(byte[] bits) {
+        StringBuilder salida = new StringBuilder(bits.length * 2);
+        for (byte b : bits) {
+            salida.append(HEX[(b >> 4) & 0xF]).append(HEX[b & 0xF]);
+        }
+        return salida.toString();
+    }
+
+    /**
+     * Codifica en Z64: ":Z64:" + base64(deflate) + ":" + CRC.
+     */
+    static String codificarZ64(byte[] bits) {
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        deflater.setInput(bits);
+        deflater.finish();
+        ByteArrayOutputStream comprimido = new ByteArrayOutputStream(bits.length / 4 + 64);
+        byte[] bloque = new byte[8192];
+        while (!deflater.finished()) {
+            int n = deflater.deflate(bloque);
+            comprimido.write(bloque, 0, n);
+        }
+        deflater.end();
+
+        String base64 = Base64.getEncoder().encodeToString(comprimido.toByteArray());
+        return ":Z64:" + base64 + ":" + String.format("%04X", crc16(base64));
+    }
+
+    /**
+     * CRC-16 CCITT (polinomio 0x1021, valor inicial 0) del texto base64, como
+     * lo verifica la impresora.
+     */
+    static int crc16(String texto) {
+        int crc = 0;
+        for (int i = 0; i < texto.length(); i++) {
+            crc ^= (texto.charAt(i) & 0xFF) << 8;
+            for (int bit = 0; bit < 8; bit++) {
+                crc = (crc & 0x8000) != 0 ? (crc << 1) ^ 0x1021 : crc << 1;
+            }
+            crc &= 0xFFFF;
+        }
+        return crc;
+    }
+
+    /**
+     * Codifica en ACS (Alternative Compression Scheme) fila por fila.
+     */
+    static String codificarACS(byte[] bits, int bytesPorFila) {
+        StringBuilder salida = new StringBuilder(bits.length / 2 + 16);
+        char[] fila = new char[bytesPorFila * 2];
+        char[] anterior = null;
+        for (int inicio = 0; inicio < bits.length; inicio += bytesPorFila) {
+            for (int i = 0; i < bytesPorFila; i++) {
+                byte b = bits[inicio + i];
+                fila[2 * i] = HEX[(b >> 4) & 0xF];
+                fila[2 * i + 1] = HEX[b & 0xF];
+            }
+            if (anterior != null && Arrays.equals(fila, anterior)) {
+                salida.append(':');
+                continue;
+            }
+
+            // El relleno final (',' ceros o '!' unos) reemplaza la última racha
+            int fin = fila.length;
+            char ultimo = fila[fin - 1];
+            char relleno = ultimo == '0' ? ',' : ultimo == 'F' ? '!' : 0;
+            if (relleno != 0) {
+                while (fin > 0 && fila[fin - 1] == ultimo) {
+                    fin--;
+                }
+            }
+            int i = 0;
+            while (i < fin) {
+                char c = fila[i];
+                int racha = 1;
+                while (i + racha < fin && fila[i + racha] == c) {
+                    racha++;
+                }
+                agregarRepeticion(salida, c, racha);
+                i += racha;
+            }
+            if (relleno != 0) {
+                salida.append(relleno);
+            }
+
+            if (anterior == null) {
+                anterior = new char[fila.length];
+            }
+            System.arraycopy(fila, 0, anterior, 0, fila.length);
+        }
+        return salida.toString();
+    }
+
+    /**
+     * Escribe una racha con su conteo: g-z suman de 20 en 20 (hasta 400) y G-Y
+     * de 1 a 19.
+     */
+    private static void agregarRepeticion(StringBuilder salida, char c, int racha) {
+        while (racha > 0) {
+            if (racha == 1) {
+                salida.append(c);
+                return;
+            }
+            int parte = Math.min(racha, 419);
+            if (parte >= 20) {
+                salida.append((char) ('g' + parte / 20 - 1));
+            }
+            if (parte % 20 > 0) {
+                salida.append((char) ('G' + parte % 20 - 1));
+            }
+            salida.append(c);
+            racha -= parte;
+        }
+    }
+
+    /**
+     * Bytes del comando ^GFA completo. No deben modificarse.
+     */
+    byte[] getComando() {
+        return comando;
+    }
+
+    /**
+     * Tamaño del comando en bytes.
+     *
+     * @return Bytes a enviar
+     */
+    public int getTamano() {
+        return comando.length;
+    }
+
+    /**
+     * Tamaño del gráfico sin comprimir.
+     *
+     * @return Bytes del mapa de bits
+     */
+    public int getBytesTotales() {
+        return bytesTotales;
+    }
+
+    public int getBytesPorFila() {
+        return bytesPorFila;
+    }
+
+    public Compresion getCompresion() {
+        return compresion;
+    }
+
+    @Override
+    public String toString() {
+        return new String(comando, StandardCharsets.US_ASCII);
+    }
+}
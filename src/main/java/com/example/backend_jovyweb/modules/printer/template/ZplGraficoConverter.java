@@ -0,0 +1,233 @@
+package com.example.backend_jovyweb.modules.printer.template;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Convierte imágenes a gráficos ZPL comprimidos ({@link ZplGrafico}) y guarda
+ * el resultado por hash del contenido.
+ *
+ * - Las imágenes PNG/BMP (en base64, con o sin prefijo data:) se convierten a
+ * 1 bit con el umbral printer.graphics.threshold
+ * - Los ^GFA con datos hexadecimales sin comprimir de un ZPL se recodifican
+ * (recomprimir), así las plantillas y etiquetas que ya traen logotipos
+ * también viajan comprimidas
+ * - printer.graphics.compression elige la compresión: auto (la más pequeña
+ * entre ACS y Z64), z64, acs o hex
+ *
+ * La caché es LRU de printer.graphics.cache-size entradas, con clave SHA-256
+ * de los datos de origen: el mismo logotipo en miles de etiquetas se convierte
+ * una sola vez.
+ */
+@Component
+public class ZplGraficoConverter {
+
+    private static final Logger logger = LoggerFactory.getLogger(ZplGraficoConverter.class);
+    private static final String GF_ASCII = "^GFA,";
+
+    @Value("${printer.graphics.compression:auto}")
+    private String compresion;
+
+    @Value("${printer.graphics.threshold:128}")
+    private int umbral;
+
+    @Value("${printer.graphics.cache-size:256}")
+    private int tamanoCache;
+
+    // Gráficos por hash del origen, en orden de uso
+    private final Map<String, ZplGrafico> cache = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * Convierte una imagen en base64 (PNG o BMP). Acepta el prefijo
+     * data:image/...;base64, que envían los navegadores.
+     *
+     * @param base64 Imagen en base64
+     * @return Gráfico codificado
+     * @throws IllegalArgumentException si el texto no es base64 o la imagen es
+     *                                  inválida
+     */
+    public ZplGrafico convertir(String base64) {
+        String datos = base64.strip();
+        if (datos.startsWith("data:")) {
+            int coma = datos.indexOf(',');
+            datos = coma < 0 ? "" : datos.substring(coma + 1);
+        }
+        byte[] imagen;
+        try {
+            imagen = Base64.getMimeDecoder().decode(datos);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("La imagen no está en base64: " + e.getMessage(), e);
+        }
+        return convertir(imagen);
+    }
+
+    /**
+     * Convierte una imagen PNG o BMP.
+     *
+     * @param imagen Bytes de la imagen
+     * @return Gráfico codificado
+     * @throws IllegalArgumentException si la imagen es inválida
+     */
+    public ZplGrafico convertir(byte[] imagen) {
+        String clave = "img:" + sha256(imagen);
+        ZplGrafico grafico = buscar(clave);
+        if (grafico == null) {
+            grafico = ZplGrafico.desdeImagen(imagen, umbral, leerCompresion());
+            guardar(clave, grafico);
+            logger.debug("Imagen convertida a ^GF {}: {} bytes de origen, {} bytes enviados", grafico.getCompresion(),
+                    imagen.length, grafico.getTamano());
+        }
+        return grafico;
+    }
+
+    /**
+     * Recodifica con compresión los ^GFA con datos hexadecimales sin comprimir.
+     * Los demás comandos (y los ^GF ya comprimidos o binarios) quedan igual.
+     *
+     * @param zpl ZPL a revisar
+     * @return ZPL con los gráficos comprimidos (la misma instancia si no había
+     *         nada que comprimir)
+     */
+    public String recomprimir(String zpl) {
+        int gf = zpl.indexOf(GF_ASCII);
+        if (gf < 0 || leerCompresion() == ZplGrafico.Compresion.HEX) {
+            return zpl;
+        }
+
+        StringBuilder salida = null;
+        int copiado = 0;
+        while (gf >= 0) {
+            int finParametros = gf + GF_ASCII.length();
+            int[] parametros = new int[3];
+            boolean valido = true;
+            for (int i = 0; i < 3 && valido; i++) {
+                int coma = zpl.indexOf(',', finParametros);
+                valido = coma > finParametros && esEntero(zpl, finParametros, coma);
+                if (valido) {
+                    parametros[i] = Integer.parseInt(zpl, finParametros, coma, 10);
+                    finParametros = coma + 1;
+                }
+            }
+            int finDatos = finDeDatos(zpl, finParametros);
+            if (valido && parametros[2] > 0 && esHexadecimal(zpl, finParametros, finDatos)) {
+                ZplGrafico grafico = recodificar(zpl.substring(finParametros, finDatos), parametros[2]);
+                if (grafico != null && grafico.getBytesTotales() == parametros[1]) {
+                    if (salida == null) {
+                        salida = new StringBuilder(zpl.length());
+                    }
+                    salida.append(zpl, copiado, gf).append(grafico);
+                    copiado = finDatos;
+                }
+            }
+            gf = zpl.indexOf(GF_ASCII, finDatos);
+        }
+
+        if (salida == null) {
+            return zpl;
+        }
+        return salida.append(zpl, copiado, zpl.length()).toString();
+    }
+
+    private ZplGrafico recodificar(String hex, int bytesPorFila) {
+        String clave = "hex:" + bytesPorFila + ":" + sha256(hex.getBytes(StandardCharsets.US_ASCII));
+        ZplGrafico grafico = buscar(clave);
+        if (grafico == null) {
+            try {
+                grafico = ZplGrafico.desdeHex(hex, bytesPorFila, leerCompresion());
+            } catch (IllegalArgumentException e) {
+                logger.debug("^GF sin recomprimir: {}", e.getMessage());
+                return null;
+            }
+            guardar(clave, grafico);
+        }
+        return grafico;
+    }
+
+    private static int finDeDatos(String zpl, int desde) {
+        for (int i = desde; i < zpl.length(); i++) {
+            char c = zpl.charAt(i);
+            if (c == '^' || c == '~') {
+                return i;
+            }
+        }
+        return zpl.length();
+    }
+
+    private static boolean esEntero(String texto, int desde, int hasta) {
+        for (int i = desde; i < hasta; i++) {
+            if (texto.charAt(i) < '0' || texto.charAt(i) > '9') {
+                return false;
+            }
+        }
+        return hasta - desde <= 9;
+    }
+
+    /**
+     * Indica si los datos son hexadecimales sin comprimir (sin conteos ACS ni
+     * prefijo :Z64:/:B64:).
+     */
+    private static boolean esHexadecimal(String texto, int desde, int hasta) {
+        if (hasta == desde) {
+            return false;
+        }
+        for (int i = desde; i < hasta; i++) {
+            char c = texto.charAt(i);
+            if (Character.digit(c, 16) < 0 && !Character.isWhitespace(c)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private ZplGrafico.Compresion leerCompresion() {
+        if (compresion == null) {
+            return null;
+        }
+        return switch (compresion.trim().toLowerCase(Locale.ROOT)) {
+            case "z64" -> ZplGrafico.Compresion.Z64;
+            case "acs" -> ZplGrafico.Compresion.ACS;
+            case "hex" -> ZplGrafico.Compresion.HEX;
+            default -> null; // auto
+        };
+    }
+
+    private ZplGrafico buscar(String clave) {
+        synchronized (cache) {
+            return cache.get(clave);
+        }
+    }
+
+    private void guardar(String clave, ZplGrafico grafico) {
+        if (tamanoCache <= 0) {
+            return;
+        }
+        synchronized (cache) {
+            cache.put(clave, grafico);
+            Iterator<ZplGrafico> it = cache.values().iterator();
+            while (cache.size() > tamanoCache && it.hasNext()) {
+                it.next();
+                it.remove();
+            }
+        }
+    }
+
+    private static String sha256(byte[] datos) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(datos));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no disponible", e);
+        }
+    }
+}
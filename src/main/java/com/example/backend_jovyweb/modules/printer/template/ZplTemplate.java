@@ -0,0 +1,266 @@
+package com.example.backend_jovyweb.modules.printer.template;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Plantilla ZPL precompilada.
+ *
+ * Se compone de segmentos de bytes estáticos (ya codificados) intercalados con
+ * campos variables. Renderizar solo copia los segmentos al buffer y escribe los
+ * valores de los campos; no usa expresiones regulares ni concatena cadenas. La
+ * cantidad de copias se escribe en un ^PQ reservado antes de ^XZ.
+ *
+ * Los campos IMAGEN reciben un {@link ZplGrafico} ya convertido (el registro
+ * convierte las imágenes en base64 antes de renderizar) y se copian tal cual.
+ *
+ * Si todos sus campos están dentro de ^FD, tiene además un
+ * {@link FormatoAlmacenado} para imprimirla con ^XF enviando solo los datos.
+ *
+ * Es inmutable: una recarga crea una instancia nueva.
+ */
+public class ZplTemplate {
+
+    /**
+     * Campo variable de la plantilla.
+     */
+    public static class Campo {
+        private final String nombre;
+        private final TipoCampo tipo;
+        private final boolean escapar;
+        private final char indicador;
+
+        Campo(String nombre, TipoCampo tipo, boolean escapar, char indicador) {
+            this.nombre = nombre;
+            this.tipo = tipo;
+            this.escapar = escapar;
+            this.indicador = indicador;
+        }
+
+        public String getNombre() {
+            return nombre;
+        }
+
+        public TipoCampo getTipo() {
+            return tipo;
+        }
+    }
+
+    /**
+     * Marca del ^SF de un campo serie, al final de su ^FD.
+     */
+    static class Serie {
+        private final String campo;
+        private final int posteriores; // Caracteres fijos después del campo en el ^FD
+
+        Serie(String campo, int posteriores) {
+            this.campo = campo;
+            this.posteriores = posteriores;
+        }
+    }
+
+    // Marca de la posición de la cantidad (^PQ) entre los segmentos
+    static final Object CANTIDAD = new Object();
+
+    private final String nombre;
+    private final List<Object> segmentos; // byte[], Campo, Serie o CANTIDAD
+    private final Map<String, TipoCampo> campos;
+    private final int tamanoEstatico;
+    private final boolean imagenes;
+    private final FormatoAlmacenado formato;
+
+    ZplTemplate(String nombre, List<Object> segmentos) {
+        this(nombre, segmentos, null);
+    }
+
+    ZplTemplate(String nombre, List<Object> segmentos, FormatoAlmacenado formato) {
+        this.nombre = nombre;
+        this.formato = formato;
+        this.segmentos = Collections.unmodifiableList(new ArrayList<>(segmentos));
+        Map<String, TipoCampo> declarados = new LinkedHashMap<>();
+        int tamano = 0;
+        for (Object segmento : segmentos) {
+            if (segmento instanceof byte[] bytes) {
+                tamano += bytes.length;
+            } else if (segmento instanceof Campo campo) {
+                TipoCampo previo = declarados.putIfAbsent(campo.nombre, campo.tipo);
+                if (previo != null && previo != campo.tipo) {
+                    throw new IllegalArgumentException("El campo " + campo.nombre
+                            + " se declara con tipos distintos (" + previo + ", " + campo.tipo + ")");
+                }
+            }
+        }
+        this.campos = Collections.unmodifiableMap(declarados);
+        this.tamanoEstatico = tamano;
+        this.imagenes = declarados.containsValue(TipoCampo.IMAGEN);
+    }
+
+    /**
+     * Renderiza la etiqueta en el buffer (se agrega al contenido actual).
+     *
+     * @param valores  Valores de los campos por nombre
+     * @param cantidad Número de copias (^PQ)
+     * @param destino  Buffer de destino
+     * @throws IllegalArgumentException si falta un campo o un valor no
+     *                                  corresponde a su tipo
+     */
+    public void renderizar(Map<String, ?> valores, int cantidad, ZplBuffer destino) {
+        validar(valores);
+        escribir(valores, cantidad, null, destino);
+    }
+
+    /**
+     * Renderiza la etiqueta numerada en la impresora: cada campo serie lleva
+     * ^SF, así que un solo formato imprime las copias con el número
+     * incrementado (el valor del campo es el primer número, con los ceros a la
+     * izquierda que fijan su ancho).
+     *
+     * @param valores    Valores de los campos por nombre
+     * @param cantidad   Número de copias (^PQ)
+     * @param incremento Incremento entre copias, con el mismo ancho que el
+     *                   valor de los campos serie
+     * @param destino    Buffer de destino
+     * @throws IllegalArgumentException si falta un campo, un valor no
+     *                                  corresponde a su tipo o la plantilla no
+     *                                  tiene campos serie
+     */
+    public void renderizarSerie(Map<String, ?> valores, int cantidad, String incremento, ZplBuffer destino) {
+        if (!campos.containsValue(TipoCampo.SERIE)) {
+            throw new IllegalArgumentException("La plantilla " + nombre + " no tiene campos serie");
+        }
+        validar(valores);
+        escribir(valores, cantidad, incremento, destino);
+    }
+
+    private void escribir(Map<String, ?> valores, int cantidad, String incremento, ZplBuffer destino) {
+        for (Object segmento : segmentos) {
+            if (segmento instanceof byte[] bytes) {
+                destino.agregar(bytes);
+            } else if (segmento == CANTIDAD) {
+                destino.agregarEntero(Math.max(cantidad, 1));
+            } else if (segmento instanceof Serie serie) {
+                if (incremento != null) {
+                    agregarSerie(serie, comoTexto(valores.get(serie.campo)).length(), incremento, destino);
+                }
+            } else {
+                Campo campo = (Campo) segmento;
+                if (campo.tipo == TipoCampo.IMAGEN) {
+                    destino.agregar(((ZplGrafico) valores.get(campo.nombre)).getComando());
+                    continue;
+                }
+                CharSequence valor = comoTexto(valores.get(campo.nombre));
+                if (campo.escapar) {
+                    destino.agregarEscapado(valor, campo.indicador);
+                } else {
+                    destino.agregarAscii(valor);
+                }
+            }
+        }
+    }
+
+    /**
+     * Escribe ^SF con la máscara (d por cada dígito del campo, % por cada
+     * carácter fijo posterior) y el incremento alineado a la derecha.
+     */
+    private void agregarSerie(Serie serie, int digitos, String incremento, ZplBuffer destino) {
+        if (incremento.length() != digitos) {
+            throw new IllegalArgumentException("El incremento " + incremento + " no tiene el ancho del campo "
+                    + serie.campo + " (" + digitos + " dígitos)");
+        }
+        destino.agregarAscii("^SF");
+        destino.agregarAscii("d".repeat(digitos));
+        destino.agregarAscii("%".repeat(serie.posteriores));
+        destino.agregarByte(',');
+        destino.agregarAscii(incremento);
+        destino.agregarAscii("0".repeat(serie.posteriores));
+    }
+
+    /**
+     * Renderiza la etiqueta como invocación del formato almacenado (^XF con los
+     * datos variables). La impresora debe tener el formato descargado.
+     *
+     * @param valores  Valores de los campos por nombre
+     * @param cantidad Número de copias (^PQ)
+     * @param destino  Buffer de destino
+     * @throws IllegalArgumentException si falta un campo o un valor no
+     *                                  corresponde a su tipo
+     * @throws IllegalStateException    si la plantilla no admite formato
+     *                                  almacenado
+     */
+    public void renderizarAlmacenado(Map<String, ?> valores, int cantidad, ZplBuffer destino) {
+        if (formato == null) {
+            throw new IllegalStateException("La plantilla " + nombre + " no admite formato almacenado");
+        }
+        validar(valores);
+        formato.getRecuperacion().renderizar(valores, cantidad, destino);
+    }
+
+    /**
+     * Valida los valores antes de escribir nada en el buffer, para no dejarlo
+     * con una etiqueta a medias.
+     */
+    private void validar(Map<String, ?> valores) {
+        for (Map.Entry<String, TipoCampo> campo : campos.entrySet()) {
+            Object valor = valores.get(campo.getKey());
+            if (valor == null) {
+                throw new IllegalArgumentException(
+                        "Falta el campo " + campo.getKey() + " de la plantilla " + nombre);
+            }
+            boolean valido = campo.getValue() == TipoCampo.IMAGEN
+                    ? valor instanceof ZplGrafico
+                    : campo.getValue().esValido(comoTexto(valor));
+            if (!valido) {
+                throw new IllegalArgumentException("El campo " + campo.getKey() + " de la plantilla " + nombre
+                        + " debe ser " + campo.getValue());
+            }
+        }
+    }
+
+    private static CharSequence comoTexto(Object valor) {
+        return valor instanceof CharSequence texto ? texto : String.valueOf(valor);
+    }
+
+    public String getNombre() {
+        return nombre;
+    }
+
+    /**
+     * Obtiene los campos de la plantilla en orden de aparición.
+     *
+     * @return Mapa nombre -> tipo
+     */
+    public Map<String, TipoCampo> getCampos() {
+        return campos;
+    }
+
+    /**
+     * Indica si la plantilla tiene campos IMAGEN, que deben convertirse antes
+     * de renderizar.
+     *
+     * @return true si tiene imágenes
+     */
+    public boolean tieneImagenes() {
+        return imagenes;
+    }
+
+    /**
+     * Tamaño de la parte estática; sirve para dimensionar buffers.
+     *
+     * @return Bytes estáticos de la plantilla
+     */
+    public int getTamanoEstatico() {
+        return tamanoEstatico;
+    }
+
+    /**
+     * Obtiene el formato para guardar en la impresora.
+     *
+     * @return Formato, o null si la plantilla tiene campos fuera de ^FD
+     */
+    public FormatoAlmacenado getFormato() {
+        return formato;
+    }
+}
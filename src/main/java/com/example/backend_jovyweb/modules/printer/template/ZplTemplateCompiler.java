@@ -0,0 +1,347 @@
+package com.example.backend_jovyweb.modules.printer.template;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.zip.CRC32;
+
+/**
+ * Compila el texto de una plantilla ZPL en una {@link ZplTemplate}.
+ *
+ * Sintaxis de los campos: {{nombre}} o {{nombre:tipo}} (texto, entero,
+ * decimal, serie, imagen). Los campos imagen van fuera de ^FD, en lugar del
+ * ^GF (p. ej. ^FO50,50{{logo:imagen}}^FS). Un campo serie va al final de su
+ * ^FD (p. ej. ^FDCaja {{caja:serie}}/200^FS) y se compila con una marca para
+ * su ^SF. Al compilar:
+ * - Se eliminan los comentarios FX/^FX y los saltos de línea
+ * - Se agrega ^CI28 (UTF-8) si la plantilla no define codificación
+ * - Los ^FD con campos se marcan con ^FH para que los valores se escapen en
+ * hexadecimal (así un ^ o ~ en los datos no rompe la etiqueta)
+ * - Se reemplaza cualquier ^PQ por uno con la cantidad de cada impresión
+ *
+ * Si todos los campos están dentro de ^FD y no hay campos serie, se compila
+ * también el formato
+ * almacenado: cada ^FD con campos se reemplaza por ^FNn en la descarga (^DF)
+ * y la invocación (^XF) envía solo esos ^FNn con sus datos.
+ */
+public final class ZplTemplateCompiler {
+
+    private static final char INDICADOR_DEFECTO = '_';
+    private static final int LARGO_BASE = 8; // Los nombres de objeto ZPL admiten hasta 16 caracteres
+
+    private ZplTemplateCompiler() {
+    }
+
+    /**
+     * Compila una plantilla.
+     *
+     * @param nombre Nombre de la plantilla
+     * @param fuente Texto ZPL con campos {{...}}
+     * @return Plantilla compilada
+     * @throws IllegalArgumentException si la plantilla es inválida
+     */
+    public static ZplTemplate compilar(String nombre, String fuente) {
+        String zpl = agregarCodificacion(quitarComando(normalizar(fuente), "^PQ"));
+
+        int fin = zpl.lastIndexOf("^XZ");
+        if (fin < 0) {
+            throw new IllegalArgumentException("La plantilla " + nombre + " no tiene ^XZ");
+        }
+
+        List<Object> segmentos = new ArrayList<>();
+        StringBuilder estatico = new StringBuilder(zpl.length());
+        compilarCuerpo(nombre, zpl.substring(0, fin), segmentos, estatico);
+        estatico.append("^PQ");
+        cerrarEstatico(segmentos, estatico);
+        segmentos.add(ZplTemplate.CANTIDAD);
+        estatico.append(zpl, fin, zpl.length());
+        cerrarEstatico(segmentos, estatico);
+
+        boolean serializada = segmentos.stream().anyMatch(ZplTemplate.Serie.class::isInstance);
+        return new ZplTemplate(nombre, segmentos, serializada ? null : compilarFormato(nombre, zpl));
+    }
+
+    /**
+     * Compila el formato almacenado de una plantilla ya normalizada.
+     *
+     * @return Formato, o null si la plantilla tiene campos fuera de ^FD o más
+     *         de una etiqueta
+     */
+    private static FormatoAlmacenado compilarFormato(String nombre, String zpl) {
+        int xa = zpl.indexOf("^XA");
+        int fin = zpl.lastIndexOf("^XZ");
+        if (xa < 0 || fin < xa || zpl.indexOf("^XA", xa + 3) >= 0) {
+            return null;
+        }
+        String cuerpo = zpl.substring(xa + 3, fin);
+
+        StringBuilder formato = new StringBuilder(cuerpo.length());
+        List<Object> segmentos = new ArrayList<>();
+        StringBuilder estatico = new StringBuilder();
+        int numero = 0;
+        int i = 0;
+        while (i < cuerpo.length()) {
+            int fd = cuerpo.indexOf("^FD", i);
+            int campo = cuerpo.indexOf("{{", i);
+            if (campo >= 0 && (fd < 0 || campo < fd)) {
+                return null; // Un campo fuera de ^FD no puede enviarse con ^FN
+            }
+            if (fd < 0) {
+                formato.append(cuerpo, i, cuerpo.length());
+                break;
+            }
+
+            int fs = cuerpo.indexOf("^FS", fd);
+            if (fs < 0) {
+                fs = cuerpo.length();
+            }
+            if (campo < 0 || campo > fs) {
+                formato.append(cuerpo, i, fs);
+                i = fs;
+                continue;
+            }
+
+            formato.append(cuerpo, i, fd);
+            char indicador = indicadorFH(formato);
+            if (indicador == 0) {
+                indicador = INDICADOR_DEFECTO;
+            }
+            numero++;
+            formato.append("^FN").append(numero);
+            estatico.append("^FN").append(numero).append("^FH").append(indicador).append("^FD");
+            compilarDatos(nombre, cuerpo.substring(fd + 3, fs), indicador, segmentos, estatico);
+            estatico.append("^FS");
+            i = fs;
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(formato.toString().getBytes(StandardCharsets.UTF_8));
+        String nombreFormato = "R:" + baseDeNombre(nombre) + String.format("%06X", crc.getValue() & 0xFFFFFF) + ".ZPL";
+
+        estatico.append("^PQ");
+        cerrarEstatico(segmentos, estatico);
+        segmentos.add(ZplTemplate.CANTIDAD);
+        segmentos.add("^XZ".getBytes(StandardCharsets.US_ASCII));
+        segmentos.add(0, ("^XA^XF" + nombreFormato + "^FS").getBytes(StandardCharsets.US_ASCII));
+
+        byte[] descarga = ("^XA^DF" + nombreFormato + "^FS" + formato + "^XZ").getBytes(StandardCharsets.UTF_8);
+        return new FormatoAlmacenado(nombre, nombreFormato, descarga, new ZplTemplate(nombre, segmentos));
+    }
+
+    /**
+     * Deriva la parte fija del nombre del formato: letras y dígitos en
+     * mayúsculas, hasta {@value #LARGO_BASE} caracteres.
+     */
+    private static String baseDeNombre(String nombre) {
+        StringBuilder base = new StringBuilder(LARGO_BASE);
+        for (char c : nombre.toUpperCase(Locale.ROOT).toCharArray()) {
+            if (base.length() == LARGO_BASE) {
+                break;
+            }
+            if ((c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')) {
+                base.append(c);
+            }
+        }
+        return base.length() == 0 ? "ETIQUETA" : base.toString();
+    }
+
+    private static void compilarCuerpo(String nombre, String zpl, List<Object> segmentos, StringBuilder estatico) {
+        int i = 0;
+        while (i < zpl.length()) {
+            int fd = zpl.indexOf("^FD", i);
+            int campo = zpl.indexOf("{{", i);
+
+            // Campo fuera de ^FD (p. ej. coordenadas o un gráfico): numérico o imagen, sin escapar
+            if (campo >= 0 && (fd < 0 || campo < fd)) {
+                estatico.append(zpl, i, campo);
+                int cierre = finDeCampo(nombre, zpl, campo);
+                ZplTemplate.Campo declarado = leerCampo(nombre, zpl.substring(campo + 2, cierre), false,
+                        INDICADOR_DEFECTO);
+                if (declarado.getTipo() == TipoCampo.TEXTO || declarado.getTipo() == TipoCampo.SERIE) {
+                    throw new IllegalArgumentException("El campo " + declarado.getNombre() + " de la plantilla "
+                            + nombre + " está fuera de ^FD y debe ser entero, decimal o imagen");
+                }
+                cerrarEstatico(segmentos, estatico);
+                segmentos.add(declarado);
+                i = cierre + 2;
+                continue;
+            }
+            if (fd < 0) {
+                estatico.append(zpl, i, zpl.length());
+                break;
+            }
+
+            int fs = zpl.indexOf("^FS", fd);
+            if (fs < 0) {
+                fs = zpl.length();
+            }
+            if (zpl.indexOf("{{", fd) < 0 || zpl.indexOf("{{", fd) > fs) {
+                estatico.append(zpl, i, fs);
+                i = fs;
+                continue;
+            }
+
+            estatico.append(zpl, i, fd);
+            char indicador = indicadorFH(estatico);
+            if (indicador == 0) {
+                indicador = INDICADOR_DEFECTO;
+                estatico.append("^FH").append(indicador);
+            }
+            estatico.append("^FD");
+            compilarDatos(nombre, zpl.substring(fd + 3, fs), indicador, segmentos, estatico);
+            i = fs;
+        }
+    }
+
+    /**
+     * Compila el contenido de un ^FD con campos. El texto fijo se escapa para
+     * que el indicador de ^FH no se interprete como secuencia hexadecimal.
+     */
+    private static void compilarDatos(String nombre, String datos, char indicador, List<Object> segmentos,
+            StringBuilder estatico) {
+        int i = 0;
+        while (i < datos.length()) {
+            int campo = datos.indexOf("{{", i);
+            int hasta = campo < 0 ? datos.length() : campo;
+            for (int j = i; j < hasta; j++) {
+                char c = datos.charAt(j);
+                if (c == indicador) {
+                    estatico.append(indicador).append(String.format("%02X", (int) c));
+                } else {
+                    estatico.append(c);
+                }
+            }
+            if (campo < 0) {
+                return;
+            }
+            int cierre = finDeCampo(nombre, datos, campo);
+            ZplTemplate.Campo declarado = leerCampo(nombre, datos.substring(campo + 2, cierre), true, indicador);
+            if (declarado.getTipo() == TipoCampo.IMAGEN) {
+                throw new IllegalArgumentException("El campo " + declarado.getNombre() + " de la plantilla "
+                        + nombre + " es una imagen y debe ir fuera de ^FD");
+            }
+            cerrarEstatico(segmentos, estatico);
+            segmentos.add(declarado);
+            i = cierre + 2;
+            if (declarado.getTipo() == TipoCampo.SERIE) {
+                // ^SF se alinea desde la derecha: el texto fijo posterior se salta con '%'
+                if (datos.indexOf("{{", i) >= 0) {
+                    throw new IllegalArgumentException("El campo serie " + declarado.getNombre()
+                            + " de la plantilla " + nombre + " debe ser el último campo de su ^FD");
+                }
+                for (int j = i; j < datos.length(); j++) {
+                    char c = datos.charAt(j);
+                    if (c == indicador) {
+                        estatico.append(indicador).append(String.format("%02X", (int) c));
+                    } else {
+                        estatico.append(c);
+                    }
+                }
+                cerrarEstatico(segmentos, estatico);
+                segmentos.add(new ZplTemplate.Serie(declarado.getNombre(), datos.length() - i));
+                return;
+            }
+        }
+    }
+
+    private static int finDeCampo(String nombre, String texto, int inicio) {
+        int cierre = texto.indexOf("}}", inicio);
+        if (cierre < 0) {
+            throw new IllegalArgumentException("Campo sin cerrar en la plantilla " + nombre + ": "
+                    + texto.substring(inicio, Math.min(texto.length(), inicio + 30)));
+        }
+        return cierre;
+    }
+
+    private static ZplTemplate.Campo leerCampo(String plantilla, String declaracion, boolean escapar,
+            char indicador) {
+        int separador = declaracion.indexOf(':');
+        String nombre = (separador < 0 ? declaracion : declaracion.substring(0, separador)).trim();
+        TipoCampo tipo = separador < 0 ? TipoCampo.TEXTO : TipoCampo.desde(declaracion.substring(separador + 1));
+        if (nombre.isEmpty()) {
+            throw new IllegalArgumentException("Campo sin nombre en la plantilla " + plantilla);
+        }
+        return new ZplTemplate.Campo(nombre, tipo, escapar, indicador);
+    }
+
+    /**
+     * Busca un ^FH en el campo actual (desde el último ^FS) y devuelve su
+     * indicador, o 0 si el campo no tiene ^FH.
+     */
+    private static char indicadorFH(StringBuilder estatico) {
+        int inicioCampo = estatico.lastIndexOf("^FS");
+        int fh = estatico.lastIndexOf("^FH");
+        if (fh < 0 || fh < inicioCampo) {
+            return 0;
+        }
+        int siguiente = fh + 3;
+        if (siguiente < estatico.length() && estatico.charAt(siguiente) != '^'
+                && estatico.charAt(siguiente) != '~') {
+            return estatico.charAt(siguiente);
+        }
+        return INDICADOR_DEFECTO;
+    }
+
+    private static void cerrarEstatico(List<Object> segmentos, StringBuilder estatico) {
+        if (estatico.length() > 0) {
+            segmentos.add(estatico.toString().getBytes(StandardCharsets.UTF_8));
+            estatico.setLength(0);
+        }
+    }
+
+    /**
+     * Quita saltos de línea y comentarios. Las líneas "FX" sin ^ de los diseños
+     * se tratan como comentario hasta el siguiente comando.
+     */
+    private static String normalizar(String fuente) {
+        StringBuilder resultado = new StringBuilder(fuente.length());
+        for (String linea : fuente.split("\r?\n")) {
+            String contenido = linea.strip();
+            if (contenido.startsWith("FX")) {
+                int comando = siguienteComando(contenido, 0);
+                contenido = comando < 0 ? "" : contenido.substring(comando);
+            }
+            resultado.append(contenido);
+        }
+        return quitarComando(resultado.toString(), "^FX");
+    }
+
+    /**
+     * Elimina todas las apariciones de un comando con sus parámetros.
+     */
+    private static String quitarComando(String zpl, String comando) {
+        int inicio = zpl.indexOf(comando);
+        if (inicio < 0) {
+            return zpl;
+        }
+        StringBuilder resultado = new StringBuilder(zpl.length());
+        int i = 0;
+        while (inicio >= 0) {
+            resultado.append(zpl, i, inicio);
+            int fin = siguienteComando(zpl, inicio + comando.length());
+            i = fin < 0 ? zpl.length() : fin;
+            inicio = zpl.indexOf(comando, i);
+        }
+        resultado.append(zpl, i, zpl.length());
+        return resultado.toString();
+    }
+
+    private static String agregarCodificacion(String zpl) {
+        int xa = zpl.indexOf("^XA");
+        if (xa < 0 || zpl.contains("^CI")) {
+            return zpl;
+        }
+        return zpl.substring(0, xa + 3) + "^CI28" + zpl.substring(xa + 3);
+    }
+
+    private static int siguienteComando(String texto, int desde) {
+        for (int i = desde; i < texto.length(); i++) {
+            char c = texto.charAt(i);
+            if (c == '^' || c == '~') {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,376 @@
+package com.example.backend_jovyweb.modules.printer.template;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Registro de plantillas ZPL precompiladas.
+ *
+ * Al iniciar compila las plantillas incluidas en la aplicación
+ * (printer/designs-tickets/*.zpl en el classpath). Si printer.template.dir
+ * indica un directorio, sus archivos *.zpl reemplazan a las incluidas del
+ * mismo nombre o agregan nuevas, y se revisa periódicamente su fecha de
+ * modificación para recompilar los que cambiaron (recarga en caliente). Si una
+ * plantilla modificada no compila, se conserva la versión anterior; si se
+ * borra del directorio, vuelve la versión incluida.
+ *
+ * Cada hilo renderiza en su propio {@link ZplBuffer}, que se reutiliza entre
+ * etiquetas.
+ *
+ * Con printer.template.stored-formats activo, las plantillas que lo admiten se
+ * renderizan como invocación de su {@link FormatoAlmacenado} (^XF + ^FN); el
+ * servicio Zebra descarga el formato a la impresora cuando no lo tiene. Se
+ * conservan también las versiones anteriores de cada formato para los
+ * trabajos que ya estaban en cola al recargar.
+ *
+ * Los gráficos ^GF sin comprimir de las plantillas (y del ZPL que envían los
+ * clientes) se recomprimen con {@link ZplGraficoConverter}, y los campos
+ * imagen se convierten a ^GF comprimido antes de renderizar.
+ */
+@Component
+public class ZplTemplateRegistry {
+
+    private static final Logger logger = LoggerFactory.getLogger(ZplTemplateRegistry.class);
+    private static final String EXTENSION = ".zpl";
+    private static final String PLANTILLAS_INCLUIDAS = "classpath*:printer/designs-tickets/*" + EXTENSION;
+
+    @Value("${printer.template.dir:}")
+    private String directorio; // Opcional: plantillas que reemplazan a las incluidas, con recarga en caliente
+
+    @Value("${printer.template.stored-formats:true}")
+    private boolean usarFormatosAlmacenados;
+
+    /**
+     * Plantilla compilada junto con la versión del archivo de donde se leyó.
+     */
+    private static class Cargada {
+        final ZplTemplate plantilla;
+        final long modificado;
+        final long tamano;
+
+        Cargada(ZplTemplate plantilla, long modificado, long tamano) {
+            this.plantilla = plantilla;
+            this.modificado = modificado;
+            this.tamano = tamano;
+        }
+    }
+
+    // Plantillas por nombre (archivo sin extensión)
+    private final Map<String, Cargada> plantillas = new ConcurrentHashMap<>();
+
+    // Plantillas incluidas en la aplicación, para restaurarlas si se borra su reemplazo
+    private final Map<String, Cargada> incluidas = new HashMap<>();
+
+    // Formatos almacenados por nombre en la impresora (todas las versiones)
+    private final Map<String, FormatoAlmacenado> formatos = new ConcurrentHashMap<>();
+
+    private volatile boolean directorioAusente; // Evita repetir el aviso en cada revisión
+
+    private final ThreadLocal<ZplBuffer> buffers = ThreadLocal.withInitial(ZplBuffer::new);
+
+    private final ZplGraficoConverter graficos;
+
+    /**
+     * Constructor con inyección del conversor de gráficos.
+     *
+     * @param graficos Conversor de imágenes a ^GF comprimido
+     */
+    public ZplTemplateRegistry(ZplGraficoConverter graficos) {
+        this.graficos = graficos;
+    }
+
+    @PostConstruct
+    public void iniciar() {
+        cargarIncluidas();
+        recargar();
+        logger.info("Plantillas ZPL cargadas{}: {}", tieneDirectorio() ? " (con reemplazos de " + directorio + ")" : "",
+                plantillas.keySet());
+    }
+
+    private boolean tieneDirectorio() {
+        return directorio != null && !directorio.isBlank();
+    }
+
+    /**
+     * Compila las plantillas incluidas en el classpath de la aplicación.
+     */
+    private void cargarIncluidas() {
+        Resource[] recursos;
+        try {
+            recursos = new PathMatchingResourcePatternResolver().getResources(PLANTILLAS_INCLUIDAS);
+        } catch (IOException e) {
+            logger.error("No se pudieron listar las plantillas incluidas {}: {}", PLANTILLAS_INCLUIDAS, e.getMessage());
+            return;
+        }
+        for (Resource recurso : recursos) {
+            String nombre = recurso.getFilename();
+            if (nombre == null) {
+                continue;
+            }
+            nombre = nombre.substring(0, nombre.length() - EXTENSION.length());
+            try (InputStream entrada = recurso.getInputStream()) {
+                Cargada cargada = compilar(nombre, new String(entrada.readAllBytes(), StandardCharsets.UTF_8), -1, -1);
+                incluidas.put(nombre, cargada);
+                publicar(nombre, cargada);
+            } catch (IOException | IllegalArgumentException e) {
+                logger.error("No se pudo compilar la plantilla incluida {}: {}", nombre, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Recompila las plantillas del directorio que cambiaron; las que se
+     * borraron vuelven a su versión incluida o se descartan.
+     */
+    @Scheduled(fixedDelayString = "${printer.template.reload-interval-ms:5000}")
+    public void recargar() {
+        if (!tieneDirectorio()) {
+            return;
+        }
+        Path dir = Paths.get(directorio);
+        if (!Files.isDirectory(dir)) {
+            if (!directorioAusente) {
+                logger.warn("Directorio de plantillas ZPL no encontrado: {}", dir.toAbsolutePath());
+                directorioAusente = true;
+            }
+            return;
+        }
+        directorioAusente = false;
+
+        Set<String> encontradas = new HashSet<>();
+        try (DirectoryStream<Path> archivos = Files.newDirectoryStream(dir, "*" + EXTENSION)) {
+            for (Path archivo : archivos) {
+                String nombre = archivo.getFileName().toString();
+                nombre = nombre.substring(0, nombre.length() - EXTENSION.length());
+                encontradas.add(nombre);
+                cargarSiCambio(nombre, archivo);
+            }
+        } catch (IOException e) {
+            logger.error("Error al leer el directorio de plantillas {}: {}", dir, e.getMessage());
+            return;
+        }
+
+        for (String nombre : Set.copyOf(plantillas.keySet())) {
+            if (encontradas.contains(nombre)) {
+                continue;
+            }
+            Cargada incluida = incluidas.get(nombre);
+            if (incluida == null) {
+                plantillas.remove(nombre);
+                logger.info("Plantilla ZPL eliminada: {}", nombre);
+            } else if (plantillas.get(nombre) != incluida) {
+                publicar(nombre, incluida);
+                logger.info("Plantilla ZPL restaurada a la versión incluida: {}", nombre);
+            }
+        }
+        formatos.values().removeIf(formato -> !plantillas.containsKey(formato.getPlantilla()));
+    }
+
+    private void cargarSiCambio(String nombre, Path archivo) {
+        try {
+            long modificado = Files.getLastModifiedTime(archivo).toMillis();
+            long tamano = Files.size(archivo);
+            Cargada actual = plantillas.get(nombre);
+            if (actual != null && actual.modificado == modificado && actual.tamano == tamano) {
+                return;
+            }
+
+            Cargada cargada = compilar(nombre, Files.readString(archivo, StandardCharsets.UTF_8), modificado, tamano);
+            publicar(nombre, cargada);
+            if (actual != null) {
+                logger.info("Plantilla ZPL recargada: {} (campos: {})", nombre, cargada.plantilla.getCampos().keySet());
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            logger.error("No se pudo compilar la plantilla {}: {}", nombre, e.getMessage());
+        }
+    }
+
+    private Cargada compilar(String nombre, String fuente, long modificado, long tamano) {
+        return new Cargada(ZplTemplateCompiler.compilar(nombre, graficos.recomprimir(fuente)), modificado, tamano);
+    }
+
+    private void publicar(String nombre, Cargada cargada) {
+        plantillas.put(nombre, cargada);
+        if (cargada.plantilla.getFormato() != null) {
+            formatos.put(cargada.plantilla.getFormato().getNombre(), cargada.plantilla.getFormato());
+        }
+    }
+
+    /**
+     * Obtiene una plantilla compilada.
+     *
+     * @param nombre Nombre de la plantilla
+     * @return Optional con la plantilla
+     */
+    public Optional<ZplTemplate> obtener(String nombre) {
+        Cargada cargada = plantillas.get(nombre);
+        return cargada == null ? Optional.empty() : Optional.of(cargada.plantilla);
+    }
+
+    /**
+     * Obtiene un formato almacenado por su nombre en la impresora.
+     *
+     * @param nombre Nombre del formato (p. ej. R:PALLETS3FA2C1.ZPL)
+     * @return Optional con el formato
+     */
+    public Optional<FormatoAlmacenado> obtenerFormato(String nombre) {
+        return Optional.ofNullable(formatos.get(nombre));
+    }
+
+    /**
+     * Obtiene los campos de cada plantilla cargada.
+     *
+     * @return Mapa nombre de plantilla -> (campo -> tipo)
+     */
+    public Map<String, Map<String, TipoCampo>> listar() {
+        Map<String, Map<String, TipoCampo>> resultado = new TreeMap<>();
+        plantillas.forEach((nombre, cargada) -> resultado.put(nombre, cargada.plantilla.getCampos()));
+        return resultado;
+    }
+
+    /**
+     * Renderiza una etiqueta en el buffer del hilo y devuelve una copia de
+     * tamaño exacto.
+     *
+     * @param nombre   Nombre de la plantilla
+     * @param valores  Valores de los campos
+     * @param cantidad Número de copias
+     * @return Bytes ZPL listos para enviar
+     * @throws IllegalArgumentException si la plantilla no existe o los valores
+     *                                  son inválidos
+     */
+    public byte[] renderizar(String nombre, Map<String, ?> valores, int cantidad) {
+        ZplTemplate plantilla = obtener(nombre)
+                .orElseThrow(() -> new IllegalArgumentException("Plantilla no encontrada: " + nombre));
+        if (plantilla.tieneImagenes()) {
+            valores = convertirImagenes(plantilla, valores);
+        }
+        ZplBuffer buffer = buffers.get();
+        buffer.reiniciar();
+        if (usarFormatosAlmacenados && plantilla.getFormato() != null) {
+            plantilla.renderizarAlmacenado(valores, cantidad, buffer);
+        } else {
+            plantilla.renderizar(valores, cantidad, buffer);
+        }
+        return buffer.toByteArray();
+    }
+
+    /**
+     * Renderiza una plantilla con campos serie como un solo formato numerado
+     * en la impresora (^SF): las copias llevan inicio, inicio + incremento,
+     * inicio + 2 * incremento, ... Los campos serie no se envían en los
+     * valores; todos toman el número de la copia.
+     *
+     * @param nombre     Nombre de la plantilla
+     * @param valores    Valores de los demás campos
+     * @param inicio     Primer número
+     * @param incremento Incremento entre copias (1 o más)
+     * @param cantidad   Número de copias
+     * @param digitos    Ancho mínimo del número (se completa con ceros)
+     * @return Bytes ZPL listos para enviar
+     * @throws IllegalArgumentException si la plantilla no existe, no tiene
+     *                                  campos serie o los valores son inválidos
+     */
+    public byte[] renderizarSerie(String nombre, Map<String, ?> valores, long inicio, int incremento,
+            int cantidad, int digitos) {
+        ZplTemplate plantilla = obtener(nombre)
+                .orElseThrow(() -> new IllegalArgumentException("Plantilla no encontrada: " + nombre));
+        if (inicio < 0 || incremento < 1 || cantidad < 1) {
+            throw new IllegalArgumentException("La serie requiere inicio >= 0, incremento >= 1 y cantidad >= 1");
+        }
+        long ultimo;
+        try {
+            ultimo = Math.addExact(inicio, Math.multiplyExact((long) cantidad - 1, incremento));
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("La serie excede el número máximo", e);
+        }
+        // Ancho fijo para que la impresora no pierda dígitos al incrementar
+        int ancho = Math.max(digitos, Math.max(Long.toString(ultimo).length(),
+                Integer.toString(incremento).length()));
+        String formato = "%0" + ancho + "d";
+
+        Map<String, Object> conSerie = new HashMap<>(valores);
+        for (Map.Entry<String, TipoCampo> campo : plantilla.getCampos().entrySet()) {
+            if (campo.getValue() == TipoCampo.SERIE) {
+                conSerie.put(campo.getKey(), String.format(formato, inicio));
+            }
+        }
+        Map<String, ?> convertidos = plantilla.tieneImagenes() ? convertirImagenes(plantilla, conSerie) : conSerie;
+
+        ZplBuffer buffer = buffers.get();
+        buffer.reiniciar();
+        plantilla.renderizarSerie(convertidos, cantidad, String.format(formato, incremento), buffer);
+        return buffer.toByteArray();
+    }
+
+    /**
+     * Obtiene los bytes de una etiqueta indicada como ZPL completo o como
+     * plantilla del servidor con sus campos (exactamente una de las dos).
+     *
+     * @param templateZPL ZPL completo enviado por el cliente, o null
+     * @param plantilla   Nombre de la plantilla del servidor, o null
+     * @param campos      Valores de los campos de la plantilla
+     * @param cantidad    Número de copias
+     * @return Bytes ZPL listos para enviar
+     * @throws IllegalArgumentException si la etiqueta es inválida
+     */
+    public byte[] renderizarEtiqueta(String templateZPL, String plantilla, Map<String, ?> campos, int cantidad) {
+        boolean tieneZPL = templateZPL != null && !templateZPL.isBlank();
+        boolean tienePlantilla = plantilla != null && !plantilla.isBlank();
+        if (tieneZPL == tienePlantilla) {
+            throw new IllegalArgumentException("Debe indicar PRI_PlantillaZPL o PRI_Plantilla (solo uno)");
+        }
+        if (tienePlantilla) {
+            return renderizar(plantilla, campos != null ? campos : Collections.emptyMap(), cantidad);
+        }
+        return ZplFormato.ajustarCantidad(graficos.recomprimir(templateZPL), cantidad)
+                .getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Reemplaza los valores de los campos imagen (base64 o bytes) por su
+     * gráfico convertido. Los demás valores se copian sin cambios.
+     */
+    private Map<String, ?> convertirImagenes(ZplTemplate plantilla, Map<String, ?> valores) {
+        Map<String, Object> convertidos = new HashMap<>(valores);
+        for (Map.Entry<String, TipoCampo> campo : plantilla.getCampos().entrySet()) {
+            if (campo.getValue() != TipoCampo.IMAGEN) {
+                continue;
+            }
+            Object valor = valores.get(campo.getKey());
+            try {
+                if (valor instanceof byte[] imagen) {
+                    convertidos.put(campo.getKey(), graficos.convertir(imagen));
+                } else if (valor instanceof CharSequence base64) {
+                    convertidos.put(campo.getKey(), graficos.convertir(base64.toString()));
+                }
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("El campo " + campo.getKey() + " de la plantilla "
+                        + plantilla.getNombre() + " no es una imagen válida: " + e.getMessage(), e);
+            }
+        }
+        return convertidos;
+    }
+}
@@ -0,0 +1,145 @@
+package com.example.backend_jovyweb.modules.printer.transport;
+
+import com.example.backend_jovyweb.modules.printer.model.HostStatus;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Interpreta las respuestas de estado de las impresoras Zebra.
+ *
+ * ~HS responde tres cadenas delimitadas por STX/ETX:
+ * - 1: aaa,b,c,dddd,eee,f,g,h,iii,j,k,l (b = sin papel, c = pausa,
+ * eee = formatos en buffer, f = buffer lleno, j = RAM corrupta,
+ * k/l = temperatura baja/alta)
+ * - 2: mmm,n,o,p,q,r,s,t,uuuuuuuu,v,www (o = cabezal abierto, p = sin ribbon,
+ * t = etiqueta esperando, uuuuuuuu = etiquetas restantes)
+ * - 3: xxxx,y (contraseña y RAM estática, no se usan)
+ *
+ * ~HQES responde una sola trama con líneas "ERRORS: f gggggggg hhhhhhhh" y
+ * "WARNINGS: f gggggggg hhhhhhhh", donde hhhhhhhh es la máscara baja.
+ *
+ * Por el canal de estado Link-OS, device.host_status devuelve las mismas tres
+ * tramas de ~HS; head.latch ("ok"/"open") y media.status ("ok"/"out") sirven
+ * de respaldo en firmwares que no la implementan.
+ */
+public final class HostStatusParser {
+
+    private HostStatusParser() {
+    }
+
+    /**
+     * Interpreta las tres tramas de una respuesta ~HS.
+     *
+     * @param tramas Contenido de las tramas (sin STX/ETX)
+     * @return Estado de la impresora
+     * @throws IllegalArgumentException si la respuesta no tiene el formato
+     *                                  esperado
+     */
+    public static HostStatus parsearHS(List<String> tramas) {
+        if (tramas.size() < 2) {
+            throw new IllegalArgumentException("Respuesta ~HS incompleta: " + tramas);
+        }
+        String[] linea1 = tramas.get(0).trim().split(",");
+        String[] linea2 = tramas.get(1).trim().split(",");
+        if (linea1.length < 12 || linea2.length < 9) {
+            throw new IllegalArgumentException("Respuesta ~HS con formato inesperado: " + tramas);
+        }
+
+        HostStatus estado = new HostStatus();
+        estado.setPapelAgotado(bandera(linea1[1]));
+        estado.setPausada(bandera(linea1[2]));
+        estado.setFormatosEnBuffer(entero(linea1[4]));
+        estado.setBufferLleno(bandera(linea1[5]));
+        estado.setRamCorrupta(bandera(linea1[9]));
+        estado.setTemperaturaFueraDeRango(bandera(linea1[10]) || bandera(linea1[11]));
+
+        estado.setCabezalAbierto(bandera(linea2[2]));
+        estado.setRibbonAgotado(bandera(linea2[3]));
+        estado.setEtiquetaEsperando(bandera(linea2[7]));
+        estado.setEtiquetasRestantes(entero(linea2[8]));
+        return estado;
+    }
+
+    /**
+     * Interpreta los valores SGD consultados por el canal de estado.
+     *
+     * @param valores Valor de cada clave SGD (device.host_status, head.latch,
+     *                media.status)
+     * @return Estado de la impresora
+     * @throws IllegalArgumentException si no hay ningún valor utilizable
+     */
+    public static HostStatus parsearSgd(Map<String, String> valores) {
+        String hostStatus = valores.get("device.host_status");
+        if (conocido(hostStatus)) {
+            List<String> tramas = new ArrayList<>();
+            for (String trama : hostStatus.split("[\\x02\\x03\\r\\n]+")) {
+                if (!trama.isBlank()) {
+                    tramas.add(trama);
+                }
+            }
+            return parsearHS(tramas);
+        }
+
+        String cabezal = valores.get("head.latch");
+        String papel = valores.get("media.status");
+        if (!conocido(cabezal) && !conocido(papel)) {
+            throw new IllegalArgumentException("Respuesta SGD sin estado: " + valores);
+        }
+        HostStatus estado = new HostStatus();
+        estado.setCabezalAbierto("open".equalsIgnoreCase(valor(cabezal)));
+        estado.setPapelAgotado("out".equalsIgnoreCase(valor(papel)));
+        return estado;
+    }
+
+    /**
+     * Interpreta una respuesta ~HQES y devuelve las máscaras de errores y
+     * advertencias (palabra baja).
+     *
+     * @param trama Contenido de la trama (sin STX/ETX)
+     * @return Arreglo {errores, advertencias}
+     * @throws IllegalArgumentException si la respuesta no tiene el formato
+     *                                  esperado
+     */
+    public static long[] parsearHQES(String trama) {
+        long errores = -1;
+        long advertencias = -1;
+        for (String linea : trama.split("\r?\n")) {
+            String limpia = linea.trim();
+            if (limpia.startsWith("ERRORS:")) {
+                errores = mascaraBaja(limpia.substring("ERRORS:".length()));
+            } else if (limpia.startsWith("WARNINGS:")) {
+                advertencias = mascaraBaja(limpia.substring("WARNINGS:".length()));
+            }
+        }
+        if (errores < 0 || advertencias < 0) {
+            throw new IllegalArgumentException("Respuesta ~HQES con formato inesperado: " + trama);
+        }
+        return new long[] { errores, advertencias };
+    }
+
+    private static long mascaraBaja(String valores) {
+        String[] partes = valores.trim().split("\\s+");
+        if (partes.length < 3) {
+            throw new IllegalArgumentException("Máscara ~HQES incompleta: " + valores);
+        }
+        return Long.parseLong(partes[2], 16);
+    }
+
+    private static boolean conocido(String valor) {
+        return valor != null && !valor.isBlank() && !"?".equals(valor.trim());
+    }
+
+    private static String valor(String valor) {
+        return valor != null ? valor.trim() : "";
+    }
+
+    private static boolean bandera(String valor) {
+        return "1".equals(valor.trim());
+    }
+
+    private static int entero(String valor) {
+        return Integer.parseInt(valor.trim());
+    }
+}
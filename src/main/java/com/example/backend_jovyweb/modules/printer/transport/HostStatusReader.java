@@ -0,0 +1,147 @@
+package com.example.backend_jovyweb.modules.printer.transport;
+
+import com.example.backend_jovyweb.modules.printer.model.HostStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+/**
+ * Lector de respuestas de estado de una conexión.
+ *
+ * Recibe los bytes de la impresora en el hilo de E/S, arma las tramas
+ * STX...ETX y las asigna en orden FIFO a las consultas pendientes: la
+ * impresora responde las consultas ~HS/~HQES en el mismo orden en que las
+ * recibe. Las tramas que llegan sin consulta pendiente se descartan.
+ *
+ * Una consulta que expira sigue en la cola para que su respuesta tardía no se
+ * asigne a la siguiente; quien detecta el timeout debe invalidar la conexión.
+ */
+public class HostStatusReader {
+
+    private static final Logger logger = LoggerFactory.getLogger(HostStatusReader.class);
+    private static final byte STX = 0x02;
+    private static final byte ETX = 0x03;
+    private static final byte[] COMANDO_HS = "~HS".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] COMANDO_HQES = "~HQES".getBytes(StandardCharsets.US_ASCII);
+
+    /**
+     * Consulta enviada que espera respuesta.
+     */
+    private static class Pendiente<T> {
+        final int tramasEsperadas;
+        final Function<List<String>, T> parser;
+        final List<String> tramas = new ArrayList<>(3);
+        final CompletableFuture<T> futuro = new CompletableFuture<>();
+
+        Pendiente(int tramasEsperadas, Function<List<String>, T> parser) {
+            this.tramasEsperadas = tramasEsperadas;
+            this.parser = parser;
+        }
+
+        void completar() {
+            try {
+                futuro.complete(parser.apply(tramas));
+            } catch (RuntimeException e) {
+                futuro.completeExceptionally(e);
+            }
+        }
+    }
+
+    private final Deque<Pendiente<?>> pendientes = new ArrayDeque<>();
+    private final ByteArrayOutputStream trama = new ByteArrayOutputStream(256);
+    private boolean dentroDeTrama;
+
+    /**
+     * Envía ~HS y devuelve el estado interpretado.
+     *
+     * @param canal Canal de la impresora
+     * @return Futuro con el estado de la impresora
+     */
+    public CompletableFuture<HostStatus> consultarHS(NioConnection canal) {
+        return enviar(COMANDO_HS, 3, HostStatusParser::parsearHS, canal);
+    }
+
+    /**
+     * Envía ~HQES y devuelve las máscaras {errores, advertencias}.
+     *
+     * @param canal Canal de la impresora
+     * @return Futuro con las máscaras de errores y advertencias
+     */
+    public CompletableFuture<long[]> consultarHQES(NioConnection canal) {
+        return enviar(COMANDO_HQES, 1, tramas -> HostStatusParser.parsearHQES(tramas.get(0)), canal);
+    }
+
+    /**
+     * Registra la consulta pendiente y la encola en el canal de forma atómica,
+     * para que el orden de la cola coincida con el orden de envío.
+     */
+    private synchronized <T> CompletableFuture<T> enviar(byte[] comando, int tramas,
+            Function<List<String>, T> parser, NioConnection canal) {
+        Pendiente<T> pendiente = new Pendiente<>(tramas, parser);
+        pendientes.add(pendiente);
+        canal.escribir(ByteBuffer.wrap(comando)).whenComplete((ok, error) -> {
+            if (error != null) {
+                pendiente.futuro.completeExceptionally(error);
+            }
+        });
+        return pendiente.futuro;
+    }
+
+    /**
+     * Procesa bytes recibidos de la impresora. Se ejecuta en el hilo de E/S.
+     *
+     * @param buffer Bytes recibidos; se consumen por completo
+     */
+    public synchronized void recibir(ByteBuffer buffer) {
+        while (buffer.hasRemaining()) {
+            byte b = buffer.get();
+            if (b == STX) {
+                dentroDeTrama = true;
+                trama.reset();
+            } else if (b == ETX && dentroDeTrama) {
+                dentroDeTrama = false;
+                tramaCompleta(trama.toString(StandardCharsets.US_ASCII));
+            } else if (dentroDeTrama) {
+                trama.write(b);
+            }
+        }
+    }
+
+    /**
+     * Falla las consultas pendientes y descarta la trama en curso. Se usa al
+     * cerrar o reabrir la conexión.
+     *
+     * @param causa Motivo del reinicio
+     */
+    public synchronized void reiniciar(Throwable causa) {
+        Pendiente<?> pendiente;
+        while ((pendiente = pendientes.poll()) != null) {
+            pendiente.futuro.completeExceptionally(causa);
+        }
+        dentroDeTrama = false;
+        trama.reset();
+    }
+
+    private void tramaCompleta(String contenido) {
+        Pendiente<?> pendiente = pendientes.peek();
+        if (pendiente == null) {
+            logger.debug("Trama de estado sin consulta pendiente descartada: {}", contenido);
+            return;
+        }
+
+        pendiente.tramas.add(contenido);
+        if (pendiente.tramas.size() >= pendiente.tramasEsperadas) {
+            pendientes.poll();
+            pendiente.completar();
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.example.backend_jovyweb.modules.printer.transport;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+
+/**
+ * Conexión TCP no bloqueante hacia una impresora.
+ *
+ * Todas las operaciones de E/S las ejecuta el hilo del {@link ZebraNioTransport};
+ * los demás hilos solo encolan buffers y esperan el futuro de cada escritura.
+ * Las escrituras de una misma conexión salen en el orden en que se encolaron.
+ */
+public class NioConnection {
+
+    /**
+     * Escritura pendiente: buffer a enviar y futuro que se completa al terminar.
+     */
+    static class PendingWrite {
+        final ByteBuffer buffer;
+        final CompletableFuture<Void> futuro;
+
+        PendingWrite(ByteBuffer buffer, CompletableFuture<Void> futuro) {
+            this.buffer = buffer;
+            this.futuro = futuro;
+        }
+    }
+
+    private final ZebraNioTransport transport;
+    private final String host;
+    private final int puerto;
+
+    final SocketChannel channel;
+    final Queue<PendingWrite> escrituras = new ConcurrentLinkedQueue<>();
+    final Consumer<ByteBuffer> lector;
+    final CompletableFuture<NioConnection> conexionFuture = new CompletableFuture<>();
+    SelectionKey key;
+
+    private volatile boolean abierta = true;
+
+    NioConnection(ZebraNioTransport transport, SocketChannel channel, String host, int puerto,
+            Consumer<ByteBuffer> lector) {
+        this.transport = transport;
+        this.channel = channel;
+        this.host = host;
+        this.puerto = puerto;
+        this.lector = lector;
+    }
+
+    /**
+     * Encola un buffer para enviarlo a la impresora.
+     *
+     * El buffer no debe modificarse hasta que el futuro se complete. Si la
+     * escritura no termina dentro del timeout de escritura la conexión se cierra.
+     *
+     * @param buffer Bytes a enviar (desde position hasta limit)
+     * @return Futuro que se completa cuando todos los bytes se escribieron
+     */
+    public CompletableFuture<Void> escribir(ByteBuffer buffer) {
+        CompletableFuture<Void> futuro = new CompletableFuture<>();
+        if (!abierta) {
+            futuro.completeExceptionally(new IOException("Conexión cerrada con " + this));
+            return futuro;
+        }
+        escrituras.add(new PendingWrite(buffer, futuro));
+        transport.solicitarEscritura(this);
+        return futuro.orTimeout(transport.getWriteTimeoutMs(), TimeUnit.MILLISECONDS)
+                .whenComplete((ok, error) -> {
+                    if (error instanceof TimeoutException) {
+                        cerrar();
+                    }
+                });
+    }
+
+    /**
+     * Indica si la conexión sigue abierta.
+     *
+     * @return true si no se ha cerrado ni detectado desconexión
+     */
+    public boolean isOpen() {
+        return abierta && channel.isOpen();
+    }
+
+    /**
+     * Cierra la conexión y falla las escrituras pendientes.
+     */
+    public void cerrar() {
+        if (!abierta) {
+            return;
+        }
+        abierta = false;
+        transport.cerrar(this);
+    }
+
+    void marcarCerrada() {
+        abierta = false;
+    }
+
+    public String getHost() {
+        return host;
+    }
+
+    public int getPuerto() {
+        return puerto;
+    }
+
+    @Override
+    public String toString() {
+        return host + ":" + puerto;
+    }
+}
@@ -0,0 +1,197 @@
+package com.example.backend_jovyweb.modules.printer.transport;
+
+import com.example.backend_jovyweb.modules.printer.model.HostStatus;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Conexión administrada por el {@link PrinterConnectionPool} para una
+ * impresora.
+ *
+ * Conserva los datos de conexión de la impresora aunque el canal TCP se cierre,
+ * para poder reconectar con backoff sin volver a consultar la base de datos.
+ * Las respuestas de estado (~HS/~HQES) se asocian a sus consultas con un
+ * {@link HostStatusReader} por conexión.
+ *
+ * También recuerda qué formatos almacenados (^DF) se descargaron a la
+ * impresora. Se olvidan al cerrar o reabrir el canal: la impresora pudo
+ * reiniciarse y perder su memoria R:.
+ */
+public class PrinterConnection {
+
+    private final int printerId;
+    private final String ip;
+    private final int puerto;
+    private final String nombre;
+    private final String tipo;
+
+    final HostStatusReader respuestas = new HostStatusReader();
+
+    // Formato descargado por plantilla: plantilla -> nombre en la impresora
+    private final Map<String, String> formatos = new ConcurrentHashMap<>();
+
+    volatile NioConnection canal;
+    volatile CompletableFuture<NioConnection> conectando;
+    volatile long ultimoUso = System.currentTimeMillis();
+    volatile long ultimaLectura;
+    volatile HostStatus ultimoEstado;
+    volatile int fallosConsecutivos;
+    volatile long desconectadaDesde; // 0 mientras no se haya detectado una desconexión
+    volatile long proximoIntento;
+
+    PrinterConnection(int printerId, String ip, int puerto, String nombre, String tipo) {
+        this.printerId = printerId;
+        this.ip = ip;
+        this.puerto = puerto;
+        this.nombre = nombre;
+        this.tipo = tipo;
+    }
+
+    /**
+     * Indica si el canal TCP está abierto.
+     *
+     * @return true si la conexión es utilizable
+     */
+    public boolean isValid() {
+        NioConnection actual = canal;
+        return actual != null && actual.isOpen();
+    }
+
+    /**
+     * Encola bytes para enviarlos a la impresora y actualiza la marca de uso.
+     *
+     * @param buffer Bytes a enviar
+     * @return Futuro que se completa cuando los bytes se escribieron
+     */
+    public CompletableFuture<Void> escribir(ByteBuffer buffer) {
+        NioConnection actual = canal;
+        if (actual == null || !actual.isOpen()) {
+            return CompletableFuture.failedFuture(new IOException("Impresora [" + printerId + "] desconectada"));
+        }
+        ultimoUso = System.currentTimeMillis();
+        return actual.escribir(buffer);
+    }
+
+    /**
+     * Consulta el estado de la impresora con ~HS.
+     *
+     * @param timeoutMs Tiempo máximo de espera de la respuesta
+     * @return Futuro con el estado; falla con TimeoutException si no responde
+     */
+    public CompletableFuture<HostStatus> consultarEstado(long timeoutMs) {
+        NioConnection actual = canal;
+        if (actual == null || !actual.isOpen()) {
+            return CompletableFuture.failedFuture(new IOException("Impresora [" + printerId + "] desconectada"));
+        }
+        return respuestas.consultarHS(actual)
+                .orTimeout(timeoutMs, TimeUnit.MILLISECONDS)
+                .thenApply(estado -> {
+                    ultimoEstado = estado;
+                    return estado;
+                });
+    }
+
+    /**
+     * Consulta el estado con ~HS y los errores extendidos con ~HQES, enviando
+     * ambas consultas seguidas.
+     *
+     * @param timeoutMs Tiempo máximo de espera de las respuestas
+     * @return Futuro con el estado combinado
+     */
+    public CompletableFuture<HostStatus> consultarEstadoExtendido(long timeoutMs) {
+        NioConnection actual = canal;
+        if (actual == null || !actual.isOpen()) {
+            return CompletableFuture.failedFuture(new IOException("Impresora [" + printerId + "] desconectada"));
+        }
+        CompletableFuture<HostStatus> hs = respuestas.consultarHS(actual);
+        CompletableFuture<long[]> hqes = respuestas.consultarHQES(actual);
+        return hs.thenCombine(hqes, (estado, mascaras) -> {
+            estado.aplicarEstadoExtendido(mascaras[0], mascaras[1]);
+            ultimoEstado = estado;
+            return estado;
+        }).orTimeout(timeoutMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Obtiene el formato de una plantilla descargado a la impresora.
+     *
+     * @param plantilla Nombre de la plantilla
+     * @return Nombre del formato en la impresora, o null si no tiene ninguno
+     */
+    public String getFormatoCargado(String plantilla) {
+        return formatos.get(plantilla);
+    }
+
+    /**
+     * Registra que la impresora tiene guardado el formato de una plantilla.
+     *
+     * @param plantilla Nombre de la plantilla
+     * @param formato   Nombre del formato en la impresora
+     */
+    public void registrarFormato(String plantilla, String formato) {
+        formatos.put(plantilla, formato);
+    }
+
+    /**
+     * Olvida los formatos descargados; se volverán a enviar en la siguiente
+     * impresión que los use.
+     */
+    public void olvidarFormatos() {
+        formatos.clear();
+    }
+
+    boolean mismoDestino(String ip, int puerto) {
+        return this.ip != null && this.ip.equals(ip) && this.puerto == puerto;
+    }
+
+    void cerrarCanal() {
+        NioConnection actual = canal;
+        respuestas.reiniciar(new IOException("Conexión con impresora [" + printerId + "] cerrada"));
+        formatos.clear();
+        if (actual != null) {
+            actual.cerrar();
+        }
+    }
+
+    public int getPrinterId() {
+        return printerId;
+    }
+
+    public String getIp() {
+        return ip;
+    }
+
+    public int getPuerto() {
+        return puerto;
+    }
+
+    public String getNombre() {
+        return nombre;
+    }
+
+    public String getTipo() {
+        return tipo;
+    }
+
+    public long getUltimoUso() {
+        return ultimoUso;
+    }
+
+    /**
+     * Obtiene el último estado recibido de la impresora.
+     *
+     * @return Último estado, o null si nunca respondió
+     */
+    public HostStatus getUltimoEstado() {
+        return ultimoEstado;
+    }
+
+    public int getFallosConsecutivos() {
+        return fallosConsecutivos;
+    }
+}
@@ -0,0 +1,335 @@
+package com.example.backend_jovyweb.modules.printer.transport;
+
+import com.example.backend_jovyweb.modules.printer.metrics.PrinterMetrics;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Pool de conexiones TCP a impresoras Zebra.
+ *
+ * Responsabilidades:
+ * - Mantener como máximo una conexión por impresora y un límite global de
+ * conexiones abiertas (se desaloja la menos usada si está ociosa)
+ * - Sondear periódicamente con ~HS las conexiones sin tráfico y cerrar las que
+ * no responden a tiempo (sockets medio abiertos, p. ej. tras apagar y encender
+ * la impresora)
+ * - Cerrar las conexiones ociosas
+ * - Reconectar con backoff exponencial y jitter, sin reintentar en cada
+ * petición contra una impresora caída
+ * - Registrar métricas de conexión (intentos, fallos, reconexiones y tiempo
+ * sin conexión) en {@link PrinterMetrics}
+ */
+@Component
+public class PrinterConnectionPool {
+
+    private static final Logger logger = LoggerFactory.getLogger(PrinterConnectionPool.class);
+
+    private final ZebraNioTransport transport;
+    private final PrinterMetrics metrics;
+
+    @Value("${printer.pool.max-size:64}")
+    private int maxConexiones;
+
+    @Value("${printer.pool.idle-timeout-ms:600000}")
+    private long idleTimeoutMs; // Conexiones sin uso por más tiempo se cierran
+
+    @Value("${printer.pool.keepalive-interval-ms:15000}")
+    private long keepaliveIntervalMs;
+
+    @Value("${printer.status.timeout-ms:3000}")
+    private long statusTimeoutMs;
+
+    @Value("${printer.pool.backoff-base-ms:500}")
+    private long backoffBaseMs;
+
+    @Value("${printer.pool.backoff-max-ms:30000}")
+    private long backoffMaxMs;
+
+    // Conexiones administradas: printerId -> conexión
+    private final Map<Integer, PrinterConnection> conexiones = new ConcurrentHashMap<>();
+
+    /**
+     * Constructor con inyección del transporte NIO.
+     *
+     * @param transport Transporte TCP no bloqueante
+     * @param metrics   Métricas de impresoras
+     */
+    public PrinterConnectionPool(ZebraNioTransport transport, PrinterMetrics metrics) {
+        this.transport = transport;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Registra el gauge de conexiones activas.
+     */
+    @PostConstruct
+    public void iniciar() {
+        metrics.registrarConexionesActivas(this, PrinterConnectionPool::conexionesActivas);
+    }
+
+    /**
+     * Obtiene una conexión abierta para la impresora, conectando si es necesario.
+     *
+     * Si la impresora falló recientemente y está en espera de reintento, falla
+     * de inmediato sin intentar conectar.
+     *
+     * @param printerId ID de la impresora
+     * @param ip        IP de la impresora
+     * @param puerto    Puerto TCP
+     * @param nombre    Nombre de la impresora (para logs)
+     * @param tipo      Tipo de conexión
+     * @return Conexión abierta
+     * @throws IOException si no se pudo conectar o la impresora está en backoff
+     */
+    public PrinterConnection obtener(int printerId, String ip, int puerto, String nombre, String tipo)
+            throws IOException {
+        PrinterConnection conexion = conexiones.compute(printerId, (id, actual) -> {
+            if (actual != null && actual.mismoDestino(ip, puerto)) {
+                return actual;
+            }
+            if (actual != null) {
+                logger.info("Cambió el destino de la impresora [{}], cerrando conexión anterior", id);
+                actual.cerrarCanal();
+            }
+            return new PrinterConnection(id, ip, puerto, nombre, tipo);
+        });
+
+        if (conexion.isValid()) {
+            conexion.ultimoUso = System.currentTimeMillis();
+            return conexion;
+        }
+
+        marcarDesconectada(conexion);
+        long espera = conexion.proximoIntento - System.currentTimeMillis();
+        if (espera > 0) {
+            throw new IOException("Impresora [" + printerId + "] no disponible, próximo reintento en "
+                    + espera + " ms");
+        }
+
+        liberarEspacio(printerId);
+
+        try {
+            iniciarConexion(conexion).get();
+            conexion.ultimoUso = System.currentTimeMillis();
+            return conexion;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Conexión interrumpida con impresora [" + printerId + "]", e);
+        } catch (ExecutionException e) {
+            throw new IOException("No se pudo conectar a " + ip + ":" + puerto + ": " + e.getCause(), e);
+        }
+    }
+
+    /**
+     * Obtiene la conexión de una impresora solo si está abierta.
+     *
+     * @param printerId ID de la impresora
+     * @return Optional con la conexión abierta
+     */
+    public Optional<PrinterConnection> obtenerExistente(int printerId) {
+        PrinterConnection conexion = conexiones.get(printerId);
+        return conexion != null && conexion.isValid() ? Optional.of(conexion) : Optional.empty();
+    }
+
+    /**
+     * Marca como rota la conexión de una impresora tras un error de escritura o
+     * lectura. La conexión se cierra y se reintenta con backoff.
+     *
+     * @param printerId ID de la impresora
+     * @param causa     Error detectado
+     */
+    public void invalidar(int printerId, Throwable causa) {
+        PrinterConnection conexion = conexiones.get(printerId);
+        if (conexion != null) {
+            logger.warn("Conexión con impresora [{}] invalidada: {}", printerId, causa.getMessage());
+            conexion.cerrarCanal();
+            registrarFallo(conexion);
+        }
+    }
+
+    /**
+     * Cierra y elimina del pool la conexión de una impresora.
+     *
+     * @param printerId ID de la impresora
+     * @return true si había una conexión registrada
+     */
+    public boolean cerrar(int printerId) {
+        PrinterConnection conexion = conexiones.remove(printerId);
+        if (conexion != null) {
+            conexion.cerrarCanal();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Indica si la impresora tiene una conexión abierta.
+     *
+     * @param printerId ID de la impresora
+     * @return true si está conectada
+     */
+    public boolean estaConectada(int printerId) {
+        return obtenerExistente(printerId).isPresent();
+    }
+
+    /**
+     * Obtiene el número de conexiones abiertas en el pool.
+     *
+     * @return Conexiones abiertas
+     */
+    public int conexionesActivas() {
+        return (int) conexiones.values().stream().filter(PrinterConnection::isValid).count();
+    }
+
+    /**
+     * Mantenimiento periódico del pool: desaloja conexiones ociosas, sondea con
+     * ~HS las conexiones sin tráfico (cerrando las que no responden a tiempo) y
+     * reconecta en segundo plano las que se cayeron.
+     */
+    @Scheduled(fixedDelayString = "${printer.pool.keepalive-interval-ms:15000}")
+    public void mantenimiento() {
+        long ahora = System.currentTimeMillis();
+
+        for (PrinterConnection conexion : conexiones.values()) {
+            if (ahora - conexion.ultimoUso > idleTimeoutMs) {
+                logger.info("Cerrando conexión ociosa con impresora [{}]", conexion.getPrinterId());
+                conexiones.remove(conexion.getPrinterId(), conexion);
+                conexion.cerrarCanal();
+                continue;
+            }
+
+            if (!conexion.isValid()) {
+                marcarDesconectada(conexion);
+                if (conexion.conectando == null && ahora >= conexion.proximoIntento) {
+                    logger.debug("Reconectando en segundo plano impresora [{}]", conexion.getPrinterId());
+                    iniciarConexion(conexion);
+                }
+                continue;
+            }
+
+            if (ahora - Math.max(conexion.ultimoUso, conexion.ultimaLectura) >= keepaliveIntervalMs) {
+                sondear(conexion);
+            }
+        }
+    }
+
+    /**
+     * Envía ~HS a una conexión sin tráfico. Si no responde a tiempo, la conexión
+     * está medio abierta y se cierra para reconectar con backoff.
+     */
+    private void sondear(PrinterConnection conexion) {
+        NioConnection sondeado = conexion.canal;
+        conexion.consultarEstado(statusTimeoutMs).whenComplete((estado, error) -> {
+            if (error != null && conexion.canal == sondeado) {
+                logger.warn("Impresora [{}] no respondió al sondeo, conexión medio abierta: {}",
+                        conexion.getPrinterId(), error.toString());
+                conexion.cerrarCanal();
+                registrarFallo(conexion);
+            }
+        });
+    }
+
+    /**
+     * Inicia (o reutiliza) el intento de conexión en curso de una impresora.
+     */
+    private CompletableFuture<NioConnection> iniciarConexion(PrinterConnection conexion) {
+        synchronized (conexion) {
+            if (conexion.conectando != null) {
+                return conexion.conectando;
+            }
+            metrics.intentoConexion(conexion.getPrinterId());
+            CompletableFuture<NioConnection> futuro = transport.conectar(conexion.getIp(), conexion.getPuerto(),
+                    buffer -> {
+                        conexion.ultimaLectura = System.currentTimeMillis();
+                        conexion.respuestas.recibir(buffer);
+                    });
+            conexion.conectando = futuro;
+            futuro.whenComplete((canal, error) -> {
+                synchronized (conexion) {
+                    conexion.conectando = null;
+                    if (error == null) {
+                        conexion.respuestas.reiniciar(new IOException("Conexión reabierta"));
+                        conexion.olvidarFormatos();
+                        if (conexion.desconectadaDesde > 0) {
+                            metrics.reconexion(conexion.getPrinterId(),
+                                    System.currentTimeMillis() - conexion.desconectadaDesde);
+                            conexion.desconectadaDesde = 0;
+                        }
+                        conexion.canal = canal;
+                        conexion.fallosConsecutivos = 0;
+                        conexion.proximoIntento = 0;
+                    } else {
+                        metrics.falloConexion(conexion.getPrinterId());
+                        registrarFallo(conexion);
+                    }
+                }
+            });
+            return futuro;
+        }
+    }
+
+    /**
+     * Registra un fallo y calcula el próximo reintento con backoff exponencial y
+     * jitter ("equal jitter": mitad fija, mitad aleatoria).
+     */
+    private void registrarFallo(PrinterConnection conexion) {
+        marcarDesconectada(conexion);
+        int fallos = ++conexion.fallosConsecutivos;
+        long exponencial = backoffBaseMs << Math.min(fallos - 1, 20);
+        long espera = Math.min(backoffMaxMs, exponencial);
+        long conJitter = espera / 2 + ThreadLocalRandom.current().nextLong(espera / 2 + 1);
+        conexion.proximoIntento = System.currentTimeMillis() + conJitter;
+        logger.debug("Impresora [{}]: fallo {} consecutivo, reintento en {} ms", conexion.getPrinterId(), fallos,
+                conJitter);
+    }
+
+    /**
+     * Anota el momento en que se detectó que una conexión que estuvo abierta se
+     * perdió; el primer intento de conexión no cuenta como desconexión.
+     */
+    private void marcarDesconectada(PrinterConnection conexion) {
+        if (conexion.canal != null && conexion.desconectadaDesde == 0) {
+            conexion.desconectadaDesde = System.currentTimeMillis();
+        }
+    }
+
+    /**
+     * Si el pool alcanzó su límite, cierra la conexión abierta menos usada que
+     * esté ociosa.
+     *
+     * @throws IOException si todas las conexiones abiertas están en uso
+     */
+    private void liberarEspacio(int printerIdSolicitante) throws IOException {
+        if (conexionesActivas() < maxConexiones) {
+            return;
+        }
+        long limiteUso = System.currentTimeMillis() - keepaliveIntervalMs;
+        Optional<PrinterConnection> candidata = conexiones.values().stream()
+                .filter(c -> c.getPrinterId() != printerIdSolicitante)
+                .filter(PrinterConnection::isValid)
+                .filter(c -> c.ultimoUso < limiteUso)
+                .min(Comparator.comparingLong(PrinterConnection::getUltimoUso));
+
+        if (candidata.isEmpty()) {
+            throw new IOException("Pool de conexiones lleno (" + maxConexiones + " impresoras en uso)");
+        }
+
+        PrinterConnection desalojada = candidata.get();
+        logger.info("Pool lleno, desalojando conexión con impresora [{}]", desalojada.getPrinterId());
+        conexiones.remove(desalojada.getPrinterId(), desalojada);
+        desalojada.cerrarCanal();
+    }
+}
@@ -0,0 +1,141 @@
+package com.example.backend_jovyweb.modules.printer.transport;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Lector de respuestas SGD del canal de estado Link-OS (puerto 9200).
+ *
+ * Las consultas viajan en formato JSON: {}{"clave":null,...} pide el valor de
+ * cada clave y la impresora responde un objeto {"clave":"valor",...}. Los
+ * bytes se reciben en el hilo de E/S; las respuestas se delimitan contando
+ * llaves (fuera de las cadenas) y se asignan en orden FIFO a las consultas
+ * pendientes, igual que {@link HostStatusReader} con ~HS.
+ *
+ * Una consulta que expira sigue en la cola para que su respuesta tardía no se
+ * asigne a la siguiente; quien detecta el timeout debe cerrar el canal.
+ */
+public class SgdStatusReader {
+
+    private static final Logger logger = LoggerFactory.getLogger(SgdStatusReader.class);
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final Deque<CompletableFuture<Map<String, String>>> pendientes = new ArrayDeque<>();
+    private final ByteArrayOutputStream respuesta = new ByteArrayOutputStream(512);
+    private int profundidad;
+    private boolean enCadena;
+    private boolean escape;
+
+    /**
+     * Envía una consulta getvar de varias claves SGD.
+     *
+     * @param claves Claves SGD (p. ej. device.host_status)
+     * @param canal  Canal de estado de la impresora
+     * @return Futuro con el valor de cada clave; las claves que la impresora no
+     *         conoce vienen como "?"
+     */
+    public synchronized CompletableFuture<Map<String, String>> consultar(List<String> claves, NioConnection canal) {
+        Map<String, Object> consulta = new LinkedHashMap<>();
+        for (String clave : claves) {
+            consulta.put(clave, null);
+        }
+        byte[] comando;
+        try {
+            comando = ("{}" + MAPPER.writeValueAsString(consulta)).getBytes(StandardCharsets.UTF_8);
+        } catch (JsonProcessingException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+
+        CompletableFuture<Map<String, String>> futuro = new CompletableFuture<>();
+        pendientes.add(futuro);
+        canal.escribir(ByteBuffer.wrap(comando)).whenComplete((ok, error) -> {
+            if (error != null) {
+                futuro.completeExceptionally(error);
+            }
+        });
+        return futuro;
+    }
+
+    /**
+     * Procesa bytes recibidos de la impresora. Se ejecuta en el hilo de E/S.
+     *
+     * @param buffer Bytes recibidos; se consumen por completo
+     */
+    public synchronized void recibir(ByteBuffer buffer) {
+        while (buffer.hasRemaining()) {
+            byte b = buffer.get();
+            if (profundidad == 0) {
+                if (b == '{') {
+                    respuesta.reset();
+                    respuesta.write(b);
+                    profundidad = 1;
+                }
+                continue; // Espacios y saltos de línea entre respuestas
+            }
+            respuesta.write(b);
+            if (enCadena) {
+                if (escape) {
+                    escape = false;
+                } else if (b == '\\') {
+                    escape = true;
+                } else if (b == '"') {
+                    enCadena = false;
+                }
+            } else if (b == '"') {
+                enCadena = true;
+            } else if (b == '{') {
+                profundidad++;
+            } else if (b == '}' && --profundidad == 0) {
+                respuestaCompleta(respuesta.toString(StandardCharsets.UTF_8));
+            }
+        }
+    }
+
+    /**
+     * Falla las consultas pendientes y descarta la respuesta en curso. Se usa
+     * al cerrar o reabrir el canal.
+     *
+     * @param causa Motivo del reinicio
+     */
+    public synchronized void reiniciar(Throwable causa) {
+        CompletableFuture<Map<String, String>> pendiente;
+        while ((pendiente = pendientes.poll()) != null) {
+            pendiente.completeExceptionally(causa);
+        }
+        respuesta.reset();
+        profundidad = 0;
+        enCadena = false;
+        escape = false;
+    }
+
+    private void respuestaCompleta(String json) {
+        CompletableFuture<Map<String, String>> pendiente = pendientes.poll();
+        if (pendiente == null) {
+            logger.debug("Respuesta SGD sin consulta pendiente descartada: {}", json);
+            return;
+        }
+        try {
+            Map<String, String> valores = new LinkedHashMap<>();
+            JsonNode raiz = MAPPER.readTree(json);
+            for (Map.Entry<String, JsonNode> campo : raiz.properties()) {
+                valores.put(campo.getKey(), campo.getValue().isNull() ? null : campo.getValue().asText());
+            }
+            pendiente.complete(valores);
+        } catch (JsonProcessingException | RuntimeException e) {
+            pendiente.completeExceptionally(new IllegalArgumentException("Respuesta SGD inválida: " + json, e));
+        }
+    }
+}
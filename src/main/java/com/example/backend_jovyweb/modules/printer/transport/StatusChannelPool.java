@@ -0,0 +1,235 @@
+package com.example.backend_jovyweb.modules.printer.transport;
+
+import com.example.backend_jovyweb.modules.printer.model.HostStatus;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pool de canales de estado Link-OS, separado del pool de impresión
+ * ({@link PrinterConnectionPool}).
+ *
+ * Las impresoras Link-OS atienden consultas SGD en un puerto propio
+ * (printer.status-channel.port, 9200 por defecto) que no comparte el buffer de
+ * recepción con los datos de impresión del 9100. Consultar el estado por este
+ * canal responde aunque la impresora esté recibiendo un trabajo largo, y no
+ * intercala ~HS entre los bytes de un trabajo.
+ *
+ * Responsabilidades:
+ * - Mantener como máximo un canal de estado por impresora, conectado la
+ * primera vez que se consulta
+ * - Cerrar el canal si una consulta no responde a tiempo
+ * - Si la impresora no acepta conexiones en el puerto (firmware sin Link-OS),
+ * no reintentar hasta printer.status-channel.retry-ms; mientras tanto la
+ * consulta falla y el llamador usa el canal de impresión
+ */
+@Component
+public class StatusChannelPool {
+
+    private static final Logger logger = LoggerFactory.getLogger(StatusChannelPool.class);
+
+    /** Claves SGD consultadas para armar el estado. */
+    public static final List<String> CLAVES_ESTADO = List.of("device.host_status", "head.latch", "media.status");
+
+    private final ZebraNioTransport transport;
+
+    @Value("${printer.status-channel.enabled:true}")
+    private boolean habilitado;
+
+    @Value("${printer.status-channel.port:9200}")
+    private int puerto;
+
+    @Value("${printer.status-channel.timeout-ms:3000}")
+    private long timeoutMs;
+
+    @Value("${printer.status-channel.retry-ms:60000}")
+    private long reintentoMs;
+
+    // Canales administrados: printerId -> canal
+    private final Map<Integer, Canal> canales = new ConcurrentHashMap<>();
+
+    /**
+     * Constructor con inyección del transporte NIO.
+     *
+     * @param transport Transporte TCP no bloqueante
+     */
+    public StatusChannelPool(ZebraNioTransport transport) {
+        this.transport = transport;
+    }
+
+    /**
+     * Indica si las consultas de estado usan el canal Link-OS.
+     *
+     * @return true si printer.status-channel.enabled está activo
+     */
+    public boolean isHabilitado() {
+        return habilitado;
+    }
+
+    /**
+     * Consulta el estado de una impresora por el canal de estado.
+     *
+     * @param printerId ID de la impresora
+     * @param ip        IP de la impresora
+     * @return Futuro con el estado; falla si el canal está deshabilitado, no
+     *         conecta o la impresora no responde a tiempo
+     */
+    public CompletableFuture<HostStatus> consultarEstado(int printerId, String ip) {
+        return consultar(printerId, ip, CLAVES_ESTADO).thenApply(HostStatusParser::parsearSgd);
+    }
+
+    /**
+     * Consulta claves SGD por el canal de estado.
+     *
+     * @param printerId ID de la impresora
+     * @param ip        IP de la impresora
+     * @param claves    Claves SGD
+     * @return Futuro con el valor de cada clave
+     */
+    public CompletableFuture<Map<String, String>> consultar(int printerId, String ip, List<String> claves) {
+        if (!habilitado) {
+            return CompletableFuture.failedFuture(new IOException("Canal de estado deshabilitado"));
+        }
+        Canal canal = canales.compute(printerId, (id, actual) -> {
+            if (actual != null && actual.ip.equals(ip)) {
+                return actual;
+            }
+            if (actual != null) {
+                actual.cerrar(new IOException("Cambió la IP de la impresora"));
+            }
+            return new Canal(id, ip);
+        });
+        return canal.conectar().thenCompose(conexion -> {
+            CompletableFuture<Map<String, String>> consulta = canal.lector.consultar(claves, conexion)
+                    .orTimeout(timeoutMs, TimeUnit.MILLISECONDS);
+            consulta.whenComplete((valores, error) -> {
+                if (error != null && canal.cerrar(conexion, new IOException("Canal de estado cerrado", error))) {
+                    logger.warn("Canal de estado de impresora [{}] sin respuesta, cerrado: {}", printerId,
+                            error.toString());
+                }
+            });
+            return consulta;
+        });
+    }
+
+    /**
+     * Cierra y elimina del pool el canal de estado de una impresora.
+     *
+     * @param printerId ID de la impresora
+     * @return true si había un canal registrado
+     */
+    public boolean cerrar(int printerId) {
+        Canal canal = canales.remove(printerId);
+        if (canal != null) {
+            canal.cerrar(new IOException("Canal de estado cerrado"));
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Cierra todos los canales de estado al apagar la aplicación.
+     */
+    @PreDestroy
+    public void cerrarTodos() {
+        canales.keySet().forEach(this::cerrar);
+    }
+
+    /**
+     * Canal de estado de una impresora: conexión al puerto de estado y lector
+     * de respuestas SGD.
+     */
+    private final class Canal {
+
+        private final int printerId;
+        private final String ip;
+        private final SgdStatusReader lector = new SgdStatusReader();
+        private NioConnection conexion;
+        private CompletableFuture<NioConnection> conectando;
+        private long proximoIntento;
+
+        private Canal(int printerId, String ip) {
+            this.printerId = printerId;
+            this.ip = ip;
+        }
+
+        /**
+         * Devuelve la conexión abierta, o inicia (o reutiliza) el intento de
+         * conexión en curso.
+         */
+        private synchronized CompletableFuture<NioConnection> conectar() {
+            if (conexion != null && conexion.isOpen()) {
+                return CompletableFuture.completedFuture(conexion);
+            }
+            if (conectando != null) {
+                return conectando;
+            }
+            long espera = proximoIntento - System.currentTimeMillis();
+            if (espera > 0) {
+                return CompletableFuture.failedFuture(new IOException("Canal de estado de impresora ["
+                        + printerId + "] no disponible, próximo reintento en " + espera + " ms"));
+            }
+
+            // El llamador recibe el futuro de whenComplete: consulta cuando el canal ya quedó registrado
+            CompletableFuture<NioConnection> futuro = transport.conectar(ip, puerto, lector::recibir)
+                    .whenComplete((abierta, error) -> {
+                        if (error == null) {
+                            lector.reiniciar(new IOException("Canal de estado reabierto"));
+                        }
+                        synchronized (this) {
+                            conectando = null;
+                            if (error == null) {
+                                conexion = abierta;
+                                logger.debug("Canal de estado conectado a impresora [{}] en {}:{}", printerId, ip,
+                                        puerto);
+                            } else {
+                                proximoIntento = System.currentTimeMillis() + reintentoMs;
+                                logger.info("Impresora [{}] sin canal de estado en {}:{}, se usa el canal de "
+                                        + "impresión: {}", printerId, ip, puerto, error.toString());
+                            }
+                        }
+                    });
+            if (!futuro.isDone()) {
+                conectando = futuro;
+            }
+            return futuro;
+        }
+
+        private void cerrar(Throwable causa) {
+            NioConnection actual;
+            synchronized (this) {
+                actual = conexion;
+                conexion = null;
+            }
+            if (actual != null) {
+                actual.cerrar();
+            }
+            lector.reiniciar(causa);
+        }
+
+        /**
+         * Cierra la conexión solo si sigue siendo la misma en la que falló la
+         * consulta (no una reabierta después).
+         */
+        private boolean cerrar(NioConnection fallida, Throwable causa) {
+            synchronized (this) {
+                if (conexion != fallida) {
+                    return false;
+                }
+                conexion = null;
+            }
+            fallida.cerrar();
+            lector.reiniciar(causa);
+            return true;
+        }
+    }
+}
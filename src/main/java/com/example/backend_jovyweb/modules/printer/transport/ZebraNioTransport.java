@@ -0,0 +1,287 @@
+package com.example.backend_jovyweb.modules.printer.transport;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Transporte TCP no bloqueante para impresoras Zebra.
+ *
+ * Un único hilo con un {@link Selector} atiende la conexión, escritura y
+ * lectura de todas las impresoras. Los hilos de negocio encolan
+ * {@link ByteBuffer}s y reciben un {@link CompletableFuture} por operación, con
+ * timeouts explícitos de conexión y escritura. Ningún hilo queda bloqueado en
+ * un socket de una impresora lenta o apagada.
+ */
+@Component
+public class ZebraNioTransport {
+
+    private static final Logger logger = LoggerFactory.getLogger(ZebraNioTransport.class);
+    private static final int TAMANO_BUFFER_LECTURA = 4096;
+
+    @Value("${printer.tcp.connect-timeout-ms:3000}")
+    private long connectTimeoutMs;
+
+    @Value("${printer.tcp.write-timeout-ms:10000}")
+    private long writeTimeoutMs;
+
+    private Selector selector;
+    private Thread hiloIO;
+    private volatile boolean activo;
+
+    // Tareas a ejecutar en el hilo de E/S (registro de canales, cambios de interés)
+    private final Queue<Runnable> tareas = new ConcurrentLinkedQueue<>();
+
+    // Buffer de lectura compartido: solo lo usa el hilo de E/S
+    private final ByteBuffer bufferLectura = ByteBuffer.allocateDirect(TAMANO_BUFFER_LECTURA);
+
+    /**
+     * Abre el selector e inicia el hilo de E/S.
+     *
+     * @throws IOException si no se puede abrir el selector
+     */
+    @PostConstruct
+    public void iniciar() throws IOException {
+        selector = Selector.open();
+        activo = true;
+        hiloIO = Thread.ofPlatform()
+                .name("zebra-nio")
+                .daemon(true)
+                .start(this::bucleEventos);
+        logger.info("Transporte NIO de impresoras iniciado (connect timeout {} ms, write timeout {} ms)",
+                connectTimeoutMs, writeTimeoutMs);
+    }
+
+    /**
+     * Detiene el hilo de E/S y cierra todas las conexiones.
+     */
+    @PreDestroy
+    public void detener() {
+        activo = false;
+        if (selector != null) {
+            selector.wakeup();
+        }
+        if (hiloIO != null) {
+            try {
+                hiloIO.join(2000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Inicia una conexión TCP no bloqueante.
+     *
+     * @param host   IP o nombre de la impresora
+     * @param puerto Puerto TCP (normalmente 9100)
+     * @param lector Callback que recibe los bytes leídos; se ejecuta en el hilo de
+     *               E/S y debe consumir el buffer antes de retornar
+     * @return Futuro que se completa con la conexión establecida, o con error si
+     *         no se conecta dentro del timeout
+     */
+    public CompletableFuture<NioConnection> conectar(String host, int puerto, Consumer<ByteBuffer> lector) {
+        SocketChannel channel;
+        try {
+            channel = SocketChannel.open();
+            channel.configureBlocking(false);
+            channel.setOption(StandardSocketOptions.SO_KEEPALIVE, true);
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+
+        NioConnection conexion = new NioConnection(this, channel, host, puerto, lector);
+        ejecutarEnHiloIO(() -> registrarConexion(conexion));
+
+        conexion.conexionFuture.orTimeout(connectTimeoutMs, TimeUnit.MILLISECONDS)
+                .whenComplete((ok, error) -> {
+                    if (error != null) {
+                        conexion.cerrar();
+                    }
+                });
+        return conexion.conexionFuture;
+    }
+
+    /**
+     * Solicita al hilo de E/S que atienda las escrituras pendientes de una
+     * conexión.
+     */
+    void solicitarEscritura(NioConnection conexion) {
+        ejecutarEnHiloIO(() -> {
+            if (!conexion.isOpen()) {
+                fallarEscrituras(conexion, new ClosedChannelException());
+                return;
+            }
+            if (conexion.key != null && conexion.key.isValid() && conexion.conexionFuture.isDone()) {
+                conexion.key.interestOps(conexion.key.interestOps() | SelectionKey.OP_WRITE);
+            }
+        });
+    }
+
+    /**
+     * Cierra una conexión desde el hilo de E/S.
+     */
+    void cerrar(NioConnection conexion) {
+        ejecutarEnHiloIO(() -> cerrarEnHiloIO(conexion, new ClosedChannelException()));
+    }
+
+    long getWriteTimeoutMs() {
+        return writeTimeoutMs;
+    }
+
+    private void ejecutarEnHiloIO(Runnable tarea) {
+        tareas.add(tarea);
+        selector.wakeup();
+    }
+
+    private void registrarConexion(NioConnection conexion) {
+        try {
+            conexion.key = conexion.channel.register(selector, SelectionKey.OP_CONNECT, conexion);
+            if (conexion.channel.connect(new InetSocketAddress(conexion.getHost(), conexion.getPuerto()))) {
+                finalizarConexion(conexion);
+            }
+        } catch (IOException | RuntimeException e) {
+            cerrarEnHiloIO(conexion, e);
+        }
+    }
+
+    private void bucleEventos() {
+        while (activo) {
+            try {
+                selector.select(1000);
+
+                Runnable tarea;
+                while ((tarea = tareas.poll()) != null) {
+                    tarea.run();
+                }
+
+                Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+                while (it.hasNext()) {
+                    SelectionKey key = it.next();
+                    it.remove();
+                    atenderEvento(key);
+                }
+            } catch (Exception e) {
+                logger.error("Error en el bucle de E/S de impresoras: {}", e.getMessage(), e);
+            }
+        }
+
+        for (SelectionKey key : selector.keys()) {
+            cerrarEnHiloIO((NioConnection) key.attachment(), new ClosedChannelException());
+        }
+        try {
+            selector.close();
+        } catch (IOException e) {
+            logger.debug("Error al cerrar selector: {}", e.getMessage());
+        }
+        logger.info("Transporte NIO de impresoras detenido");
+    }
+
+    private void atenderEvento(SelectionKey key) {
+        NioConnection conexion = (NioConnection) key.attachment();
+        try {
+            if (!key.isValid()) {
+                return;
+            }
+            if (key.isConnectable() && conexion.channel.finishConnect()) {
+                finalizarConexion(conexion);
+            }
+            if (key.isValid() && key.isReadable()) {
+                leer(conexion);
+            }
+            if (key.isValid() && key.isWritable()) {
+                escribirPendientes(conexion);
+            }
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Error de E/S con impresora {}: {}", conexion, e.getMessage());
+            cerrarEnHiloIO(conexion, e);
+        }
+    }
+
+    private void finalizarConexion(NioConnection conexion) {
+        int interes = SelectionKey.OP_READ;
+        if (!conexion.escrituras.isEmpty()) {
+            interes |= SelectionKey.OP_WRITE;
+        }
+        conexion.key.interestOps(interes);
+        logger.info("Conexión TCP establecida: {}", conexion);
+        conexion.conexionFuture.complete(conexion);
+    }
+
+    private void leer(NioConnection conexion) throws IOException {
+        bufferLectura.clear();
+        int leidos = conexion.channel.read(bufferLectura);
+        if (leidos < 0) {
+            logger.info("La impresora {} cerró la conexión", conexion);
+            cerrarEnHiloIO(conexion, new ClosedChannelException());
+            return;
+        }
+        if (leidos > 0) {
+            bufferLectura.flip();
+            try {
+                conexion.lector.accept(bufferLectura);
+            } catch (RuntimeException e) {
+                logger.warn("Error procesando respuesta de impresora {}: {}", conexion, e.getMessage());
+            }
+        }
+    }
+
+    private void escribirPendientes(NioConnection conexion) throws IOException {
+        NioConnection.PendingWrite pendiente;
+        while ((pendiente = conexion.escrituras.peek()) != null) {
+            if (pendiente.futuro.isDone()) {
+                // Escritura cancelada o expirada antes de empezar
+                conexion.escrituras.poll();
+                continue;
+            }
+            conexion.channel.write(pendiente.buffer);
+            if (pendiente.buffer.hasRemaining()) {
+                // Buffer de socket lleno: esperar al siguiente OP_WRITE
+                return;
+            }
+            conexion.escrituras.poll();
+            pendiente.futuro.complete(null);
+        }
+        conexion.key.interestOps(conexion.key.interestOps() & ~SelectionKey.OP_WRITE);
+    }
+
+    private void cerrarEnHiloIO(NioConnection conexion, Exception causa) {
+        conexion.marcarCerrada();
+        if (conexion.key != null) {
+            conexion.key.cancel();
+        }
+        try {
+            conexion.channel.close();
+        } catch (IOException e) {
+            logger.debug("Error al cerrar canal de {}: {}", conexion, e.getMessage());
+        }
+        conexion.conexionFuture.completeExceptionally(causa);
+        fallarEscrituras(conexion, causa);
+    }
+
+    private void fallarEscrituras(NioConnection conexion, Exception causa) {
+        NioConnection.PendingWrite pendiente;
+        while ((pendiente = conexion.escrituras.poll()) != null) {
+            pendiente.futuro.completeExceptionally(causa);
+        }
+    }
+}
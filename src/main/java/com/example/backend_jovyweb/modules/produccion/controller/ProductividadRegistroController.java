@@ -1,5 +1,6 @@
 package com.example.backend_jovyweb.modules.produccion.controller;
 
+import com.example.backend_jovyweb.config.IdempotencyKeyStore;
 import com.example.backend_jovyweb.modules.produccion.dto.ProductividadRegistroDTO;
 import com.example.backend_jovyweb.modules.produccion.dto.RegistroProductividadXmlDTO;
 import com.example.backend_jovyweb.modules.produccion.dto.ProductividadRegistroDetalleDTO;
@@ -28,17 +29,20 @@ public class ProductividadRegistroController {
 
         private final ProductividadRegistroService productividadService;
         private final ProduccionDataService produccionDataService;
+        private final IdempotencyKeyStore idempotencyKeyStore;
 
         /**
          * Constructor que inyecta los servicios de productividad.
          * 
          * @param productividadService  Servicio para operaciones de productividad
          * @param produccionDataService Servicio para datos consolidados de producción
+         * @param idempotencyKeyStore   Almacén de claves de idempotencia
          */
         public ProductividadRegistroController(ProductividadRegistroService productividadService,
-                        ProduccionDataService produccionDataService) {
+                        ProduccionDataService produccionDataService, IdempotencyKeyStore idempotencyKeyStore) {
                 this.productividadService = productividadService;
                 this.produccionDataService = produccionDataService;
+                this.idempotencyKeyStore = idempotencyKeyStore;
         }
 
         /*
@@ -75,10 +79,15 @@ public class ProductividadRegistroController {
         @Operation(summary = "Crear registro de productividad (XML)", description = "Guarda un nuevo registro de productividad usando formato XML. Estructura: <root><row ProR002=\"...\" ProR003=\"...\" .../></root>")
         @ApiResponses(value = {
                         @ApiResponse(responseCode = "200", description = "Registro creado exitosamente", content = @Content(mediaType = "application/json", schema = @Schema(implementation = ProductividadRegistroDTO.class))),
-                        @ApiResponse(responseCode = "400", description = "Datos inválidos o faltantes")
+                        @ApiResponse(responseCode = "400", description = "Datos inválidos o faltantes"),
+                        @ApiResponse(responseCode = "409", description = "Solicitud con la misma Idempotency-Key aún en proceso"),
+                        @ApiResponse(responseCode = "422", description = "Idempotency-Key ya usada con otra solicitud")
         })
-        public ProductividadRegistroDTO crearRegistroXML(@RequestBody RegistroProductividadXmlDTO xmlRegistro) {
-                return productividadService.crearRegistroDesdeXmlDto(xmlRegistro);
+        public ProductividadRegistroDTO crearRegistroXML(@RequestBody RegistroProductividadXmlDTO xmlRegistro,
+                        @Parameter(description = "Clave para reintentos sin duplicar el registro") @RequestHeader(value = IdempotencyKeyStore.HEADER, required = false) String idempotencyKey) {
+                // Un reintento con la misma clave retorna el registro ya creado
+                return idempotencyKeyStore.ejecutar("productividad-registros", idempotencyKey, xmlRegistro,
+                                () -> productividadService.crearRegistroDesdeXmlDto(xmlRegistro));
         }
 
         @GetMapping("/registros")
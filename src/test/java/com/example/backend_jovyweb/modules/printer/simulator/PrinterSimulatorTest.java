@@ -0,0 +1,637 @@
+package com.example.backend_jovyweb.modules.printer.simulator;
+
+import com.example.backend_jovyweb.modules.printer.dto.PrinterDTO;
+import com.example.backend_jovyweb.modules.printer.metrics.PrinterMetrics;
+import com.example.backend_jovyweb.modules.printer.model.HostStatus;
+import com.example.backend_jovyweb.modules.printer.repository.PrinterRepository;
+import com.example.backend_jovyweb.modules.printer.repository.impl.PrinterLeaseRepositoryImpl;
+import com.example.backend_jovyweb.modules.printer.service.impl.PrinterCatalog;
+import com.example.backend_jovyweb.modules.printer.service.impl.PrinterCircuitBreaker;
+import com.example.backend_jovyweb.modules.printer.service.impl.PrinterFlowControl;
+import com.example.backend_jovyweb.modules.printer.service.impl.PrinterLeaseManager;
+import com.example.backend_jovyweb.modules.printer.service.impl.PrinterServiceImpl;
+import com.example.backend_jovyweb.modules.printer.service.impl.PrinterStatusPoller;
+import com.example.backend_jovyweb.modules.printer.service.impl.ZebraPrinterServiceImpl;
+import com.example.backend_jovyweb.modules.printer.template.ZplGraficoConverter;
+import com.example.backend_jovyweb.modules.printer.template.ZplTemplateRegistry;
+import com.example.backend_jovyweb.modules.printer.transport.PrinterConnectionPool;
+import com.example.backend_jovyweb.modules.printer.transport.StatusChannelPool;
+import com.example.backend_jovyweb.modules.printer.transport.ZebraNioTransport;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.Inflater;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Pruebas de protocolo y rendimiento de {@link PrinterServiceImpl} contra
+ * impresoras simuladas ({@link ZebraSimulator}), sin base de datos ni
+ * impresoras físicas.
+ *
+ * La prueba de rendimiento registra etiquetas por segundo y latencias p50/p99
+ * para comparar cambios en ZebraPrinterServiceImpl.
+ */
+class PrinterSimulatorTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(PrinterSimulatorTest.class);
+
+    private final List<ZebraSimulator> simuladores = new ArrayList<>();
+    private final PrinterRepository repository = mock(PrinterRepository.class);
+    private ZebraNioTransport transport;
+    private PrinterCatalog catalog;
+    private PrinterMetrics metrics;
+    private JdbcTemplate jdbcTemplate;
+    private PrinterLeaseManager leases;
+    private ZplGraficoConverter graficos;
+    private ZplTemplateRegistry templateRegistry;
+    private StatusChannelPool canalesEstado;
+    private ZebraPrinterServiceImpl zebraPrinterService;
+    private PrinterStatusPoller poller;
+    private PrinterCircuitBreaker circuitBreaker;
+    private PrinterServiceImpl printerService;
+
+    @BeforeEach
+    void iniciar() throws Exception {
+        transport = new ZebraNioTransport();
+        ReflectionTestUtils.setField(transport, "connectTimeoutMs", 2000L);
+        ReflectionTestUtils.setField(transport, "writeTimeoutMs", 5000L);
+        transport.iniciar();
+
+        catalog = new PrinterCatalog(repository);
+        metrics = new PrinterMetrics(new SimpleMeterRegistry(), catalog);
+
+        PrinterConnectionPool pool = new PrinterConnectionPool(transport, metrics);
+        ReflectionTestUtils.setField(pool, "maxConexiones", 64);
+        ReflectionTestUtils.setField(pool, "idleTimeoutMs", 600_000L);
+        ReflectionTestUtils.setField(pool, "keepaliveIntervalMs", 15_000L);
+        ReflectionTestUtils.setField(pool, "statusTimeoutMs", 2000L);
+        ReflectionTestUtils.setField(pool, "backoffBaseMs", 50L);
+        ReflectionTestUtils.setField(pool, "backoffMaxMs", 200L);
+        pool.iniciar();
+
+        graficos = new ZplGraficoConverter();
+        ReflectionTestUtils.setField(graficos, "compresion", "auto");
+        ReflectionTestUtils.setField(graficos, "umbral", 128);
+        ReflectionTestUtils.setField(graficos, "tamanoCache", 16);
+        templateRegistry = new ZplTemplateRegistry(graficos);
+        ReflectionTestUtils.setField(templateRegistry, "usarFormatosAlmacenados", true);
+        templateRegistry.iniciar();
+
+        // Base H2 en memoria para los arrendamientos; sin varios nodos no se usa
+        jdbcTemplate = new JdbcTemplate(new DriverManagerDataSource(
+                "jdbc:h2:mem:arrendamientos-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1"));
+        jdbcTemplate.execute("CREATE TABLE PRI_Arrendamiento (PRI_IdImp INT NOT NULL PRIMARY KEY,"
+                + " PRI_Nodo VARCHAR(100) NOT NULL, PRI_Url VARCHAR(255) NOT NULL, PRI_Expira TIMESTAMP NOT NULL)");
+        leases = nuevoNodo("nodo-a", false);
+
+        // Canal de estado deshabilitado salvo en la prueba que lo usa (el puerto es de cada simulador)
+        canalesEstado = new StatusChannelPool(transport);
+        ReflectionTestUtils.setField(canalesEstado, "habilitado", false);
+        ReflectionTestUtils.setField(canalesEstado, "timeoutMs", 2000L);
+        ReflectionTestUtils.setField(canalesEstado, "reintentoMs", 60_000L);
+
+        zebraPrinterService = new ZebraPrinterServiceImpl(pool, templateRegistry, metrics, leases, canalesEstado);
+        ReflectionTestUtils.setField(zebraPrinterService, "statusTimeoutMs", 2000L);
+        ReflectionTestUtils.setField(zebraPrinterService, "tamanoBloque", 16384);
+        ReflectionTestUtils.setField(zebraPrinterService, "timeoutLecturaMs", 2000L);
+        ReflectionTestUtils.setField(zebraPrinterService, "maxBytesFlujo", 16_777_216L);
+        zebraPrinterService.iniciar();
+
+        poller = new PrinterStatusPoller(catalog, zebraPrinterService, leases);
+        circuitBreaker = new PrinterCircuitBreaker();
+        ReflectionTestUtils.setField(circuitBreaker, "umbralFallos", 2);
+        ReflectionTestUtils.setField(circuitBreaker, "abiertoMs", 300L);
+        printerService = new PrinterServiceImpl(repository, zebraPrinterService, catalog, poller, circuitBreaker,
+                leases);
+    }
+
+    @AfterEach
+    void detener() throws Exception {
+        zebraPrinterService.detener();
+        canalesEstado.cerrarTodos();
+        transport.detener();
+        for (ZebraSimulator simulador : simuladores) {
+            simulador.close();
+        }
+        jdbcTemplate.execute("SHUTDOWN");
+    }
+
+    /**
+     * Crea un nodo con arrendamientos de 300 ms sobre la base H2 de la prueba.
+     */
+    private PrinterLeaseManager nuevoNodo(String nodo, boolean habilitado) {
+        PrinterLeaseManager manager = new PrinterLeaseManager(
+                new PrinterLeaseRepositoryImpl(jdbcTemplate, "PRI_Arrendamiento"));
+        ReflectionTestUtils.setField(manager, "habilitado", habilitado);
+        ReflectionTestUtils.setField(manager, "nodo", nodo);
+        ReflectionTestUtils.setField(manager, "url", "http://" + nodo + ":8080");
+        ReflectionTestUtils.setField(manager, "duracionMs", 300L);
+        return manager;
+    }
+
+    /**
+     * Crea un simulador y lo registra como impresora en el repositorio.
+     */
+    private ZebraSimulator agregarImpresora(int printerId) throws Exception {
+        ZebraSimulator simulador = new ZebraSimulator().start();
+        simuladores.add(simulador);
+
+        PrinterDTO printer = new PrinterDTO();
+        printer.setId(printerId);
+        printer.setNombre("Simulada " + printerId);
+        printer.setIp("127.0.0.1");
+        printer.setPuerto(simulador.getPuerto());
+        printer.setTipo("TCP");
+        printer.setEstado(1);
+        when(repository.obtenerImpresoraPorId(printerId)).thenReturn(printer);
+        return simulador;
+    }
+
+    private byte[] etiquetaPallet(String id) {
+        Map<String, Object> campos = new LinkedHashMap<>();
+        campos.put("id", id);
+        campos.put("qr", "https://example.com/p/" + id);
+        campos.put("orden", "OP-1001");
+        campos.put("sku", "SKU-77");
+        campos.put("cuartoFrio", 3);
+        campos.put("mogul", "M2");
+        campos.put("supervisor", "Peña");
+        campos.put("fecha", "2026-10-17");
+        return templateRegistry.renderizar("pallets", campos, 1);
+    }
+
+    private static int contar(String texto, String patron) {
+        int total = 0;
+        for (int i = texto.indexOf(patron); i >= 0; i = texto.indexOf(patron, i + 1)) {
+            total++;
+        }
+        return total;
+    }
+
+    @Test
+    void etiquetaSeConfirmaConHostStatus() throws Exception {
+        ZebraSimulator simulador = agregarImpresora(1);
+
+        boolean impresa = printerService.imprimirDatos(1, "^XA^FO50,50^FDhola^FS^XZ".getBytes(StandardCharsets.UTF_8));
+
+        assertThat(impresa).isTrue();
+        assertThat(simulador.esperarCopias(1, 2000)).isTrue();
+        assertThat(simulador.getTextoRecibido()).isEqualTo("^XA^FO50,50^FDhola^FS^XZ~HS");
+    }
+
+    @Test
+    void formatoAlmacenadoSeDescargaUnaVezPorConexion() throws Exception {
+        ZebraSimulator simulador = agregarImpresora(1);
+
+        assertThat(printerService.imprimirDatos(1, etiquetaPallet("P-1"))).isTrue();
+        assertThat(printerService.imprimirDatos(1, etiquetaPallet("P-2"))).isTrue();
+        assertThat(contar(simulador.getTextoRecibido(), "^DF")).isEqualTo(1);
+
+        // Un reinicio borra R: y corta la conexión: el formato se vuelve a descargar
+        simulador.reiniciar();
+        long limite = System.currentTimeMillis() + 2000;
+        while (zebraPrinterService.estaConectada(1) && System.currentTimeMillis() < limite) {
+            Thread.sleep(10);
+        }
+        assertThat(printerService.imprimirDatos(1, etiquetaPallet("P-3"))).isTrue();
+
+        assertThat(contar(simulador.getTextoRecibido(), "^DF")).isEqualTo(2);
+        assertThat(simulador.getFormatosDesconocidos()).isZero();
+        assertThat(simulador.esperarCopias(3, 2000)).isTrue();
+    }
+
+    @Test
+    void impresoraSinPapelReportaError() throws Exception {
+        ZebraSimulator simulador = agregarImpresora(1);
+        simulador.setSinPapel(true);
+
+        assertThatThrownBy(() -> printerService.imprimirDatos(1, etiquetaPallet("P-1")))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("SIN_PAPEL");
+    }
+
+    @Test
+    void estadoExtendidoCombinaHostStatusYErrores() throws Exception {
+        ZebraSimulator simulador = agregarImpresora(1);
+        simulador.setCabezalAbierto(true);
+        assertThat(zebraPrinterService.conectarImpresora(repository.obtenerImpresoraPorId(1))).isTrue();
+
+        HostStatus estado = zebraPrinterService.consultarEstadoHost(1).orElseThrow();
+
+        assertThat(estado.getEstado()).isEqualTo("CABEZAL_ABIERTO");
+        assertThat(estado.getMascaraErrores()).isEqualTo(HostStatus.ERROR_CABEZAL_ABIERTO);
+        assertThat(simulador.getTextoRecibido()).isEqualTo("~HS~HQES");
+    }
+
+    @Test
+    void flujoGrandeSeEnviaPorBloquesConCantidadAjustada() throws Exception {
+        ZebraSimulator simulador = agregarImpresora(1);
+        StringBuilder zpl = new StringBuilder("^XA^FO10,10^GFA,300000,300000,100,");
+        zpl.append("F0".repeat(150_000)).append("^FS^PQ1^XZ");
+        byte[] etiqueta = zpl.toString().getBytes(StandardCharsets.US_ASCII);
+
+        assertThat(printerService.imprimirFlujo(1, new ByteArrayInputStream(etiqueta), 3)).isTrue();
+
+        assertThat(simulador.esperarCopias(3, 2000)).isTrue();
+        assertThat(simulador.getBytesRecibidos()).hasSize(etiqueta.length + "~HS".length());
+        assertThat(simulador.getTextoRecibido()).endsWith("^FS^PQ3^XZ~HS");
+    }
+
+    @Test
+    void flujoDetenidoLiberaElEscritorYCierraLaConexion() throws Exception {
+        ZebraSimulator simulador = agregarImpresora(1);
+        ReflectionTestUtils.setField(zebraPrinterService, "timeoutLecturaMs", 300L);
+        CountDownLatch cierreCliente = new CountDownLatch(1);
+        // El cliente envía media etiqueta y se queda sin enviar más hasta que la prueba lo corta
+        InputStream detenido = new InputStream() {
+            @Override
+            public int read() throws IOException {
+                try {
+                    cierreCliente.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                throw new IOException("Conexión del cliente cerrada");
+            }
+        };
+        InputStream flujo = new SequenceInputStream(
+                new ByteArrayInputStream("^XA^FO10,10^FDparcial".getBytes(StandardCharsets.US_ASCII)), detenido);
+
+        try (ExecutorService cliente = Executors.newVirtualThreadPerTaskExecutor()) {
+            Future<Boolean> trabajo = cliente.submit(() -> printerService.imprimirFlujo(1, flujo, 1));
+            try {
+                long limite = System.currentTimeMillis() + 2000;
+                while (simulador.getBytesRecibidos().length == 0 && System.currentTimeMillis() < limite) {
+                    Thread.sleep(10);
+                }
+                while (zebraPrinterService.estaConectada(1) && System.currentTimeMillis() < limite) {
+                    Thread.sleep(10);
+                }
+
+                // La media etiqueta quedó en una conexión cerrada; la siguiente abre otra sin esperar al cliente
+                assertThat(zebraPrinterService.estaConectada(1)).isFalse();
+                assertThat(printerService.imprimirEtiqueta(1, "^XA^FDB^FS^XZ", 1)).isTrue();
+                assertThat(trabajo.isDone()).isFalse();
+            } finally {
+                cierreCliente.countDown();
+            }
+            assertThatThrownBy(trabajo::get)
+                    .isInstanceOf(ExecutionException.class)
+                    .hasCauseInstanceOf(IllegalArgumentException.class)
+                    .hasMessageContaining("no envió datos");
+        }
+        assertThat(zebraPrinterService.estaConectada(1)).isTrue();
+        assertThat(contar(simulador.getTextoRecibido(), "^FDB^FS")).isEqualTo(1);
+        assertThat(circuitBreaker.obtenerEstado(1)).isEqualTo(PrinterCircuitBreaker.Estado.CERRADO);
+    }
+
+    @Test
+    void flujoQueExcedeElMaximoSeCortaSinAbrirElCircuito() throws Exception {
+        agregarImpresora(1);
+        ReflectionTestUtils.setField(zebraPrinterService, "tamanoBloque", 512);
+        ReflectionTestUtils.setField(zebraPrinterService, "maxBytesFlujo", 2048L);
+        byte[] etiqueta = ("^XA^FO10,10^FD" + "A".repeat(5000) + "^FS^XZ").getBytes(StandardCharsets.US_ASCII);
+
+        for (int i = 0; i < 3; i++) {
+            assertThatThrownBy(() -> printerService.imprimirFlujo(1, new ByteArrayInputStream(etiqueta), 1))
+                    .isInstanceOf(IllegalArgumentException.class)
+                    .hasMessageContaining("tamaño máximo");
+            // Parte de la etiqueta ya se había enviado: la conexión no se reutiliza
+            assertThat(zebraPrinterService.estaConectada(1)).isFalse();
+        }
+        assertThat(circuitBreaker.obtenerEstado(1)).isEqualTo(PrinterCircuitBreaker.Estado.CERRADO);
+    }
+
+    @Test
+    void graficoSinComprimirSeEnviaEnZ64() throws Exception {
+        ZebraSimulator simulador = agregarImpresora(1);
+        ReflectionTestUtils.setField(graficos, "compresion", "z64");
+        byte[] bits = new byte[100 * 200];
+        for (int i = 0; i < bits.length; i++) {
+            bits[i] = (byte) ((i / 100) % 8 < 4 ? 0xF0 : 0x0F);
+        }
+        StringBuilder hex = new StringBuilder();
+        for (byte b : bits) {
+            hex.append(String.format("%02X", b));
+        }
+        String zpl = "^XA^FO10,10^GFA,20000,20000,100," + hex + "^FS^XZ";
+
+        byte[] etiqueta = templateRegistry.renderizarEtiqueta(zpl, null, null, 1);
+        assertThat(printerService.imprimirDatos(1, etiqueta)).isTrue();
+
+        String recibido = simulador.getTextoRecibido();
+        assertThat(etiqueta.length).isLessThan(zpl.length() / 10);
+        assertThat(recibido).startsWith("^XA^FO10,10^GFA,20000,20000,100,:Z64:").endsWith("^FS^XZ~HS");
+
+        // Los datos Z64 se descomprimen al mapa de bits original
+        String z64 = recibido.substring(recibido.indexOf(":Z64:") + 5, recibido.indexOf("^FS"));
+        byte[] comprimido = Base64.getDecoder().decode(z64.substring(0, z64.indexOf(':')));
+        Inflater inflater = new Inflater();
+        inflater.setInput(comprimido);
+        byte[] descomprimido = new byte[bits.length];
+        assertThat(inflater.inflate(descomprimido)).isEqualTo(bits.length);
+        assertThat(descomprimido).isEqualTo(bits);
+    }
+
+    @Test
+    void plantillaDelDirectorioReemplazaALaIncluidaHastaQueSeBorra(@TempDir Path directorio) throws Exception {
+        Path reemplazo = Files.writeString(directorio.resolve("pallets.zpl"), "^XA^FO50,50^FD{{lote}}^FS^XZ");
+        ZplTemplateRegistry registro = new ZplTemplateRegistry(graficos);
+        ReflectionTestUtils.setField(registro, "directorio", directorio.toString());
+        registro.iniciar();
+
+        assertThat(registro.listar().get("pallets")).containsOnlyKeys("lote");
+        assertThat(registro.listar()).containsKey("desmolde-design");
+
+        Files.delete(reemplazo);
+        registro.recargar();
+
+        assertThat(registro.listar().get("pallets")).isEqualTo(templateRegistry.listar().get("pallets"));
+    }
+
+    @Test
+    void serieSeEnviaComoUnSoloFormatoNumerado(@TempDir Path directorio) throws Exception {
+        ZebraSimulator simulador = agregarImpresora(1);
+        Files.writeString(directorio.resolve("cajas.zpl"),
+                "^XA^FO50,50^A0N,40,40^FDCaja {{caja:serie}}/200^FS^FO50,120^FD{{producto}}^FS^XZ");
+        ZplTemplateRegistry registro = new ZplTemplateRegistry(graficos);
+        ReflectionTestUtils.setField(registro, "directorio", directorio.toString());
+        registro.iniciar();
+
+        byte[] etiqueta = registro.renderizarSerie("cajas", Map.of("producto", "Tornillos"), 1, 1, 200, 3);
+        assertThat(printerService.imprimirDatos(1, etiqueta)).isTrue();
+
+        assertThat(simulador.esperarCopias(200, 2000)).isTrue();
+        String recibido = simulador.getTextoRecibido();
+        assertThat(contar(recibido, "^XA")).isEqualTo(1);
+        assertThat(recibido).contains("^FDCaja 001/200^SFddd%%%%,0010000^FS").contains("^PQ200");
+
+        // El ancho crece para que el último número (1000) no pierda dígitos
+        String mil = new String(registro.renderizarSerie("cajas", Map.of("producto", "x"), 1, 1, 1000, 3),
+                StandardCharsets.UTF_8);
+        assertThat(mil).contains("^FDCaja 0001/200^SFdddd%%%%,00010000^FS");
+    }
+
+    @Test
+    void controlDeFlujoEsperaQueLaImpresoraVacieSuBuffer() throws Exception {
+        ZebraSimulator simulador = agregarImpresora(1).setMsPorCopia(10);
+        PrinterFlowControl flowControl = new PrinterFlowControl(zebraPrinterService, metrics);
+        ReflectionTestUtils.setField(flowControl, "marcaAlta", 20);
+        ReflectionTestUtils.setField(flowControl, "marcaBaja", 5);
+        ReflectionTestUtils.setField(flowControl, "sondeoMs", 20L);
+
+        assertThat(printerService.imprimirDatos(1, "^XA^FO50,50^FDhola^FS^PQ40^XZ".getBytes(StandardCharsets.UTF_8)))
+                .isTrue();
+        assertThat(simulador.getCopiasImpresas()).isLessThan(20);
+
+        // La confirmación reportó 40 etiquetas pendientes: espera hasta que queden 5
+        flowControl.esperarCapacidad(1);
+        assertThat(simulador.getCopiasImpresas()).isGreaterThanOrEqualTo(35);
+
+        // Bajo la marca baja no se espera
+        long inicio = System.currentTimeMillis();
+        flowControl.esperarCapacidad(1);
+        assertThat(System.currentTimeMillis() - inicio).isLessThan(20);
+    }
+
+    @Test
+    void flujoCortadoEnLaPruebaSemiabiertaNoDejaLaImpresoraFueraDeServicio() throws Exception {
+        ZebraSimulator simulador = agregarImpresora(1);
+        ReflectionTestUtils.setField(zebraPrinterService, "tamanoBloque", 512);
+        ReflectionTestUtils.setField(zebraPrinterService, "maxBytesFlujo", 2048L);
+        circuitBreaker.registrarFallo(1);
+        circuitBreaker.registrarFallo(1);
+        assertThat(circuitBreaker.obtenerEstado(1)).isEqualTo(PrinterCircuitBreaker.Estado.ABIERTO);
+        Thread.sleep(350);
+
+        // El flujo es la prueba del estado semiabierto y se corta por tamaño: no dice nada de la impresora
+        byte[] grande = ("^XA^FO10,10^FD" + "A".repeat(5000) + "^FS^XZ").getBytes(StandardCharsets.US_ASCII);
+        assertThatThrownBy(() -> printerService.imprimirFlujo(1, new ByteArrayInputStream(grande), 1))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("tamaño máximo");
+        assertThat(circuitBreaker.rechazaOperaciones(1)).isFalse();
+
+        // La siguiente etiqueta hace la prueba y cierra el circuito
+        assertThat(printerService.imprimirDatos(1, "^XA^FO50,50^FDB^FS^XZ".getBytes(StandardCharsets.UTF_8)))
+                .isTrue();
+        assertThat(circuitBreaker.obtenerEstado(1)).isEqualTo(PrinterCircuitBreaker.Estado.CERRADO);
+        assertThat(contar(simulador.getTextoRecibido(), "^FDB^FS")).isEqualTo(1);
+    }
+
+    @Test
+    void circuitoAbiertoFallaDeInmediatoYSeCierraAlVolver() throws Exception {
+        ZebraSimulator simulador = agregarImpresora(1);
+        int puerto = simulador.getPuerto();
+        simulador.close();
+        byte[] etiqueta = "^XA^FO50,50^FDhola^FS^XZ".getBytes(StandardCharsets.UTF_8);
+
+        for (int i = 0; i < 2; i++) {
+            assertThatThrownBy(() -> printerService.imprimirDatos(1, etiqueta))
+                    .hasMessageContaining("No se pudo conectar");
+        }
+        assertThat(circuitBreaker.obtenerEstado(1)).isEqualTo(PrinterCircuitBreaker.Estado.ABIERTO);
+        assertThatThrownBy(() -> printerService.imprimirDatos(1, etiqueta))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("circuito abierto");
+
+        // La impresora vuelve: pasado el tiempo de espera, una prueba cierra el circuito
+        ZebraSimulator reiniciado = new ZebraSimulator(puerto, 64).start();
+        simuladores.add(reiniciado);
+        Thread.sleep(350);
+        assertThat(printerService.imprimirDatos(1, etiqueta)).isTrue();
+        assertThat(circuitBreaker.obtenerEstado(1)).isEqualTo(PrinterCircuitBreaker.Estado.CERRADO);
+        assertThat(reiniciado.esperarCopias(1, 2000)).isTrue();
+    }
+
+    @Test
+    void rendimientoConVariasImpresoras() throws Exception {
+        int impresoras = 4;
+        int etiquetasPorImpresora = 250;
+        for (int id = 1; id <= impresoras; id++) {
+            agregarImpresora(id).setLatenciaMs(1);
+        }
+
+        List<Long> latencias = Collections.synchronizedList(new ArrayList<>());
+        List<Future<Boolean>> resultados = new ArrayList<>();
+        long inicio = System.nanoTime();
+        try (ExecutorService clientes = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < impresoras * etiquetasPorImpresora; i++) {
+                int printerId = i % impresoras + 1;
+                byte[] etiqueta = etiquetaPallet("P-" + i);
+                resultados.add(clientes.submit(() -> {
+                    long antes = System.nanoTime();
+                    boolean impresa = printerService.imprimirDatos(printerId, etiqueta);
+                    latencias.add(System.nanoTime() - antes);
+                    return impresa;
+                }));
+            }
+        }
+        double segundos = (System.nanoTime() - inicio) / 1e9;
+
+        for (Future<Boolean> resultado : resultados) {
+            assertThat(resultado.get()).isTrue();
+        }
+        for (ZebraSimulator simulador : simuladores) {
+            assertThat(simulador.esperarCopias(etiquetasPorImpresora, 5000)).isTrue();
+            assertThat(simulador.getFormatosDesconocidos()).isZero();
+        }
+
+        List<Long> ordenadas = new ArrayList<>(latencias);
+        Collections.sort(ordenadas);
+        logger.info("Rendimiento: {} etiquetas en {} impresoras, {} etiquetas/s, p50 {} ms, p99 {} ms",
+                ordenadas.size(), impresoras, String.format("%.0f", ordenadas.size() / segundos),
+                String.format("%.2f", percentil(ordenadas, 0.50) / 1e6),
+                String.format("%.2f", percentil(ordenadas, 0.99) / 1e6));
+    }
+
+    private static long percentil(List<Long> ordenadas, double percentil) {
+        int indice = (int) Math.ceil(percentil * ordenadas.size()) - 1;
+        return ordenadas.get(Math.max(0, indice));
+    }
+
+    @Test
+    void arrendamientoAsignaCadaImpresoraAUnSoloNodoYOtroLaTomaSiCae() throws Exception {
+        ZebraSimulator simulador = agregarImpresora(1);
+        ReflectionTestUtils.setField(leases, "habilitado", true);
+        PrinterLeaseManager nodoB = nuevoNodo("nodo-b", true);
+
+        // El nodo A imprime y queda como propietario; B debe reenviarle los trabajos
+        assertThat(printerService.imprimirEtiqueta(1, "^XA^FDA^FS^XZ", 1)).isTrue();
+        assertThat(nodoB.propietarioRemoto(1)).contains("http://nodo-a:8080");
+        assertThat(nodoB.adquirir(1)).isFalse();
+
+        // Mientras A renueva, el arrendamiento no vence
+        for (int i = 0; i < 3; i++) {
+            Thread.sleep(150);
+            leases.renovar();
+        }
+        assertThat(nodoB.propietarioRemoto(1)).contains("http://nodo-a:8080");
+
+        // A deja de renovar: al vencer, B toma la impresora
+        Thread.sleep(400);
+        assertThat(nodoB.propietarioRemoto(1)).isEmpty();
+        assertThat(jdbcTemplate.queryForObject("SELECT PRI_Nodo FROM PRI_Arrendamiento WHERE PRI_IdImp = 1",
+                String.class)).isEqualTo("nodo-b");
+
+        // A detecta la pérdida en su siguiente renovación y cierra su conexión
+        assertThat(zebraPrinterService.estaConectada(1)).isTrue();
+        leases.renovar();
+        assertThat(zebraPrinterService.estaConectada(1)).isFalse();
+        assertThat(zebraPrinterService.conectarImpresora(printerService.obtenerImpresoraPorId(1).orElseThrow()))
+                .isFalse();
+
+        // Imprimir en A se rechaza sin contar como fallo de la impresora: el circuito sigue cerrado
+        for (int i = 0; i < 5; i++) {
+            assertThatThrownBy(() -> printerService.imprimirEtiqueta(1, "^XA^FDA^FS^XZ", 1))
+                    .isInstanceOf(IllegalStateException.class)
+                    .hasMessageContaining("otro nodo");
+        }
+        assertThat(circuitBreaker.obtenerEstado(1)).isEqualTo(PrinterCircuitBreaker.Estado.CERRADO);
+        assertThat(contar(simulador.getTextoRecibido(), "^FDA^FS")).isEqualTo(1);
+
+        // Al apagarse B libera la impresora y A la recupera sin esperar
+        nodoB.liberar();
+        assertThat(leases.propietarioRemoto(1)).isEqualTo(Optional.empty());
+    }
+
+    @Test
+    void sondeoPorCanalDeEstadoNoEsperaAlTrabajoEnCurso() throws Exception {
+        ZebraSimulator simulador = agregarImpresora(1).setBytesPorSegundo(100_000);
+        ReflectionTestUtils.setField(canalesEstado, "habilitado", true);
+        ReflectionTestUtils.setField(canalesEstado, "puerto", simulador.getPuertoEstado());
+        ReflectionTestUtils.setField(zebraPrinterService, "statusTimeoutMs", 5000L);
+        catalog.actualizar(repository.obtenerImpresoraPorId(1));
+        StringBuilder zpl = new StringBuilder("^XA^FO10,10^GFA,200000,200000,100,");
+        zpl.append("F0".repeat(100_000)).append("^FS^PQ1^XZ");
+        byte[] etiqueta = zpl.toString().getBytes(StandardCharsets.US_ASCII);
+
+        // Unos 2 s de transmisión por el 9100 a 100 KB/s
+        try (ExecutorService cliente = Executors.newVirtualThreadPerTaskExecutor()) {
+            Future<Boolean> trabajo = cliente.submit(
+                    () -> printerService.imprimirFlujo(1, new ByteArrayInputStream(etiqueta), 1));
+            long limite = System.currentTimeMillis() + 2000;
+            while (simulador.getBytesRecibidos().length == 0 && System.currentTimeMillis() < limite) {
+                Thread.sleep(10);
+            }
+
+            // El sondeo responde mientras el trabajo sigue transmitiéndose
+            simulador.setCabezalAbierto(true);
+            poller.sondear();
+            simulador.setCabezalAbierto(false);
+
+            assertThat(trabajo.isDone()).isFalse();
+            assertThat(poller.obtener(1).orElseThrow().getEstado()).isEqualTo("CABEZAL_ABIERTO");
+            assertThat(simulador.getConsultasEstado()).isEqualTo(1);
+
+            assertThat(trabajo.get()).isTrue();
+        }
+        // Por el 9100 solo viajó la etiqueta y su confirmación
+        assertThat(simulador.getTextoRecibido()).endsWith("^FS^PQ1^XZ~HS");
+        assertThat(contar(simulador.getTextoRecibido(), "~HS")).isEqualTo(1);
+    }
+
+    @Test
+    void sondeoPorConexionDeImpresionNoSeIntercalaConElTrabajoEnCurso() throws Exception {
+        ZebraSimulator simulador = agregarImpresora(1).setBytesPorSegundo(100_000);
+        ReflectionTestUtils.setField(zebraPrinterService, "statusTimeoutMs", 5000L);
+        catalog.actualizar(repository.obtenerImpresoraPorId(1));
+        StringBuilder zpl = new StringBuilder("^XA^FO10,10^GFA,200000,200000,100,");
+        zpl.append("F0".repeat(100_000)).append("^FS^PQ1^XZ");
+        byte[] etiqueta = zpl.toString().getBytes(StandardCharsets.US_ASCII);
+
+        // Sin canal de estado: el sondeo no puede escribir ~HS en medio del trabajo
+        try (ExecutorService cliente = Executors.newVirtualThreadPerTaskExecutor()) {
+            Future<Boolean> trabajo = cliente.submit(
+                    () -> printerService.imprimirFlujo(1, new ByteArrayInputStream(etiqueta), 1));
+            long limite = System.currentTimeMillis() + 2000;
+            while (simulador.getBytesRecibidos().length == 0 && System.currentTimeMillis() < limite) {
+                Thread.sleep(10);
+            }
+
+            poller.sondear();
+
+            assertThat(trabajo.isDone()).isFalse();
+            assertThat(trabajo.get()).isTrue();
+        }
+        assertThat(zebraPrinterService.estaConectada(1)).isTrue();
+        assertThat(simulador.getTextoRecibido()).endsWith("^FS^PQ1^XZ~HS");
+        assertThat(contar(simulador.getTextoRecibido(), "~HS")).isEqualTo(1);
+
+        // Con el escritor libre, el sondeo consulta por la conexión de impresión
+        poller.sondear();
+        assertThat(poller.obtener(1).orElseThrow().getEstado()).isEqualTo("LISTA");
+        assertThat(simulador.getTextoRecibido()).endsWith("~HS~HQES");
+    }
+}
@@ -0,0 +1,540 @@
+package com.example.backend_jovyweb.modules.printer.simulator;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Impresora Zebra simulada para pruebas de protocolo y rendimiento.
+ *
+ * Escucha en TCP (por defecto en un puerto libre; 9100 para usarla como una
+ * impresora real), acepta etiquetas ZPL y responde ~HS, ~HQES y ~HI igual que
+ * una impresora: los comandos ~ se atienden al llegar, las etiquetas pasan a
+ * un buffer de formatos y un hilo las "imprime" a la velocidad configurada.
+ * Cuando el buffer está lleno deja de leer del socket, como una impresora
+ * real, y el emisor recibe contrapresión TCP.
+ *
+ * Soporta formatos almacenados (^DF, ^XF, ^ID) en memoria; se borran con
+ * {@link #reiniciar()}.
+ *
+ * Atiende además el canal de estado Link-OS en otro puerto
+ * ({@link #getPuertoEstado()}): responde consultas SGD en JSON
+ * ({}{"device.host_status":null,...}) en sus propios hilos, de modo que
+ * responde aunque el canal de impresión esté detenido por contrapresión.
+ *
+ * Fallas configurables: latencia de respuesta, ancho de banda de recepción,
+ * tamaño del buffer, falta de papel y desconexión. Registra todos los bytes
+ * recibidos y las etiquetas impresas.
+ *
+ * Los puertos se abren al crearlo; atiende conexiones después de
+ * {@link #start()}.
+ */
+public class ZebraSimulator implements AutoCloseable {
+
+    private static final byte STX = 0x02;
+    private static final byte ETX = 0x03;
+    private static final Pattern PQ = Pattern.compile("\\^PQ(\\d+)");
+    private static final Pattern DF = Pattern.compile("\\^DF([^\\^~]+)");
+    private static final Pattern XF = Pattern.compile("\\^XF([^\\^~]+)");
+    private static final Pattern ID = Pattern.compile("\\^ID([^\\^~]+)");
+    private static final Pattern SGD = Pattern.compile("\\{\\}\\s*\\{([^{}]*)\\}");
+    private static final Pattern CLAVE = Pattern.compile("\"([^\"]+)\"\\s*:");
+
+    private final ServerSocket servidor;
+    private final ServerSocket servidorEstado;
+    private Thread aceptador;
+    private Thread aceptadorEstado;
+    private Thread impresor;
+    private final ScheduledExecutorService respuestas = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("zebra-sim-respuestas").daemon(true).factory());
+    private final Set<Socket> clientes = ConcurrentHashMap.newKeySet();
+    private final Set<Socket> clientesEstado = ConcurrentHashMap.newKeySet();
+    private final BlockingQueue<String> bufferFormatos;
+    private final Set<String> formatosGuardados = ConcurrentHashMap.newKeySet();
+
+    private final ByteArrayOutputStream recibidos = new ByteArrayOutputStream();
+    private final List<String> impresas = Collections.synchronizedList(new ArrayList<>());
+    private final AtomicInteger copiasImpresas = new AtomicInteger();
+    private final AtomicInteger copiasRestantes = new AtomicInteger();
+    private final AtomicInteger formatosDesconocidos = new AtomicInteger();
+    private final AtomicInteger consultasEstado = new AtomicInteger();
+
+    private volatile long latenciaMs;
+    private volatile long bytesPorSegundo; // 0 = sin límite
+    private volatile long msPorCopia;
+    private volatile boolean sinPapel;
+    private volatile boolean cabezalAbierto;
+    private volatile boolean activo = true;
+
+    /**
+     * Crea un simulador en un puerto libre con un buffer de 64 formatos.
+     *
+     * @throws IOException si no se puede abrir el puerto
+     */
+    public ZebraSimulator() throws IOException {
+        this(0, 64);
+    }
+
+    /**
+     * Crea un simulador.
+     *
+     * @param puerto        Puerto TCP (0 para uno libre; con 9100 el canal de
+     *                      estado usa 9200)
+     * @param tamanoBuffer  Etiquetas que caben en el buffer de formatos
+     * @throws IOException si no se puede abrir el puerto
+     */
+    public ZebraSimulator(int puerto, int tamanoBuffer) throws IOException {
+        this.servidor = new ServerSocket(puerto, 50, InetAddress.getLoopbackAddress());
+        this.servidorEstado = new ServerSocket(puerto == 0 ? 0 : puerto + 100, 50, InetAddress.getLoopbackAddress());
+        this.bufferFormatos = new ArrayBlockingQueue<>(tamanoBuffer);
+    }
+
+    /**
+     * Arranca los hilos que aceptan conexiones e imprimen.
+     *
+     * @return Este simulador
+     */
+    public ZebraSimulator start() {
+        aceptador = Thread.ofPlatform().name("zebra-sim-" + getPuerto()).daemon(true).start(this::aceptar);
+        aceptadorEstado = Thread.ofPlatform().name("zebra-sim-estado-" + getPuerto()).daemon(true)
+                .start(this::aceptarEstado);
+        impresor = Thread.ofPlatform().name("zebra-sim-print-" + getPuerto()).daemon(true).start(this::imprimir);
+        return this;
+    }
+
+    private void aceptar() {
+        while (activo) {
+            try {
+                Socket cliente = servidor.accept();
+                cliente.setTcpNoDelay(true);
+                clientes.add(cliente);
+                Thread.ofVirtual().start(() -> atender(cliente));
+            } catch (IOException e) {
+                return; // Servidor cerrado
+            }
+        }
+    }
+
+    private void aceptarEstado() {
+        while (activo) {
+            try {
+                Socket cliente = servidorEstado.accept();
+                cliente.setTcpNoDelay(true);
+                clientesEstado.add(cliente);
+                Thread.ofVirtual().start(() -> atenderEstado(cliente));
+            } catch (IOException e) {
+                return; // Servidor cerrado
+            }
+        }
+    }
+
+    /**
+     * Atiende un cliente del canal de estado: cada consulta SGD getvar
+     * ({}{"clave":null,...}) se responde con un objeto JSON.
+     */
+    private void atenderEstado(Socket cliente) {
+        StringBuilder pendiente = new StringBuilder();
+        byte[] lectura = new byte[1024];
+        try (cliente; InputStream entrada = cliente.getInputStream()) {
+            OutputStream salida = cliente.getOutputStream();
+            while (activo) {
+                int leidos = entrada.read(lectura);
+                if (leidos < 0) {
+                    return;
+                }
+                pendiente.append(new String(lectura, 0, leidos, StandardCharsets.UTF_8));
+                Matcher consulta = SGD.matcher(pendiente);
+                while (consulta.find()) {
+                    consultasEstado.incrementAndGet();
+                    byte[] respuesta = respuestaSgd(consulta.group(1)).getBytes(StandardCharsets.UTF_8);
+                    if (latenciaMs > 0) {
+                        Thread.sleep(latenciaMs);
+                    }
+                    salida.write(respuesta);
+                    salida.flush();
+                    pendiente.delete(0, consulta.end());
+                    consulta = SGD.matcher(pendiente);
+                }
+            }
+        } catch (IOException e) {
+            // Cliente desconectado
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            clientesEstado.remove(cliente);
+        }
+    }
+
+    private String respuestaSgd(String claves) {
+        StringBuilder json = new StringBuilder("{");
+        Matcher clave = CLAVE.matcher(claves);
+        while (clave.find()) {
+            String valor = switch (clave.group(1)) {
+                case "device.host_status" -> new String(respuestaHS(), StandardCharsets.US_ASCII);
+                case "head.latch" -> cabezalAbierto ? "open" : "ok";
+                case "media.status" -> sinPapel ? "out" : "ok";
+                default -> "?";
+            };
+            if (json.length() > 1) {
+                json.append(',');
+            }
+            json.append('"').append(clave.group(1)).append("\":").append(cadenaJson(valor));
+        }
+        return json.append("}\r\n").toString();
+    }
+
+    private static String cadenaJson(String valor) {
+        StringBuilder json = new StringBuilder("\"");
+        for (char c : valor.toCharArray()) {
+            if (c == '"' || c == '\\') {
+                json.append('\\').append(c);
+            } else if (c < 0x20) {
+                json.append(String.format("\\u%04x", (int) c));
+            } else {
+                json.append(c);
+            }
+        }
+        return json.append('"').toString();
+    }
+
+    private void atender(Socket cliente) {
+        StringBuilder pendiente = new StringBuilder();
+        byte[] lectura = new byte[8192];
+        try (cliente; InputStream entrada = cliente.getInputStream()) {
+            OutputStream salida = cliente.getOutputStream();
+            while (activo) {
+                long limite = bytesPorSegundo;
+                int maximo = limite > 0 ? (int) Math.max(1, Math.min(lectura.length, limite / 100)) : lectura.length;
+                int leidos = entrada.read(lectura, 0, maximo);
+                if (leidos < 0) {
+                    return;
+                }
+                synchronized (recibidos) {
+                    recibidos.write(lectura, 0, leidos);
+                }
+                // ISO-8859-1 conserva cada byte como un carácter
+                pendiente.append(new String(lectura, 0, leidos, StandardCharsets.ISO_8859_1));
+                procesar(pendiente, salida);
+                if (limite > 0) {
+                    Thread.sleep(Math.max(1, leidos * 1000L / limite));
+                }
+            }
+        } catch (IOException e) {
+            // Cliente desconectado
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            clientes.remove(cliente);
+        }
+    }
+
+    /**
+     * Consume del texto pendiente los comandos completos. Lo incompleto queda
+     * para la siguiente lectura.
+     */
+    private void procesar(StringBuilder pendiente, OutputStream salida) throws InterruptedException {
+        while (pendiente.length() > 0) {
+            char c = pendiente.charAt(0);
+            if (c == '~') {
+                if (pendiente.length() < 3 || (startsWith(pendiente, "~HQ") && pendiente.length() < 5)) {
+                    return;
+                }
+                if (startsWith(pendiente, "~HQES")) {
+                    responder(salida, respuestaHQES());
+                    pendiente.delete(0, 5);
+                } else if (startsWith(pendiente, "~HS")) {
+                    responder(salida, respuestaHS());
+                    pendiente.delete(0, 3);
+                } else if (startsWith(pendiente, "~HI")) {
+                    responder(salida, trama("ZT410-203dpi,V75.20.01Z,8,8176KB"));
+                    pendiente.delete(0, 3);
+                } else {
+                    pendiente.delete(0, 1); // Comando ~ no soportado
+                }
+            } else if (startsWith(pendiente, "^XA")) {
+                int fin = pendiente.indexOf("^XZ");
+                if (fin < 0) {
+                    return;
+                }
+                String etiqueta = pendiente.substring(0, fin + 3);
+                pendiente.delete(0, fin + 3);
+                recibirEtiqueta(etiqueta);
+            } else {
+                int siguiente = siguienteInicio(pendiente);
+                if (siguiente < 0) {
+                    // Conservar un posible inicio de comando cortado
+                    pendiente.delete(0, Math.max(0, pendiente.length() - 2));
+                    return;
+                }
+                pendiente.delete(0, siguiente);
+            }
+        }
+    }
+
+    private static int siguienteInicio(StringBuilder texto) {
+        int tilde = texto.indexOf("~", 1);
+        int etiqueta = texto.indexOf("^XA", 1);
+        if (tilde < 0) {
+            return etiqueta;
+        }
+        return etiqueta < 0 ? tilde : Math.min(tilde, etiqueta);
+    }
+
+    private static boolean startsWith(StringBuilder texto, String prefijo) {
+        return texto.length() >= prefijo.length() && texto.substring(0, prefijo.length()).equals(prefijo);
+    }
+
+    /**
+     * Procesa una etiqueta ^XA...^XZ. Las descargas y borrados de formatos se
+     * aplican de inmediato; las etiquetas a imprimir esperan lugar en el
+     * buffer (lo que detiene la lectura del socket).
+     */
+    private void recibirEtiqueta(String etiqueta) throws InterruptedException {
+        Matcher df = DF.matcher(etiqueta);
+        if (df.find()) {
+            formatosGuardados.add(df.group(1));
+            return;
+        }
+        Matcher id = ID.matcher(etiqueta);
+        if (id.find()) {
+            formatosGuardados.remove(id.group(1));
+            return;
+        }
+        Matcher xf = XF.matcher(etiqueta);
+        if (xf.find() && !formatosGuardados.contains(xf.group(1))) {
+            formatosDesconocidos.incrementAndGet();
+            return; // La impresora ignora un formato que no tiene
+        }
+        copiasRestantes.addAndGet(copias(etiqueta));
+        bufferFormatos.put(etiqueta);
+    }
+
+    private static int copias(String etiqueta) {
+        Matcher pq = PQ.matcher(etiqueta);
+        return pq.find() ? Math.max(1, Integer.parseInt(pq.group(1))) : 1;
+    }
+
+    private void imprimir() {
+        while (activo) {
+            try {
+                String etiqueta = bufferFormatos.take();
+                int copias = copias(etiqueta);
+                for (int i = 0; i < copias; i++) {
+                    while (sinPapel || cabezalAbierto) {
+                        Thread.sleep(10);
+                    }
+                    if (msPorCopia > 0) {
+                        Thread.sleep(msPorCopia);
+                    }
+                    copiasImpresas.incrementAndGet();
+                    copiasRestantes.decrementAndGet();
+                }
+                impresas.add(etiqueta);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    private void responder(OutputStream salida, byte[] respuesta) {
+        respuestas.schedule(() -> {
+            try {
+                synchronized (salida) {
+                    salida.write(respuesta);
+                    salida.flush();
+                }
+            } catch (IOException e) {
+                // Cliente desconectado
+            }
+        }, latenciaMs, TimeUnit.MILLISECONDS);
+    }
+
+    private byte[] respuestaHS() {
+        int formatos = bufferFormatos.size();
+        boolean lleno = bufferFormatos.remainingCapacity() == 0;
+        String linea1 = String.format("030,%d,0,1245,%03d,%d,0,0,000,0,0,0", sinPapel ? 1 : 0, formatos,
+                lleno ? 1 : 0);
+        String linea2 = String.format("001,0,%d,0,0,2,4,0,%08d,1,000", cabezalAbierto ? 1 : 0,
+                Math.max(0, copiasRestantes.get()));
+        ByteArrayOutputStream respuesta = new ByteArrayOutputStream();
+        respuesta.writeBytes(trama(linea1));
+        respuesta.writeBytes(trama(linea2));
+        respuesta.writeBytes(trama("1234,0"));
+        return respuesta.toByteArray();
+    }
+
+    private byte[] respuestaHQES() {
+        long errores = (sinPapel ? 0x1 : 0) | (cabezalAbierto ? 0x4 : 0);
+        String texto = "\r\n  PRINTER STATUS\r\n"
+                + "   ERRORS:         " + (errores != 0 ? 1 : 0) + " 00000000 " + String.format("%08X", errores)
+                + "\r\n   WARNINGS:       0 00000000 00000000\r\n";
+        return trama(texto);
+    }
+
+    private static byte[] trama(String contenido) {
+        byte[] texto = contenido.getBytes(StandardCharsets.US_ASCII);
+        byte[] resultado = new byte[texto.length + 4];
+        resultado[0] = STX;
+        System.arraycopy(texto, 0, resultado, 1, texto.length);
+        resultado[texto.length + 1] = ETX;
+        resultado[texto.length + 2] = '\r';
+        resultado[texto.length + 3] = '\n';
+        return resultado;
+    }
+
+    /**
+     * Cierra todas las conexiones abiertas, como un corte de red.
+     */
+    public void desconectar() {
+        List<Socket> todos = new ArrayList<>(clientes);
+        todos.addAll(clientesEstado);
+        for (Socket cliente : todos) {
+            try {
+                cliente.close();
+            } catch (IOException e) {
+                // Ya estaba cerrado
+            }
+        }
+    }
+
+    /**
+     * Simula un reinicio: corta las conexiones, vacía el buffer y olvida los
+     * formatos almacenados en R:.
+     */
+    public void reiniciar() {
+        desconectar();
+        bufferFormatos.clear();
+        copiasRestantes.set(0);
+        formatosGuardados.clear();
+    }
+
+    public int getPuerto() {
+        return servidor.getLocalPort();
+    }
+
+    public int getPuertoEstado() {
+        return servidorEstado.getLocalPort();
+    }
+
+    /**
+     * Espera a que se impriman al menos las copias indicadas.
+     *
+     * @param copias    Copias esperadas
+     * @param timeoutMs Tiempo máximo de espera
+     * @return true si se imprimieron a tiempo
+     */
+    public boolean esperarCopias(int copias, long timeoutMs) throws InterruptedException {
+        long limite = System.currentTimeMillis() + timeoutMs;
+        while (copiasImpresas.get() < copias) {
+            if (System.currentTimeMillis() > limite) {
+                return false;
+            }
+            Thread.sleep(5);
+        }
+        return true;
+    }
+
+    /**
+     * Obtiene todos los bytes recibidos desde que se creó el simulador.
+     *
+     * @return Copia de los bytes recibidos
+     */
+    public byte[] getBytesRecibidos() {
+        synchronized (recibidos) {
+            return recibidos.toByteArray();
+        }
+    }
+
+    /**
+     * Obtiene los bytes recibidos como texto (ISO-8859-1, un carácter por
+     * byte).
+     *
+     * @return Texto recibido
+     */
+    public String getTextoRecibido() {
+        return new String(getBytesRecibidos(), StandardCharsets.ISO_8859_1);
+    }
+
+    public List<String> getEtiquetasImpresas() {
+        synchronized (impresas) {
+            return new ArrayList<>(impresas);
+        }
+    }
+
+    public int getCopiasImpresas() {
+        return copiasImpresas.get();
+    }
+
+    public int getFormatosDesconocidos() {
+        return formatosDesconocidos.get();
+    }
+
+    public Set<String> getFormatosGuardados() {
+        return Set.copyOf(formatosGuardados);
+    }
+
+    public int getConsultasEstado() {
+        return consultasEstado.get();
+    }
+
+    public int getConexiones() {
+        return clientes.size();
+    }
+
+    public ZebraSimulator setLatenciaMs(long latenciaMs) {
+        this.latenciaMs = latenciaMs;
+        return this;
+    }
+
+    public ZebraSimulator setBytesPorSegundo(long bytesPorSegundo) {
+        this.bytesPorSegundo = bytesPorSegundo;
+        return this;
+    }
+
+    public ZebraSimulator setMsPorCopia(long msPorCopia) {
+        this.msPorCopia = msPorCopia;
+        return this;
+    }
+
+    public ZebraSimulator setSinPapel(boolean sinPapel) {
+        this.sinPapel = sinPapel;
+        return this;
+    }
+
+    public ZebraSimulator setCabezalAbierto(boolean cabezalAbierto) {
+        this.cabezalAbierto = cabezalAbierto;
+        return this;
+    }
+
+    @Override
+    public void close() throws IOException {
+        activo = false;
+        servidor.close();
+        servidorEstado.close();
+        desconectar();
+        for (Thread hilo : new Thread[] { impresor, aceptador, aceptadorEstado }) {
+            if (hilo != null) {
+                hilo.interrupt();
+            }
+        }
+        respuestas.shutdownNow();
+    }
+}
@@ -0,0 +1,225 @@
+package com.example.backend_jovyweb.modules.printer.spool;
+
+import com.example.backend_jovyweb.modules.printer.model.PrintJob;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Pruebas del diario de trabajos ({@link PrintSpool}) sobre un directorio
+ * temporal: reanudación tras un reinicio, marcas de fin, compactación de
+ * segmentos y registros cortados por una caída.
+ *
+ * Los segmentos son de 4 KB para forzar cambios de segmento con pocas
+ * etiquetas.
+ */
+class PrintSpoolTest {
+
+    private static final int TAMANO_SEGMENTO = 4096;
+
+    @TempDir
+    Path directorio;
+
+    private final List<PrintSpool> abiertos = new ArrayList<>();
+
+    @AfterEach
+    void cerrar() {
+        abiertos.forEach(PrintSpool::detener);
+    }
+
+    @Test
+    void trabajosSinFinSeReanudanEnOrdenTrasReiniciar() {
+        PrintSpool spool = abrir();
+        PrintJob texto = new PrintJob(1, "^XA^FDtexto^FS^XZ", 2, PrintJob.Prioridad.URGENTE);
+        PrintJob binario = new PrintJob(2, "^XA^FDbinario^FS^XZ".getBytes(StandardCharsets.UTF_8), 3, "Bodega 1",
+                PrintJob.Prioridad.MASIVA);
+        PrintJob tercero = new PrintJob(3, "^XA^FDtercero^FS^XZ", 1);
+        spool.registrar(texto);
+        spool.registrar(binario);
+        spool.registrar(tercero);
+        spool.detener();
+
+        List<PrintJob> recuperados = abrir().recuperar();
+
+        assertThat(recuperados).extracting(PrintJob::getId)
+                .containsExactly(texto.getId(), binario.getId(), tercero.getId());
+        PrintJob primero = recuperados.get(0);
+        assertThat(primero.getPrinterId()).isEqualTo(1);
+        assertThat(primero.getTemplateZPL()).isEqualTo("^XA^FDtexto^FS^XZ");
+        assertThat(primero.getCantidad()).isEqualTo(2);
+        assertThat(primero.getPrioridad()).isEqualTo(PrintJob.Prioridad.URGENTE);
+        PrintJob segundo = recuperados.get(1);
+        assertThat(segundo.getDatosZPL()).isEqualTo("^XA^FDbinario^FS^XZ".getBytes(StandardCharsets.UTF_8));
+        assertThat(segundo.getUbicacion()).isEqualTo("Bodega 1");
+        assertThat(segundo.getPrioridad()).isEqualTo(PrintJob.Prioridad.MASIVA);
+    }
+
+    @Test
+    void recuperarEntregaLosTrabajosUnaSolaVez() {
+        PrintSpool spool = abrir();
+        spool.registrar(new PrintJob(1, "^XA^XZ", 1));
+        spool.detener();
+
+        PrintSpool reabierto = abrir();
+
+        assertThat(reabierto.recuperar()).hasSize(1);
+        assertThat(reabierto.recuperar()).isEmpty();
+    }
+
+    @Test
+    void marcaDeFinExcluyeElTrabajoDeLaReanudacion() {
+        PrintSpool spool = abrir();
+        PrintJob terminado = new PrintJob(1, "^XA^FDuno^FS^XZ", 1);
+        PrintJob pendiente = new PrintJob(1, "^XA^FDdos^FS^XZ", 1);
+        spool.registrar(terminado);
+        spool.registrar(pendiente);
+        spool.finalizar(terminado);
+        spool.detener();
+
+        PrintSpool reabierto = abrir();
+        List<PrintJob> recuperados = reabierto.recuperar();
+        assertThat(recuperados).extracting(PrintJob::getId).containsExactly(pendiente.getId());
+
+        // La marca de fin escrita después del reinicio también cuenta
+        reabierto.finalizar(recuperados.get(0));
+        reabierto.detener();
+
+        assertThat(abrir().recuperar()).isEmpty();
+    }
+
+    @Test
+    void segmentosSinPendientesSeEliminan() throws IOException {
+        PrintSpool spool = abrir();
+        for (int i = 0; i < 40; i++) {
+            PrintJob job = new PrintJob(1, etiqueta(500), 1);
+            spool.registrar(job);
+            spool.finalizar(job);
+        }
+
+        assertThat(segmentos()).hasSizeLessThanOrEqualTo(2);
+        assertThat(segmentos()).doesNotContain(directorio.resolve("spool-000001.log"));
+    }
+
+    @Test
+    void pendientesAntiguosSeCopianParaLiberarSuSegmento() throws IOException {
+        PrintSpool spool = abrir();
+        PrintJob antiguo = new PrintJob(7, etiqueta(300), 1);
+        spool.registrar(antiguo);
+        for (int i = 0; i < 40; i++) {
+            PrintJob job = new PrintJob(1, etiqueta(500), 1);
+            spool.registrar(job);
+            spool.finalizar(job);
+        }
+        spool.detener();
+
+        assertThat(segmentos()).doesNotContain(directorio.resolve("spool-000001.log"));
+        assertThat(abrir().recuperar()).extracting(PrintJob::getId).containsExactly(antiguo.getId());
+    }
+
+    @Test
+    void registroMayorQueMedioSegmentoCabeTrasCopiarPendientes() {
+        PrintSpool spool = abrir();
+        List<PrintJob> antiguos = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            PrintJob job = new PrintJob(1, etiqueta(500), 1);
+            antiguos.add(job);
+            spool.registrar(job);
+        }
+        // Cada etiqueta grande abre un segmento; con tres segmentos se copian los pendientes del primero
+        for (int i = 0; i < 6; i++) {
+            PrintJob grande = new PrintJob(2, etiqueta(3000), 1);
+            spool.registrar(grande);
+            spool.finalizar(grande);
+        }
+        spool.detener();
+
+        assertThat(abrir().recuperar()).extracting(PrintJob::getId)
+                .containsExactlyInAnyOrderElementsOf(antiguos.stream().map(PrintJob::getId).toList());
+    }
+
+    @Test
+    void registroCortadoAlFinalSeDescartaSinPerderLosAnteriores() throws IOException {
+        PrintSpool spool = abrir();
+        PrintJob completo = new PrintJob(1, "^XA^FDcompleto^FS^XZ", 1);
+        PrintJob cortado = new PrintJob(1, etiqueta(200), 1);
+        spool.registrar(completo);
+        spool.registrar(cortado);
+        spool.detener();
+
+        // Simula una caída a mitad de escritura: la segunda mitad del último registro no llegó a disco
+        Path segmento = segmentos().get(0);
+        int[] ultimo = ultimoRegistro(segmento);
+        try (RandomAccessFile archivo = new RandomAccessFile(segmento.toFile(), "rw")) {
+            archivo.seek(ultimo[0] + ultimo[1] / 2);
+            archivo.write(new byte[ultimo[1] - ultimo[1] / 2]);
+        }
+
+        PrintSpool reabierto = abrir();
+        assertThat(reabierto.recuperar()).extracting(PrintJob::getId).containsExactly(completo.getId());
+
+        // Lo registrado después del reinicio va a un segmento nuevo y también se reanuda
+        PrintJob nuevo = new PrintJob(1, "^XA^FDnuevo^FS^XZ", 1);
+        reabierto.registrar(nuevo);
+        reabierto.detener();
+
+        assertThat(abrir().recuperar()).extracting(PrintJob::getId).containsExactly(completo.getId(), nuevo.getId());
+    }
+
+    private PrintSpool abrir() {
+        PrintSpool spool = new PrintSpool();
+        ReflectionTestUtils.setField(spool, "habilitado", true);
+        ReflectionTestUtils.setField(spool, "directorio", directorio.toString());
+        ReflectionTestUtils.setField(spool, "tamanoSegmento", TAMANO_SEGMENTO);
+        ReflectionTestUtils.setField(spool, "esperarConfirmacion", false);
+        spool.iniciar();
+        abiertos.add(spool);
+        return spool;
+    }
+
+    private List<Path> segmentos() throws IOException {
+        try (Stream<Path> listado = Files.list(directorio)) {
+            return listado.sorted().toList();
+        }
+    }
+
+    private static String etiqueta(int longitud) {
+        char[] relleno = new char[longitud];
+        Arrays.fill(relleno, 'A');
+        return "^XA^FD" + new String(relleno) + "^FS^XZ";
+    }
+
+    /**
+     * Recorre los registros válidos de un segmento.
+     *
+     * @return Posición y tamaño total (longitud, contenido y CRC) del último
+     */
+    private static int[] ultimoRegistro(Path segmento) throws IOException {
+        ByteBuffer contenido = ByteBuffer.wrap(Files.readAllBytes(segmento));
+        int[] ultimo = null;
+        while (contenido.remaining() >= 4) {
+            int inicio = contenido.position();
+            int longitud = contenido.getInt();
+            if (longitud <= 0) {
+                break;
+            }
+            ultimo = new int[] { inicio, longitud + 8 };
+            contenido.position(inicio + longitud + 8);
+        }
+        assertThat(ultimo).isNotNull();
+        return ultimo;
+    }
+}
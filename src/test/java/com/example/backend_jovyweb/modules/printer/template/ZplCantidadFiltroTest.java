@@ -0,0 +1,76 @@
+package com.example.backend_jovyweb.modules.printer.template;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tabla de casos de ^PQ para {@link ZplFormato#ajustarCantidad(String, int)}
+ * y {@link ZplCantidadFiltro}: ambos deben dar el mismo resultado aunque el
+ * flujo llegue partido en cualquier byte.
+ */
+class ZplCantidadFiltroTest {
+
+    private static final int CANTIDAD = 3;
+
+    static Stream<Arguments> casos() {
+        return Stream.of(
+                Arguments.of("^XA^FDa^FS^XZ", "^XA^FDa^FS^PQ3^XZ"),
+                Arguments.of("^XA^FDa^FS^PQ1^XZ", "^XA^FDa^FS^PQ3^XZ"),
+                Arguments.of("^XA^PQ2^XZ^XA^FDb^FS^XZ", "^XA^PQ3^XZ^XA^FDb^FS^PQ3^XZ"),
+                Arguments.of("^XA^FDb^FS^XZ^XA^PQ20^XZ", "^XA^FDb^FS^PQ3^XZ^XA^PQ3^XZ"),
+                Arguments.of("^XA^PQ,0,1,Y^XZ", "^XA^PQ3,0,1,Y^XZ"),
+                Arguments.of("^XA^PQ12,0,1,Y^XZ", "^XA^PQ3,0,1,Y^XZ"),
+                Arguments.of("^XA^FDsin fin", "^XA^FDsin fin^PQ3"),
+                Arguments.of("^XA^FDx^^P^X^FS^PQ25^XZ", "^XA^FDx^^P^X^FS^PQ3^XZ"),
+                Arguments.of("^XA^PR4^XB^FS^XZ^", "^XA^PR4^XB^FS^PQ3^XZ^"),
+                Arguments.of("^XA^FDCañón ^P^FS^XZ", "^XA^FDCañón ^P^FS^PQ3^XZ"),
+                Arguments.of("", "^PQ3"));
+    }
+
+    @ParameterizedTest
+    @MethodSource("casos")
+    void ajustarCantidadYFiltroDanElMismoResultado(String entrada, String esperado) {
+        assertThat(ZplFormato.ajustarCantidad(entrada, CANTIDAD)).isEqualTo(esperado);
+
+        byte[] datos = entrada.getBytes(StandardCharsets.UTF_8);
+        for (int corte = 0; corte <= datos.length; corte++) {
+            ZplBuffer salida = new ZplBuffer();
+            ZplCantidadFiltro filtro = new ZplCantidadFiltro(CANTIDAD);
+            filtro.filtrar(Arrays.copyOfRange(datos, 0, corte), corte, salida);
+            filtro.filtrar(Arrays.copyOfRange(datos, corte, datos.length), datos.length - corte, salida);
+            filtro.terminar(salida);
+            assertThat(new String(salida.toByteArray(), StandardCharsets.UTF_8))
+                    .as("cortado en el byte %d", corte)
+                    .isEqualTo(esperado);
+        }
+
+        ZplBuffer salida = new ZplBuffer();
+        ZplCantidadFiltro filtro = new ZplCantidadFiltro(CANTIDAD);
+        for (byte b : datos) {
+            filtro.filtrar(new byte[] { b }, 1, salida);
+        }
+        filtro.terminar(salida);
+        assertThat(new String(salida.toByteArray(), StandardCharsets.UTF_8)).as("byte a byte").isEqualTo(esperado);
+    }
+
+    @Test
+    void cantidadUnoDejaLaEtiquetaSinCambios() {
+        String zpl = "^XA^FDa^FS^PQ5^XZ^XA^XZ";
+        assertThat(ZplFormato.ajustarCantidad(zpl, 1)).isEqualTo(zpl);
+
+        byte[] datos = zpl.getBytes(StandardCharsets.UTF_8);
+        ZplBuffer salida = new ZplBuffer();
+        ZplCantidadFiltro filtro = new ZplCantidadFiltro(1);
+        filtro.filtrar(datos, datos.length, salida);
+        filtro.terminar(salida);
+        assertThat(salida.toByteArray()).isEqualTo(datos);
+    }
+}